@@ -25,6 +25,9 @@ import static org.zkoss.ganttz.i18n.I18nHelper._;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
@@ -78,17 +81,35 @@ public class DependencyList extends XulElement implements AfterCompose {
         }
     }
 
+    /**
+     * Shows the dependency when both tasks are shown. Its component is
+     * created the first time it's shown, since the components of the tasks
+     * could not exist before
+     */
     private final class DependencyVisibilityToggler implements
             PropertyChangeListener {
-        private final Task source;
-        private final Task destination;
-        private final DependencyComponent dependencyComponent;
-
-        private DependencyVisibilityToggler(Task source, Task destination,
-                DependencyComponent dependencyComponent) {
-            this.source = source;
-            this.destination = destination;
-            this.dependencyComponent = dependencyComponent;
+        private final Dependency dependency;
+        private DependencyComponent dependencyComponent;
+
+        private DependencyVisibilityToggler(Dependency dependency) {
+            this.dependency = dependency;
+        }
+
+        private DependencyComponent getDependencyComponent() {
+            if (dependencyComponent == null) {
+                dependencyComponent = getGanttPanel().getTaskList()
+                        .asDependencyComponent(dependency);
+                dependencyComponent.setVisibilityChangeListener(this);
+            }
+            return dependencyComponent;
+        }
+
+        Task getSource() {
+            return dependency.getSource();
+        }
+
+        Task getDestination() {
+            return dependency.getDestination();
         }
 
         @Override
@@ -96,6 +117,10 @@ public class DependencyList extends XulElement implements AfterCompose {
             if (!evt.getPropertyName().equals("visible")) {
                 return;
             }
+            update();
+        }
+
+        void update() {
             if (dependencyMustBeVisible() != isDependencyNowVisible()) {
                 toggleDependencyExistence(dependencyMustBeVisible());
             }
@@ -103,20 +128,35 @@ public class DependencyList extends XulElement implements AfterCompose {
 
         void toggleDependencyExistence(boolean visible) {
             if (visible) {
-                appendChild(dependencyComponent);
-                dependencyComponent.afterCompose();
-                addContextMenu(dependencyComponent);
-            } else {
+                DependencyComponent component = getDependencyComponent();
+                appendChild(component);
+                component.afterCompose();
+                addContextMenu(component);
+            } else if (dependencyComponent != null) {
                 removeChild(dependencyComponent);
             }
         }
 
         boolean isDependencyNowVisible() {
-            return dependencyComponent.getParent() != null;
+            return dependencyComponent != null
+                    && dependencyComponent.getParent() != null;
         }
 
         boolean dependencyMustBeVisible() {
-            return source.isVisible() && destination.isVisible();
+            return isShown(getSource()) && isShown(getDestination());
+        }
+
+        private boolean isShown(Task task) {
+            return task.isVisible()
+                    && getGanttPanel().getTaskList().find(task) != null;
+        }
+
+        void removeListeners() {
+            getSource().removeVisibilityPropertiesChangeListener(this);
+            getDestination().removeVisibilityPropertiesChangeListener(this);
+            if (dependencyComponent != null) {
+                dependencyComponent.removeChangeListeners();
+            }
         }
     }
 
@@ -130,6 +170,8 @@ public class DependencyList extends XulElement implements AfterCompose {
 
     private Menupopup limitingContextMenu;
 
+    private final List<DependencyVisibilityToggler> dependencies = new ArrayList<DependencyVisibilityToggler>();
+
     public DependencyList(FunctionalityExposedForExtensions<?> context) {
         this.context = context;
     }
@@ -140,21 +182,24 @@ public class DependencyList extends XulElement implements AfterCompose {
                 .findComponentsOfType(DependencyComponent.class, children);
     }
 
-    void addDependencyComponent(final DependencyComponent dependencyComponent) {
-        TaskComponent source = dependencyComponent.getSource();
-        TaskComponent destination = dependencyComponent.getDestination();
+    /**
+     * Adds a dependency without creating its component. It's created when
+     * both tasks are shown, so the dependencies between tasks inside
+     * collapsed containers don't have a component.
+     */
+    void addDependency(Dependency dependency) {
         DependencyVisibilityToggler visibilityToggler = new DependencyVisibilityToggler(
-                source.getTask(), destination.getTask(), dependencyComponent);
-        source.getTask().addVisibilityPropertiesChangeListener(
-                visibilityToggler);
-        destination.getTask().addVisibilityPropertiesChangeListener(
+                dependency);
+        visibilityToggler.getSource().addVisibilityPropertiesChangeListener(
                 visibilityToggler);
-        dependencyComponent.setVisibilityChangeListener(visibilityToggler);
+        visibilityToggler.getDestination()
+                .addVisibilityPropertiesChangeListener(visibilityToggler);
+        dependencies.add(visibilityToggler);
         boolean dependencyMustBeVisible = visibilityToggler
                 .dependencyMustBeVisible();
         visibilityToggler.toggleDependencyExistence(dependencyMustBeVisible);
         if (dependencyMustBeVisible) {
-            dependencyComponent.redrawDependency();
+            visibilityToggler.getDependencyComponent().redrawDependency();
         }
     }
 
@@ -169,10 +214,9 @@ public class DependencyList extends XulElement implements AfterCompose {
         return (GanttPanel) getParent();
     }
 
-    public void setDependencyComponents(
-            List<DependencyComponent> dependencyComponents) {
-        for (DependencyComponent dependencyComponent : dependencyComponents) {
-            addDependencyComponent(dependencyComponent);
+    public void setDependencies(Collection<? extends Dependency> dependencies) {
+        for (Dependency each : dependencies) {
+            addDependency(each);
         }
     }
 
@@ -266,6 +310,17 @@ public class DependencyList extends XulElement implements AfterCompose {
         return getGanttPanel().getTimeTrackerComponent();
     }
 
+    /**
+     * Shows or hides the dependencies after the tasks shown have changed. The
+     * visible property of a task can be already set before it's shown, so the
+     * listeners are not always notified.
+     */
+    void updateVisibility() {
+        for (DependencyVisibilityToggler each : dependencies) {
+            each.update();
+        }
+    }
+
     public void redrawDependencies() {
         redrawDependencyComponents(getDependencyComponents());
     }
@@ -278,36 +333,37 @@ public class DependencyList extends XulElement implements AfterCompose {
     }
 
     public void taskRemoved(Task task) {
-        for (DependencyComponent dependencyComponent : DependencyList.this
-                .getDependencyComponents()) {
-            if (dependencyComponent.contains(task)) {
-                removeDependencyComponent(dependencyComponent);
+        Iterator<DependencyVisibilityToggler> iterator = dependencies
+                .iterator();
+        while (iterator.hasNext()) {
+            DependencyVisibilityToggler each = iterator.next();
+            if (each.getSource().equals(task)
+                    || each.getDestination().equals(task)) {
+                removeDependency(each);
+                iterator.remove();
             }
         }
     }
 
     public void remove(Dependency dependency) {
-        for (DependencyComponent dependencyComponent : DependencyList.this
-                .getDependencyComponents()) {
-            if (dependencyComponent.hasSameSourceAndDestination(dependency)) {
-                removeDependencyComponent(dependencyComponent);
+        Iterator<DependencyVisibilityToggler> iterator = dependencies
+                .iterator();
+        while (iterator.hasNext()) {
+            DependencyVisibilityToggler each = iterator.next();
+            if (each.getSource().equals(dependency.getSource())
+                    && each.getDestination().equals(
+                            dependency.getDestination())) {
+                removeDependency(each);
+                iterator.remove();
             }
         }
     }
 
-    private void removeDependencyComponent(DependencyComponent dependencyComponent) {
-        //remove the visibility listener attached to the tasks
-        TaskComponent source = dependencyComponent.getSource();
-        TaskComponent destination = dependencyComponent.getDestination();
-        PropertyChangeListener listener =
-                dependencyComponent.getVisibilityChangeListener();
-        source.getTask().removeVisibilityPropertiesChangeListener(listener);
-        destination.getTask().removeVisibilityPropertiesChangeListener(listener);
-
-        //remove other change listeners
-        dependencyComponent.removeChangeListeners();
+    private void removeDependency(DependencyVisibilityToggler visibilityToggler) {
+        //remove the visibility and other change listeners
+        visibilityToggler.removeListeners();
 
         //remove the dependency itself
-        this.removeChild(dependencyComponent);
+        visibilityToggler.toggleDependencyExistence(false);
     }
 }
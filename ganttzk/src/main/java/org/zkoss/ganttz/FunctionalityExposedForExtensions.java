@@ -27,8 +27,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.joda.time.LocalDate;
@@ -344,15 +346,10 @@ public class FunctionalityExposedForExtensions<T> implements IContext<T> {
             return;
         }
         diagramGraph.add(dependency);
-        getDependencyList().addDependencyComponent(
-                getTaskList().asDependencyComponent(dependency));
+        getDependencyList().addDependency(dependency);
         adapter.addDependency(toDomainDependency(dependency));
     }
 
-    private TaskList getTaskList() {
-        return planner.getTaskList();
-    }
-
     private boolean canAddDependency(Dependency dependency) {
         return diagramGraph.canAddDependency(dependency)
                 && adapter.canAddDependency(toDomainDependency(dependency));
@@ -403,14 +400,14 @@ public class FunctionalityExposedForExtensions<T> implements IContext<T> {
         CriticalPathCalculator<Task, Dependency> criticalPathCalculator = CriticalPathCalculator
                 .create(configuration.isDependenciesConstraintsHavePriority());
 
-        List<Task> criticalPath = criticalPathCalculator
-                .calculateCriticalPath(diagramGraph);
+        Set<Task> criticalPath = new HashSet<Task>(
+                criticalPathCalculator.calculateCriticalPath(diagramGraph));
         for (Task task : diagramGraph.getTasks()) {
             task.setInCriticalPath(isInCriticalPath(criticalPath, task));
         }
     }
 
-    private boolean isInCriticalPath(List<Task> criticalPath, Task task) {
+    private boolean isInCriticalPath(Set<Task> criticalPath, Task task) {
         if (task.isContainer()) {
             List<Task> allTaskLeafs = ((TaskContainer) task).getAllTaskLeafs();
             return CollectionUtils.containsAny(criticalPath, allTaskLeafs);
@@ -119,8 +119,7 @@ public class GanttPanel extends XulElement implements AfterCompose {
     @Override
     public void afterCompose() {
         tasksLists.afterCompose();
-        dependencyList.setDependencyComponents(tasksLists
-                .asDependencyComponents(diagramGraph.getVisibleDependencies()));
+        dependencyList.setDependencies(diagramGraph.getVisibleDependencies());
         timeTrackerComponent.afterCompose();
         dependencyList.afterCompose();
         savePreviousData();
@@ -257,9 +257,8 @@ public class Planner extends HtmlMacroComponent  {
         if (dependencyList == null) {
             return;
         }
-        for (DependencyComponent d : getTaskList().asDependencyComponents(
-                dependencies)) {
-            dependencyList.addDependencyComponent(d);
+        for (Dependency each : dependencies) {
+            dependencyList.addDependency(each);
         }
     }
 
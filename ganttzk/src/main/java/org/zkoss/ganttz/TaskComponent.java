@@ -25,7 +25,6 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import java.util.Date;
-import java.util.Map;
 import java.util.UUID;
 
 import org.apache.commons.lang.Validate;
@@ -616,15 +615,6 @@ public class TaskComponent extends Div implements AfterCompose {
         return getPage() != null;
     }
 
-    void publishTaskComponents(Map<Task, TaskComponent> resultAccumulated) {
-        resultAccumulated.put(getTask(), this);
-        publishDescendants(resultAccumulated);
-    }
-
-    protected void publishDescendants(Map<Task, TaskComponent> resultAccumulated) {
-
-    }
-
     protected void remove() {
         this.getRow().detach();
         task.removeReloadListener(reloadResourcesTextRequested);
@@ -24,7 +24,6 @@ package org.zkoss.ganttz;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
 
 import org.zkoss.ganttz.adapters.IDisabilityConfiguration;
 import org.zkoss.ganttz.data.Task;
@@ -64,9 +63,22 @@ public class TaskContainerComponent extends TaskComponent implements
             }
         };
         taskContainer.addExpandListener(expandListener);
-        for (Task task : taskContainer.getTasks()) {
-            getCurrentComponents().add(createChild(task));
+    }
+
+    /**
+     * The components of the subtasks are created the first time they are
+     * shown, so the subtasks of a container that is never expanded don't
+     * have any component
+     */
+    TaskComponent getOrCreateChild(Task task) {
+        for (TaskComponent each : getCurrentComponents()) {
+            if (each.getTask().equals(task)) {
+                return each;
+            }
         }
+        TaskComponent result = createChild(task);
+        subtaskComponents.add(result);
+        return result;
     }
 
     private TaskComponent createChild(Task task) {
@@ -74,13 +86,6 @@ public class TaskContainerComponent extends TaskComponent implements
                 false);
     }
 
-    @Override
-    protected void publishDescendants(Map<Task, TaskComponent> resultAccumulated) {
-        for (TaskComponent taskComponent : getCurrentComponents()) {
-            taskComponent.publishTaskComponents(resultAccumulated);
-        }
-    }
-
     @Override
     protected void remove() {
         if (isExpanded()) {
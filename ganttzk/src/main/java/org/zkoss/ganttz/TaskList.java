@@ -77,7 +77,12 @@ public class TaskList extends XulElement implements AfterCompose {
 
     private Set<Task> visibleTasks = new HashSet<Task>();
 
-    private Map<Task, TaskComponent> taskComponentByTask;
+    /**
+     * The components are created the first time their task is shown, so the
+     * tasks that are filtered out or inside collapsed containers don't have a
+     * component
+     */
+    private final Map<Task, TaskComponent> taskComponentByTask = new HashMap<Task, TaskComponent>();
 
     public TaskList(
             FunctionalityExposedForExtensions<?> context,
@@ -146,7 +151,6 @@ public class TaskList extends XulElement implements AfterCompose {
     }
 
     public void addTasks(Position position, Collection<? extends Task> newTasks) {
-        createAndPublishComponentsIfNeeded(newTasks);
         if (position.isAppendToTop()) {
             currentTotalTasks.addAll(newTasks);
         } else if (position.isAtTop()) {
@@ -158,14 +162,15 @@ public class TaskList extends XulElement implements AfterCompose {
         reload(true);
     }
 
+    /**
+     * @return the component of the task if it's currently shown,
+     *         <code>null</code> otherwise
+     */
     public TaskComponent find(Task task) {
-        List<TaskComponent> taskComponents = getTaskComponents();
-        for (TaskComponent taskComponent : taskComponents) {
-            if (taskComponent.getTask().equals(task)) {
-                return taskComponent;
-            }
+        if (!visibleTasks.contains(task)) {
+            return null;
         }
-        return null;
+        return taskComponentByTask.get(task);
     }
 
     private void addListenerForTaskComponentEditForm(
@@ -215,39 +220,27 @@ public class TaskList extends XulElement implements AfterCompose {
 
     @Override
     public void afterCompose() {
-        publishOriginalTasksAsComponents();
         registerZoomLevelChangedListener();
         reload(false);
     }
 
-    private void publishOriginalTasksAsComponents() {
-        taskComponentByTask = new HashMap<Task, TaskComponent>();
-        createAndPublishComponentsIfNeeded(currentTotalTasks);
-    }
-
-    private List<TaskComponent> createAndPublishComponentsIfNeeded(
-            Collection<? extends Task> newTasks) {
-        if (predicate.isFilterContainers()) {
-            List<Task> taskLeafs = new ArrayList<Task>();
-            for (Task task : newTasks) {
-                taskLeafs.addAll(task.getAllTaskLeafs());
-            }
-            newTasks = taskLeafs;
+    private TaskComponent getOrCreateComponent(Task task, TaskContainer parent) {
+        TaskComponent result = taskComponentByTask.get(task);
+        if (result != null) {
+            return result;
         }
-
-        List<TaskComponent> result = new ArrayList<TaskComponent>();
-        for (Task task : newTasks) {
-            TaskComponent taskComponent = taskComponentByTask.get(task);
-            if (taskComponent == null) {
-                taskComponent = TaskComponent.asTaskComponent(task,
-                        disabilityConfiguration);
-                taskComponent.publishTaskComponents(taskComponentByTask);
-            }
-            if (task.isContainer()) {
-                addExpandListenerTo((TaskContainer) task);
-            }
-            result.add(taskComponent);
+        TaskComponent parentComponent = parent == null ? null
+                : taskComponentByTask.get(parent);
+        if (parentComponent instanceof TaskContainerComponent) {
+            result = ((TaskContainerComponent) parentComponent)
+                    .getOrCreateChild(task);
+        } else {
+            // top level tasks and, when the containers are filtered, the
+            // leafs are shown without their parents
+            result = TaskComponent.asTaskComponent(task,
+                    disabilityConfiguration);
         }
+        taskComponentByTask.put(task, result);
         return result;
     }
 
@@ -334,12 +327,19 @@ public class TaskList extends XulElement implements AfterCompose {
 
     public void remove(Task task) {
         currentTotalTasks.remove(task);
-        for (TaskComponent taskComponent : getTaskComponents()) {
-            if (taskComponent.getTask().equals(task)) {
-                taskComponent.remove();
-                return;
+        removeComponents(task);
+    }
+
+    private void removeComponents(Task task) {
+        if (task.isContainer()) {
+            for (Task each : task.getTasks()) {
+                removeComponents(each);
             }
         }
+        TaskComponent taskComponent = taskComponentByTask.remove(task);
+        if (visibleTasks.remove(task)) {
+            taskComponent.remove();
+        }
     }
 
     public void addDependency(TaskComponent source, TaskComponent destination) {
@@ -353,13 +353,15 @@ public class TaskList extends XulElement implements AfterCompose {
 
     private void reload(boolean relocate) {
         ArrayList<Task> tasksPendingToAdd = new ArrayList<Task>();
-        reload(currentTotalTasks, tasksPendingToAdd, relocate);
+        reload(currentTotalTasks, null, tasksPendingToAdd, relocate);
         addPendingTasks(tasksPendingToAdd, null, relocate);
-        getGanttPanel().getDependencyList().redrawDependencies();
+        DependencyList dependencyList = getGanttPanel().getDependencyList();
+        dependencyList.updateVisibility();
+        dependencyList.redrawDependencies();
     }
 
-    private void reload(List<Task> tasks, List<Task> tasksPendingToAdd,
-            boolean relocate) {
+    private void reload(List<Task> tasks, TaskContainer parent,
+            List<Task> tasksPendingToAdd, boolean relocate) {
         for (Task task : tasks) {
             if (visibleTasks.contains(task)) {
                 addPendingTasks(tasksPendingToAdd, rowFor(task),
@@ -370,11 +372,13 @@ public class TaskList extends XulElement implements AfterCompose {
                 if (isShown) {
                     makeDisappear(task);
                 } else {
+                    getOrCreateComponent(task, parent);
                     tasksPendingToAdd.add(task);
                 }
             }
             if (task instanceof TaskContainer) {
-                reload(task.getTasks(), tasksPendingToAdd, relocate);
+                reload(task.getTasks(), (TaskContainer) task,
+                        tasksPendingToAdd, relocate);
             }
         }
     }
@@ -396,10 +400,14 @@ public class TaskList extends XulElement implements AfterCompose {
         if (tasksPendingToAdd.isEmpty()) {
             return;
         }
-        for (TaskComponent each : createAndPublishComponentsIfNeeded(tasksPendingToAdd)) {
-            addTaskComponent(insertBefore, each, relocate);
-            visibleTasks.add(each.getTask());
-            each.getTask().setVisible(true);
+        for (Task each : tasksPendingToAdd) {
+            addTaskComponent(insertBefore, taskComponentByTask.get(each),
+                    relocate);
+            if (each.isContainer()) {
+                addExpandListenerTo((TaskContainer) each);
+            }
+            visibleTasks.add(each);
+            each.setVisible(true);
         }
         tasksPendingToAdd.clear();
     }
@@ -425,60 +425,140 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         }
     }
 
+    /**
+     * Keeps a depth for every {@link TaskPoint} so that the depth of a point is
+     * always bigger than the depth of any point that can modify it. The depths
+     * are calculated once and then kept updated incrementally when tasks and
+     * dependencies are added or removed, so sorting the recalculations of a
+     * modification only depends on the number of points affected by it.
+     */
     class TopologicalSorter {
 
-        private Map<TaskPoint, Integer> taskPointsByDepthCached = null;
+        private Map<TaskPoint, Integer> depths = null;
 
         private Map<TaskPoint, Integer> taskPointsByDepth() {
-            if (taskPointsByDepthCached != null) {
-                return taskPointsByDepthCached;
+            if (depths == null) {
+                depths = calculateDepths();
             }
+            return depths;
+        }
 
-            Map<TaskPoint, Integer> result = new HashMap<TaskPoint, Integer>();
-            Map<TaskPoint, Set<TaskPoint>> visitedBy = new HashMap<TaskPoint, Set<TaskPoint>>();
-
-            Queue<TaskPoint> withoutIncoming = getInitial(withoutVisibleIncomingDependencies(getTopLevelTasks()));
-            for (TaskPoint each : withoutIncoming) {
-                initializeIfNeededForKey(result, each, 0);
+        private Map<TaskPoint, Integer> calculateDepths() {
+            List<TaskPoint> allPoints = new ArrayList<TaskPoint>();
+            for (V each : graph.vertexSet()) {
+                allPoints.addAll(pointsOf(each));
+            }
+            Map<TaskPoint, Integer> pendingPredecessors = new HashMap<TaskPoint, Integer>();
+            for (TaskPoint each : allPoints) {
+                pendingPredecessors.put(each, 0);
+            }
+            for (TaskPoint each : allPoints) {
+                for (TaskPoint successor : each.getImmediateSuccessors()) {
+                    Integer pending = pendingPredecessors.get(successor);
+                    pendingPredecessors.put(successor, pending == null ? 1
+                            : pending + 1);
+                }
             }
 
-            while (!withoutIncoming.isEmpty()) {
-                TaskPoint current = withoutIncoming.poll();
+            Map<TaskPoint, Integer> result = new HashMap<TaskPoint, Integer>();
+            Queue<TaskPoint> withoutPending = new LinkedList<TaskPoint>();
+            for (TaskPoint each : allPoints) {
+                if (pendingPredecessors.get(each) == 0) {
+                    result.put(each, 0);
+                    withoutPending.offer(each);
+                }
+            }
+            while (!withoutPending.isEmpty()) {
+                TaskPoint current = withoutPending.poll();
+                int successorsDepth = result.get(current) + 1;
                 for (TaskPoint each : current.getImmediateSuccessors()) {
-                    initializeIfNeededForKey(visitedBy, each,
-                            new HashSet<TaskPoint>());
-                    Set<TaskPoint> visitors = visitedBy.get(each);
-                    visitors.add(current);
-                    Set<TaskPoint> predecessorsRequired = each
-                            .getImmediatePredecessors();
-                    if (visitors.containsAll(predecessorsRequired)) {
-                        initializeIfNeededForKey(result, each,
-                                result.get(current) + 1);
-                        withoutIncoming.offer(each);
+                    Integer depth = result.get(each);
+                    if (depth == null || depth < successorsDepth) {
+                        result.put(each, successorsDepth);
+                    }
+                    int pending = pendingPredecessors.get(each) - 1;
+                    pendingPredecessors.put(each, pending);
+                    if (pending == 0) {
+                        withoutPending.offer(each);
                     }
                 }
             }
-            return taskPointsByDepthCached = Collections
-                    .unmodifiableMap(result);
+            return result;
+        }
+
+        public void recalculationNeeded() {
+            depths = null;
         }
 
-        private <K, T> void initializeIfNeededForKey(Map<K, T> map, K key,
-                T initialValue) {
-            if (!map.containsKey(key)) {
-                map.put(key, initialValue);
+        public void taskAdded(V task) {
+            if (depths == null) {
+                return;
+            }
+            List<TaskPoint> points = pointsOf(task);
+            for (int i = 0; i < points.size(); i++) {
+                if (!depths.containsKey(points.get(i))) {
+                    depths.put(points.get(i), i);
+                }
             }
         }
 
-        private LinkedList<TaskPoint> getInitial(List<V> initial) {
-            LinkedList<TaskPoint> result = new LinkedList<TaskPoint>();
-            for (V each : initial) {
-                result.add(allPointsPotentiallyModified(each));
+        public void taskRemoved(V task) {
+            if (depths == null) {
+                return;
+            }
+            for (TaskPoint each : pointsOf(task)) {
+                depths.remove(each);
             }
-            return result;
         }
 
-        public void recalculationNeeded() {
-            taskPointsByDepthCached = null;
+        /**
+         * Only the points reachable from the destination of the dependency
+         * can need a bigger depth. Removing dependencies doesn't invalidate
+         * the depths.
+         */
+        public void dependencyAdded(D dependency) {
+            if (depths == null) {
+                return;
+            }
+            TaskPoint destination = destinationPoint(dependency);
+            int required = 0;
+            for (TaskPoint each : pointsOf(getDependencySource(dependency))) {
+                Integer depth = depths.get(each);
+                if (depth != null
+                        && each.getImmediateSuccessors().contains(destination)) {
+                    required = Math.max(required, depth + 1);
+                }
+            }
+            increaseDepths(destination, required);
+        }
+
+        private void increaseDepths(TaskPoint start, int depth) {
+            Integer current = depths.get(start);
+            if (current != null && current >= depth) {
+                return;
+            }
+            int maxDepthWithoutLoops = 2 * depths.size() + 2;
+            depths.put(start, depth);
+            Queue<TaskPoint> pending = new LinkedList<TaskPoint>();
+            pending.offer(start);
+            while (!pending.isEmpty()) {
+                TaskPoint each = pending.poll();
+                int successorsDepth = depths.get(each) + 1;
+                if (successorsDepth > maxDepthWithoutLoops) {
+                    LOG.warn("loop detected from " + start
+                            + ". Depths will be recalculated");
+                    recalculationNeeded();
+                    return;
+                }
+                for (TaskPoint successor : each.getImmediateSuccessors()) {
+                    Integer successorDepth = depths.get(successor);
+                    if (successorDepth == null
+                            || successorDepth < successorsDepth) {
+                        depths.put(successor, successorsDepth);
+                        pending.offer(successor);
+                    }
+                }
+            }
         }
 
         public List<Recalculation> sort(
@@ -533,7 +613,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         while (!stack.isEmpty()){
             V task = stack.remove(0);
             graph.addVertex(task);
-            topologicalSorter.recalculationNeeded();
+            topologicalSorter.taskAdded(task);
             adapter.registerDependenciesEnforcerHookOn(task, enforcer);
             if (adapter.isContainer(task)) {
                 for (V child : adapter.getChildren(task)) {
@@ -918,11 +998,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         }
 
         void enforceRestrictionsOn(Collection<? extends V> tasks) {
-            List<Recalculation> allRecalculations = new ArrayList<Recalculation>();
-            for (V each : tasks) {
-                allRecalculations.addAll(getRecalculationsNeededFrom(each));
-            }
-            enforceRestrictionsOn(allRecalculations, tasks);
+            enforceRestrictionsOn(getRecalculationsNeededFrom(tasks), tasks);
         }
 
         void enforceRestrictionsOn(V task) {
@@ -1036,7 +1112,8 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
                     allModified.add(each.taskPoint.task);
                 }
             }
-            List<V> shrunkContainers = shrunkContainersOfModified(allModified);
+            List<V> shrunkContainers = shrunkContainersOfModified(
+                    initiallyModified, allModified);
             for (V each : getTaskAffectedByShrinking(shrunkContainers)) {
                 doRecalculations(getRecalculationsNeededFrom(each),
                         Collections.singletonList(each));
@@ -1057,15 +1134,29 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
             return tasksAffectedByShrinking;
         }
 
+        /**
+         * Only the containers of the modified tasks can need to shrink, along
+         * with the containers inside the tasks initially modified. They're
+         * shrunk from the deepest ones to the top level ones.
+         */
         private List<V> shrunkContainersOfModified(
-                Set<V> allModified) {
-            Set<V> topmostToShrink = getTopMostThatCouldPotentiallyNeedShrinking(allModified);
-            List<V> allToShrink = new ArrayList<V>();
-            for (V each : topmostToShrink) {
-                allToShrink.addAll(getContainersBottomUp(each));
+                Collection<? extends V> initiallyModified, Set<V> allModified) {
+            Set<V> toShrink = new HashSet<V>();
+            for (V each : initiallyModified) {
+                if (adapter.isContainer(each)) {
+                    toShrink.addAll(getContainersBottomUp(each));
+                }
+            }
+            for (V each : allModified) {
+                V current = adapter.isContainer(each) ? each
+                        : fromChildToParent.get(each);
+                while (current != null) {
+                    toShrink.add(current);
+                    current = fromChildToParent.get(current);
+                }
             }
             List<V> result = new ArrayList<V>();
-            for (V each : allToShrink) {
+            for (V each : deepestFirst(toShrink)) {
                 boolean modified = enforceParentShrinkage(each);
                 if (modified) {
                     result.add(each);
@@ -1074,15 +1165,19 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
             return result;
         }
 
-        private Set<V> getTopMostThatCouldPotentiallyNeedShrinking(
-                Collection<V> modified) {
-            Set<V> result = new HashSet<V>();
-            for (V each : modified) {
-                V t = getTopmostFor(each);
-                if (adapter.isContainer(t)) {
-                    result.add(t);
-                }
+        private List<V> deepestFirst(Collection<V> containers) {
+            final Map<V, Integer> levels = new HashMap<V, Integer>();
+            for (V each : containers) {
+                levels.put(each, fromTaskToTop(each).size());
             }
+            List<V> result = new ArrayList<V>(containers);
+            Collections.sort(result, new Comparator<V>() {
+
+                @Override
+                public int compare(V o1, V o2) {
+                    return levels.get(o2) - levels.get(o1);
+                }
+            });
             return result;
         }
 
@@ -1117,23 +1212,25 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
     }
 
     private GanttDate getSmallestBeginDateFromChildrenFor(V container) {
-        return Collections.min(getChildrenDates(container, Point.START));
+        GanttDate result = null;
+        for (V each : adapter.getChildren(container)) {
+            GanttDate start = adapter.getStartDate(each);
+            if (result == null || start.compareTo(result) < 0) {
+                result = start;
+            }
+        }
+        return result != null ? result : adapter.getStartDate(container);
     }
 
     private GanttDate getBiggestEndDateFromChildrenFor(V container) {
-        return Collections.max(getChildrenDates(container, Point.END));
-    }
-
-    private List<GanttDate> getChildrenDates(V container, Point point) {
-        List<V> children = adapter.getChildren(container);
-        List<GanttDate> result = new ArrayList<GanttDate>();
-        if (children.isEmpty()) {
-            result.add(getDateFor(container, point));
-        }
-        for (V each : children) {
-            result.add(getDateFor(each, point));
+        GanttDate result = null;
+        for (V each : adapter.getChildren(container)) {
+            GanttDate end = adapter.getEndDateFor(each);
+            if (result == null || end.compareTo(result) > 0) {
+                result = end;
+            }
         }
-        return result;
+        return result != null ? result : adapter.getEndDateFor(container);
     }
 
     GanttDate getDateFor(V task, Point point) {
@@ -1145,20 +1242,33 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
     }
 
     List<Recalculation> getRecalculationsNeededFrom(V task) {
+        return getRecalculationsNeededFrom(Collections.singletonList(task));
+    }
+
+    /**
+     * The recalculations for several modified tasks are calculated at once, so
+     * each task point reachable from several of them is only recalculated
+     * once.
+     */
+    List<Recalculation> getRecalculationsNeededFrom(
+            Collection<? extends V> tasks) {
         List<Recalculation> result = new ArrayList<Recalculation>();
         Set<Recalculation> parentRecalculationsAlreadyDone = new HashSet<Recalculation>();
-        Recalculation first = recalculationFor(allPointsPotentiallyModified(task));
-        first.couldHaveBeenModifiedBeforehand();
-
-        result.addAll(getParentsRecalculations(parentRecalculationsAlreadyDone,
-                first.taskPoint));
-        result.add(first);
-
         Queue<Recalculation> pendingOfVisit = new LinkedList<Recalculation>();
-        pendingOfVisit.offer(first);
-
         Map<Recalculation, Recalculation> alreadyVisited = new HashMap<Recalculation, Recalculation>();
-        alreadyVisited.put(first, first);
+
+        for (V each : tasks) {
+            Recalculation first = recalculationFor(allPointsPotentiallyModified(each));
+            if (alreadyVisited.containsKey(first)) {
+                continue;
+            }
+            first.couldHaveBeenModifiedBeforehand();
+            result.addAll(getParentsRecalculations(
+                    parentRecalculationsAlreadyDone, first.taskPoint));
+            result.add(first);
+            pendingOfVisit.offer(first);
+            alreadyVisited.put(first, first);
+        }
 
         while (!pendingOfVisit.isEmpty()) {
             Recalculation current = pendingOfVisit.poll();
@@ -1281,7 +1391,8 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         }
 
         private boolean haveToDoCalculation() {
-            return recalculationsCouldAffectThis.isEmpty()
+            return couldHaveBeenModifiedBeforehand
+                    || recalculationsCouldAffectThis.isEmpty()
                     || predecessorsHaveBeenModified();
         }
 
@@ -1940,6 +2051,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
 
     public void remove(final V task) {
         Set<V> needingEnforcing = getOutgoingTasksFor(task);
+        topologicalSorter.taskRemoved(task);
         graph.removeVertex(task);
         topLevelTasks.remove(task);
         fromChildToParent.remove(task);
@@ -1948,13 +2060,11 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
                 remove(t);
             }
         }
-        topologicalSorter.recalculationNeeded();
         enforcer.enforceRestrictionsOn(needingEnforcing);
     }
 
     public void removeDependency(D dependency) {
         graph.removeEdge(dependency);
-        topologicalSorter.recalculationNeeded();
         V destination = adapter.getDestination(dependency);
         V source = adapter.getSource(dependency);
         enforcer.enforceRestrictionsOn(destination);
@@ -2002,7 +2112,7 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         V source = adapter.getSource(dependency);
         V destination = adapter.getDestination(dependency);
         graph.addEdge(source, destination, dependency);
-        topologicalSorter.recalculationNeeded();
+        topologicalSorter.dependencyAdded(dependency);
         if (enforceRestrictions) {
             enforceRestrictions(destination);
         }
@@ -2178,11 +2288,6 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         return type.getSourceAndDestination()[isScheduleForward() ? 1 : 0];
     }
 
-    TaskPoint sourcePoint(D dependency) {
-        V source = getDependencySource(dependency);
-        return new TaskPoint(source, getSourcePoint(dependency.getType()));
-    }
-
     /**
      * The dominating point is the one that causes the other point to be
      * modified; e.g. when doing forward scheduling the dominating point is the
@@ -2196,10 +2301,6 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         return isScheduleForward() ? Point.START : Point.END;
     }
 
-    private Point getSourcePoint(DependencyType type) {
-        return type.getSourceAndDestination()[isScheduleForward() ? 0 : 1];
-    }
-
     private V getDependencySource(D dependency) {
         return isScheduleForward() ? adapter.getSource(dependency) : adapter
                 .getDestination(dependency);
@@ -2214,6 +2315,15 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
         return new TaskPoint(task, getDominatingPoint());
     }
 
+    /**
+     * @return the point modifying all the task and the point that is only
+     *         modified by it, in this order
+     */
+    private List<TaskPoint> pointsOf(V task) {
+        return asList(allPointsPotentiallyModified(task), new TaskPoint(task,
+                getDominatingPoint().getOther()));
+    }
+
     private class TaskPoint {
 
         private final V task;
@@ -2313,29 +2423,6 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
                     .unmodifiableSet(result);
         }
 
-        private Set<TaskPoint> cachedImmediatePredecessors = null;
-
-        public Set<TaskPoint> getImmediatePredecessors() {
-            if (cachedImmediatePredecessors != null) {
-                return cachedImmediatePredecessors;
-            }
-            Set<TaskPoint> result = new HashSet<TaskPoint>();
-            if (!isDominatingPoint(entryPoint)) {
-                TaskPoint dominating = allPointsPotentiallyModified(task);
-                assert isDominatingPoint(dominating.entryPoint);
-                assert this.isImmediatelyDerivedFrom(dominating);
-                result.add(dominating);
-            }
-            for (D each : immediateIncomingDependencies()) {
-                if (this.receivesModificationsThrough(each)) {
-                    TaskPoint sourcePoint = sourcePoint(each);
-                    result.add(sourcePoint);
-                }
-            }
-            return cachedImmediatePredecessors = Collections
-                    .unmodifiableSet(result);
-        }
-
         private Collection<TaskPoint> getImmediatelyDerivedOnSameTask() {
             for (Point each : pointsModified) {
                 if (isDominatingPoint(each)) {
@@ -2351,11 +2438,6 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
                     : graph.incomingEdgesOf(this.task);
         }
 
-        private Set<D> immediateIncomingDependencies() {
-            return isScheduleForward() ? graph.incomingEdgesOf(this.task)
-                    : graph.outgoingEdgesOf(this.task);
-        }
-
         public boolean sendsModificationsThrough(D dependency) {
             V source = getDependencySource(dependency);
             Point dependencySourcePoint = getSourcePoint(adapter
@@ -2371,26 +2453,10 @@ public class GanttDiagramGraph<V, D extends IDependency<V>> implements
             return sourceAndDestination[isScheduleForward() ? 0 : 1];
         }
 
-        private boolean receivesModificationsThrough(D dependency) {
-            V destination = getDependencyDestination(dependency);
-            Point destinationPoint = getDestinationPoint(adapter
-                    .getType(dependency));
-
-            return destination.equals(task) && entryPoint == destinationPoint;
-        }
-
     }
 
 
 
-    private V getTopmostFor(V task) {
-        V result = task;
-        while (fromChildToParent.containsKey(result)) {
-            result = fromChildToParent.get(result);
-        }
-        return result;
-    }
-
     public boolean isScheduleForward() {
         return !isScheduleBackwards();
     }
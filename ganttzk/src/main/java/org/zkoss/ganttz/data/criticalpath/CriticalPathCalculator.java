@@ -68,23 +68,88 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
 
     private Map<T, Map<T, DependencyType>> dependencies;
 
-    private class VisitorTracker {
+    /**
+     * The nodes indexed by position. The forward and backward passes work over
+     * these arrays instead of the {@link Node} objects, so each dependency type
+     * and date constraint is only looked up once.
+     */
+    private List<Node<T, D>> indexedNodes;
 
-        private Map<T, Set<T>> visitorsOn = new HashMap<T, Set<T>>();
+    private int[] durations;
 
-        void visit(T visited, T visitor) {
-            if (!visitorsOn.containsKey(visited)) {
-                visitorsOn.put(visited, new HashSet<T>());
+    private List<Constraint<GanttDate>> constraints;
+
+    private Edge[][] successors;
+
+    private Edge[][] predecessors;
+
+    private int[] initialNodes;
+
+    private int[] lastNodes;
+
+    private int[] earliestStart;
+
+    private int[] latestFinish;
+
+    private boolean[] hasLatestFinish;
+
+    private int projectEarliestFinish;
+
+    private static class Edge {
+
+        private final int node;
+
+        private final DependencyType type;
+
+        /**
+         * If the origin of the edge is among the tasks the destination must
+         * wait for before being processed
+         */
+        private final boolean countsForReadiness;
+
+        private Edge(int node, DependencyType type, boolean countsForReadiness) {
+            this.node = node;
+            this.type = type;
+            this.countsForReadiness = countsForReadiness;
+        }
+    }
+
+    /**
+     * Stack of pending node indexes
+     */
+    private static class Pending {
+
+        private int[] elements;
+
+        private int size = 0;
+
+        private boolean[] isPending;
+
+        Pending(int capacity) {
+            elements = new int[Math.max(capacity, 1)];
+            isPending = new boolean[capacity];
+        }
+
+        void push(int node) {
+            if (isPending[node]) {
+                return;
+            }
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
             }
-            visitorsOn.get(visited).add(visitor);
+            elements[size++] = node;
+            isPending[node] = true;
         }
 
-        boolean hasBeenVisitedByAll(T current,
-                Collection<? extends T> collection) {
-            return visitorsOn.containsKey(current)
-                    && visitorsOn.get(current).containsAll(collection);
+        boolean isEmpty() {
+            return size == 0;
         }
 
+        int pop() {
+            int result = elements[--size];
+            isPending[result] = false;
+            return result;
+        }
     }
 
     public List<T> calculateCriticalPath(ICriticalPathCalculable<T> graph) {
@@ -99,10 +164,10 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
 
         nodes = createGraphNodes();
 
-        forward(bop, null, new VisitorTracker());
-        eop.updateLatestValues();
+        index();
 
-        backward(eop, null, new VisitorTracker());
+        forward();
+        backward();
 
         return getTasksOnCriticalPath();
     }
@@ -273,6 +338,79 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         destinations.put(destination, type);
     }
 
+    private void index() {
+        int size = nodes.size();
+        indexedNodes = new ArrayList<Node<T, D>>(nodes.values());
+        Map<T, Integer> positions = new HashMap<T, Integer>();
+        durations = new int[size];
+        constraints = new ArrayList<Constraint<GanttDate>>(size);
+        for (int i = 0; i < size; i++) {
+            Node<T, D> node = indexedNodes.get(i);
+            positions.put(node.getTask(), i);
+            durations[i] = node.getDuration();
+            constraints.add(getDateConstraints(node.getTask()));
+        }
+
+        List<List<Edge>> incoming = new ArrayList<List<Edge>>(size);
+        for (int i = 0; i < size; i++) {
+            incoming.add(new ArrayList<Edge>());
+        }
+        successors = new Edge[size][];
+        for (int i = 0; i < size; i++) {
+            Node<T, D> origin = indexedNodes.get(i);
+            List<Edge> outgoing = new ArrayList<Edge>();
+            for (T each : origin.getNextTasks()) {
+                Integer destination = positions.get(each);
+                if (destination == null) {
+                    continue;
+                }
+                DependencyType type = getDependencyTypeEndStartByDefault(
+                        origin.getTask(), each);
+                boolean symmetric = indexedNodes.get(destination)
+                        .getPreviousTasks().contains(origin.getTask());
+                outgoing.add(new Edge(destination, type, symmetric));
+                if (symmetric) {
+                    incoming.get(destination).add(new Edge(i, type, true));
+                }
+            }
+            successors[i] = outgoing.toArray(new Edge[outgoing.size()]);
+        }
+        predecessors = new Edge[size][];
+        for (int i = 0; i < size; i++) {
+            Node<T, D> destination = indexedNodes.get(i);
+            List<Edge> edges = incoming.get(i);
+            for (T each : destination.getPreviousTasks()) {
+                Integer origin = positions.get(each);
+                if (origin != null
+                        && !indexedNodes.get(origin).getNextTasks()
+                                .contains(destination.getTask())) {
+                    edges.add(new Edge(origin,
+                            getDependencyTypeEndStartByDefault(each,
+                                    destination.getTask()), false));
+                }
+            }
+            predecessors[i] = edges.toArray(new Edge[edges.size()]);
+        }
+
+        initialNodes = positionsOf(positions, bop.getNextTasks());
+        lastNodes = positionsOf(positions, eop.getPreviousTasks());
+    }
+
+    private int[] positionsOf(Map<T, Integer> positions, Set<T> tasks) {
+        List<Integer> result = new ArrayList<Integer>();
+        for (T each : tasks) {
+            Integer position = positions.get(each);
+            if (position != null) {
+                result.add(position);
+            }
+        }
+        int[] array = new int[result.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = result.get(i);
+        }
+        return array;
+    }
+
     private DependencyType getDependencyTypeEndStartByDefault(T from, T to) {
         if ((from != null) && (to != null)) {
             IDependency<T> dependency = graph.getDependencyFrom(from, to);
@@ -291,71 +429,93 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         return DependencyType.END_START;
     }
 
-    private void forward(Node<T, D> currentNode, T previousTask,
-            VisitorTracker visitorTracker) {
-        T currentTask = currentNode.getTask();
-        int earliestStart = currentNode.getEarliestStart();
-        int earliestFinish = currentNode.getEarliestFinish();
-
-        Set<T> nextTasks = currentNode.getNextTasks();
-        if (nextTasks.isEmpty()) {
-            eop.setEarliestStart(earliestFinish);
-        } else {
-            int countStartStart = 0;
-
-            for (T task : nextTasks) {
-                visitorTracker.visit(task, currentTask);
-                if (graph.isContainer(currentTask)) {
-                    if (graph.contains(currentTask, previousTask)) {
-                        if (graph.contains(currentTask, task)) {
-                            continue;
-                        }
-                    }
-                }
+    /**
+     * Calculates the earliest start of each node visiting them in topological
+     * order. A node is processed once all its previous tasks have been
+     * processed. If a node already processed receives a later earliest start
+     * it's processed again, so the result doesn't depend on the visiting order.
+     */
+    private void forward() {
+        int size = indexedNodes.size();
+        earliestStart = new int[size];
+        int[] remaining = new int[size];
+        boolean[] visited = new boolean[size];
+        boolean[] processed = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            remaining[i] = indexedNodes.get(i).getPreviousTasks().size();
+        }
+        projectEarliestFinish = 0;
 
-                Node<T, D> node = nodes.get(task);
-                DependencyType dependencyType = getDependencyTypeEndStartByDefault(
-                        currentTask, task);
-                Constraint<GanttDate> constraint = getDateConstraints(task);
+        Pending pending = new Pending(size);
+        for (int each : initialNodes) {
+            boolean changed = setEarliestStart(each, 0);
+            visit(pending, each, false, changed, remaining, visited,
+                    processed);
+        }
+        while (!pending.isEmpty()) {
+            int current = pending.pop();
+            processed[current] = true;
+            int start = earliestStart[current];
+            int finish = start + durations[current];
 
-                switch (dependencyType) {
+            Edge[] next = successors[current];
+            int countStartStart = 0;
+            for (Edge edge : next) {
+                int node = edge.node;
+                boolean changed;
+                switch (edge.type) {
                 case START_START:
-                    setEarliestStart(node, earliestStart, constraint);
+                    changed = setEarliestStart(node, start);
                     countStartStart++;
                     break;
                 case END_END:
-                    setEarliestStart(node, earliestFinish - node.getDuration(),
-                            constraint);
+                    changed = setEarliestStart(node,
+                            finish - durations[node]);
                     break;
                 case END_START:
                 default:
-                    setEarliestStart(node, earliestFinish, constraint);
+                    changed = setEarliestStart(node, finish);
                     break;
                 }
-
-                if (visitorTracker.hasBeenVisitedByAll(task,
-                        node.getPreviousTasks())) {
-                    forward(node, currentTask, visitorTracker);
-                }
+                visit(pending, node, edge.countsForReadiness, changed,
+                        remaining, visited, processed);
             }
-
-            if (nextTasks.size() == countStartStart) {
-                eop.setEarliestStart(earliestFinish);
+            if (next.length == countStartStart) {
+                projectEarliestFinish = Math.max(projectEarliestFinish,
+                        finish);
             }
         }
     }
 
-    private void setEarliestStart(Node<T, D> node, int earliestStart,
-            Constraint<GanttDate> constraint) {
+    private void visit(Pending pending, int node, boolean countsForReadiness,
+            boolean changed, int[] remaining, boolean[] visited,
+            boolean[] processed) {
+        visited[node] = true;
+        if (countsForReadiness) {
+            remaining[node]--;
+        }
+        if (remaining[node] > 0) {
+            return;
+        }
+        if (!processed[node] || changed) {
+            pending.push(node);
+        }
+    }
+
+    private boolean setEarliestStart(int node, int start) {
+        Constraint<GanttDate> constraint = constraints.get(node);
         if (constraint != null) {
-            GanttDate date = GanttDate.createFrom(initDate
-                    .plusDays(earliestStart));
+            GanttDate date = GanttDate.createFrom(initDate.plusDays(start));
             date = constraint.applyTo(date);
-            earliestStart = Days.daysBetween(initDate,
+            start = Days.daysBetween(initDate,
                     LocalDate.fromDateFields(date.toDayRoundedDate()))
                     .getDays();
         }
-        node.setEarliestStart(earliestStart);
+        if (earliestStart[node] < start) {
+            earliestStart[node] = start;
+            return true;
+        }
+        return false;
     }
 
     private Constraint<GanttDate> getDateConstraints(T task) {
@@ -377,84 +537,87 @@ public class CriticalPathCalculator<T, D extends IDependency<T>> {
         if (endConstraints == null || endConstraints.isEmpty()) {
             return Constraint.coalesce(startConstraints);
         }
-        startConstraints.addAll(endConstraints);
-        return Constraint.coalesce(startConstraints);
+        List<Constraint<GanttDate>> all = new ArrayList<Constraint<GanttDate>>(
+                startConstraints);
+        all.addAll(endConstraints);
+        return Constraint.coalesce(all);
     }
 
-    private void backward(Node<T, D> currentNode, T nextTask,
-            VisitorTracker visitorTracker) {
-        T currentTask = currentNode.getTask();
-        int latestStart = currentNode.getLatestStart();
-        int latestFinish = currentNode.getLatestFinish();
-
-        Set<T> previousTasks = currentNode.getPreviousTasks();
-        if (previousTasks.isEmpty()) {
-            bop.setLatestFinish(latestStart);
-        } else {
-            int countEndEnd = 0;
-
-            for (T task : previousTasks) {
-                visitorTracker.visit(task, currentTask);
-                if (graph.isContainer(currentTask)) {
-                    if (graph.contains(currentTask, nextTask)) {
-                        if (graph.contains(currentTask, task)) {
-                            continue;
-                        }
-                    }
-                }
-
-                Node<T, D> node = nodes.get(task);
-                DependencyType dependencyType = getDependencyTypeEndStartByDefault(
-                        task, currentTask);
-                Constraint<GanttDate> constraint = getDateConstraints(task);
+    /**
+     * Calculates the latest finish of each node visiting them in reverse
+     * topological order, analogously to {@link #forward()}
+     */
+    private void backward() {
+        int size = indexedNodes.size();
+        latestFinish = new int[size];
+        hasLatestFinish = new boolean[size];
+        int[] remaining = new int[size];
+        boolean[] visited = new boolean[size];
+        boolean[] processed = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            remaining[i] = indexedNodes.get(i).getNextTasks().size();
+        }
 
-                switch (dependencyType) {
+        Pending pending = new Pending(size);
+        for (int each : lastNodes) {
+            boolean changed = setLatestFinish(each, projectEarliestFinish);
+            visit(pending, each, false, changed, remaining, visited,
+                    processed);
+        }
+        while (!pending.isEmpty()) {
+            int current = pending.pop();
+            processed[current] = true;
+            int finish = latestFinish[current];
+            int start = finish - durations[current];
+
+            for (Edge edge : predecessors[current]) {
+                int node = edge.node;
+                boolean changed;
+                switch (edge.type) {
                 case START_START:
-                    setLatestFinish(node, latestStart + node.getDuration(),
-                            constraint);
+                    changed = setLatestFinish(node, start + durations[node]);
                     break;
                 case END_END:
-                    setLatestFinish(node, latestFinish, constraint);
-                    countEndEnd++;
+                    changed = setLatestFinish(node, finish);
                     break;
                 case END_START:
                 default:
-                    setLatestFinish(node, latestStart, constraint);
+                    changed = setLatestFinish(node, start);
                     break;
                 }
-
-                if (visitorTracker.hasBeenVisitedByAll(task,
-                        node.getNextTasks())) {
-                    backward(node, currentTask, visitorTracker);
-                }
-            }
-
-            if (previousTasks.size() == countEndEnd) {
-                bop.setLatestFinish(latestStart);
+                visit(pending, node, edge.countsForReadiness, changed,
+                        remaining, visited, processed);
             }
         }
     }
 
-    private void setLatestFinish(Node<T, D> node, int latestFinish,
-            Constraint<GanttDate> constraint) {
+    private boolean setLatestFinish(int node, int finish) {
+        Constraint<GanttDate> constraint = constraints.get(node);
         if (constraint != null) {
-            int duration = node.getDuration();
-            GanttDate date = GanttDate.createFrom(initDate.plusDays(latestFinish - duration));
+            int duration = durations[node];
+            GanttDate date = GanttDate.createFrom(initDate.plusDays(finish
+                    - duration));
             date = constraint.applyTo(date);
             int daysBetween = Days.daysBetween(initDate,
                     LocalDate.fromDateFields(date.toDayRoundedDate()))
                     .getDays();
-            latestFinish = daysBetween + duration;
+            finish = daysBetween + duration;
+        }
+        if (!hasLatestFinish[node] || latestFinish[node] > finish) {
+            latestFinish[node] = finish;
+            hasLatestFinish[node] = true;
+            return true;
         }
-        node.setLatestFinish(latestFinish);
+        return false;
     }
 
     private List<T> getTasksOnCriticalPath() {
         List<T> result = new ArrayList<T>();
 
-        for (Node<T, D> node : nodes.values()) {
-            if (node.getLatestStart() == node.getEarliestStart()) {
-                result.add(node.getTask());
+        for (int i = 0; i < indexedNodes.size(); i++) {
+            if (hasLatestFinish[i]
+                    && latestFinish[i] - durations[i] == earliestStart[i]) {
+                result.add(indexedNodes.get(i).getTask());
             }
         }
 
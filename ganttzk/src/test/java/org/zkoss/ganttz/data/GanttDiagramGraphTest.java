@@ -0,0 +1,209 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zkoss.ganttz.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.zkoss.ganttz.data.GanttDiagramGraph.GanttZKDiagramGraph;
+import org.zkoss.ganttz.data.ITaskFundamentalProperties.IModifications;
+import org.zkoss.ganttz.data.ITaskFundamentalProperties.IUpdatablePosition;
+import org.zkoss.ganttz.data.constraint.Constraint;
+
+/**
+ * Tests for {@link GanttDiagramGraph}.
+ */
+public class GanttDiagramGraphTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private static final long DAY_MILLISECONDS = 24 * 60 * 60 * 1000L;
+
+    private GanttZKDiagramGraph graph;
+
+    @Before
+    public void createGraph() {
+        graph = GanttDiagramGraph.create(false,
+                Collections.<Constraint<GanttDate>> emptyList(),
+                Collections.<Constraint<GanttDate>> emptyList(), false);
+    }
+
+    private static GanttDate day(int day) {
+        return GanttDate.createFrom(START.plusDays(day));
+    }
+
+    private static ITaskFundamentalProperties properties(String name,
+            int startDay, int days) {
+        Date start = START.plusDays(startDay).toDateTimeAtStartOfDay()
+                .toDate();
+        return new DefaultFundamentalProperties(name, start, days
+                * DAY_MILLISECONDS, "", start, start, start, null, null, null);
+    }
+
+    private Task task(String name, int startDay, int days) {
+        Task result = new TaskLeaf(properties(name, startDay, days));
+        graph.addTopLevel(result);
+        return result;
+    }
+
+    private TaskContainer container(String name, Task... children) {
+        GanttDate start = children[0].getBeginDate();
+        GanttDate end = children[0].getEndDate();
+        for (Task each : children) {
+            start = GanttDate.min(start, each.getBeginDate());
+            end = GanttDate.max(end, each.getEndDate());
+        }
+        int startDay = days(day(0), start);
+        TaskContainer result = new TaskContainer(properties(name, startDay,
+                days(start, end)), true);
+        for (Task each : children) {
+            result.add(each);
+        }
+        return result;
+    }
+
+    private static int days(GanttDate start, GanttDate end) {
+        return Days.daysBetween(start.toLocalDate(), end.toLocalDate())
+                .getDays();
+    }
+
+    private void dependency(Task source, Task destination,
+            DependencyType type) {
+        graph.add(new Dependency(source, destination, type));
+    }
+
+    private static void moveTo(Task task, final GanttDate date) {
+        task.doPositionModifications(new IModifications() {
+
+            @Override
+            public void doIt(IUpdatablePosition position) {
+                position.moveTo(date);
+            }
+        });
+    }
+
+    private static void resizeTo(Task task, final GanttDate end) {
+        task.doPositionModifications(new IModifications() {
+
+            @Override
+            public void doIt(IUpdatablePosition position) {
+                position.resizeTo(end);
+            }
+        });
+    }
+
+    @Test
+    public void anEndEndSuccessorEndsAfterItsPredecessor() {
+        Task a = task("a", 0, 5);
+        Task b = task("b", 0, 2);
+        dependency(a, b, DependencyType.END_END);
+        assertEquals(day(5), b.getEndDate());
+
+        moveTo(a, day(10));
+        assertEquals(day(15), b.getEndDate());
+        assertEquals(day(13), b.getBeginDate());
+    }
+
+    @Test
+    public void anEndEndSuccessorOfAMovedSuccessorIsMoved() {
+        Task a = task("a", 0, 5);
+        Task c = task("c", 5, 3);
+        Task d = task("d", 0, 2);
+        Task unrelated = task("unrelated", 0, 4);
+        dependency(a, c, DependencyType.END_START);
+        dependency(c, d, DependencyType.END_END);
+        assertEquals(day(8), d.getEndDate());
+
+        moveTo(a, day(10));
+        assertEquals(day(15), c.getBeginDate());
+        assertEquals(day(18), d.getEndDate());
+        assertEquals(day(0), unrelated.getBeginDate());
+    }
+
+    @Test
+    public void anEndEndSuccessorAddedAfterTheFirstMoveIsMovedAfterItsPredecessor() {
+        Task a = task("a", 0, 5);
+        Task c = task("c", 5, 3);
+        Task d = task("d", 0, 2);
+        dependency(a, c, DependencyType.END_START);
+        moveTo(a, day(1));
+        assertEquals(day(6), c.getBeginDate());
+
+        dependency(c, d, DependencyType.END_END);
+        assertEquals(day(9), d.getEndDate());
+
+        moveTo(a, day(10));
+        assertEquals(day(15), c.getBeginDate());
+        assertEquals(day(18), d.getEndDate());
+    }
+
+    @Test
+    public void enforcingAllRestrictionsMovesTheEndEndSuccessors() {
+        Task a = task("a", 0, 5);
+        Task c = task("c", 0, 3);
+        Task d = task("d", 0, 2);
+        graph.addWithoutEnforcingConstraints(new Dependency(a, c,
+                DependencyType.END_START));
+        graph.addWithoutEnforcingConstraints(new Dependency(c, d,
+                DependencyType.END_END));
+
+        graph.enforceAllRestrictions();
+        assertEquals(day(5), c.getBeginDate());
+        assertEquals(day(8), d.getEndDate());
+    }
+
+    @Test
+    public void anEndEndSuccessorOfAContainerMovesWhenAChildEndsLater() {
+        Task child = new TaskLeaf(properties("child", 0, 5));
+        TaskContainer container = container("container", child);
+        graph.addTopLevel(container);
+        Task successor = task("successor", 0, 2);
+        dependency(container, successor, DependencyType.END_END);
+        assertEquals(day(5), successor.getEndDate());
+
+        resizeTo(child, day(15));
+        assertEquals(day(15), container.getEndDate());
+        assertEquals(day(15), successor.getEndDate());
+    }
+
+    @Test
+    public void anEndEndSuccessorInsideAnotherContainerIsMoved() {
+        Task child = new TaskLeaf(properties("child", 0, 5));
+        Task sibling = new TaskLeaf(properties("sibling", 0, 1));
+        TaskContainer first = container("first", child, sibling);
+        Task successor = new TaskLeaf(properties("successor", 0, 2));
+        TaskContainer second = container("second", successor);
+        graph.addTopLevel(first);
+        graph.addTopLevel(second);
+        dependency(child, successor, DependencyType.END_END);
+        assertEquals(day(5), successor.getEndDate());
+
+        resizeTo(child, day(15));
+        assertEquals(day(15), successor.getEndDate());
+        assertEquals(day(15), second.getEndDate());
+        assertEquals(day(0), sibling.getBeginDate());
+    }
+
+}
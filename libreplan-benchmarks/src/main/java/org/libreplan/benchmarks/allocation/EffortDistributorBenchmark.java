@@ -0,0 +1,146 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.benchmarks.allocation;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.libreplan.benchmarks.calendars.SyntheticCalendars;
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.calendars.entities.Capacity;
+import org.libreplan.business.planner.entities.AssignedEffortForResource.IAssignedEffortForResource;
+import org.libreplan.business.planner.entities.EffortDistributor;
+import org.libreplan.business.planner.entities.EffortDistributor.ResourceWithAssignedDuration;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link EffortDistributor}, which spreads the effort of a generic
+ * allocation among the resources day by day, over pools of workers with their
+ * own calendars and some load already assigned.
+ * <p>
+ * It's the core of the allocation algorithms, e.g. the one used by
+ * <code>UntilFillingHoursAllocator</code>. The allocators themselves need
+ * tasks belonging to an order, which can't be built without a database.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EffortDistributorBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int resources;
+
+    @Param({ "30", "365" })
+    private int allocationDays;
+
+    @Param({ "0", "0.05" })
+    private double exceptionsDensity;
+
+    private EffortDistributor distributor;
+
+    private EffortDuration effortPerDay;
+
+    @Setup
+    public void createResources() {
+        Random random = new Random(1L);
+        BaseCalendar parent = SyntheticCalendars.createBaseCalendar(
+                allocationDays, exceptionsDensity, random);
+        List<Resource> pool = new ArrayList<Resource>();
+        final Map<Resource, int[]> assignedHours = new IdentityHashMap<Resource, int[]>();
+        for (int i = 0; i < resources; i++) {
+            Worker worker = Worker.create();
+            worker.setCalendar(SyntheticCalendars.createResourceCalendar(
+                    parent, allocationDays, exceptionsDensity, random));
+            pool.add(worker);
+            assignedHours.put(worker, randomLoad(random));
+        }
+        distributor = new EffortDistributor(pool,
+                new IAssignedEffortForResource() {
+
+                    @Override
+                    public EffortDuration getAssignedDurationAt(
+                            Resource resource, LocalDate day) {
+                        int[] hours = assignedHours.get(resource);
+                        int index = Days.daysBetween(SyntheticCalendars.START,
+                                day).getDays();
+                        return index >= 0 && index < hours.length ? EffortDuration
+                                .hours(hours[index]) : EffortDuration.zero();
+                    }
+                });
+        effortPerDay = EffortDuration.hours(4 * resources);
+    }
+
+    /**
+     * Around half of the days the resource is already busy between one and
+     * eight hours
+     */
+    private int[] randomLoad(Random random) {
+        int[] result = new int[allocationDays];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = random.nextBoolean() ? 1 + random.nextInt(8) : 0;
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<ResourceWithAssignedDuration> distributeEachDay() {
+        List<ResourceWithAssignedDuration> result = null;
+        for (int i = 0; i < allocationDays; i++) {
+            result = distributor.distributeForDay(
+                    PartialDay.wholeDay(SyntheticCalendars.START.plusDays(i)),
+                    effortPerDay);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Capacity getCapacityEachDay() {
+        Capacity result = null;
+        for (int i = 0; i < allocationDays; i++) {
+            result = distributor.getCapacityAt(PartialDay
+                    .wholeDay(SyntheticCalendars.START.plusDays(i)));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.benchmarks.availability;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.calendars.entities.AvailabilityTimeLine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link AvailabilityTimeLine} with
+ * {@link LegacyAvailabilityTimeLine}, the implementation it replaced, doing
+ * the same combinations that
+ * <code>AvailabilityCalculator.buildSumOfAvailabilitiesFor</code> does for a
+ * generic allocation: each worker satisfies some criteria during randomly
+ * generated periods, the availabilities for each criterion are joined with
+ * <code>and</code> and the ones of the workers with <code>or</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AvailabilityTimeLineBenchmark {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 1);
+
+    private static final int CRITERIA = 2;
+
+    private static final int QUERIED_DAYS = 3 * 365;
+
+    @Param({ "100", "1000" })
+    private int workers;
+
+    @Param({ "10", "50" })
+    private int satisfactionsPerCriterion;
+
+    /**
+     * Start and end of the satisfactions of each worker and criterion. The
+     * end of the last satisfaction can be <code>null</code>
+     */
+    private LocalDate[][][] starts;
+
+    private LocalDate[][][] ends;
+
+    private AvailabilityTimeLine sum;
+
+    private LegacyAvailabilityTimeLine legacySum;
+
+    @Setup
+    public void createSatisfactions() {
+        Random random = new Random(1L);
+        starts = new LocalDate[workers][CRITERIA][satisfactionsPerCriterion];
+        ends = new LocalDate[workers][CRITERIA][satisfactionsPerCriterion];
+        for (int i = 0; i < workers; i++) {
+            for (int j = 0; j < CRITERIA; j++) {
+                LocalDate current = START.plusDays(random.nextInt(60));
+                for (int k = 0; k < satisfactionsPerCriterion; k++) {
+                    starts[i][j][k] = current;
+                    current = current.plusDays(10 + random.nextInt(120));
+                    boolean openEnded = k == satisfactionsPerCriterion - 1
+                            && random.nextBoolean();
+                    ends[i][j][k] = openEnded ? null : current;
+                    current = current.plusDays(random.nextInt(30));
+                }
+            }
+        }
+        sum = sumOfAvailabilities();
+        legacySum = sumOfAvailabilitiesLegacy();
+    }
+
+    @Benchmark
+    public List<AvailabilityTimeLine.Interval> validPeriodsOfSum() {
+        return sumOfAvailabilities().getValidPeriods();
+    }
+
+    @Benchmark
+    public List<LegacyAvailabilityTimeLine.Interval> validPeriodsOfSumLegacy() {
+        return sumOfAvailabilitiesLegacy().getValidPeriods();
+    }
+
+    @Benchmark
+    public int validDays() {
+        int result = 0;
+        for (int i = 0; i < QUERIED_DAYS; i++) {
+            if (sum.isValid(START.plusDays(i))) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int validDaysLegacy() {
+        int result = 0;
+        for (int i = 0; i < QUERIED_DAYS; i++) {
+            if (legacySum.isValid(START.plusDays(i))) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private AvailabilityTimeLine sumOfAvailabilities() {
+        AvailabilityTimeLine result = AvailabilityTimeLine.createAllInvalid();
+        for (int i = 0; i < workers; i++) {
+            AvailabilityTimeLine worker = AvailabilityTimeLine.allValid();
+            for (int j = 0; j < CRITERIA; j++) {
+                worker = worker.and(buildTimeLine(starts[i][j], ends[i][j]));
+            }
+            result = result.or(worker);
+        }
+        return result;
+    }
+
+    private static AvailabilityTimeLine buildTimeLine(LocalDate[] starts,
+            LocalDate[] ends) {
+        AvailabilityTimeLine result = AvailabilityTimeLine.allValid();
+        result.invalidUntil(starts[0]);
+        for (int i = 1; i < starts.length; i++) {
+            result.invalidAt(ends[i - 1], starts[i]);
+        }
+        LocalDate lastEnd = ends[ends.length - 1];
+        if (lastEnd != null) {
+            result.invalidFrom(lastEnd);
+        }
+        return result;
+    }
+
+    private LegacyAvailabilityTimeLine sumOfAvailabilitiesLegacy() {
+        LegacyAvailabilityTimeLine result = LegacyAvailabilityTimeLine
+                .createAllInvalid();
+        for (int i = 0; i < workers; i++) {
+            LegacyAvailabilityTimeLine worker = LegacyAvailabilityTimeLine
+                    .allValid();
+            for (int j = 0; j < CRITERIA; j++) {
+                worker = worker.and(buildLegacyTimeLine(starts[i][j],
+                        ends[i][j]));
+            }
+            result = result.or(worker);
+        }
+        return result;
+    }
+
+    private static LegacyAvailabilityTimeLine buildLegacyTimeLine(
+            LocalDate[] starts, LocalDate[] ends) {
+        LegacyAvailabilityTimeLine result = LegacyAvailabilityTimeLine
+                .allValid();
+        result.invalidUntil(starts[0]);
+        for (int i = 1; i < starts.length; i++) {
+            result.invalidAt(ends[i - 1], starts[i]);
+        }
+        LocalDate lastEnd = ends[ends.length - 1];
+        if (lastEnd != null) {
+            result.invalidFrom(lastEnd);
+        }
+        return result;
+    }
+
+}
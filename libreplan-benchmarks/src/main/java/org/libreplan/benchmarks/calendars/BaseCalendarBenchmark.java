@@ -0,0 +1,90 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.benchmarks.calendars;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link BaseCalendar#getCapacityOn(PartialDay)} and
+ * {@link BaseCalendar#getCapacityBetween(IntraDayDate, IntraDayDate)} day by
+ * day and over the whole horizon, for a resource calendar derived from a base
+ * calendar. Both calendars have exceptions with the given density.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BaseCalendarBenchmark {
+
+    @Param({ "365", "3650" })
+    private int days;
+
+    @Param({ "0", "0.05", "0.3" })
+    private double exceptionsDensity;
+
+    private ResourceCalendar calendar;
+
+    @Setup
+    public void createCalendar() {
+        Random random = new Random(1L);
+        BaseCalendar parent = SyntheticCalendars.createBaseCalendar(days,
+                exceptionsDensity, random);
+        calendar = SyntheticCalendars.createResourceCalendar(parent, days,
+                exceptionsDensity, random);
+    }
+
+    @Benchmark
+    public EffortDuration getCapacityOnEachDay() {
+        EffortDuration result = EffortDuration.zero();
+        for (int i = 0; i < days; i++) {
+            result = result.plus(calendar.getCapacityOn(PartialDay
+                    .wholeDay(SyntheticCalendars.START.plusDays(i))));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public EffortDuration getCapacityBetween() {
+        return calendar.getCapacityBetween(
+                IntraDayDate.startOfDay(SyntheticCalendars.START),
+                IntraDayDate.startOfDay(SyntheticCalendars.START
+                        .plusDays(days)));
+    }
+
+}
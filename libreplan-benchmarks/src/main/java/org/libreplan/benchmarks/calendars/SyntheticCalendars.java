@@ -0,0 +1,100 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.benchmarks.calendars;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.calendars.entities.CalendarAvailability;
+import org.libreplan.business.calendars.entities.CalendarException;
+import org.libreplan.business.calendars.entities.CalendarExceptionType;
+import org.libreplan.business.calendars.entities.CalendarExceptionTypeColor;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Creates calendars in memory with exceptions spread randomly over a range of
+ * days. Half of the exceptions are holidays and the other half reduce the
+ * working day to four hours.
+ */
+public class SyntheticCalendars {
+
+    public static final LocalDate START = new LocalDate(2013, 1, 1);
+
+    private static final CalendarExceptionType HOLIDAY = CalendarExceptionType
+            .create("HOLIDAY", "holiday", CalendarExceptionTypeColor.DEFAULT,
+                    true);
+
+    private static final CalendarExceptionType REDUCED_DAY = CalendarExceptionType
+            .create("REDUCED_DAY", "reduced day",
+                    CalendarExceptionTypeColor.DEFAULT, true);
+
+    /**
+     * @param days
+     *            number of days since {@link #START} that can have exceptions
+     * @param exceptionsDensity
+     *            probability of each day of being an exception
+     */
+    public static BaseCalendar createBaseCalendar(int days,
+            double exceptionsDensity, Random random) {
+        BaseCalendar result = BaseCalendar.createBasicCalendar();
+        addExceptions(result, days, exceptionsDensity, random);
+        return result;
+    }
+
+    /**
+     * Creates a {@link ResourceCalendar} derived from <code>parent</code>
+     * available since {@link #START} and with its own exceptions
+     */
+    public static ResourceCalendar createResourceCalendar(BaseCalendar parent,
+            int days, double exceptionsDensity, Random random) {
+        ResourceCalendar result = parent.newDerivedResourceCalendar();
+        for (CalendarAvailability each : new ArrayList<CalendarAvailability>(
+                result.getCalendarAvailabilities())) {
+            result.removeCalendarAvailability(each);
+        }
+        result.addNewCalendarAvailability(CalendarAvailability.create(START,
+                null));
+        addExceptions(result, days, exceptionsDensity, random);
+        return result;
+    }
+
+    private static void addExceptions(BaseCalendar calendar, int days,
+            double exceptionsDensity, Random random) {
+        for (int i = 0; i < days; i++) {
+            if (random.nextDouble() >= exceptionsDensity) {
+                continue;
+            }
+            LocalDate day = START.plusDays(i);
+            if (random.nextBoolean()) {
+                calendar.addExceptionDay(CalendarException.create(day,
+                        EffortDuration.zero(), HOLIDAY));
+            } else {
+                calendar.addExceptionDay(CalendarException.create(day,
+                        EffortDuration.hours(4), REDUCED_DAY));
+            }
+        }
+    }
+
+    private SyntheticCalendars() {
+    }
+
+}
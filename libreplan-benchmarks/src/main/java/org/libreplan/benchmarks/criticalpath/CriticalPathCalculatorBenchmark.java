@@ -0,0 +1,71 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.benchmarks.criticalpath;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.libreplan.benchmarks.criticalpath.SyntheticGraph.SyntheticDependency;
+import org.libreplan.benchmarks.criticalpath.SyntheticGraph.SyntheticTask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zkoss.ganttz.data.criticalpath.CriticalPathCalculator;
+
+/**
+ * Measures {@link CriticalPathCalculator} over generated graphs of increasing
+ * size and dependency density.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CriticalPathCalculatorBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    private int tasks;
+
+    @Param({ "1.5", "4" })
+    private double dependenciesPerTask;
+
+    private SyntheticGraph graph;
+
+    @Setup
+    public void createGraph() {
+        graph = SyntheticGraph.create(tasks, dependenciesPerTask, 1L);
+    }
+
+    @Benchmark
+    public List<SyntheticTask> calculateCriticalPath() {
+        CriticalPathCalculator<SyntheticTask, SyntheticDependency> calculator = CriticalPathCalculator
+                .create(false);
+        return calculator.calculateCriticalPath(graph);
+    }
+
+}
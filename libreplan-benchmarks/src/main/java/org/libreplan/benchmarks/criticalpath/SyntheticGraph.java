@@ -0,0 +1,247 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.benchmarks.criticalpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+import org.zkoss.ganttz.data.DependencyType;
+import org.zkoss.ganttz.data.GanttDate;
+import org.zkoss.ganttz.data.IDependency;
+import org.zkoss.ganttz.data.constraint.Constraint;
+import org.zkoss.ganttz.data.criticalpath.ICriticalPathCalculable;
+
+/**
+ * Randomly generated acyclic graph of tasks without containers. Each task
+ * depends on some of the tasks created shortly before it, so long chains and
+ * dense webs of dependencies are produced.
+ */
+public class SyntheticGraph implements
+        ICriticalPathCalculable<SyntheticGraph.SyntheticTask> {
+
+    public static class SyntheticTask {
+
+        private final int id;
+
+        private final LocalDate start;
+
+        private final LocalDate end;
+
+        private SyntheticTask(int id, LocalDate start, int durationInDays) {
+            this.id = id;
+            this.start = start;
+            this.end = start.plusDays(durationInDays);
+        }
+
+        @Override
+        public String toString() {
+            return "task " + id;
+        }
+    }
+
+    public static class SyntheticDependency implements
+            IDependency<SyntheticTask> {
+
+        private final SyntheticTask source;
+
+        private final SyntheticTask destination;
+
+        private final DependencyType type;
+
+        private SyntheticDependency(SyntheticTask source,
+                SyntheticTask destination, DependencyType type) {
+            this.source = source;
+            this.destination = destination;
+            this.type = type;
+        }
+
+        @Override
+        public SyntheticTask getSource() {
+            return source;
+        }
+
+        @Override
+        public SyntheticTask getDestination() {
+            return destination;
+        }
+
+        @Override
+        public DependencyType getType() {
+            return type;
+        }
+    }
+
+    private static final int WINDOW = 50;
+
+    /**
+     * @param tasksNumber
+     *            number of tasks of the graph
+     * @param dependenciesPerTask
+     *            mean number of incoming dependencies of each task
+     * @param seed
+     *            the same seed always produces the same graph
+     */
+    public static SyntheticGraph create(int tasksNumber,
+            double dependenciesPerTask, long seed) {
+        return new SyntheticGraph(tasksNumber, dependenciesPerTask, seed);
+    }
+
+    private final List<SyntheticTask> tasks = new ArrayList<SyntheticTask>();
+
+    private final Map<SyntheticTask, Map<SyntheticTask, SyntheticDependency>> outgoing = new HashMap<SyntheticTask, Map<SyntheticTask, SyntheticDependency>>();
+
+    private final Map<SyntheticTask, Set<SyntheticTask>> incoming = new HashMap<SyntheticTask, Set<SyntheticTask>>();
+
+    private SyntheticGraph(int tasksNumber, double dependenciesPerTask,
+            long seed) {
+        Random random = new Random(seed);
+        LocalDate start = new LocalDate(2013, 1, 1);
+        for (int i = 0; i < tasksNumber; i++) {
+            SyntheticTask task = new SyntheticTask(i, start.plusDays(random
+                    .nextInt(30)), 1 + random.nextInt(20));
+            tasks.add(task);
+            outgoing.put(task,
+                    new HashMap<SyntheticTask, SyntheticDependency>());
+            incoming.put(task, new HashSet<SyntheticTask>());
+        }
+        for (int i = 1; i < tasksNumber; i++) {
+            SyntheticTask destination = tasks.get(i);
+            int dependencies = (int) dependenciesPerTask
+                    + (random.nextDouble() < dependenciesPerTask % 1 ? 1 : 0);
+            for (int j = 0; j < dependencies; j++) {
+                SyntheticTask source = tasks.get(Math.max(0,
+                        i - 1 - random.nextInt(WINDOW)));
+                addDependency(source, destination, randomType(random));
+            }
+        }
+    }
+
+    private static DependencyType randomType(Random random) {
+        int value = random.nextInt(10);
+        if (value < 6) {
+            return DependencyType.END_START;
+        }
+        return value < 9 ? DependencyType.START_START : DependencyType.END_END;
+    }
+
+    private void addDependency(SyntheticTask source,
+            SyntheticTask destination, DependencyType type) {
+        outgoing.get(source).put(destination,
+                new SyntheticDependency(source, destination, type));
+        incoming.get(destination).add(source);
+    }
+
+    @Override
+    public List<SyntheticTask> getInitialTasks() {
+        List<SyntheticTask> result = new ArrayList<SyntheticTask>();
+        for (SyntheticTask each : tasks) {
+            if (incoming.get(each).isEmpty()) {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<SyntheticTask> getLatestTasks() {
+        List<SyntheticTask> result = new ArrayList<SyntheticTask>();
+        for (SyntheticTask each : tasks) {
+            if (outgoing.get(each).isEmpty()) {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean hasVisibleIncomingDependencies(SyntheticTask task) {
+        return !incoming.get(task).isEmpty();
+    }
+
+    @Override
+    public boolean hasVisibleOutcomingDependencies(SyntheticTask task) {
+        return !outgoing.get(task).isEmpty();
+    }
+
+    @Override
+    public Set<SyntheticTask> getIncomingTasksFor(SyntheticTask task) {
+        return incoming.get(task);
+    }
+
+    @Override
+    public Set<SyntheticTask> getOutgoingTasksFor(SyntheticTask task) {
+        return outgoing.get(task).keySet();
+    }
+
+    @Override
+    public IDependency<SyntheticTask> getDependencyFrom(SyntheticTask from,
+            SyntheticTask to) {
+        return outgoing.get(from).get(to);
+    }
+
+    @Override
+    public List<SyntheticTask> getTasks() {
+        return tasks;
+    }
+
+    @Override
+    public boolean isContainer(SyntheticTask task) {
+        return false;
+    }
+
+    @Override
+    public boolean contains(SyntheticTask container, SyntheticTask task) {
+        return false;
+    }
+
+    @Override
+    public GanttDate getStartDate(SyntheticTask task) {
+        return GanttDate.createFrom(task.start);
+    }
+
+    @Override
+    public GanttDate getEndDateFor(SyntheticTask task) {
+        return GanttDate.createFrom(task.end);
+    }
+
+    @Override
+    public List<Constraint<GanttDate>> getStartConstraintsFor(
+            SyntheticTask task) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<Constraint<GanttDate>> getEndConstraintsFor(
+            SyntheticTask task) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<SyntheticTask> getChildren(SyntheticTask task) {
+        return Collections.emptyList();
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.benchmarks.ganttdiagram;
+
+import java.util.concurrent.TimeUnit;
+
+import org.libreplan.benchmarks.ganttdiagram.SyntheticPlan.SyntheticDependency;
+import org.libreplan.benchmarks.ganttdiagram.SyntheticPlan.SyntheticTask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zkoss.ganttz.data.GanttDate;
+import org.zkoss.ganttz.data.GanttDiagramGraph;
+
+/**
+ * Measures the dependencies enforcement of {@link GanttDiagramGraph} when a
+ * plan is loaded and when its first task is moved, which pushes the tasks
+ * depending on it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GanttDiagramGraphBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    private int tasks;
+
+    @Param({ "1.5", "4" })
+    private double dependenciesPerTask;
+
+    private SyntheticPlan plan;
+
+    private SyntheticTask firstTask;
+
+    private boolean moveForward = true;
+
+    @Setup
+    public void createPlan() {
+        plan = SyntheticPlan.create(tasks, dependenciesPerTask, 1L);
+        plan.load();
+        firstTask = plan.getTasks().get(0);
+    }
+
+    @Benchmark
+    public GanttDiagramGraph<SyntheticTask, SyntheticDependency> loadPlan() {
+        return plan.load();
+    }
+
+    /**
+     * Moves the first task alternatively between two dates fifteen days
+     * apart, so every invocation has to reschedule its successors
+     */
+    @Benchmark
+    public void moveFirstTask() {
+        int days = moveForward ? 15 : 0;
+        moveForward = !moveForward;
+        firstTask.moveTo(GanttDate.createFrom(SyntheticPlan.START
+                .plusDays(days)));
+    }
+
+}
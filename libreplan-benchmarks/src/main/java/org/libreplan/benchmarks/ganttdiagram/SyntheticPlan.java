@@ -0,0 +1,318 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.benchmarks.ganttdiagram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.zkoss.ganttz.data.ConstraintCalculator;
+import org.zkoss.ganttz.data.DependencyType;
+import org.zkoss.ganttz.data.DependencyType.Point;
+import org.zkoss.ganttz.data.GanttDate;
+import org.zkoss.ganttz.data.GanttDiagramGraph;
+import org.zkoss.ganttz.data.GanttDiagramGraph.IAdapter;
+import org.zkoss.ganttz.data.GanttDiagramGraph.IDependenciesEnforcerHook;
+import org.zkoss.ganttz.data.GanttDiagramGraph.IDependenciesEnforcerHookFactory;
+import org.zkoss.ganttz.data.IDependency;
+import org.zkoss.ganttz.data.constraint.Constraint;
+
+/**
+ * Randomly generated plan of tasks without containers to be loaded in a
+ * {@link GanttDiagramGraph}. Each task depends on some of the tasks created
+ * shortly before it. The tasks notify their modifications to the graph as the
+ * tasks of the Gantt diagram do, so moving them triggers the dependencies
+ * enforcement.
+ */
+public class SyntheticPlan {
+
+    public static class SyntheticTask {
+
+        private final int id;
+
+        private final LocalDate initialStart;
+
+        private final LocalDate initialEnd;
+
+        private GanttDate start;
+
+        private GanttDate end;
+
+        private IDependenciesEnforcerHook hook = GanttDiagramGraph
+                .doNothingHook();
+
+        private SyntheticTask(int id, LocalDate start, int durationInDays) {
+            this.id = id;
+            this.initialStart = start;
+            this.initialEnd = start.plusDays(durationInDays);
+            resetDates();
+        }
+
+        void resetDates() {
+            this.start = GanttDate.createFrom(initialStart);
+            this.end = GanttDate.createFrom(initialEnd);
+        }
+
+        /**
+         * Moves the task keeping its length
+         */
+        public void moveTo(GanttDate newStart) {
+            GanttDate previousStart = start;
+            GanttDate previousEnd = end;
+            int length = Days.daysBetween(previousStart.toLocalDate(),
+                    previousEnd.toLocalDate()).getDays();
+            start = newStart;
+            end = GanttDate.createFrom(newStart.toLocalDate().plusDays(length));
+            hook.setStartDate(previousStart, previousEnd, newStart);
+        }
+
+        private void resizeTo(GanttDate newEnd) {
+            GanttDate previousEnd = end;
+            end = newEnd;
+            hook.setNewEnd(previousEnd, newEnd);
+        }
+
+        @Override
+        public String toString() {
+            return "task " + id;
+        }
+    }
+
+    public static class SyntheticDependency implements
+            IDependency<SyntheticTask> {
+
+        private final SyntheticTask source;
+
+        private final SyntheticTask destination;
+
+        private final DependencyType type;
+
+        private final boolean visible;
+
+        private SyntheticDependency(SyntheticTask source,
+                SyntheticTask destination, DependencyType type, boolean visible) {
+            this.source = source;
+            this.destination = destination;
+            this.type = type;
+            this.visible = visible;
+        }
+
+        @Override
+        public SyntheticTask getSource() {
+            return source;
+        }
+
+        @Override
+        public SyntheticTask getDestination() {
+            return destination;
+        }
+
+        @Override
+        public DependencyType getType() {
+            return type;
+        }
+    }
+
+    private static final IAdapter<SyntheticTask, SyntheticDependency> ADAPTER = new IAdapter<SyntheticTask, SyntheticDependency>() {
+
+        @Override
+        public List<SyntheticTask> getChildren(SyntheticTask task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public SyntheticTask getOwner(SyntheticTask task) {
+            return null;
+        }
+
+        @Override
+        public boolean isContainer(SyntheticTask task) {
+            return false;
+        }
+
+        @Override
+        public void registerDependenciesEnforcerHookOn(SyntheticTask task,
+                IDependenciesEnforcerHookFactory<SyntheticTask> hookFactory) {
+            task.hook = hookFactory.create(task);
+        }
+
+        @Override
+        public GanttDate getStartDate(SyntheticTask task) {
+            return task.start;
+        }
+
+        @Override
+        public void setStartDateFor(SyntheticTask task, GanttDate newStart) {
+            task.moveTo(newStart);
+        }
+
+        @Override
+        public GanttDate getEndDateFor(SyntheticTask task) {
+            return task.end;
+        }
+
+        @Override
+        public void setEndDateFor(SyntheticTask task, GanttDate newEnd) {
+            task.resizeTo(newEnd);
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getConstraints(
+                ConstraintCalculator<SyntheticTask> calculator,
+                Set<SyntheticDependency> withDependencies, Point point) {
+            List<Constraint<GanttDate>> result = new ArrayList<Constraint<GanttDate>>();
+            for (SyntheticDependency each : withDependencies) {
+                result.addAll(calculator.getConstraints(each, point));
+            }
+            return result;
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getStartConstraintsFor(
+                SyntheticTask task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Constraint<GanttDate>> getEndConstraintsFor(
+                SyntheticTask task) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public SyntheticTask getSource(SyntheticDependency dependency) {
+            return dependency.getSource();
+        }
+
+        @Override
+        public SyntheticTask getDestination(SyntheticDependency dependency) {
+            return dependency.getDestination();
+        }
+
+        @Override
+        public Class<SyntheticDependency> getDependencyType() {
+            return SyntheticDependency.class;
+        }
+
+        @Override
+        public SyntheticDependency createInvisibleDependency(
+                SyntheticTask origin, SyntheticTask destination,
+                DependencyType type) {
+            return new SyntheticDependency(origin, destination, type, false);
+        }
+
+        @Override
+        public DependencyType getType(SyntheticDependency dependency) {
+            return dependency.getType();
+        }
+
+        @Override
+        public boolean isVisible(SyntheticDependency dependency) {
+            return dependency.visible;
+        }
+
+        @Override
+        public boolean isFixed(SyntheticTask task) {
+            return false;
+        }
+    };
+
+    private static final int WINDOW = 50;
+
+    public static final LocalDate START = new LocalDate(2013, 1, 1);
+
+    /**
+     * @param tasksNumber
+     *            number of tasks of the plan
+     * @param dependenciesPerTask
+     *            mean number of incoming dependencies of each task
+     * @param seed
+     *            the same seed always produces the same plan
+     */
+    public static SyntheticPlan create(int tasksNumber,
+            double dependenciesPerTask, long seed) {
+        return new SyntheticPlan(tasksNumber, dependenciesPerTask, seed);
+    }
+
+    private final List<SyntheticTask> tasks = new ArrayList<SyntheticTask>();
+
+    private final List<SyntheticDependency> dependencies = new ArrayList<SyntheticDependency>();
+
+    private SyntheticPlan(int tasksNumber, double dependenciesPerTask,
+            long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < tasksNumber; i++) {
+            tasks.add(new SyntheticTask(i, START.plusDays(random.nextInt(30)),
+                    1 + random.nextInt(20)));
+        }
+        for (int i = 1; i < tasksNumber; i++) {
+            SyntheticTask destination = tasks.get(i);
+            int incoming = (int) dependenciesPerTask
+                    + (random.nextDouble() < dependenciesPerTask % 1 ? 1 : 0);
+            Set<SyntheticTask> sources = new HashSet<SyntheticTask>();
+            for (int j = 0; j < incoming; j++) {
+                SyntheticTask source = tasks.get(Math.max(0,
+                        i - 1 - random.nextInt(WINDOW)));
+                if (!sources.add(source)) {
+                    continue;
+                }
+                dependencies.add(new SyntheticDependency(source, destination,
+                        randomType(random), true));
+            }
+        }
+    }
+
+    private static DependencyType randomType(Random random) {
+        int value = random.nextInt(10);
+        if (value < 6) {
+            return DependencyType.END_START;
+        }
+        return value < 9 ? DependencyType.START_START : DependencyType.END_END;
+    }
+
+    public List<SyntheticTask> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Loads the plan in a new graph from the initial dates of the tasks and
+     * enforces all the dependencies, as it's done when a project is opened
+     */
+    public GanttDiagramGraph<SyntheticTask, SyntheticDependency> load() {
+        for (SyntheticTask each : tasks) {
+            each.resetDates();
+        }
+        GanttDiagramGraph<SyntheticTask, SyntheticDependency> result = GanttDiagramGraph
+                .create(false, ADAPTER,
+                        Collections.<Constraint<GanttDate>> emptyList(),
+                        Collections.<Constraint<GanttDate>> emptyList(), false);
+        result.addTopLevel(tasks);
+        for (SyntheticDependency each : dependencies) {
+            result.addWithoutEnforcingConstraints(each);
+        }
+        result.enforceAllRestrictions();
+        return result;
+    }
+
+}
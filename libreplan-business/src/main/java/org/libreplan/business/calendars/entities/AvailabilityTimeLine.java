@@ -20,11 +20,13 @@
  */
 package org.libreplan.business.calendars.entities;
 
+import static org.libreplan.business.util.EpochDays.fromEpochDay;
+import static org.libreplan.business.util.EpochDays.toEpochDay;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.ListIterator;
 
 import org.apache.commons.lang.Validate;
 import org.apache.commons.lang.builder.HashCodeBuilder;
@@ -263,24 +265,11 @@ public class AvailabilityTimeLine {
             return new Interval(startPoint, endPoint);
         }
 
-        static Interval all() {
-            return new Interval(StartOfTime.create(), EndOfTime.create());
-        }
-
-        static Interval from(LocalDate date) {
-            return new Interval(new FixedPoint(date), EndOfTime.create());
-        }
-
         public static Interval to(LocalDate date) {
             return new Interval(StartOfTime.create(), new FixedPoint(
                     date));
         }
 
-        static Interval point(LocalDate start) {
-            return new Interval(new FixedPoint(start), new FixedPoint(start
-                    .plusDays(1)));
-        }
-
         private final DatePoint start;
 
         private final DatePoint end;
@@ -385,7 +374,7 @@ public class AvailabilityTimeLine {
 
     private IVetoer vetoer = NO_VETOER;
 
-    private List<Interval> invalids = new ArrayList<Interval>();
+    private EpochDayIntervals invalids = new EpochDayIntervals();
 
     private AvailabilityTimeLine() {
     }
@@ -395,34 +384,17 @@ public class AvailabilityTimeLine {
     }
 
     private boolean isValidBasedOnInvaidIntervals(LocalDate date) {
-        if (invalids.isEmpty()) {
-            return true;
-        }
-        Interval possibleInterval = findPossibleIntervalFor(date);
-        return possibleInterval == null || !possibleInterval.includes(date);
-    }
-
-    private Interval findPossibleIntervalFor(LocalDate date) {
-        Interval point = Interval.point(date);
-        int binarySearch = Collections.binarySearch(invalids, point);
-        if (binarySearch >= 0) {
-            return invalids.get(binarySearch);
-        } else {
-            int insertionPoint = insertionPoint(binarySearch);
-            if (insertionPoint == 0) {
-                return null;
-            }
-            return invalids.get(insertionPoint - 1);
-        }
+        return invalids.isEmpty() || !invalids.contains(toEpochDay(date));
     }
 
     public void allInvalid() {
-        insert(Interval.all());
+        invalids.add(EpochDayIntervals.START_OF_TIME,
+                EpochDayIntervals.END_OF_TIME);
     }
 
     public void invalidAt(LocalDate date) {
-        Interval point = Interval.point(date);
-        insert(point);
+        int day = toEpochDay(date);
+        invalids.add(day, day + 1);
     }
 
     /**
@@ -438,107 +410,30 @@ public class AvailabilityTimeLine {
         this.vetoer = vetoer;
     }
 
-    private void insert(Interval toBeInserted) {
-        if (invalids.isEmpty()) {
-            invalids.add(toBeInserted);
-            return;
-        }
-        toBeInserted = coalesceWithAdjacent(toBeInserted);
-        int insertionPoint = insertBeforeAllAdjacent(toBeInserted);
-        removeAdjacent(insertionPoint, toBeInserted);
-    }
-
     /**
-     * Returns the insertion position for the interval. Inserting the interval
-     * at that position guarantees that interval start is posterior or equal to
-     * any previous interval start. If the next interval start is equal to the
-     * interval, the length of the former is less than the latter
+     * Invalidates the days from <code>intervalStart</code>, inclusive, to
+     * <code>intervalEnd</code>, exclusive. So nothing is invalidated if both
+     * are the same date.
      */
-    private int findInsertionPosition(Interval interval) {
-        int binarySearch = Collections.binarySearch(invalids, interval);
-        return insertionPoint(binarySearch);
-    }
-
-    private int insertBeforeAllAdjacent(Interval toBeInserted) {
-        int insertionPoint = findInsertionPosition(toBeInserted);
-        invalids.add(insertionPoint, toBeInserted);
-        return insertionPoint;
-    }
-
-    private Interval coalesceWithAdjacent(Interval toBeInserted) {
-        Interval result = toBeInserted;
-        List<Interval> adjacent = getAdjacent(toBeInserted);
-        for (Interval each : adjacent) {
-            result = result.coalesce(each);
-        }
-        return result;
-    }
-
-    private List<Interval> getAdjacent(Interval toBeInserted) {
-        final int insertionPoint = findInsertionPosition(toBeInserted);
-        List<Interval> result = new ArrayList<Interval>();
-        assert insertionPoint <= invalids.size();
-        for (int i = insertionPoint - 1; i >= 0 && at(i).overlaps(toBeInserted); i--) {
-            result.add(at(i));
-        }
-        for (int i = insertionPoint; i < invalids.size()
-                && at(i).overlaps(toBeInserted); i++) {
-            result.add(at(i));
-        }
-        return result;
-    }
-
-    private List<Interval> intersectWithAdjacent(Interval interval) {
-        List<Interval> result = new ArrayList<Interval>();
-        List<Interval> adjacent = getAdjacent(interval);
-        for (Interval each : adjacent) {
-            assert interval.overlaps(each);
-            result.add(interval.intersect(each));
-        }
-        return result;
-    }
-
-    private void removeAdjacent(int insertionPoint, Interval inserted) {
-        ListIterator<Interval> listIterator = invalids
-                .listIterator(insertionPoint + 1);
-        while (listIterator.hasNext()) {
-            Interval next = listIterator.next();
-            if (!next.overlaps(inserted)) {
-                break;
-            }
-            listIterator.remove();
-        }
-    }
-
-    private Interval at(int i) {
-        return i >= 0 && i < invalids.size() ? invalids.get(i) : null;
-    }
-
-    private int insertionPoint(int binarySearchResult) {
-        return binarySearchResult < 0 ? (-binarySearchResult) - 1
-                : binarySearchResult;
-    }
-
     public void invalidAt(LocalDate intervalStart, LocalDate intervalEnd) {
         if (intervalStart.isAfter(intervalEnd)) {
             throw new IllegalArgumentException(
                     "end must be equal or after start");
         }
-        insert(Interval.create(intervalStart, intervalEnd));
+        invalids.add(toEpochDay(intervalStart), toEpochDay(intervalEnd));
     }
 
     public void invalidFrom(LocalDate date) {
-        insert(Interval.from(date));
+        invalids.add(toEpochDay(date), EpochDayIntervals.END_OF_TIME);
     }
 
     public void invalidUntil(LocalDate date) {
-        insert(Interval.to(date));
+        invalids.add(EpochDayIntervals.START_OF_TIME, toEpochDay(date));
     }
 
     public AvailabilityTimeLine and(AvailabilityTimeLine another) {
         AvailabilityTimeLine result = AvailabilityTimeLine.allValid();
-        inserting(result, invalids);
-        inserting(result, another.invalids);
+        result.invalids = EpochDayIntervals.union(invalids, another.invalids);
         result.setVetoer(and(this.vetoer, another.vetoer));
         return result;
     }
@@ -554,23 +449,9 @@ public class AvailabilityTimeLine {
     }
 
     public AvailabilityTimeLine or(AvailabilityTimeLine another) {
-        List<Interval> intersections = doIntersections(this, another);
         AvailabilityTimeLine result = AvailabilityTimeLine.allValid();
-        for (Interval each : intersections) {
-            boolean fromStartOfTime = each.getStart().equals(
-                    StartOfTime.create());
-            boolean untilEndOfTime = each.getEnd().equals(EndOfTime.create());
-            if (fromStartOfTime && untilEndOfTime) {
-                result.allInvalid();
-            } else if (fromStartOfTime) {
-                result.invalidUntil(FixedPoint.tryExtract(each.getEnd()));
-            } else if (untilEndOfTime) {
-                result.invalidFrom(FixedPoint.tryExtract(each.getStart()));
-            } else {
-                result.invalidAt(FixedPoint.tryExtract(each.getStart()),
-                        FixedPoint.tryExtract(each.getEnd()));
-            }
-        }
+        result.invalids = EpochDayIntervals.intersection(invalids,
+                another.invalids);
         result.setVetoer(or(this.vetoer, another.vetoer));
         return result;
     }
@@ -585,36 +466,24 @@ public class AvailabilityTimeLine {
         };
     }
 
-    private static List<Interval> doIntersections(AvailabilityTimeLine one,
-            AvailabilityTimeLine another) {
+    public List<Interval> getValidPeriods() {
+        EpochDayIntervals valids = EpochDayIntervals.complement(invalids);
         List<Interval> result = new ArrayList<Interval>();
-        for (Interval each : one.invalids) {
-            result.addAll(another.intersectWithAdjacent(each));
+        for (int i = 0; i < valids.getIntervalsNumber(); i++) {
+            result.add(new Interval(toPoint(valids.getStart(i)),
+                    toPoint(valids.getEnd(i))));
         }
         return result;
     }
 
-    private void inserting(AvailabilityTimeLine result, List<Interval> invalid) {
-        for (Interval each : invalid) {
-            result.insert(each);
-        }
-    }
-
-    public List<Interval> getValidPeriods() {
-        List<Interval> result = new ArrayList<Interval>();
-        DatePoint previous = StartOfTime.create();
-        for (Interval each : invalids) {
-            DatePoint invalidStart = each.start;
-            if (!invalidStart.equals(StartOfTime.create())
-                    && !invalidStart.equals(EndOfTime.create())) {
-                result.add(new Interval(previous, invalidStart));
-            }
-            previous = each.getEnd();
-        }
-        if (!previous.equals(EndOfTime.create())) {
-            result.add(new Interval(previous, EndOfTime.create()));
+    private static DatePoint toPoint(int epochDay) {
+        if (epochDay == EpochDayIntervals.START_OF_TIME) {
+            return StartOfTime.create();
+        } else if (epochDay == EpochDayIntervals.END_OF_TIME) {
+            return EndOfTime.create();
+        } else {
+            return new FixedPoint(fromEpochDay(epochDay));
         }
-        return result;
     }
 
 }
@@ -141,6 +141,15 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
     private Integer lastSequenceCode = 0;
 
+    private final CapacityIndex capacityIndex = new CapacityIndex(
+            new CapacityIndex.ICapacityCalculator() {
+
+                @Override
+                public Capacity calculateCapacityAt(LocalDate day) {
+                    return BaseCalendar.this.calculateCapacityAt(day);
+                }
+            });
+
     /**
      * Constructor for hibernate. Do not use!
      */
@@ -245,6 +254,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         }
 
         exceptions.add(day);
+        CapacityIndex.calendarsModified();
     }
 
     public void removeExceptionDay(LocalDate date)
@@ -256,6 +266,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         }
 
         exceptions.remove(day);
+        CapacityIndex.calendarsModified();
     }
 
     public void updateExceptionDay(LocalDate date, Capacity capacity,
@@ -298,6 +309,10 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
     }
 
     private Capacity findCapacityAt(LocalDate date) {
+        return capacityIndex.getCapacityAt(date);
+    }
+
+    private Capacity calculateCapacityAt(LocalDate date) {
         if (!isActive(date)) {
             return Capacity.zero();
         }
@@ -344,11 +359,41 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
      */
     public EffortDuration getWorkableDuration(LocalDate init,
             LocalDate endInclusive) {
-        Iterable<PartialDay> daysBetween = IntraDayDate.startOfDay(init)
-                .daysUntil(
-                        IntraDayDate.startOfDay(endInclusive).nextDayAtStart());
+        return getWholeDaysCapacity(init, endInclusive.plusDays(1));
+    }
+
+    /**
+     * Returns the sum of the capacity of the days in the interval. Only the
+     * first and the last days can be partially included. If the end is not
+     * after the start, it's zero.
+     */
+    public EffortDuration getCapacityBetween(IntraDayDate startInclusive,
+            IntraDayDate endExclusive) {
+        if (startInclusive.compareTo(endExclusive) >= 0) {
+            return EffortDuration.zero();
+        }
+        LocalDate firstWholeDay = startInclusive.isStartOfDay() ? startInclusive
+                .getDate() : startInclusive.getDate().plusDays(1);
+        LocalDate endOfWholeDays = endExclusive.getDate();
+        if (!firstWholeDay.isBefore(endOfWholeDays)) {
+            return sumCapacities(startInclusive.daysUntil(endExclusive));
+        }
+        return sumCapacities(
+                startInclusive.daysUntil(IntraDayDate.startOfDay(firstWholeDay)))
+                .plus(getWholeDaysCapacity(firstWholeDay, endOfWholeDays))
+                .plus(sumCapacities(IntraDayDate.startOfDay(endOfWholeDays)
+                        .daysUntil(endExclusive)));
+    }
+
+    private EffortDuration getWholeDaysCapacity(LocalDate startInclusive,
+            LocalDate endExclusive) {
+        Capacity sum = Capacity.create(capacityIndex.getStandardEffortBetween(
+                startInclusive, endExclusive));
+        return multiplyByCalendarUnits(sum).getStandardEffort();
+    }
 
-        return EffortDuration.sum(daysBetween, new IEffortFrom<PartialDay>() {
+    private EffortDuration sumCapacities(Iterable<PartialDay> days) {
+        return EffortDuration.sum(days, new IEffortFrom<PartialDay>() {
 
             @Override
             public EffortDuration from(PartialDay each) {
@@ -402,6 +447,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
 
     public CalendarData createNewVersionInsideIntersection(LocalDate startDate,
             LocalDate expiringDate) {
+        CapacityIndex.calendarsModified();
         for (CalendarData nextVersion : calendarDataVersions) {
             if ((nextVersion.getExpiringDate() == null)
                     || (expiringDate.compareTo(nextVersion.getExpiringDate()) <= 0)) {
@@ -489,6 +535,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         calendarDataVersions.add(newCalendarData);
         Collections.sort(calendarDataVersions,
                 CalendarData.BY_EXPIRING_DATE_COMPARATOR);
+        CapacityIndex.calendarsModified();
         return newCalendarData;
     }
 
@@ -508,6 +555,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         calendarDataVersions.add(newCalendarData);
         Collections.sort(calendarDataVersions,
                 CalendarData.BY_EXPIRING_DATE_COMPARATOR);
+        CapacityIndex.calendarsModified();
         return newCalendarData;
     }
 
@@ -555,6 +603,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
     }
 
     public void addNewVersion(CalendarData version){
+        CapacityIndex.calendarsModified();
         if (version.getExpiringDate() == null) {
             if (getLastCalendarData().getExpiringDate() == null) {
                 throw new IllegalArgumentException(
@@ -806,6 +855,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
         } else {
             calendarDataVersions.remove(calendarData);
         }
+        CapacityIndex.calendarsModified();
     }
 
     public LocalDate getValidFrom(CalendarData calendarData) {
@@ -857,6 +907,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
                 }
             }
             calendarAvailabilities.add(calendarAvailability);
+            CapacityIndex.calendarsModified();
         }
     }
 
@@ -864,6 +915,7 @@ public class BaseCalendar extends IntegrationEntity implements ICalendar,
             CalendarAvailability calendarAvailability)
             throws IllegalArgumentException {
         calendarAvailabilities.remove(calendarAvailability);
+        CapacityIndex.calendarsModified();
     }
 
     public boolean isActive(LocalDate date) {
@@ -76,6 +76,7 @@ public class CalendarData extends IntegrationEntity {
         if (parent != null) {
             this.parent = parent;
         }
+        CapacityIndex.calendarsModified();
     }
 
     public void updateCapacitiesPerDay(Map<Integer, Capacity> capacityPerDay)
@@ -128,7 +129,7 @@ public class CalendarData extends IntegrationEntity {
     public CalendarData() {
         capacityPerDay = new HashMap<Integer, Capacity>();
         for (Days each : Days.values()) {
-            setCapacityAt(each, null);
+            capacityPerDay.put(each.ordinal(), null);
         }
     }
 
@@ -162,6 +163,7 @@ public class CalendarData extends IntegrationEntity {
 
     public void setCapacityAt(Days day, Capacity capacity) {
         capacityPerDay.put(day.ordinal(), capacity);
+        CapacityIndex.calendarsModified();
     }
 
 
@@ -182,6 +184,7 @@ public class CalendarData extends IntegrationEntity {
 
     public void setExpiringDate(LocalDate expiringDate) {
         this.expiringDate = expiringDate;
+        CapacityIndex.calendarsModified();
     }
 
     public CalendarData copy() {
@@ -200,10 +203,12 @@ public class CalendarData extends IntegrationEntity {
 
     public void setParent(BaseCalendar parent) {
         this.parent = parent;
+        CapacityIndex.calendarsModified();
     }
 
     public void removeExpiringDate() {
         this.expiringDate = null;
+        CapacityIndex.calendarsModified();
     }
 
     public boolean isPosteriorTo(LocalDate date) {
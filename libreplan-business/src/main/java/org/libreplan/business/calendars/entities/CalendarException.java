@@ -82,6 +82,7 @@ public class CalendarException extends IntegrationEntity {
         if (type != null) {
             this.type = type;
         }
+        CapacityIndex.calendarsModified();
     }
 
     private LocalDate date;
@@ -0,0 +1,185 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.calendars.entities;
+
+import static org.libreplan.business.util.EpochDays.fromEpochDay;
+import static org.libreplan.business.util.EpochDays.toEpochDay;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Capacities of a {@link BaseCalendar} already resolved for a range of days.
+ * <p>
+ * Resolving the capacity of a day implies looking for the
+ * {@link CalendarData version}, the exceptions and the parents of the
+ * calendar. This index does it only once for each day. The days are resolved
+ * lazily in blocks of {@link #BLOCK_SIZE} days keeping always a contiguous
+ * range, so the sum of the standard effort of any interval inside it is
+ * obtained from its prefix sums.
+ * </p>
+ * <p>
+ * A calendar depends on its parents, so any modification to any calendar
+ * discards all the indexes. Calendars are rarely modified while they are
+ * queried heavily when planning.
+ * </p>
+ */
+class CapacityIndex {
+
+    interface ICapacityCalculator {
+
+        Capacity calculateCapacityAt(LocalDate day);
+
+    }
+
+    private static final int BLOCK_SIZE = 128;
+
+    /**
+     * Intervals requiring to hold more days than this are calculated without
+     * storing them
+     */
+    private static final int MAX_DAYS = 50 * 366;
+
+    private static final AtomicLong modifications = new AtomicLong();
+
+    /**
+     * It must be called whenever something affecting the capacity of any
+     * calendar changes
+     */
+    static void calendarsModified() {
+        modifications.incrementAndGet();
+    }
+
+    private final ICapacityCalculator calculator;
+
+    private long calculatedAtModification = -1;
+
+    private int firstDay;
+
+    private Capacity[] capacities = new Capacity[0];
+
+    /**
+     * Its i-th element is the sum of the standard effort in seconds of the
+     * first i elements of {@link #capacities}
+     */
+    private long[] accumulatedSeconds = new long[] { 0 };
+
+    CapacityIndex(ICapacityCalculator calculator) {
+        Validate.notNull(calculator);
+        this.calculator = calculator;
+    }
+
+    synchronized Capacity getCapacityAt(LocalDate day) {
+        int epochDay = toEpochDay(day);
+        if (!ensureCalculated(epochDay, epochDay + 1)) {
+            return calculator.calculateCapacityAt(day);
+        }
+        return capacities[epochDay - firstDay];
+    }
+
+    /**
+     * @return the sum of the standard effort of the days from
+     *         <code>startInclusive</code> until <code>endExclusive</code>
+     */
+    synchronized EffortDuration getStandardEffortBetween(
+            LocalDate startInclusive, LocalDate endExclusive) {
+        int start = toEpochDay(startInclusive);
+        int end = toEpochDay(endExclusive);
+        if (start >= end) {
+            return EffortDuration.zero();
+        }
+        if (!ensureCalculated(start, end)) {
+            return sumWithoutStoring(startInclusive, endExclusive);
+        }
+        long seconds = accumulatedSeconds[end - firstDay]
+                - accumulatedSeconds[start - firstDay];
+        return EffortDuration.seconds((int) seconds);
+    }
+
+    private EffortDuration sumWithoutStoring(LocalDate startInclusive,
+            LocalDate endExclusive) {
+        EffortDuration result = EffortDuration.zero();
+        for (LocalDate current = startInclusive; current
+                .isBefore(endExclusive); current = current.plusDays(1)) {
+            result = result.plus(calculator.calculateCapacityAt(current)
+                    .getStandardEffort());
+        }
+        return result;
+    }
+
+    /**
+     * @return <code>false</code> if the days can't be stored because the
+     *         range would be too big
+     */
+    private boolean ensureCalculated(int start, int end) {
+        long current = modifications.get();
+        if (current != calculatedAtModification) {
+            capacities = new Capacity[0];
+            accumulatedSeconds = new long[] { 0 };
+            calculatedAtModification = current;
+        }
+        int newFirstDay = blockStart(start);
+        int newEnd = blockStart(end - 1) + BLOCK_SIZE;
+        if (capacities.length > 0) {
+            newFirstDay = Math.min(newFirstDay, firstDay);
+            newEnd = Math.max(newEnd, firstDay + capacities.length);
+            if (newFirstDay == firstDay
+                    && newEnd == firstDay + capacities.length) {
+                return true;
+            }
+        }
+        if (newEnd - newFirstDay > MAX_DAYS) {
+            return false;
+        }
+        extendTo(newFirstDay, newEnd);
+        return true;
+    }
+
+    private static int blockStart(int epochDay) {
+        int result = epochDay - epochDay % BLOCK_SIZE;
+        return epochDay < 0 && epochDay % BLOCK_SIZE != 0 ? result
+                - BLOCK_SIZE : result;
+    }
+
+    private void extendTo(int newFirstDay, int newEnd) {
+        Capacity[] newCapacities = new Capacity[newEnd - newFirstDay];
+        int offset = capacities.length > 0 ? firstDay - newFirstDay : 0;
+        System.arraycopy(capacities, 0, newCapacities, offset,
+                capacities.length);
+        LocalDate day = fromEpochDay(newFirstDay);
+        for (int i = 0; i < newCapacities.length; i++, day = day.plusDays(1)) {
+            if (i < offset || i >= offset + capacities.length) {
+                newCapacities[i] = calculator.calculateCapacityAt(day);
+            }
+        }
+        long[] newAccumulated = new long[newCapacities.length + 1];
+        for (int i = 0; i < newCapacities.length; i++) {
+            newAccumulated[i + 1] = newAccumulated[i]
+                    + newCapacities[i].getStandardEffort().getSeconds();
+        }
+        firstDay = newFirstDay;
+        capacities = newCapacities;
+        accumulatedSeconds = newAccumulated;
+    }
+
+}
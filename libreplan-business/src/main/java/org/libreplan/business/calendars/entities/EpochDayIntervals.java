@@ -0,0 +1,241 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.calendars.entities;
+
+import java.util.Arrays;
+
+/**
+ * Set of days stored as disjoint intervals of days since the epoch.
+ * <p>
+ * The intervals are kept sorted in a single array of boundaries: the element
+ * <code>2i</code> is the start of the i-th interval, inclusive, and the
+ * element <code>2i + 1</code> its end, exclusive. Intervals that overlap or
+ * touch are always merged, so the boundaries are strictly increasing. Thus
+ * whether a day belongs to the set is known with a binary search and the
+ * union or intersection of two sets is done sweeping both arrays once.
+ * </p>
+ * <p>
+ * {@link #START_OF_TIME} and {@link #END_OF_TIME} are used for the intervals
+ * without start or without end.
+ * </p>
+ *
+ * @see AvailabilityTimeLine
+ */
+final class EpochDayIntervals {
+
+    static final int START_OF_TIME = Integer.MIN_VALUE;
+
+    static final int END_OF_TIME = Integer.MAX_VALUE;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    static EpochDayIntervals union(EpochDayIntervals a, EpochDayIntervals b) {
+        EpochDayIntervals result = new EpochDayIntervals(new int[Math.max(
+                INITIAL_CAPACITY, a.size + b.size)], 0);
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            int start;
+            int end;
+            if (j >= b.size || i < a.size && a.boundaries[i] <= b.boundaries[j]) {
+                start = a.boundaries[i];
+                end = a.boundaries[i + 1];
+                i += 2;
+            } else {
+                start = b.boundaries[j];
+                end = b.boundaries[j + 1];
+                j += 2;
+            }
+            if (result.size > 0 && start <= result.boundaries[result.size - 1]) {
+                result.boundaries[result.size - 1] = Math.max(end,
+                        result.boundaries[result.size - 1]);
+            } else {
+                result.boundaries[result.size++] = start;
+                result.boundaries[result.size++] = end;
+            }
+        }
+        return result;
+    }
+
+    static EpochDayIntervals intersection(EpochDayIntervals a,
+            EpochDayIntervals b) {
+        EpochDayIntervals result = new EpochDayIntervals(new int[Math.max(
+                INITIAL_CAPACITY, a.size + b.size)], 0);
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            int start = Math.max(a.boundaries[i], b.boundaries[j]);
+            int end = Math.min(a.boundaries[i + 1], b.boundaries[j + 1]);
+            if (start < end) {
+                result.boundaries[result.size++] = start;
+                result.boundaries[result.size++] = end;
+            }
+            if (a.boundaries[i + 1] < b.boundaries[j + 1]) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return result;
+    }
+
+    static EpochDayIntervals complement(EpochDayIntervals intervals) {
+        int[] result = new int[intervals.size + 2];
+        int resultSize = 0;
+        int i = 0;
+        if (intervals.size > 0 && intervals.boundaries[0] == START_OF_TIME) {
+            i = 1;
+        } else {
+            result[resultSize++] = START_OF_TIME;
+        }
+        for (; i < intervals.size; i++) {
+            result[resultSize++] = intervals.boundaries[i];
+        }
+        if (result[resultSize - 1] == END_OF_TIME) {
+            resultSize--;
+        } else {
+            result[resultSize++] = END_OF_TIME;
+        }
+        return new EpochDayIntervals(result, resultSize);
+    }
+
+    private int[] boundaries;
+
+    /**
+     * Number of elements of {@link #boundaries} in use. It's always even
+     */
+    private int size;
+
+    EpochDayIntervals() {
+        this(new int[INITIAL_CAPACITY], 0);
+    }
+
+    private EpochDayIntervals(int[] boundaries, int size) {
+        this.boundaries = boundaries;
+        this.size = size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int getIntervalsNumber() {
+        return size / 2;
+    }
+
+    int getStart(int interval) {
+        return boundaries[2 * interval];
+    }
+
+    int getEnd(int interval) {
+        return boundaries[2 * interval + 1];
+    }
+
+    boolean contains(int epochDay) {
+        // the day is inside an interval if an odd number of boundaries are
+        // before or at it
+        return boundariesNotAfter(epochDay) % 2 == 1;
+    }
+
+    private int boundariesNotAfter(int epochDay) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (boundaries[middle] <= epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds the days from <code>start</code>, inclusive, to <code>end</code>,
+     * exclusive. Adding them after all the existing intervals is done in
+     * constant amortized time.
+     */
+    void add(int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        if (size == 0 || start > boundaries[size - 1]) {
+            ensureCapacity(size + 2);
+            boundaries[size++] = start;
+            boundaries[size++] = end;
+            return;
+        }
+        int first = firstIntervalEndingNotBefore(start);
+        int last = firstIntervalStartingAfter(end);
+        if (first == last) {
+            ensureCapacity(size + 2);
+            System.arraycopy(boundaries, 2 * first, boundaries, 2 * first + 2,
+                    size - 2 * first);
+            boundaries[2 * first] = start;
+            boundaries[2 * first + 1] = end;
+            size += 2;
+            return;
+        }
+        int mergedStart = Math.min(start, getStart(first));
+        int mergedEnd = Math.max(end, getEnd(last - 1));
+        System.arraycopy(boundaries, 2 * last, boundaries, 2 * first + 2, size
+                - 2 * last);
+        size -= 2 * (last - first - 1);
+        boundaries[2 * first] = mergedStart;
+        boundaries[2 * first + 1] = mergedEnd;
+    }
+
+    private int firstIntervalEndingNotBefore(int epochDay) {
+        int low = 0;
+        int high = getIntervalsNumber() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (getEnd(middle) < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private int firstIntervalStartingAfter(int epochDay) {
+        int low = 0;
+        int high = getIntervalsNumber() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (getStart(middle) <= epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > boundaries.length) {
+            boundaries = Arrays.copyOf(boundaries,
+                    Math.max(required, boundaries.length * 2));
+        }
+    }
+
+}
@@ -24,11 +24,16 @@ package org.libreplan.business.common.daos;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.commons.lang.Validate;
 import org.hibernate.Hibernate;
 import org.hibernate.LockMode;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.StaleObjectStateException;
@@ -77,6 +82,18 @@ public class GenericDAOHibernate<E extends BaseEntity,
         this.entityClass = entityClass;
     }
 
+    /**
+     * Number of rows retrieved from the database in each round trip when a
+     * query is gone through with a cursor
+     */
+    private static final int SCROLL_FETCH_SIZE = 100;
+
+    /**
+     * Maximum number of values bound to a single <code>IN</code> clause, as
+     * some databases limit it
+     */
+    private static final int MAX_IN_VALUES = 1000;
+
     protected Session getSession() {
         return sessionFactory.getCurrentSession();
     }
@@ -217,4 +234,66 @@ public class GenericDAOHibernate<E extends BaseEntity,
         getSession().saveOrUpdate(entity);
     }
 
+    /**
+     * It returns a forward only cursor over the results of the query. The
+     * query is marked as read only, so the retrieved entities aren't dirty
+     * checked.
+     */
+    protected ScrollableResults scroll(Query query) {
+        return query.setReadOnly(true).setFetchSize(SCROLL_FETCH_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    /**
+     * It passes to the visitor the first column of each result of the query,
+     * without retrieving all of them at once. The session is cleared after
+     * each <code>clearInterval</code> results, so the memory used doesn't
+     * depend on the number of results.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> void scroll(Query query, int clearInterval,
+            IScrollVisitor<T> visitor) {
+        ScrollableResults results = scroll(query);
+        try {
+            int visited = 0;
+            while (results.next()) {
+                visitor.visit((T) results.get(0));
+                if (++visited % clearInterval == 0) {
+                    getSession().clear();
+                }
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    /**
+     * It runs the query once for each chunk of the values, binding them to
+     * the parameter <code>parameterName</code>, and returns all the results.
+     * It's meant for queries with an <code>IN</code> clause on a number of
+     * values that can exceed {@link #MAX_IN_VALUES}.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> List<T> listInChunks(Query query, String parameterName,
+            Collection<?> values) {
+        List<Object> all = new ArrayList<Object>(values);
+        List<T> result = new ArrayList<T>();
+        for (int i = 0; i < all.size(); i += MAX_IN_VALUES) {
+            query.setParameterList(parameterName,
+                    all.subList(i, Math.min(all.size(), i + MAX_IN_VALUES)));
+            result.addAll(query.list());
+        }
+        return result;
+    }
+
+    protected static List<Long> getIds(Collection<? extends BaseEntity> entities) {
+        List<Long> result = new ArrayList<Long>();
+        for (BaseEntity each : entities) {
+            if (each.getId() != null) {
+                result.add(each.getId());
+            }
+        }
+        return result;
+    }
+
 }
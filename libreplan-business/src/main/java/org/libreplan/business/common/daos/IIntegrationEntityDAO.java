@@ -21,7 +21,9 @@
 
 package org.libreplan.business.common.daos;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.libreplan.business.common.IntegrationEntity;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
@@ -63,6 +65,14 @@ public interface IIntegrationEntityDAO<E extends IntegrationEntity>
 
     public E findExistingEntityByCode(String code);
 
+    /**
+     * It returns the entities with the specified codes, doing a query for
+     * each thousand of codes instead of one for each of them. The codes are
+     * compared as in {@link #findByCode(String)}, so the result is keyed by
+     * the codes in lower case. Blank codes are ignored.
+     */
+    public Map<String, E> findByCodes(Collection<String> codes);
+
     /**
      * It returns all entities ordered by ascending code.
      */
@@ -21,7 +21,13 @@
 
 package org.libreplan.business.common.daos;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.criterion.Order;
@@ -100,6 +106,40 @@ public class IntegrationEntityDAO<E extends IntegrationEntity>
 
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, E> findByCodes(Collection<String> codes) {
+        List<E> found = listInChunks(getSession().createQuery(
+                "FROM " + getEntityClass().getName() + " e "
+                        + "WHERE lower(e." + getCodeProperty()
+                        + ") IN (:codes)"), "codes", toLowerCaseCodes(codes));
+        Map<String, E> result = new HashMap<String, E>();
+        for (E each : found) {
+            result.put(each.getCode().toLowerCase(), each);
+        }
+        return result;
+    }
+
+    private static List<String> toLowerCaseCodes(Collection<String> codes) {
+        Set<String> result = new LinkedHashSet<String>();
+        for (String each : codes) {
+            if (!StringUtils.isBlank(each)) {
+                result.add(each.trim().toLowerCase());
+            }
+        }
+        return new ArrayList<String>(result);
+    }
+
+    /**
+     * It returns the property holding the code of the entity, used by
+     * {@link #findByCodes(Collection)}. It must be overridden along with
+     * {@link #findByCode(String)} when the code is not in the
+     * <code>code</code> property.
+     */
+    protected String getCodeProperty() {
+        return "code";
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public List<E> findAll() {
@@ -0,0 +1,122 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.common.metrics;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+/**
+ * Counts the statements prepared, the entities loaded and the flushes done by
+ * Hibernate. Besides the global counters, the ones of the current thread are
+ * kept between {@link #startRequest()} and {@link #finishRequest()}, so the
+ * work done by each request can be measured.
+ * <p>
+ * It's configured as the entity interceptor of the session factory.
+ * </p>
+ */
+public class HibernateStatisticsInterceptor extends EmptyInterceptor {
+
+    private static final long serialVersionUID = 1L;
+
+    public static class RequestStatistics {
+
+        private long statements = 0;
+
+        private long entitiesLoaded = 0;
+
+        private long flushes = 0;
+
+        private RequestStatistics() {
+        }
+
+        public long getStatements() {
+            return statements;
+        }
+
+        public long getEntitiesLoaded() {
+            return entitiesLoaded;
+        }
+
+        public long getFlushes() {
+            return flushes;
+        }
+
+    }
+
+    private static final ThreadLocal<RequestStatistics> current = new ThreadLocal<RequestStatistics>();
+
+    private static final Counter STATEMENTS = MetricsRegistry.getInstance()
+            .counter("hibernate.statements");
+
+    private static final Counter ENTITIES_LOADED = MetricsRegistry
+            .getInstance().counter("hibernate.entities.loaded");
+
+    private static final Counter FLUSHES = MetricsRegistry.getInstance()
+            .counter("hibernate.flushes");
+
+    public static void startRequest() {
+        current.set(new RequestStatistics());
+    }
+
+    /**
+     * @return the statistics since {@link #startRequest()} was called in this
+     *         thread or <code>null</code> if it wasn't
+     */
+    public static RequestStatistics finishRequest() {
+        RequestStatistics result = current.get();
+        current.remove();
+        return result;
+    }
+
+    @Override
+    public String onPrepareStatement(String sql) {
+        STATEMENTS.increment();
+        RequestStatistics statistics = current.get();
+        if (statistics != null) {
+            statistics.statements++;
+        }
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Serializable id, Object[] state,
+            String[] propertyNames, Type[] types) {
+        ENTITIES_LOADED.increment();
+        RequestStatistics statistics = current.get();
+        if (statistics != null) {
+            statistics.entitiesLoaded++;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void preFlush(Iterator entities) {
+        FLUSHES.increment();
+        RequestStatistics statistics = current.get();
+        if (statistics != null) {
+            statistics.flushes++;
+        }
+    }
+
+}
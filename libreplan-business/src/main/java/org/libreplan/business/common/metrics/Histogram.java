@@ -0,0 +1,178 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.common.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of non negative values, e.g. the number of statements executed
+ * per request.
+ * <p>
+ * The values are counted in buckets, four per each power of two, so the
+ * percentiles are approximated with an error lower than 25%. It uses a fixed
+ * amount of memory and recording a value doesn't lock, so it can be used in
+ * hot paths.
+ * </p>
+ *
+ * @see MetricsRegistry#histogram(String)
+ */
+public class Histogram implements IMetric {
+
+    private static final int SUB_BUCKETS = 4;
+
+    private static final int BUCKETS = SUB_BUCKETS + 61 * SUB_BUCKETS;
+
+    static int bucketFor(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(value, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - 2) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the highest value counted in <code>bucket</code>
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    Histogram() {
+    }
+
+    /**
+     * The negative values are counted as zero
+     */
+    public void update(long value) {
+        value = Math.max(value, 0);
+        buckets.incrementAndGet(bucketFor(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        updateMin(value);
+        updateMax(value);
+    }
+
+    private void updateMin(long value) {
+        long current;
+        while ((current = min.get()) > value) {
+            if (min.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    private void updateMax(long value) {
+        long current;
+        while ((current = max.get()) < value) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * @return the lowest value or zero if there are none
+     */
+    public long getMin() {
+        return getCount() == 0 ? 0 : min.get();
+    }
+
+    /**
+     * @return the highest value or zero if there are none
+     */
+    public long getMax() {
+        return getCount() == 0 ? 0 : max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * @param quantile
+     *            between 0 and 1, e.g. 0.95 for the 95th percentile
+     * @return an approximation by excess of the value below which are the
+     *         given fraction of the values. Zero if there are none
+     */
+    public long getPercentile(double quantile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long accumulated = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            accumulated += buckets.get(i);
+            if (accumulated >= rank) {
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public void addValues(String name, Map<String, Number> values) {
+        addValues(name, values, "", 1);
+    }
+
+    /**
+     * Adds the values, except the count, divided by <code>unit</code> and with
+     * <code>suffix</code> appended to their names
+     */
+    void addValues(String name, Map<String, Number> values, String suffix,
+            double unit) {
+        values.put(name + ".count", getCount());
+        values.put(name + ".sum" + suffix, getSum() / unit);
+        values.put(name + ".min" + suffix, getMin() / unit);
+        values.put(name + ".max" + suffix, getMax() / unit);
+        values.put(name + ".mean" + suffix, getMean() / unit);
+        values.put(name + ".p50" + suffix, getPercentile(0.5) / unit);
+        values.put(name + ".p95" + suffix, getPercentile(0.95) / unit);
+        values.put(name + ".p99" + suffix, getPercentile(0.99) / unit);
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.common.metrics;
+
+import java.util.Map;
+
+/**
+ * Something measured that can be registered in a {@link MetricsRegistry}.
+ * Besides the provided {@link Counter counters}, {@link Histogram histograms}
+ * and {@link Timer timers}, it can be implemented to expose values calculated
+ * on demand.
+ */
+public interface IMetric {
+
+    /**
+     * Adds the current values of the metric to <code>values</code>. The keys
+     * must be <code>name</code> or start with <code>name</code> followed by a
+     * dot.
+     */
+    void addValues(String name, Map<String, Number> values);
+
+}
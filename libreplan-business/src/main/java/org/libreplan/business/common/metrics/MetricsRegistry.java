@@ -0,0 +1,162 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.common.metrics;
+
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.Validate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Keeps the metrics of the application by name. The names are dot separated
+ * lowercase words, e.g. <code>planner.save</code>.
+ * <p>
+ * The metrics are usually kept in static fields of the classes using them, as
+ * it's done with the logs, so measuring doesn't need a lookup:
+ *
+ * <pre>
+ * private static final Timer SAVE_TIMER = MetricsRegistry.getInstance().timer(
+ *         &quot;planner.save&quot;);
+ * </pre>
+ *
+ * </p>
+ * <p>
+ * The values of all the metrics are exported with {@link #getValues()}.
+ * </p>
+ */
+public class MetricsRegistry {
+
+    private static final Log LOG = LogFactory.getLog(MetricsRegistry.class);
+
+    /**
+     * Protects against metrics created from unbounded values, e.g. request
+     * paths. Once reached the new metrics still work but they are not exposed
+     */
+    private static final int MAX_METRICS = 1000;
+
+    private static final MetricsRegistry singleton = new MetricsRegistry();
+
+    public static MetricsRegistry getInstance() {
+        return singleton;
+    }
+
+    private final ConcurrentMap<String, IMetric> metrics = new ConcurrentHashMap<String, IMetric>();
+
+    private volatile boolean limitReached = false;
+
+    public MetricsRegistry() {
+    }
+
+    public Counter counter(String name) {
+        return getOrRegister(name, Counter.class, new Counter());
+    }
+
+    public Histogram histogram(String name) {
+        return getOrRegister(name, Histogram.class, new Histogram());
+    }
+
+    public Timer timer(String name) {
+        return getOrRegister(name, Timer.class, new Timer());
+    }
+
+    /**
+     * Registers a metric of another type, e.g. one calculating its values on
+     * demand. If there were already a metric with the same name it would be
+     * replaced
+     */
+    public void register(String name, IMetric metric) {
+        Validate.notNull(name);
+        Validate.notNull(metric);
+        if (!isFull()) {
+            metrics.put(name, metric);
+        }
+    }
+
+    public void remove(String name) {
+        metrics.remove(name);
+    }
+
+    private <T extends IMetric> T getOrRegister(String name, Class<T> type,
+            T newMetric) {
+        Validate.notNull(name);
+        IMetric existent = metrics.get(name);
+        if (existent == null) {
+            if (isFull()) {
+                return newMetric;
+            }
+            existent = metrics.putIfAbsent(name, newMetric);
+            if (existent == null) {
+                return newMetric;
+            }
+        }
+        if (!type.isInstance(existent)) {
+            throw new IllegalArgumentException("the metric " + name
+                    + " is a " + existent.getClass().getSimpleName()
+                    + " not a " + type.getSimpleName());
+        }
+        return type.cast(existent);
+    }
+
+    private boolean isFull() {
+        if (metrics.size() < MAX_METRICS) {
+            return false;
+        }
+        if (!limitReached) {
+            limitReached = true;
+            LOG.warn("there are already " + MAX_METRICS
+                    + " metrics, the new ones won't be exposed");
+        }
+        return true;
+    }
+
+    /**
+     * @return the current values of all the metrics sorted by name
+     */
+    public SortedMap<String, Number> getValues() {
+        SortedMap<String, Number> result = new TreeMap<String, Number>();
+        for (Entry<String, IMetric> each : metrics.entrySet()) {
+            try {
+                each.getValue().addValues(each.getKey(), result);
+            } catch (RuntimeException e) {
+                LOG.error("error getting the values of " + each.getKey(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the current values as text, one <code>name value</code> pair per
+     *         line
+     */
+    public String getValuesAsText() {
+        StringBuilder result = new StringBuilder();
+        for (Entry<String, Number> each : getValues().entrySet()) {
+            result.append(each.getKey()).append(' ').append(each.getValue())
+                    .append('\n');
+        }
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.common.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Times an operation made of consecutive phases. Each phase is recorded in
+ * its own {@link Timer} and logged with debug level. Typical usage:
+ *
+ * <pre>
+ * PhaseTimer phases = new PhaseTimer(PROFILING_LOG);
+ * ...
+ * phases.phaseDone(LOAD_TIMER, &quot;loading&quot;);
+ * ...
+ * phases.phaseDone(SAVE_TIMER, &quot;saving&quot;);
+ * phases.allDone(TOTAL_TIMER, &quot;loading and saving&quot;);
+ * </pre>
+ */
+public class PhaseTimer {
+
+    private final Log log;
+
+    private final long start;
+
+    private long phaseStart;
+
+    public PhaseTimer(Log log) {
+        this.log = log;
+        this.start = this.phaseStart = System.nanoTime();
+    }
+
+    /**
+     * Records the time elapsed since the previous phase was done, or since
+     * the creation if it's the first one
+     */
+    public void phaseDone(Timer timer, String phase) {
+        long now = System.nanoTime();
+        record(timer, phase, now - phaseStart);
+        phaseStart = now;
+    }
+
+    /**
+     * Records the time elapsed since the creation
+     */
+    public void allDone(Timer timer, String operation) {
+        record(timer, operation, System.nanoTime() - start);
+    }
+
+    private void record(Timer timer, String description, long nanoseconds) {
+        timer.update(nanoseconds, TimeUnit.NANOSECONDS);
+        if (log.isDebugEnabled()) {
+            log.debug(description + " took: "
+                    + TimeUnit.NANOSECONDS.toMillis(nanoseconds) + " ms");
+        }
+    }
+
+}
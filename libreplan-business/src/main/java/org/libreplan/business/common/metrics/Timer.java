@@ -0,0 +1,85 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.common.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Histogram} of durations. They are recorded in nanoseconds and
+ * exposed in milliseconds. Typical usage:
+ *
+ * <pre>
+ * Timer.Context context = TIMER.start();
+ * try {
+ *     ...
+ * } finally {
+ *     context.stop();
+ * }
+ * </pre>
+ *
+ * @see MetricsRegistry#timer(String)
+ */
+public class Timer implements IMetric {
+
+    private static final double NANOS_PER_MILLISECOND = TimeUnit.MILLISECONDS
+            .toNanos(1);
+
+    public class Context {
+
+        private final long start = System.nanoTime();
+
+        private Context() {
+        }
+
+        /**
+         * @return the elapsed nanoseconds since the context was started
+         */
+        public long stop() {
+            long elapsed = System.nanoTime() - start;
+            histogram.update(elapsed);
+            return elapsed;
+        }
+
+    }
+
+    private final Histogram histogram = new Histogram();
+
+    Timer() {
+    }
+
+    public Context start() {
+        return new Context();
+    }
+
+    public void update(long duration, TimeUnit unit) {
+        histogram.update(unit.toNanos(duration));
+    }
+
+    public Histogram getNanoseconds() {
+        return histogram;
+    }
+
+    @Override
+    public void addValues(String name, Map<String, Number> values) {
+        histogram.addValues(name, values, "_ms", NANOS_PER_MILLISECOND);
+    }
+
+}
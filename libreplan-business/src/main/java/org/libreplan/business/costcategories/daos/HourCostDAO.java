@@ -22,6 +22,10 @@
 package org.libreplan.business.costcategories.daos;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.hibernate.Query;
 import org.joda.time.LocalDate;
@@ -29,6 +33,7 @@ import org.libreplan.business.common.daos.IntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.costcategories.entities.CostCategory;
 import org.libreplan.business.costcategories.entities.HourCost;
+import org.libreplan.business.costcategories.entities.HourCostRateTable;
 import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
 import org.libreplan.business.resources.entities.Criterion;
 import org.libreplan.business.resources.entities.Resource;
@@ -80,6 +85,31 @@ public class HourCostDAO extends IntegrationEntityDAO<HourCost> implements
         return (BigDecimal) query.uniqueResult();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public HourCostRateTable getRateTableFor(
+            Collection<? extends Resource> resources) {
+        Set<Resource> withoutNulls = new HashSet<Resource>(resources);
+        withoutNulls.remove(null);
+
+        HourCostRateTable result = new HourCostRateTable();
+        List<Object[]> rows = listInChunks(getSession().createQuery(
+                "SELECT rcca.resource.id, hc.type.code, "
+                        + "rcca.initDate, rcca.endDate, "
+                        + "hc.initDate, hc.endDate, hc.priceCost "
+                        + "FROM ResourcesCostCategoryAssignment rcca, "
+                        + "HourCost hc "
+                        + "WHERE rcca.costCategory = hc.category "
+                        + "AND rcca.resource.id IN (:resources)"),
+                "resources", getIds(withoutNulls));
+        for (Object[] row : rows) {
+            result.add((Long) row[0], (String) row[1], (LocalDate) row[2],
+                    (LocalDate) row[3], (LocalDate) row[4],
+                    (LocalDate) row[5], (BigDecimal) row[6]);
+        }
+        return result;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public BigDecimal getPriceCostFromCriterionAndType(CostCategory category,
@@ -22,12 +22,14 @@
 package org.libreplan.business.costcategories.daos;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.costcategories.entities.CostCategory;
 import org.libreplan.business.costcategories.entities.HourCost;
+import org.libreplan.business.costcategories.entities.HourCostRateTable;
 import org.libreplan.business.costcategories.entities.ResourcesCostCategoryAssignment;
 import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
 import org.libreplan.business.resources.entities.Resource;
@@ -60,6 +62,17 @@ public interface IHourCostDAO extends IIntegrationEntityDAO<HourCost> {
     BigDecimal getPriceCostFromResourceDateAndType(Resource resource,
             LocalDate date, TypeOfWorkHours type);
 
+    /**
+     * Loads with a single query the price costs of all the {@link HourCost
+     * hour costs} associated with the {@link Resource resources}, so
+     * {@link #getPriceCostFromResourceDateAndType(Resource, LocalDate, TypeOfWorkHours)}
+     * can be answered for lots of lines without accessing the database.
+     *
+     * @param resources
+     * @return A {@link HourCostRateTable} for the resources
+     */
+    HourCostRateTable getRateTableFor(Collection<? extends Resource> resources);
+
     public BigDecimal getPriceCostFromCriterionAndType(
             CostCategory category, TypeOfWorkHours type);
 }
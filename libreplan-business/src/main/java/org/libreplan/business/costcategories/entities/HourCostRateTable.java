@@ -0,0 +1,207 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.costcategories.entities;
+
+import static org.libreplan.business.util.EpochDays.toEpochDay;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.resources.entities.Resource;
+
+/**
+ * Price cost of each {@link TypeOfWorkHours} for some resources, already
+ * resolved from their {@link ResourcesCostCategoryAssignment cost category
+ * assignments} and the {@link HourCost hour costs} of those categories.
+ * <p>
+ * For each resource and type of work hours it keeps the periods in which a
+ * price applies sorted by their start, so the price of a day is found with a
+ * binary search without accessing the database. The periods don't overlap
+ * because neither the cost category assignments of a resource nor the hour
+ * costs of the same type in a category can overlap.
+ * </p>
+ * <p>
+ * It's a snapshot of the cost categories when it's loaded, so it must be
+ * discarded once the calculation it was loaded for is done.
+ * </p>
+ *
+ * @see CostCategory#validateHourCostsOverlap(java.util.Set)
+ * @see CostCategory#validateCostCategoryOverlapping(java.util.List)
+ */
+public class HourCostRateTable {
+
+    private static final int START_OF_TIME = Integer.MIN_VALUE;
+
+    private static final int END_OF_TIME = Integer.MAX_VALUE;
+
+    private static class Rates {
+
+        private int[] starts = new int[2];
+
+        /**
+         * Exclusive
+         */
+        private int[] ends = new int[2];
+
+        private BigDecimal[] prices = new BigDecimal[2];
+
+        private int size = 0;
+
+        private boolean sorted = true;
+
+        void add(int start, int end, BigDecimal price) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            sorted = sorted && (size == 0 || starts[size - 1] <= start);
+            starts[size] = start;
+            ends[size] = end;
+            prices[size] = price;
+            size++;
+        }
+
+        BigDecimal getPriceAt(int epochDay) {
+            ensureSorted();
+            int i = lastStartingNotAfter(epochDay);
+            if (i >= 0 && epochDay < ends[i]) {
+                return prices[i];
+            }
+            return null;
+        }
+
+        private int lastStartingNotAfter(int epochDay) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (starts[middle] <= epochDay) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low - 1;
+        }
+
+        private void ensureSorted() {
+            if (sorted) {
+                return;
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return starts[o1] < starts[o2] ? -1
+                            : (starts[o1] == starts[o2] ? 0 : 1);
+                }
+            });
+            int[] newStarts = new int[size];
+            int[] newEnds = new int[size];
+            BigDecimal[] newPrices = new BigDecimal[size];
+            for (int i = 0; i < size; i++) {
+                newStarts[i] = starts[order[i]];
+                newEnds[i] = ends[order[i]];
+                newPrices[i] = prices[order[i]];
+            }
+            starts = newStarts;
+            ends = newEnds;
+            prices = newPrices;
+            sorted = true;
+        }
+
+    }
+
+    private final Map<Long, Map<String, Rates>> ratesByResource = new HashMap<Long, Map<String, Rates>>();
+
+    /**
+     * Adds the price of a {@link HourCost} for a resource assigned to its
+     * category. The price only applies in the intersection of the validity
+     * periods of the assignment and the hour cost. A <code>null</code> end
+     * date means that the period has no end.
+     */
+    public void add(Long resourceId, String typeOfWorkHoursCode,
+            LocalDate assignmentInitDate, LocalDate assignmentEndDate,
+            LocalDate hourCostInitDate, LocalDate hourCostEndDate,
+            BigDecimal priceCost) {
+        Validate.notNull(resourceId);
+        Validate.notNull(typeOfWorkHoursCode);
+        int start = Math.max(startOf(assignmentInitDate),
+                startOf(hourCostInitDate));
+        int end = Math.min(endOf(assignmentEndDate), endOf(hourCostEndDate));
+        if (start >= end) {
+            return;
+        }
+        getOrCreateRates(resourceId, typeOfWorkHoursCode).add(start, end,
+                priceCost);
+    }
+
+    private static int startOf(LocalDate initDate) {
+        return initDate == null ? START_OF_TIME : toEpochDay(initDate);
+    }
+
+    private static int endOf(LocalDate endDate) {
+        return endDate == null ? END_OF_TIME : toEpochDay(endDate) + 1;
+    }
+
+    private Rates getOrCreateRates(Long resourceId, String typeOfWorkHoursCode) {
+        Map<String, Rates> byType = ratesByResource.get(resourceId);
+        if (byType == null) {
+            byType = new HashMap<String, Rates>();
+            ratesByResource.put(resourceId, byType);
+        }
+        Rates result = byType.get(typeOfWorkHoursCode);
+        if (result == null) {
+            result = new Rates();
+            byType.put(typeOfWorkHoursCode, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the price cost for the resource in that date and type of work
+     *         hours or <code>null</code> if no cost category defines it
+     */
+    public BigDecimal getPriceCost(Resource resource, LocalDate date,
+            TypeOfWorkHours type) {
+        return getPriceCost(resource.getId(), date, type.getCode());
+    }
+
+    public BigDecimal getPriceCost(Long resourceId, LocalDate date,
+            String typeOfWorkHoursCode) {
+        Map<String, Rates> byType = ratesByResource.get(resourceId);
+        if (byType == null || date == null) {
+            return null;
+        }
+        Rates rates = byType.get(typeOfWorkHoursCode);
+        return rates == null ? null : rates.getPriceAt(toEpochDay(date));
+    }
+
+}
@@ -53,6 +53,7 @@ import org.hibernate.event.spi.PostUpdateEventListener;
 import org.hibernate.internal.SessionFactoryImpl;
 import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.proxy.HibernateProxy;
+import org.libreplan.business.hibernate.notification.IAutoUpdatedSnapshot.IIncrementalCalculation;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -97,15 +98,20 @@ public class HibernateDatabaseModificationsListener implements
     private final class Dispatcher implements Synchronization {
 
         private BlockingQueue<Class<?>> classes = new LinkedBlockingQueue<Class<?>>();
+        private final ModifiedEntities.Builder modifiedEntities = new ModifiedEntities.Builder();
         private final Transaction transaction;
 
-        public Dispatcher(Transaction transaction, Class<?> entityClass) {
-            classes.offer(entityClass);
+        public Dispatcher(Transaction transaction) {
             this.transaction = transaction;
         }
 
-        public void add(Class<?> entityClass) {
+        public void add(Class<?> entityClass, Object entity, boolean deletion) {
             classes.offer(entityClass);
+            if (deletion) {
+                modifiedEntities.deleted(entityClass, entity);
+            } else {
+                modifiedEntities.modified(entityClass, entity);
+            }
         }
 
         @Override
@@ -124,7 +130,7 @@ public class HibernateDatabaseModificationsListener implements
                 LOG.debug("dispatching "
                         + toDispatch
                         + " snapshots to reload due to transaction successful completion");
-                dispatch(toDispatch);
+                dispatch(toDispatch, modifiedEntities.build());
             }
         }
 
@@ -163,20 +169,23 @@ public class HibernateDatabaseModificationsListener implements
 
     @Override
     public void onPostDelete(PostDeleteEvent event) {
-        modificationOn(inferTransaction(event),
-                inferEntityClass(getEntityObject(event)));
+        Object entity = getEntityObject(event);
+        modificationOn(inferTransaction(event), inferEntityClass(entity),
+                entity, true);
     }
 
     @Override
     public void onPostUpdate(PostUpdateEvent event) {
-        modificationOn(inferTransaction(event),
-                inferEntityClass(getEntityObject(event)));
+        Object entity = getEntityObject(event);
+        modificationOn(inferTransaction(event), inferEntityClass(entity),
+                entity, false);
     }
 
     @Override
     public void onPostInsert(PostInsertEvent event) {
-        modificationOn(inferTransaction(event),
-                inferEntityClass(getEntityObject(event)));
+        Object entity = getEntityObject(event);
+        modificationOn(inferTransaction(event), inferEntityClass(entity),
+                entity, false);
     }
 
 
@@ -204,43 +213,64 @@ public class HibernateDatabaseModificationsListener implements
         return entity.getClass();
     }
 
-    void modificationOn(Transaction transaction, Class<?> entityClass) {
+    void modificationOn(Transaction transaction, Class<?> entityClass,
+            Object entity, boolean deletion) {
         if (transaction == null) {
-            dispatch(snapshotsInterestedOn(entityClass));
+            ModifiedEntities.Builder modified = new ModifiedEntities.Builder();
+            if (deletion) {
+                modified.deleted(entityClass, entity);
+            } else {
+                modified.modified(entityClass, entity);
+            }
+            dispatch(snapshotsInterestedOn(entityClass), modified.build());
             return;
         }
-        Dispatcher newDispatcher = new Dispatcher(transaction, entityClass);
+        Dispatcher newDispatcher = new Dispatcher(transaction);
         Dispatcher previous = null;
         previous = pending.putIfAbsent(transaction, newDispatcher);
 
         boolean dispatcherAlreadyExisted = previous != null;
         if (dispatcherAlreadyExisted) {
-            previous.add(entityClass);
+            previous.add(entityClass, entity, deletion);
         } else {
+            newDispatcher.add(entityClass, entity, deletion);
             transaction.registerSynchronization(newDispatcher);
         }
     }
 
-    private void dispatch(Set<NotBlockingAutoUpdatedSnapshot<?>> toBeDispatched) {
+    private void dispatch(
+            Set<NotBlockingAutoUpdatedSnapshot<?>> toBeDispatched,
+            ModifiedEntities modifiedEntities) {
         for (NotBlockingAutoUpdatedSnapshot<?> each : toBeDispatched) {
-            dispatch(each);
+            dispatch(each, modifiedEntities);
         }
     }
 
-    private void dispatch(NotBlockingAutoUpdatedSnapshot<?> each) {
-        each.reloadNeeded(executor);
+    private void dispatch(NotBlockingAutoUpdatedSnapshot<?> each,
+            ModifiedEntities modifiedEntities) {
+        each.reloadNeeded(executor, modifiedEntities);
     }
 
     @Override
     public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name,
             Callable<T> callable, ReloadOn reloadOn) {
+        return register(new NotBlockingAutoUpdatedSnapshot<T>(name, callable),
+                reloadOn);
+    }
+
+    @Override
+    public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name,
+            IIncrementalCalculation<T> calculation, ReloadOn reloadOn) {
+        return register(new NotBlockingAutoUpdatedSnapshot<T>(name,
+                calculation), reloadOn);
+    }
+
+    private <T> IAutoUpdatedSnapshot<T> register(
+            NotBlockingAutoUpdatedSnapshot<T> result, ReloadOn reloadOn) {
         if (!hibernateListenersRegistered) {
             throw new IllegalStateException(
                     "The hibernate listeners has not been registered. There is some configuration problem.");
         }
-
-        final NotBlockingAutoUpdatedSnapshot<T> result;
-        result = new NotBlockingAutoUpdatedSnapshot<T>(name, callable);
         for (Class<?> each : reloadOn.getClassesOnWhichToReload()) {
             interested.putIfAbsent(each, emptyQueue());
             BlockingQueue<NotBlockingAutoUpdatedSnapshot<?>> queue = interested
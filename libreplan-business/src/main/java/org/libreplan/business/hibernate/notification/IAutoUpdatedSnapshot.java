@@ -20,11 +20,43 @@
  */
 package org.libreplan.business.hibernate.notification;
 
+import java.util.concurrent.Callable;
+
 /**
  * @author Óscar González Fernández
  *
  */
 public interface IAutoUpdatedSnapshot<T> {
 
+    /**
+     * A calculation that besides being able to calculate the whole value of a
+     * snapshot, can update a previously calculated value taking into account
+     * only the entities modified since then. The full calculation, provided by
+     * {@link Callable#call()}, is always used for the first load and as
+     * fallback.
+     */
+    public interface IIncrementalCalculation<T> extends Callable<T> {
+
+        /**
+         * It must not modify <code>previousValue</code>, since it could be
+         * being used by other threads. A new value must be returned instead.
+         *
+         * @param previousValue
+         *            the value calculated before the modifications happened
+         * @param modifiedEntities
+         *            the entities modified on a transaction
+         * @return the updated value or <code>null</code> if it can't be
+         *         updated incrementally so a full reload must be done
+         */
+        T applyModifications(T previousValue,
+                ModifiedEntities modifiedEntities);
+    }
+
     T getValue();
+
+    /**
+     * Like {@link #getValue()}, but if the value is being reloaded it waits
+     * for the reload to finish instead of returning the previous value
+     */
+    T getLatestValue();
 }
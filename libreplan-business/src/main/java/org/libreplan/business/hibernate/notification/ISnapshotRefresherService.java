@@ -22,6 +22,8 @@ package org.libreplan.business.hibernate.notification;
 
 import java.util.concurrent.Callable;
 
+import org.libreplan.business.hibernate.notification.IAutoUpdatedSnapshot.IIncrementalCalculation;
+
 /**
  * @author Óscar González Fernández
  *
@@ -30,4 +32,12 @@ public interface ISnapshotRefresherService {
 
     public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name, Callable<T> callable, ReloadOn reloadOn);
 
+    /**
+     * Like {@link #takeSnapshot(String, Callable, ReloadOn)} but the snapshot
+     * is updated applying only the modifications done on each transaction
+     * instead of being calculated again from scratch
+     */
+    public <T> IAutoUpdatedSnapshot<T> takeSnapshot(String name,
+            IIncrementalCalculation<T> calculation, ReloadOn reloadOn);
+
 }
@@ -0,0 +1,197 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.hibernate.notification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+import org.libreplan.business.common.BaseEntity;
+
+/**
+ * The entities inserted, updated or deleted by a successfully completed
+ * transaction. It's handed to the {@link IAutoUpdatedSnapshot snapshots} that
+ * know how to update their value incrementally.
+ * <p>
+ * The entity instances are the ones that were attached to the session that
+ * made the modifications. So only the already initialized state of them can be
+ * safely accessed.
+ * </p>
+ */
+public class ModifiedEntities {
+
+    public static ModifiedEntities none() {
+        return new ModifiedEntities(
+                Collections.<Class<?>, List<Object>> emptyMap(),
+                Collections.<Class<?>, List<Object>> emptyMap());
+    }
+
+    static class Builder {
+
+        private final Map<Class<?>, List<Object>> modified = new LinkedHashMap<Class<?>, List<Object>>();
+
+        private final Map<Class<?>, List<Object>> deleted = new LinkedHashMap<Class<?>, List<Object>>();
+
+        synchronized Builder modified(Class<?> entityClass, Object entity) {
+            add(modified, entityClass, entity);
+            return this;
+        }
+
+        synchronized Builder deleted(Class<?> entityClass, Object entity) {
+            add(deleted, entityClass, entity);
+            return this;
+        }
+
+        private static void add(Map<Class<?>, List<Object>> map,
+                Class<?> entityClass, Object entity) {
+            List<Object> list = map.get(entityClass);
+            if (list == null) {
+                list = new ArrayList<Object>();
+                map.put(entityClass, list);
+            }
+            list.add(entity);
+        }
+
+        synchronized ModifiedEntities build() {
+            return new ModifiedEntities(copy(modified), copy(deleted));
+        }
+
+        private static Map<Class<?>, List<Object>> copy(
+                Map<Class<?>, List<Object>> map) {
+            Map<Class<?>, List<Object>> result = new LinkedHashMap<Class<?>, List<Object>>();
+            for (Entry<Class<?>, List<Object>> each : map.entrySet()) {
+                result.put(each.getKey(),
+                        Collections.unmodifiableList(new ArrayList<Object>(
+                                each.getValue())));
+            }
+            return Collections.unmodifiableMap(result);
+        }
+
+    }
+
+    private final Map<Class<?>, List<Object>> modified;
+
+    private final Map<Class<?>, List<Object>> deleted;
+
+    private ModifiedEntities(Map<Class<?>, List<Object>> modified,
+            Map<Class<?>, List<Object>> deleted) {
+        Validate.notNull(modified);
+        Validate.notNull(deleted);
+        this.modified = modified;
+        this.deleted = deleted;
+    }
+
+    public boolean isEmpty() {
+        return modified.isEmpty() && deleted.isEmpty();
+    }
+
+    /**
+     * @return the concrete classes of all the inserted, updated or deleted
+     *         entities
+     */
+    public Set<Class<?>> getClasses() {
+        Set<Class<?>> result = new HashSet<Class<?>>(modified.keySet());
+        result.addAll(deleted.keySet());
+        return result;
+    }
+
+    /**
+     * @return <code>true</code> if some of the modified entities is an
+     *         instance of any of the provided classes
+     */
+    public boolean affectsAnyOf(Class<?>... classes) {
+        for (Class<?> each : getClasses()) {
+            for (Class<?> klass : classes) {
+                if (klass.isAssignableFrom(each)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the inserted or updated entities that are instances of the
+     *         provided class
+     */
+    public <T> List<T> getModified(Class<T> klass) {
+        return instancesOf(klass, modified);
+    }
+
+    /**
+     * @return the deleted entities that are instances of the provided class
+     */
+    public <T> List<T> getDeleted(Class<T> klass) {
+        return instancesOf(klass, deleted);
+    }
+
+    /**
+     * @return the inserted, updated or deleted entities that are instances of
+     *         the provided class
+     */
+    public <T> List<T> getAll(Class<T> klass) {
+        List<T> result = getModified(klass);
+        result.addAll(getDeleted(klass));
+        return result;
+    }
+
+    /**
+     * @return the ids of the inserted, updated or deleted entities that are
+     *         instances of the provided class
+     */
+    public Set<Long> getIdsOf(Class<? extends BaseEntity> klass) {
+        Set<Long> result = new HashSet<Long>();
+        for (BaseEntity each : getAll(klass)) {
+            result.add(each.getId());
+        }
+        return result;
+    }
+
+    private static <T> List<T> instancesOf(Class<T> klass,
+            Map<Class<?>, List<Object>> map) {
+        List<T> result = new ArrayList<T>();
+        for (Entry<Class<?>, List<Object>> each : map.entrySet()) {
+            if (klass.isAssignableFrom(each.getKey())) {
+                addCasted(klass, result, each.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static <T> void addCasted(Class<T> klass, List<T> result,
+            Collection<Object> entities) {
+        for (Object each : entities) {
+            result.add(klass.cast(each));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "modified: " + modified.keySet() + ", deleted: "
+                + deleted.keySet();
+    }
+
+}
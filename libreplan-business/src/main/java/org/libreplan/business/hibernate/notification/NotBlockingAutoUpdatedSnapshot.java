@@ -21,13 +21,20 @@
 package org.libreplan.business.hibernate.notification;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang.Validate;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.libreplan.business.common.metrics.Counter;
+import org.libreplan.business.common.metrics.MetricsRegistry;
+import org.libreplan.business.common.metrics.Timer;
+import org.libreplan.business.hibernate.notification.IAutoUpdatedSnapshot.IIncrementalCalculation;
 
 /**
  * @author Óscar González Fernández
@@ -40,6 +47,8 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
 
     private final Callable<T> callable;
 
+    private final IIncrementalCalculation<T> incrementalCalculation;
+
     private final AtomicReference<State> currentState;
 
     private final String name;
@@ -59,6 +68,12 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         boolean hasBeenInitialized() {
             return true;
         }
+
+        /**
+         * Waits if necessary for the value that will be current once the
+         * ongoing calculations finish
+         */
+        abstract T waitForLatestValue() throws Exception;
     }
 
     private class NotLaunchState extends State {
@@ -78,6 +93,11 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
             return false;
         }
 
+        @Override
+        T waitForLatestValue() {
+            throw new UnsupportedOperationException();
+        }
+
     }
 
     private class NoOngoingCalculation extends State {
@@ -91,6 +111,11 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         T getValue() {
             return value;
         }
+
+        @Override
+        T waitForLatestValue() {
+            return value;
+        }
     }
 
     private class PreviousValueAndOngoingCalculation extends State {
@@ -120,6 +145,11 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
             return previousValue.getValue();
         }
 
+        @Override
+        T waitForLatestValue() throws Exception {
+            return ongoingCalculation.get();
+        }
+
         private T getValueFromFuture() {
             try {
                 return ongoingCalculation.get();
@@ -165,15 +195,32 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
             ongoingCalculation.cancel(true);
         }
 
+        @Override
+        T waitForLatestValue() throws Exception {
+            return ongoingCalculation.get();
+        }
+
     }
 
     public NotBlockingAutoUpdatedSnapshot(String name, Callable<T> callable) {
+        this(name, callable, null);
+    }
+
+    public NotBlockingAutoUpdatedSnapshot(String name,
+            IIncrementalCalculation<T> incrementalCalculation) {
+        this(name, incrementalCalculation, incrementalCalculation);
+    }
+
+    private NotBlockingAutoUpdatedSnapshot(String name, Callable<T> callable,
+            IIncrementalCalculation<T> incrementalCalculation) {
         Validate.notNull(callable);
         Validate.notNull(name);
         this.name = "*" + name + "*";
         this.callable = callable;
+        this.incrementalCalculation = incrementalCalculation;
         this.currentState = new AtomicReference<State>(new NotLaunchState());
-        this.executionsReport = new ExecutionsReport();
+        this.executionsReport = new ExecutionsReport("snapshots."
+                + name.toLowerCase().replace(' ', '_'));
     }
 
     @Override
@@ -181,6 +228,33 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         return currentState.get().getValue();
     }
 
+    /**
+     * If the awaited calculation is cancelled because a newer reload has
+     * replaced it, the newer one is awaited
+     */
+    @Override
+    public T getLatestValue() {
+        State state = currentState.get();
+        while (true) {
+            try {
+                return state.waitForLatestValue();
+            } catch (CancellationException e) {
+                State newerState = currentState.get();
+                if (newerState == state) {
+                    return state.getValue();
+                }
+                state = newerState;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return state.getValue();
+            } catch (Exception e) {
+                LOG.error("error waiting for the latest value of " + name
+                        + ", returning the current one", e);
+                return state.getValue();
+            }
+        }
+    }
+
     public void reloadNeeded(ExecutorService executorService) {
         Future<T> future = executorService
                 .submit(callableDecoratedWithStatistics());
@@ -196,6 +270,62 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         previousState.cancel();
     }
 
+    /**
+     * If the snapshot supports incremental updates the modifications are
+     * applied to the latest value, otherwise it's fully reloaded. The
+     * incremental updates are chained, so each one is applied over the value
+     * produced by the previous calculation.
+     */
+    public void reloadNeeded(ExecutorService executorService,
+            ModifiedEntities modifiedEntities) {
+        if (incrementalCalculation == null || !hasBeenInitialized()) {
+            reloadNeeded(executorService);
+            return;
+        }
+        // the submission is serialized so the calculations are started in the
+        // same order they are chained. Otherwise all the threads of the
+        // executor could end up waiting for a calculation not started yet
+        synchronized (this) {
+            State previousState;
+            State newState;
+            FutureTask<T> task;
+            do {
+                previousState = currentState.get();
+                task = new FutureTask<T>(
+                        callableDecoratedWithStatistics(applyingModifications(
+                                previousState, modifiedEntities)));
+                newState = previousState.nextState(task);
+            } while (!currentState.compareAndSet(previousState, newState));
+            executorService.execute(task);
+        }
+    }
+
+    private Callable<T> applyingModifications(final State previousState,
+            final ModifiedEntities modifiedEntities) {
+        return new Callable<T>() {
+
+            @Override
+            public T call() throws Exception {
+                T previousValue;
+                try {
+                    previousValue = previousState.waitForLatestValue();
+                } catch (Exception e) {
+                    LOG.debug(name + " previous value not available,"
+                            + " doing full reload");
+                    return callable.call();
+                }
+                T result = incrementalCalculation.applyModifications(
+                        previousValue, modifiedEntities);
+                if (result == null) {
+                    LOG.debug(name + " can't apply incrementally "
+                            + modifiedEntities + ", doing full reload");
+                    return callable.call();
+                }
+                return result;
+            }
+        };
+    }
+
     public void ensureFirstLoad(ExecutorService executorService) {
         if (hasBeenInitialized()) {
             return;
@@ -220,6 +350,11 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
     }
 
     private Callable<T> callableDecoratedWithStatistics() {
+        return callableDecoratedWithStatistics(callable);
+    }
+
+    private Callable<T> callableDecoratedWithStatistics(
+            final Callable<T> callable) {
         final long requestTime = System.currentTimeMillis();
         return new Callable<T>() {
 
@@ -269,8 +404,26 @@ class NotBlockingAutoUpdatedSnapshot<T> implements IAutoUpdatedSnapshot<T> {
         private AtomicReference<Data> data = new AtomicReference<Data>(
                 new Data(0, 0, 0, 0));
 
+        private final Timer waitingTimer;
+
+        private final Timer executingTimer;
+
+        private final Counter errors;
+
+        ExecutionsReport(String metricName) {
+            MetricsRegistry registry = MetricsRegistry.getInstance();
+            waitingTimer = registry.timer(metricName + ".waiting");
+            executingTimer = registry.timer(metricName + ".executing");
+            errors = registry.counter(metricName + ".errors");
+        }
+
         public void newData(long timeWaiting, long timeExecuting,
                 Exception possibleError) {
+            waitingTimer.update(timeWaiting, TimeUnit.MILLISECONDS);
+            executingTimer.update(timeExecuting, TimeUnit.MILLISECONDS);
+            if (possibleError != null) {
+                errors.increment();
+            }
             Data previousData;
             Data newData;
             do {
@@ -22,44 +22,64 @@ package org.libreplan.business.hibernate.notification;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hibernate.HibernateException;
 import org.joda.time.LocalDate;
+import org.libreplan.business.advance.entities.AdvanceAssignment;
 import org.libreplan.business.advance.entities.DirectAdvanceAssignment;
+import org.libreplan.business.calendars.entities.BaseCalendar;
 import org.libreplan.business.calendars.entities.CalendarAvailability;
 import org.libreplan.business.calendars.entities.CalendarData;
 import org.libreplan.business.calendars.entities.CalendarException;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
 import org.libreplan.business.common.AdHocTransactionService;
 import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.costcategories.daos.ICostCategoryDAO;
 import org.libreplan.business.costcategories.entities.CostCategory;
 import org.libreplan.business.externalcompanies.daos.IExternalCompanyDAO;
 import org.libreplan.business.externalcompanies.entities.ExternalCompany;
+import org.libreplan.business.hibernate.notification.IAutoUpdatedSnapshot.IIncrementalCalculation;
 import org.libreplan.business.labels.daos.ILabelDAO;
 import org.libreplan.business.labels.daos.ILabelTypeDAO;
 import org.libreplan.business.labels.entities.Label;
 import org.libreplan.business.labels.entities.LabelType;
 import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.daos.IOrderElementDAO;
+import org.libreplan.business.orders.daos.OrderCatalogue;
 import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.orders.entities.SchedulingDataForVersion;
+import org.libreplan.business.orders.entities.TaskSource;
 import org.libreplan.business.planner.chart.ResourceLoadChartData;
 import org.libreplan.business.planner.daos.IDayAssignmentDAO;
 import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.DerivedDayAssignment;
+import org.libreplan.business.planner.entities.GenericDayAssignment;
 import org.libreplan.business.planner.entities.GenericResourceAllocation;
 import org.libreplan.business.planner.entities.ICostCalculator;
 import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
 import org.libreplan.business.planner.entities.SpecificResourceAllocation;
 import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.TaskElement;
 import org.libreplan.business.planner.entities.TaskGroup;
+import org.libreplan.business.planner.entities.TaskMilestone;
+import org.libreplan.business.requirements.entities.DirectCriterionRequirement;
 import org.libreplan.business.resources.daos.ICriterionDAO;
 import org.libreplan.business.resources.daos.ICriterionTypeDAO;
 import org.libreplan.business.resources.daos.IResourceDAO;
@@ -71,6 +91,9 @@ import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.resources.entities.VirtualWorker;
 import org.libreplan.business.resources.entities.Worker;
 import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.users.entities.ProfileOrderAuthorization;
+import org.libreplan.business.users.entities.UserOrderAuthorization;
+import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
 import org.libreplan.business.workreports.entities.WorkReportLine;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -149,6 +172,16 @@ public class PredefinedDatabaseSnapshots {
         return ordersCodes.getValue();
     }
 
+    private IAutoUpdatedSnapshot<OrderCatalogue> orderCatalogue;
+
+    /**
+     * Unlike the other snapshots it waits for the ongoing reload, if any, so
+     * the orders just saved are not missing when filtering
+     */
+    public OrderCatalogue snapshotOrderCatalogue() {
+        return orderCatalogue.getLatestValue();
+    }
+
     private IAutoUpdatedSnapshot<ResourceLoadChartData>
         resourceLoadChartData;
 
@@ -204,17 +237,29 @@ public class PredefinedDatabaseSnapshots {
                 calculateCustomerReferences(), Order.class);
         ordersCodes = snapshot("order codes", calculateOrdersCodes(),
                 Order.class);
-        resourceLoadChartData = snapshot("resource load grouped by date",
+        orderCatalogue = snapshot("order catalogue", calculateOrderCatalogue(),
+                Order.class, UserOrderAuthorization.class,
+                ProfileOrderAuthorization.class,
+                DirectCriterionRequirement.class,
+                SchedulingDataForVersion.class, TaskElement.class, Task.class,
+                TaskGroup.class, TaskMilestone.class);
+        resourceLoadChartData = incrementalSnapshot(
+                "resource load grouped by date",
                 calculateResourceLoadChartData(),
                 CalendarAvailability.class, CalendarException.class,
-                CalendarData.class, TaskElement.class, SpecificResourceAllocation.class,
-                GenericResourceAllocation.class, ResourceAllocation.class);
+                CalendarData.class, BaseCalendar.class, ResourceCalendar.class,
+                Resource.class, Worker.class, Machine.class,
+                VirtualWorker.class, TaskElement.class, SpecificResourceAllocation.class,
+                GenericResourceAllocation.class, ResourceAllocation.class,
+                SpecificDayAssignment.class, GenericDayAssignment.class,
+                DerivedDayAssignment.class);
         workReportLines = snapshot("work report lines", calculateWorkReportLines(),
                 WorkReportLine.class);
-        estimatedCostPerTask = snapshot("estimated cost per task",
+        estimatedCostPerTask = incrementalSnapshot("estimated cost per task",
                 calculateEstimatedCostPerTask(),
-                TaskElement.class, Task.class, TaskGroup.class, DayAssignment.class);
-        advanceCostPerTask = snapshot("advance cost per task",
+                TaskElement.class, Task.class, TaskGroup.class, DayAssignment.class,
+                SpecificDayAssignment.class, GenericDayAssignment.class);
+        advanceCostPerTask = incrementalSnapshot("advance cost per task",
                 calculateAdvanceCostPerTask(),
                 TaskElement.class, Task.class, TaskGroup.class,
                 DirectAdvanceAssignment.class);
@@ -228,12 +273,27 @@ public class PredefinedDatabaseSnapshots {
                 ReloadOn.onChangeOf(reloadOnChangesOf));
     }
 
+    private <T> IAutoUpdatedSnapshot<T> incrementalSnapshot(String name,
+            IIncrementalCalculation<T> calculation,
+            Class<?>... reloadOnChangesOf) {
+        return snapshotRefresherService.takeSnapshot(name,
+                calculationOnReadOnlyTransaction(calculation),
+                ReloadOn.onChangeOf(reloadOnChangesOf));
+    }
+
     @SuppressWarnings("unchecked")
     private <T> Callable<T> callableOnReadOnlyTransaction(Callable<T> callable) {
         return AdHocTransactionService.readOnlyProxy(transactionService,
                 Callable.class, callable);
     }
 
+    @SuppressWarnings("unchecked")
+    private <T> IIncrementalCalculation<T> calculationOnReadOnlyTransaction(
+            IIncrementalCalculation<T> calculation) {
+        return AdHocTransactionService.readOnlyProxy(transactionService,
+                IIncrementalCalculation.class, calculation);
+    }
+
     @Autowired
     private ICriterionTypeDAO criterionTypeDAO;
 
@@ -392,14 +452,23 @@ public class PredefinedDatabaseSnapshots {
         };
     }
 
+    private Callable<OrderCatalogue> calculateOrderCatalogue() {
+        return new Callable<OrderCatalogue>() {
+            @Override
+            public OrderCatalogue call() {
+                return orderDAO.buildCatalogue();
+            }
+        };
+    }
+
     @Autowired
     private IDayAssignmentDAO dayAssignmentDAO;
 
     @Autowired
     private IScenarioManager scenarioManager;
 
-    private Callable<ResourceLoadChartData> calculateResourceLoadChartData() {
-        return new Callable<ResourceLoadChartData>() {
+    IIncrementalCalculation<ResourceLoadChartData> calculateResourceLoadChartData() {
+        return new IIncrementalCalculation<ResourceLoadChartData>() {
             @Override
             public ResourceLoadChartData call() {
 
@@ -409,6 +478,47 @@ public class PredefinedDatabaseSnapshots {
                 return new ResourceLoadChartData(dayAssignments, resources);
 
             }
+
+            @Override
+            public ResourceLoadChartData applyModifications(
+                    ResourceLoadChartData previousValue,
+                    ModifiedEntities modifiedEntities) {
+                if (modifiedEntities.affectsAnyOf(Resource.class,
+                        BaseCalendar.class, CalendarAvailability.class,
+                        CalendarException.class, CalendarData.class)) {
+                    // the availability of any day could have changed
+                    return null;
+                }
+                Set<LocalDate> days = new HashSet<LocalDate>();
+                for (DayAssignment each : modifiedEntities
+                        .getAll(DayAssignment.class)) {
+                    days.add(each.getDay());
+                }
+                if (days.isEmpty()) {
+                    // the chart only depends on the day assignments, the
+                    // resources and their calendars
+                    return previousValue;
+                }
+                if (!isInside(previousValue, days)) {
+                    return null;
+                }
+                List<DayAssignment> dayAssignments = dayAssignmentDAO.getAllFor(
+                        scenarioManager.getCurrent(), Collections.min(days),
+                        Collections.max(days));
+                return previousValue.recalculateDays(days, dayAssignments);
+            }
+
+            /**
+             * The chart goes from the first to the last day with assignments,
+             * so only modifications strictly between them keep the same days
+             */
+            private boolean isInside(ResourceLoadChartData data,
+                    Set<LocalDate> days) {
+                SortedMap<LocalDate, EffortDuration> load = data.getLoad();
+                return !load.isEmpty()
+                        && load.firstKey().isBefore(Collections.min(days))
+                        && Collections.max(days).isBefore(load.lastKey());
+            }
         };
     }
 
@@ -430,8 +540,11 @@ public class PredefinedDatabaseSnapshots {
     @Autowired
     private ITaskElementDAO taskElementDAO;
 
-    private Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculateEstimatedCostPerTask() {
-        return new Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>>() {
+    @Autowired
+    private IOrderElementDAO orderElementDAO;
+
+    IIncrementalCalculation<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculateEstimatedCostPerTask() {
+        return new IIncrementalCalculation<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>>() {
             @Override
             public Map<TaskElement, SortedMap<LocalDate, BigDecimal>> call() {
                 Map<TaskElement, SortedMap<LocalDate, BigDecimal>> map =
@@ -443,11 +556,78 @@ public class PredefinedDatabaseSnapshots {
                 }
                 return map;
             }
+
+            @Override
+            public Map<TaskElement, SortedMap<LocalDate, BigDecimal>> applyModifications(
+                    Map<TaskElement, SortedMap<LocalDate, BigDecimal>> previousValue,
+                    ModifiedEntities modifiedEntities) {
+                Set<Long> tasksIds = tasksOfDayAssignments(modifiedEntities);
+                if (tasksIds == null) {
+                    return null;
+                }
+                tasksIds.addAll(modifiedEntities.getIdsOf(TaskElement.class));
+                return recalculateTasks(previousValue, tasksIds,
+                        new ICostForTask() {
+
+                            @Override
+                            public SortedMap<LocalDate, BigDecimal> costFor(
+                                    Task task) {
+                                return hoursCostCalculator
+                                        .getEstimatedCost(task);
+                            }
+                        });
+            }
+
+            /**
+             * The day assignments were modified in another session, so their
+             * allocations can be uninitialized proxies or be no longer
+             * attached to a task
+             *
+             * @return the ids of the tasks of the modified day assignments or
+             *         <code>null</code> if any of them can't be found
+             */
+            private Set<Long> tasksOfDayAssignments(
+                    ModifiedEntities modifiedEntities) {
+                Set<Long> result = new HashSet<Long>();
+                try {
+                    for (DayAssignment each : modifiedEntities
+                            .getAll(DayAssignment.class)) {
+                        if (each instanceof DerivedDayAssignment) {
+                            // derived day assignments are not taken into
+                            // account for the estimated cost
+                            continue;
+                        }
+                        ResourceAllocation<?> allocation = getAllocationOf(each);
+                        Task task = allocation != null ? allocation.getTask()
+                                : null;
+                        if (task == null) {
+                            return null;
+                        }
+                        result.add(task.getId());
+                    }
+                } catch (HibernateException e) {
+                    return null;
+                }
+                return result;
+            }
+
+            private ResourceAllocation<?> getAllocationOf(
+                    DayAssignment dayAssignment) {
+                if (dayAssignment instanceof SpecificDayAssignment) {
+                    return ((SpecificDayAssignment) dayAssignment)
+                            .getSpecificResourceAllocation();
+                }
+                if (dayAssignment instanceof GenericDayAssignment) {
+                    return ((GenericDayAssignment) dayAssignment)
+                            .getGenericResourceAllocation();
+                }
+                return null;
+            }
         };
     }
 
-    private Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculateAdvanceCostPerTask() {
-        return new Callable<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>>() {
+    IIncrementalCalculation<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculateAdvanceCostPerTask() {
+        return new IIncrementalCalculation<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>>() {
             @Override
             public Map<TaskElement, SortedMap<LocalDate, BigDecimal>> call() {
                 Map<TaskElement, SortedMap<LocalDate, BigDecimal>> map =
@@ -459,7 +639,99 @@ public class PredefinedDatabaseSnapshots {
                 }
                 return map;
             }
+
+            @Override
+            public Map<TaskElement, SortedMap<LocalDate, BigDecimal>> applyModifications(
+                    Map<TaskElement, SortedMap<LocalDate, BigDecimal>> previousValue,
+                    ModifiedEntities modifiedEntities) {
+                Set<Long> tasksIds = tasksOfAdvanceAssignments(modifiedEntities);
+                if (tasksIds == null) {
+                    return null;
+                }
+                tasksIds.addAll(modifiedEntities.getIdsOf(TaskElement.class));
+                return recalculateTasks(previousValue, tasksIds,
+                        new ICostForTask() {
+
+                            @Override
+                            public SortedMap<LocalDate, BigDecimal> costFor(
+                                    Task task) {
+                                return hoursCostCalculator.getAdvanceCost(task);
+                            }
+                        });
+            }
+
+            /**
+             * @return the ids of the tasks of the order elements with modified
+             *         advance assignments or <code>null</code> if any of them
+             *         can't be found
+             */
+            private Set<Long> tasksOfAdvanceAssignments(
+                    ModifiedEntities modifiedEntities) {
+                Set<Long> orderElementsIds = new HashSet<Long>();
+                Set<Long> result = new HashSet<Long>();
+                try {
+                    for (AdvanceAssignment each : modifiedEntities
+                            .getAll(AdvanceAssignment.class)) {
+                        OrderElement orderElement = each.getOrderElement();
+                        if (orderElement == null) {
+                            return null;
+                        }
+                        orderElementsIds.add(orderElement.getId());
+                    }
+                    for (Long each : orderElementsIds) {
+                        TaskSource taskSource = orderElementDAO.find(each)
+                                .getTaskSource();
+                        // an order element without task source isn't planned
+                        if (taskSource != null) {
+                            result.add(taskSource.getTask().getId());
+                        }
+                    }
+                } catch (InstanceNotFoundException e) {
+                    return null;
+                } catch (HibernateException e) {
+                    return null;
+                }
+                return result;
+            }
         };
     }
 
+    private interface ICostForTask {
+
+        SortedMap<LocalDate, BigDecimal> costFor(Task task);
+    }
+
+    /**
+     * Returns a copy of <code>previousValue</code> where the costs of the tasks
+     * with the provided ids are calculated again. The removed tasks are no
+     * longer included.
+     */
+    private Map<TaskElement, SortedMap<LocalDate, BigDecimal>> recalculateTasks(
+            Map<TaskElement, SortedMap<LocalDate, BigDecimal>> previousValue,
+            Set<Long> tasksIds, ICostForTask costForTask) {
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> result = new HashMap<TaskElement, SortedMap<LocalDate, BigDecimal>>(
+                previousValue);
+        Iterator<TaskElement> iterator = result.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (tasksIds.contains(iterator.next().getId())) {
+                iterator.remove();
+            }
+        }
+        for (Long each : tasksIds) {
+            TaskElement taskElement = findTaskElement(each);
+            if (taskElement instanceof Task) {
+                result.put(taskElement, costForTask.costFor((Task) taskElement));
+            }
+        }
+        return result;
+    }
+
+    private TaskElement findTaskElement(Long id) {
+        try {
+            return taskElementDAO.find(id);
+        } catch (InstanceNotFoundException e) {
+            return null;
+        }
+    }
+
 }
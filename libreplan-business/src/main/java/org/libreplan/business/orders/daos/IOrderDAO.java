@@ -25,6 +25,7 @@ import java.util.Date;
 import java.util.List;
 
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
+import org.libreplan.business.common.daos.IScrollVisitor;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.externalcompanies.entities.ExternalCompany;
 import org.libreplan.business.labels.entities.Label;
@@ -82,10 +83,17 @@ public interface IOrderDAO extends IIntegrationEntityDAO<Order> {
     List<Order> getOrdersByReadAuthorizationByScenario(String username,
             Scenario scenario);
 
+    /**
+     * Returns the orders of the scenario the user can read which pass all the
+     * filters. The filtering is done with <code>catalogue</code>, usually the
+     * one kept by
+     * {@link org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots#snapshotOrderCatalogue()}
+     */
     List<Order> getOrdersByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState(
-            String username, Scenario scenario, Date startDate, Date endDate,
-            List<Label> labels, List<Criterion> criteria,
-            ExternalCompany customer, OrderStatusEnum state);
+            OrderCatalogue catalogue, String username, Scenario scenario,
+            Date startDate, Date endDate, List<Label> labels,
+            List<Criterion> criteria, ExternalCompany customer,
+            OrderStatusEnum state);
 
     /**
      * Returns the order filtered by the name. If name is blank (whitespace,
@@ -114,4 +122,18 @@ public interface IOrderDAO extends IIntegrationEntityDAO<Order> {
     List<CostExpenseSheetDTO> getCostExpenseSheet(List<Order> orders, Date startingDate,
             Date endingDate, List<Criterion> criterions);
 
+    /**
+     * Goes through the {@link Order orders} ordered by code without retrieving
+     * all of them at once. If <code>afterCode</code> is not <code>null</code>
+     * only the orders with a greater code are visited, and no more than
+     * <code>limit</code> orders are visited if it's not <code>null</code>.
+     */
+    void scrollOrderedByCode(String afterCode, Integer limit,
+            IScrollVisitor<Order> visitor);
+
+    /**
+     * Builds the index of all the orders used to filter them in memory
+     */
+    OrderCatalogue buildCatalogue();
+
 }
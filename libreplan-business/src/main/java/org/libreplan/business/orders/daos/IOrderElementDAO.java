@@ -22,6 +22,7 @@
 package org.libreplan.business.orders.daos;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -138,4 +139,19 @@ public interface IOrderElementDAO extends IIntegrationEntityDAO<OrderElement> {
     boolean existsByCodeInAnotherOrderAnotherTransaction(
             OrderElement orderElement);
 
+    /**
+     * Loads the whole tree of {@link OrderElement} under <code>root</code>
+     * with a query per level, initializing the children of each group.
+     *
+     * @return <code>root</code> and all its descendants
+     */
+    List<OrderElement> loadTree(OrderElement root);
+
+    /**
+     * Initializes with a few queries the advance assignments, hours groups
+     * and labels of the provided {@link OrderElement order elements}, so
+     * they're not lazily loaded one by one when planning.
+     */
+    void prefetchPlanningData(Collection<? extends OrderElement> orderElements);
+
 }
@@ -0,0 +1,398 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.orders.daos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderStatusEnum;
+
+/**
+ * Index of the {@link Order orders} by the properties used to filter the
+ * projects list and the company view.
+ * <p>
+ * Each order is given a position and each indexed value keeps a {@link BitSet}
+ * with the positions of the orders having it, so the filters are combined with
+ * bitwise operations. The init dates and the dates of the root tasks are kept
+ * in sorted arrays to find the orders in a range of dates.
+ * </p>
+ * <p>
+ * It's immutable once built, so it can be shared between threads. The
+ * {@link BitSet}s returned are copies that can be freely modified.
+ * </p>
+ *
+ * @see IOrderDAO#buildCatalogue()
+ */
+public class OrderCatalogue {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private final Map<Long, Integer> positions = new HashMap<Long, Integer>();
+
+        private final List<Long> ids = new ArrayList<Long>();
+
+        private final List<Long> initDates = new ArrayList<Long>();
+
+        private final Map<Long, BitSet> byLabel = new HashMap<Long, BitSet>();
+
+        private final Map<Long, BitSet> byCriterion = new HashMap<Long, BitSet>();
+
+        private final Map<Long, BitSet> byCustomer = new HashMap<Long, BitSet>();
+
+        private final Map<OrderStatusEnum, BitSet> byState = new HashMap<OrderStatusEnum, BitSet>();
+
+        private final Map<Long, BitSet> byUser = new HashMap<Long, BitSet>();
+
+        private final Map<Long, BitSet> byProfile = new HashMap<Long, BitSet>();
+
+        private final BitSet unscheduled = new BitSet();
+
+        private final List<long[]> rootTasks = new ArrayList<long[]>();
+
+        private Builder() {
+        }
+
+        /**
+         * Orders must be added before any of their other properties
+         */
+        public Builder order(Long id, Long customerId, OrderStatusEnum state,
+                Date initDate) {
+            if (positions.containsKey(id)) {
+                return this;
+            }
+            int position = ids.size();
+            positions.put(id, position);
+            ids.add(id);
+            initDates.add(initDate != null ? Long.valueOf(initDate.getTime())
+                    : null);
+            if (customerId != null) {
+                setBit(byCustomer, customerId, position);
+            }
+            if (state != null) {
+                setBit(byState, state, position);
+            }
+            return this;
+        }
+
+        public Builder label(Long orderId, Long labelId) {
+            return set(byLabel, labelId, orderId);
+        }
+
+        public Builder criterion(Long orderId, Long criterionId) {
+            return set(byCriterion, criterionId, orderId);
+        }
+
+        public Builder userAuthorization(Long orderId, Long userId) {
+            return set(byUser, userId, orderId);
+        }
+
+        public Builder profileAuthorization(Long orderId, Long profileId) {
+            return set(byProfile, profileId, orderId);
+        }
+
+        /**
+         * The order elements that aren't orders are ignored
+         */
+        public Builder unscheduled(Long orderElementId) {
+            Integer position = positions.get(orderElementId);
+            if (position != null) {
+                unscheduled.set(position);
+            }
+            return this;
+        }
+
+        /**
+         * The order elements that aren't orders are ignored
+         */
+        public Builder rootTask(Long orderElementId, LocalDate start,
+                LocalDate end) {
+            Integer position = positions.get(orderElementId);
+            if (position != null && start != null && end != null) {
+                rootTasks.add(new long[] { toKey(start), toKey(end),
+                        position });
+            }
+            return this;
+        }
+
+        private <K> Builder set(Map<K, BitSet> index, K key, Long orderId) {
+            Integer position = positions.get(orderId);
+            if (position != null && key != null) {
+                setBit(index, key, position);
+            }
+            return this;
+        }
+
+        private static <K> void setBit(Map<K, BitSet> index, K key,
+                int position) {
+            BitSet bits = index.get(key);
+            if (bits == null) {
+                bits = new BitSet();
+                index.put(key, bits);
+            }
+            bits.set(position);
+        }
+
+        public OrderCatalogue build() {
+            return new OrderCatalogue(this);
+        }
+
+    }
+
+    private static long toKey(LocalDate date) {
+        return date.toDateTimeAtStartOfDay().getMillis();
+    }
+
+    private static long toKey(Date date) {
+        return toKey(LocalDate.fromDateFields(date));
+    }
+
+    private final Map<Long, Integer> positions;
+
+    private final long[] ids;
+
+    private final Map<Long, BitSet> byLabel;
+
+    private final Map<Long, BitSet> byCriterion;
+
+    private final Map<Long, BitSet> byCustomer;
+
+    private final Map<OrderStatusEnum, BitSet> byState;
+
+    private final Map<Long, BitSet> byUser;
+
+    private final Map<Long, BitSet> byProfile;
+
+    private final BitSet unscheduled;
+
+    /**
+     * Init dates in ascending order, the orders without init date are not
+     * included
+     */
+    private final long[] initDates;
+
+    private final int[] initDatePositions;
+
+    /**
+     * Root tasks sorted by start date
+     */
+    private final long[] taskStarts;
+
+    private final long[] taskEnds;
+
+    private final int[] taskPositions;
+
+    private OrderCatalogue(Builder builder) {
+        this.positions = new HashMap<Long, Integer>(builder.positions);
+        this.ids = new long[builder.ids.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = builder.ids.get(i);
+        }
+        this.byLabel = builder.byLabel;
+        this.byCriterion = builder.byCriterion;
+        this.byCustomer = builder.byCustomer;
+        this.byState = builder.byState;
+        this.byUser = builder.byUser;
+        this.byProfile = builder.byProfile;
+        this.unscheduled = builder.unscheduled;
+
+        List<long[]> initDatesWithPositions = new ArrayList<long[]>();
+        for (int i = 0; i < builder.initDates.size(); i++) {
+            Long initDate = builder.initDates.get(i);
+            if (initDate != null) {
+                initDatesWithPositions.add(new long[] { initDate, i });
+            }
+        }
+        long[][] sortedInitDates = sortedByFirst(initDatesWithPositions);
+        this.initDates = new long[sortedInitDates.length];
+        this.initDatePositions = new int[sortedInitDates.length];
+        for (int i = 0; i < sortedInitDates.length; i++) {
+            initDates[i] = sortedInitDates[i][0];
+            initDatePositions[i] = (int) sortedInitDates[i][1];
+        }
+
+        long[][] sortedTasks = sortedByFirst(builder.rootTasks);
+        this.taskStarts = new long[sortedTasks.length];
+        this.taskEnds = new long[sortedTasks.length];
+        this.taskPositions = new int[sortedTasks.length];
+        for (int i = 0; i < sortedTasks.length; i++) {
+            taskStarts[i] = sortedTasks[i][0];
+            taskEnds[i] = sortedTasks[i][1];
+            taskPositions[i] = (int) sortedTasks[i][2];
+        }
+    }
+
+    private static long[][] sortedByFirst(List<long[]> values) {
+        long[][] result = values.toArray(new long[values.size()][]);
+        Arrays.sort(result, new Comparator<long[]>() {
+
+            @Override
+            public int compare(long[] o1, long[] o2) {
+                return o1[0] < o2[0] ? -1 : (o1[0] == o2[0] ? 0 : 1);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return how many values of <code>sorted</code> are lower than
+     *         <code>key</code>, or lower or equal if <code>inclusive</code>
+     */
+    private static int countLower(long[] sorted, long key, boolean inclusive) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key || (inclusive && sorted[middle] == key)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public BitSet all() {
+        BitSet result = new BitSet(ids.length);
+        result.set(0, ids.length);
+        return result;
+    }
+
+    public List<Long> getIds(BitSet orders) {
+        List<Long> result = new ArrayList<Long>(orders.cardinality());
+        for (int i = orders.nextSetBit(0); i >= 0; i = orders.nextSetBit(i + 1)) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    public boolean contains(Long orderId) {
+        return positions.containsKey(orderId);
+    }
+
+    private static <K> BitSet copy(Map<K, BitSet> index, K key) {
+        BitSet bits = index.get(key);
+        return bits != null ? (BitSet) bits.clone() : new BitSet();
+    }
+
+    /**
+     * @return the orders authorized, with any type of authorization, to the
+     *         user or to any of the profiles
+     */
+    public BitSet withAuthorization(Long userId, Collection<Long> profileIds) {
+        BitSet result = copy(byUser, userId);
+        for (Long each : profileIds) {
+            BitSet bits = byProfile.get(each);
+            if (bits != null) {
+                result.or(bits);
+            }
+        }
+        return result;
+    }
+
+    public BitSet withLabel(Long labelId) {
+        return copy(byLabel, labelId);
+    }
+
+    /**
+     * @return the orders with a direct requirement of the criterion
+     */
+    public BitSet withCriterion(Long criterionId) {
+        return copy(byCriterion, criterionId);
+    }
+
+    public BitSet withCustomer(Long customerId) {
+        return copy(byCustomer, customerId);
+    }
+
+    public BitSet withState(OrderStatusEnum state) {
+        return copy(byState, state);
+    }
+
+    /**
+     * @return the orders with some version not scheduled
+     */
+    public BitSet unscheduled() {
+        return (BitSet) unscheduled.clone();
+    }
+
+    /**
+     * @param start
+     *            if <code>null</code> there is no lower limit
+     * @param end
+     *            if <code>null</code> there is no upper limit
+     * @return the orders with an init date between both dates, both included
+     */
+    public BitSet withInitDateBetween(Date start, Date end) {
+        int from = start != null ? countLower(initDates, start.getTime(),
+                false) : 0;
+        int to = end != null ? countLower(initDates, end.getTime(), true)
+                : initDates.length;
+        BitSet result = new BitSet(ids.length);
+        for (int i = from; i < to; i++) {
+            result.set(initDatePositions[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @param start
+     *            if <code>null</code> there is no lower limit
+     * @param end
+     *            if <code>null</code> there is no upper limit
+     * @return the orders with some root task overlapping the days between both
+     *         dates
+     */
+    public BitSet withRootTaskBetween(Date start, Date end) {
+        int to = end != null ? countLower(taskStarts, toKey(end), true)
+                : taskStarts.length;
+        BitSet result = new BitSet(ids.length);
+        if (start == null) {
+            for (int i = 0; i < to; i++) {
+                result.set(taskPositions[i]);
+            }
+            return result;
+        }
+        long startKey = toKey(start);
+        for (int i = 0; i < to; i++) {
+            if (taskEnds[i] >= startKey) {
+                result.set(taskPositions[i]);
+            }
+        }
+        return result;
+    }
+
+}
@@ -22,21 +22,30 @@ package org.libreplan.business.orders.daos;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
 import org.hibernate.criterion.Restrictions;
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.common.daos.IScrollVisitor;
 import org.libreplan.business.common.daos.IntegrationEntityDAO;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
-import org.libreplan.business.costcategories.daos.CostCategoryDAO;
+import org.libreplan.business.costcategories.daos.IHourCostDAO;
 import org.libreplan.business.costcategories.daos.ITypeOfWorkHoursDAO;
+import org.libreplan.business.costcategories.entities.HourCostRateTable;
 import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
 import org.libreplan.business.externalcompanies.entities.ExternalCompany;
 import org.libreplan.business.labels.entities.Label;
@@ -49,6 +58,7 @@ import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.reports.dtos.CostExpenseSheetDTO;
 import org.libreplan.business.reports.dtos.OrderCostsPerResourceDTO;
 import org.libreplan.business.resources.entities.Criterion;
+import org.libreplan.business.resources.entities.Worker;
 import org.libreplan.business.scenarios.entities.Scenario;
 import org.libreplan.business.users.daos.IOrderAuthorizationDAO;
 import org.libreplan.business.users.daos.IUserDAO;
@@ -75,12 +85,21 @@ import org.springframework.transaction.annotation.Transactional;
 public class OrderDAO extends IntegrationEntityDAO<Order> implements
         IOrderDAO {
 
+    /**
+     * Each order drags its whole tree of elements into the session, so it's
+     * cleared more often than for other entities
+     */
+    private static final int SCROLL_CLEAR_INTERVAL = 10;
+
     @Autowired
     private ITaskSourceDAO taskSourceDAO;
 
     @Autowired
     private ITypeOfWorkHoursDAO typeOfWorkHoursDAO;
 
+    @Autowired
+    private IHourCostDAO hourCostDAO;
+
     @Autowired
     private IOrderAuthorizationDAO orderAuthorizationDAO;
 
@@ -156,6 +175,8 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
         }
 
         List<OrderCostsPerResourceDTO> list = query.list();
+        HourCostRateTable rates = hourCostDAO.getRateTableFor(workersOf(list));
+        Map<String, BigDecimal> defaultPrices = getDefaultPricesByCode();
 
         List<OrderCostsPerResourceDTO> filteredList = new ArrayList<OrderCostsPerResourceDTO>();
         for (OrderCostsPerResourceDTO each : list) {
@@ -170,18 +191,11 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
                 each.setOrderName(order.getName());
                 each.setOrderCode(order.getCode());
                 // Attach calculated pricePerHour
-                BigDecimal pricePerHour = CostCategoryDAO
-                        .getPriceByResourceDateAndHourType(each.getWorker(),
-                                new LocalDate(each.getDate()), each
-                                        .getHoursTypeCode());
+                BigDecimal pricePerHour = rates.getPriceCost(each.getWorker()
+                        .getId(), new LocalDate(each.getDate()), each
+                        .getHoursTypeCode());
                 if (pricePerHour == null) {
-                    for (TypeOfWorkHours defaultprice : typeOfWorkHoursDAO
-                            .list(TypeOfWorkHours.class)) {
-                        if (defaultprice.getCode().equals(
-                                each.getHoursTypeCode())) {
-                            pricePerHour = defaultprice.getDefaultPrice();
-                        }
-                    }
+                    pricePerHour = defaultPrices.get(each.getHoursTypeCode());
                 }
 
                 each.setCostPerHour(pricePerHour);
@@ -192,6 +206,23 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
         return filteredList;
     }
 
+    private static Set<Worker> workersOf(List<OrderCostsPerResourceDTO> list) {
+        Set<Worker> result = new HashSet<Worker>();
+        for (OrderCostsPerResourceDTO each : list) {
+            result.add(each.getWorker());
+        }
+        return result;
+    }
+
+    private Map<String, BigDecimal> getDefaultPricesByCode() {
+        Map<String, BigDecimal> result = new HashMap<String, BigDecimal>();
+        for (TypeOfWorkHours each : typeOfWorkHoursDAO
+                .list(TypeOfWorkHours.class)) {
+            result.put(each.getCode(), each.getDefaultPrice());
+        }
+        return result;
+    }
+
     @Override
     public List<Order> getOrdersByReadAuthorization(User user) {
         if (user.isInRole(UserRole.ROLE_SUPERUSER)
@@ -200,261 +231,133 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
             return getOrders();
         }
         else {
-            List<Order> orders = new ArrayList<Order>();
+            Set<Order> orders = new LinkedHashSet<Order>();
             List<OrderAuthorization> authorizations = orderAuthorizationDAO.listByUserAndItsProfiles(user);
             for(OrderAuthorization authorization : authorizations) {
                 if (authorization.getAuthorizationType() == OrderAuthorizationType.READ_AUTHORIZATION ||
                     authorization.getAuthorizationType() == OrderAuthorizationType.WRITE_AUTHORIZATION) {
 
                     Order order = authorization.getOrder();
-                    if(!orders.contains(order)) {
+                    if (orders.add(order)) {
                         order.getName(); //this lines forces the load of the basic attributes of the order
-                        orders.add(order);
                     }
                 }
             }
-            return orders;
+            return new ArrayList<Order>(orders);
         }
     }
 
+    /**
+     * The orders are filtered in memory with the {@link OrderCatalogue} and
+     * only the ones passing all the filters are retrieved
+     */
     private List<Order> getOrdersByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState(
-            User user, Date startDate, Date endDate, List<Label> labels,
-            List<Criterion> criteria, ExternalCompany customer,
-            OrderStatusEnum state) {
-        List<Long> ordersIdsFiltered = getOrdersIdsFiltered(user, labels,
-                criteria, customer, state);
-        if (ordersIdsFiltered != null && ordersIdsFiltered.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        List<Long> ordersIdsByDates = getOrdersIdsByDates(startDate, endDate);
-        if (ordersIdsByDates != null && ordersIdsByDates.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        List<Long> ordersIdsUnscheduled = getOrdersIdsUnscheduled(startDate,
-                endDate);
-
-        Criteria c = getSession().createCriteria(Order.class);
-        if (ordersIdsFiltered != null && ordersIdsByDates != null) {
-            org.hibernate.criterion.Criterion and = Restrictions.and(
-                    Restrictions.in("id", ordersIdsFiltered),
-                    Restrictions.in("id", ordersIdsByDates));
-            c.add(and);
-        } else {
-            if (ordersIdsFiltered != null) {
-                c.add(Restrictions.in("id", ordersIdsFiltered));
-            }
-            if (ordersIdsByDates != null) {
-                if (ordersIdsUnscheduled.isEmpty()) {
-                    c.add(Restrictions.in("id", ordersIdsByDates));
-                } else {
-                    c.add(Restrictions.or(
-                            Restrictions.in("id", ordersIdsByDates),
-                            Restrictions.in("id", ordersIdsUnscheduled)));
-                }
+            OrderCatalogue catalogue, User user, Date startDate,
+            Date endDate, List<Label> labels, List<Criterion> criteria,
+            ExternalCompany customer, OrderStatusEnum state) {
+        BitSet filtered = catalogue.all();
+        if (!hasReadAuthorizationOverAllOrders(user)) {
+            filtered.and(catalogue.withAuthorization(user.getId(),
+                    getIds(user.getProfiles())));
+        }
+        if (labels != null) {
+            for (Label each : labels) {
+                filtered.and(catalogue.withLabel(each.getId()));
             }
         }
-
-        c.addOrder(org.hibernate.criterion.Order.desc("initDate"));
-        c.addOrder(org.hibernate.criterion.Order.asc("infoComponent.name"));
-        return c.list();
-    }
-
-    private List<Long> getOrdersIdsUnscheduled(Date startDate, Date endDate) {
-        String strQuery = "SELECT s.orderElement.id "
-                + "FROM SchedulingDataForVersion s "
-                + "WHERE s.schedulingStateType = :type";
-        Query query = getSession().createQuery(strQuery);
-        query.setParameter("type", SchedulingState.Type.NO_SCHEDULED);
-
-        List<Long> ordersIdsUnscheduled = query.list();
-        if (ordersIdsUnscheduled.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        String strQueryDates = "SELECT o.id "
-                + "FROM Order o "
-                + "WHERE o.id IN (:ids) ";
-
-        if (startDate != null) {
-            strQueryDates += "AND o.initDate >= :startDate ";
-        }
-        if (endDate != null) {
-            strQueryDates += "AND o.initDate <= :endDate ";
+        if (criteria != null) {
+            for (Criterion each : criteria) {
+                filtered.and(catalogue.withCriterion(each.getId()));
+            }
         }
-
-        Query queryDates = getSession().createQuery(strQueryDates);
-        if (startDate != null) {
-            queryDates.setParameter("startDate", startDate);
+        if (customer != null) {
+            filtered.and(catalogue.withCustomer(customer.getId()));
         }
-        if (endDate != null) {
-            queryDates.setParameter("endDate", endDate);
+        if (state != null) {
+            filtered.and(catalogue.withState(state));
         }
-        queryDates.setParameterList("ids", ordersIdsUnscheduled);
+        if (startDate != null || endDate != null) {
+            BitSet unscheduled = catalogue.unscheduled();
+            unscheduled.and(catalogue.withInitDateBetween(startDate, endDate));
 
-        return queryDates.list();
-    }
-
-    /**
-     * If both params are <code>null</code> it returns <code>null</code>.
-     * Otherwise it filters the list of tasks to return the ones wihtout parent
-     * between the dates.
-     */
-    private List<Long> getOrdersIdsByDates(Date startDate, Date endDate) {
-        if (startDate == null && endDate == null) {
-            return null;
+            BitSet byDates = catalogue.withRootTaskBetween(startDate, endDate);
+            byDates.or(unscheduled);
+            filtered.and(byDates);
         }
 
-        String strQuery = "SELECT t.taskSource.schedulingData.orderElement.id "
-                + "FROM TaskElement t "
-                + "WHERE t.parent IS NULL ";
-        if (endDate != null) {
-            strQuery += "AND t.startDate.date <= :endDate ";
-        }
-        if (startDate != null) {
-            strQuery += "AND t.endDate.date >= :startDate ";
+        if (filtered.isEmpty()) {
+            return Collections.emptyList();
         }
 
-        Query query = getSession().createQuery(strQuery);
-        if (startDate != null) {
-            query.setParameter("startDate", LocalDate.fromDateFields(startDate));
-        }
-        if (endDate != null) {
-            query.setParameter("endDate", LocalDate.fromDateFields(endDate));
+        Criteria c = getSession().createCriteria(Order.class);
+        if (filtered.cardinality() < catalogue.size()) {
+            c.add(Restrictions.in("id", catalogue.getIds(filtered)));
         }
-
-        return query.list();
+        c.addOrder(org.hibernate.criterion.Order.desc("initDate"));
+        c.addOrder(org.hibernate.criterion.Order.asc("infoComponent.name"));
+        return c.list();
     }
 
-    /**
-     * If user has permissions over all orders and not filters are passed it
-     * returns <code>null</code>. Otherwise, it returns the list of orders
-     * identifiers for which the user has read permissions and the filters pass.
-     */
-    private List<Long> getOrdersIdsFiltered(User user, List<Label> labels,
-            List<Criterion> criteria, ExternalCompany customer,
-            OrderStatusEnum state) {
-        List<Long> ordersIdsByReadAuthorization = getOrdersIdsByReadAuthorization(user);
-
-        String strQuery = "SELECT o.id ";
-        strQuery += "FROM Order o ";
-
-        String where = "";
-        String whereFinal = "";
-        if (labels != null && !labels.isEmpty()) {
-            for (int i = 0; i < labels.size(); i++) {
-                if (where.isEmpty()) {
-                    where += "WHERE ";
-                } else {
-                    where += "AND ";
-                }
-                where += ":label" + i + " IN elements(o.labels) ";
-            }
-        }
-
-        if (criteria != null && !criteria.isEmpty()) {
-            strQuery += "JOIN o.criterionRequirements cr ";
-            if (where.isEmpty()) {
-                where += "WHERE ";
-            } else {
-                where += "AND ";
-            }
-            where += "cr.criterion IN (:criteria) ";
-            where += "AND cr.class = DirectCriterionRequirement ";
-            whereFinal += "GROUP BY o.id ";
-            whereFinal += "HAVING count(o.id) = :criteriaSize ";
-        }
+    private static boolean hasReadAuthorizationOverAllOrders(User user) {
+        return user.isInRole(UserRole.ROLE_SUPERUSER)
+                || user.isInRole(UserRole.ROLE_READ_ALL_PROJECTS)
+                || user.isInRole(UserRole.ROLE_EDIT_ALL_PROJECTS);
+    }
 
-        if (customer != null) {
-            if (where.isEmpty()) {
-                where += "WHERE ";
-            } else {
-                where += "AND ";
-            }
-            where += "o.customer = :customer ";
-        }
+    @Override
+    @SuppressWarnings("unchecked")
+    public OrderCatalogue buildCatalogue() {
+        OrderCatalogue.Builder builder = OrderCatalogue.builder();
 
-        if (state != null) {
-            if (where.isEmpty()) {
-                where += "WHERE ";
-            } else {
-                where += "AND ";
-            }
-            where += "o.state = :state ";
+        for (Object[] each : (List<Object[]>) getSession().createQuery(
+                "SELECT o.id, o.customer.id, o.state, o.initDate "
+                        + "FROM Order o").list()) {
+            builder.order((Long) each[0], (Long) each[1],
+                    (OrderStatusEnum) each[2], (Date) each[3]);
         }
 
-        // If not restrictions by labels, criteria, customer or state
-        if (where.isEmpty()) {
-            return ordersIdsByReadAuthorization;
+        for (Object[] each : (List<Object[]>) getSession().createQuery(
+                "SELECT o.id, l.id FROM Order o JOIN o.labels l").list()) {
+            builder.label((Long) each[0], (Long) each[1]);
         }
 
-        if (ordersIdsByReadAuthorization != null
-                && !ordersIdsByReadAuthorization.isEmpty()) {
-            if (where.isEmpty()) {
-                where += "WHERE ";
-            } else {
-                where += "AND ";
-            }
-            where += "o.id IN (:ids) ";
+        for (Object[] each : (List<Object[]>) getSession().createQuery(
+                "SELECT o.id, cr.criterion.id "
+                        + "FROM Order o JOIN o.criterionRequirements cr "
+                        + "WHERE cr.class = DirectCriterionRequirement")
+                .list()) {
+            builder.criterion((Long) each[0], (Long) each[1]);
         }
 
-        strQuery += where + whereFinal;
-        Query query = getSession().createQuery(strQuery);
-        if (labels != null && !labels.isEmpty()) {
-            int i = 0;
-            for (Label label : labels) {
-                query.setParameter("label" + i, label);
-                i++;
-            }
-        }
-        if (criteria != null && !criteria.isEmpty()) {
-            query.setParameterList("criteria", criteria);
-            query.setParameter("criteriaSize", (long) criteria.size());
+        for (Object[] each : (List<Object[]>) getSession().createQuery(
+                "SELECT oa.order.id, oa.user.id "
+                        + "FROM UserOrderAuthorization oa").list()) {
+            builder.userAuthorization((Long) each[0], (Long) each[1]);
         }
 
-        if (customer != null) {
-            query.setParameter("customer", customer);
+        for (Object[] each : (List<Object[]>) getSession().createQuery(
+                "SELECT oa.order.id, oa.profile.id "
+                        + "FROM ProfileOrderAuthorization oa").list()) {
+            builder.profileAuthorization((Long) each[0], (Long) each[1]);
         }
 
-        if (state != null) {
-            query.setParameter("state", state);
+        Query unscheduled = getSession().createQuery(
+                "SELECT s.orderElement.id FROM SchedulingDataForVersion s "
+                        + "WHERE s.schedulingStateType = :type");
+        unscheduled.setParameter("type", SchedulingState.Type.NO_SCHEDULED);
+        for (Long each : (List<Long>) unscheduled.list()) {
+            builder.unscheduled(each);
         }
 
-        if (ordersIdsByReadAuthorization != null
-                && !ordersIdsByReadAuthorization.isEmpty()) {
-            query.setParameterList("ids", ordersIdsByReadAuthorization);
+        for (Object[] each : (List<Object[]>) getSession().createQuery(
+                "SELECT t.taskSource.schedulingData.orderElement.id, "
+                        + "t.startDate.date, t.endDate.date "
+                        + "FROM TaskElement t WHERE t.parent IS NULL").list()) {
+            builder.rootTask((Long) each[0], (LocalDate) each[1],
+                    (LocalDate) each[2]);
         }
 
-        return query.list();
-    }
-
-    /**
-     * If user has permissions over all orders it returns <code>null</code>.
-     * Otherwise, it returns the list of orders identifiers for which the user
-     * has read permissions.
-     */
-    private List<Long> getOrdersIdsByReadAuthorization(User user) {
-        if (user.isInRole(UserRole.ROLE_SUPERUSER)
-                || user.isInRole(UserRole.ROLE_READ_ALL_PROJECTS)
-                || user.isInRole(UserRole.ROLE_EDIT_ALL_PROJECTS)) {
-            return null;
-        } else {
-            String strQuery = "SELECT oa.order.id "
-                    + "FROM OrderAuthorization oa "
-                    + "WHERE oa.user = :user ";
-            if (!user.getProfiles().isEmpty()) {
-                strQuery += "OR oa.profile IN (:profiles) ";
-            }
-
-            Query query = getSession().createQuery(strQuery);
-            query.setParameter("user", user);
-            if (!user.getProfiles().isEmpty()) {
-                query.setParameterList("profiles", user.getProfiles());
-            }
-
-            return query.list();
-        }
+        return builder.build();
     }
 
     @Override
@@ -464,18 +367,17 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
             return getOrders();
         }
         else {
-            List<Order> orders = new ArrayList<Order>();
+            Set<Order> orders = new LinkedHashSet<Order>();
             List<OrderAuthorization> authorizations = orderAuthorizationDAO.listByUserAndItsProfiles(user);
             for(OrderAuthorization authorization : authorizations) {
                 if (authorization.getAuthorizationType() == OrderAuthorizationType.WRITE_AUTHORIZATION) {
                     Order order = authorization.getOrder();
-                    if(!orders.contains(order)) {
+                    if (orders.add(order)) {
                         order.getName(); //this lines forces the load of the basic attributes of the order
-                        orders.add(order);
                     }
                 }
             }
-            return orders;
+            return new ArrayList<Order>(orders);
         }
     }
 
@@ -509,6 +411,11 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
 
     }
 
+    @Override
+    protected String getCodeProperty() {
+        return "infoComponent.code";
+    }
+
     @Override
     public List<Order> getOrdersByReadAuthorizationByScenario(String username,
             Scenario scenario) {
@@ -523,9 +430,11 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
 
     @Override
     public List<Order> getOrdersByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState(
-            String username, Scenario scenario, Date startDate, Date endDate,
-            List<Label> labels, List<Criterion> criteria,
-            ExternalCompany customer, OrderStatusEnum state) {
+            OrderCatalogue catalogue, String username, Scenario scenario,
+            Date startDate, Date endDate, List<Label> labels,
+            List<Criterion> criteria, ExternalCompany customer,
+            OrderStatusEnum state) {
+        Validate.notNull(catalogue);
         User user;
         try {
             user = userDAO.findByLoginName(username);
@@ -534,7 +443,7 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
         }
         return existsInScenario(
                 getOrdersByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState(
-                        user, startDate, endDate, labels, criteria, customer,
+                        catalogue, user, startDate, endDate, labels, criteria, customer,
                         state), scenario);
     }
 
@@ -744,4 +653,23 @@ public class OrderDAO extends IntegrationEntityDAO<Order> implements
         return filteredList;
     }
 
+    @Override
+    public void scrollOrderedByCode(String afterCode, Integer limit,
+            IScrollVisitor<Order> visitor) {
+        String strQuery = "SELECT o FROM Order o ";
+        if (afterCode != null) {
+            strQuery += "WHERE o.infoComponent.code > :afterCode ";
+        }
+        strQuery += "ORDER BY o.infoComponent.code";
+
+        Query query = getSession().createQuery(strQuery);
+        if (afterCode != null) {
+            query.setParameter("afterCode", afterCode);
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        scroll(query, SCROLL_CLEAR_INTERVAL, visitor);
+    }
+
 }
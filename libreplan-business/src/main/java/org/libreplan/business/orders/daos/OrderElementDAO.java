@@ -25,6 +25,7 @@ import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -46,6 +47,7 @@ import org.libreplan.business.expensesheet.daos.IExpenseSheetLineDAO;
 import org.libreplan.business.labels.entities.Label;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.orders.entities.OrderLineGroup;
 import org.libreplan.business.orders.entities.SchedulingDataForVersion;
 import org.libreplan.business.orders.entities.TaskSource;
 import org.libreplan.business.planner.daos.ITaskSourceDAO;
@@ -231,6 +233,11 @@ public class OrderElementDAO extends IntegrationEntityDAO<OrderElement>
 
     }
 
+    @Override
+    protected String getCodeProperty() {
+        return "infoComponent.code";
+    }
+
     public List<OrderElement> findByTemplate(OrderElementTemplate template) {
         Criteria c = getSession().createCriteria(OrderElement.class);
         c.add(Restrictions.eq("template", template));
@@ -604,4 +611,60 @@ public class OrderElementDAO extends IntegrationEntityDAO<OrderElement>
         return ObjectUtils.equals(order1.getId(), order2.getId());
     }
 
-}
\ No newline at end of file
+    @Override
+    public List<OrderElement> loadTree(OrderElement root) {
+        List<OrderElement> result = new ArrayList<OrderElement>();
+        result.add(root);
+        String strQuery = "SELECT DISTINCT g FROM OrderLineGroup g "
+                + "LEFT JOIN FETCH g.children ";
+        Query byId = getSession().createQuery(strQuery + "WHERE g.id IN (:ids)");
+        Query byParent = getSession().createQuery(
+                strQuery + "WHERE g.parent.id IN (:ids)");
+
+        List<OrderLineGroup> level = listInChunks(byId, "ids",
+                Collections.singletonList(root.getId()));
+        while (!level.isEmpty()) {
+            for (OrderLineGroup each : level) {
+                result.addAll(each.getChildren());
+            }
+            level = listInChunks(byParent, "ids", getIds(level));
+        }
+        return result;
+    }
+
+    @Override
+    public void prefetchPlanningData(
+            Collection<? extends OrderElement> orderElements) {
+        List<Long> ids = getIds(orderElements);
+        if (ids.isEmpty()) {
+            return;
+        }
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT e FROM OrderElement e "
+                        + "LEFT JOIN FETCH e.directAdvanceAssignments "
+                        + "WHERE e.id IN (:ids)"), "ids", ids);
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT d FROM DirectAdvanceAssignment d "
+                        + "LEFT JOIN FETCH d.advanceMeasurements "
+                        + "LEFT JOIN FETCH d.advanceType "
+                        + "WHERE d.orderElement.id IN (:ids)"), "ids", ids);
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT g FROM OrderLineGroup g "
+                        + "LEFT JOIN FETCH g.indirectAdvanceAssignments "
+                        + "WHERE g.id IN (:ids)"), "ids", ids);
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT l FROM OrderLine l "
+                        + "LEFT JOIN FETCH l.hoursGroups "
+                        + "WHERE l.id IN (:ids)"), "ids", ids);
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT h FROM HoursGroup h "
+                        + "LEFT JOIN FETCH h.criterionRequirements "
+                        + "WHERE h.parentOrderLine.id IN (:ids)"), "ids", ids);
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT e FROM OrderElement e "
+                        + "LEFT JOIN FETCH e.labels l "
+                        + "LEFT JOIN FETCH l.type "
+                        + "WHERE e.id IN (:ids)"), "ids", ids);
+    }
+
+}
@@ -24,7 +24,9 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.hibernate.SessionFactory;
@@ -75,18 +77,94 @@ public class SumChargedEffortDAO extends
 
     private Map<OrderElement, SumChargedEffort> mapSumChargedEfforts;
 
+    /**
+     * Changes of effort pending to be applied, accumulated for each
+     * {@link OrderElement} so each {@link SumChargedEffort} is saved only once
+     * even when lots of lines affect it or its descendants
+     */
+    private class ChargedEffortChanges {
+
+        private final Map<Long, OrderElement> orderElements = new HashMap<Long, OrderElement>();
+
+        private final Map<Long, Integer> directSeconds = new HashMap<Long, Integer>();
+
+        private final Map<Long, Integer> indirectSeconds = new HashMap<Long, Integer>();
+
+        void add(OrderElement orderElement, EffortDuration effort) {
+            change(orderElement, effort.getSeconds());
+        }
+
+        void subtract(OrderElement orderElement, EffortDuration effort) {
+            change(orderElement, -effort.getSeconds());
+        }
+
+        private void change(OrderElement orderElement, int seconds) {
+            accumulate(directSeconds, orderElement, seconds);
+            for (OrderElement each = orderElement.getParent(); each != null; each = each
+                    .getParent()) {
+                accumulate(indirectSeconds, each, seconds);
+            }
+        }
+
+        private void accumulate(Map<Long, Integer> seconds,
+                OrderElement orderElement, int change) {
+            if (!orderElements.containsKey(orderElement.getId())) {
+                orderElements.put(orderElement.getId(), orderElement);
+            }
+            Integer previous = seconds.get(orderElement.getId());
+            seconds.put(orderElement.getId(), previous == null ? change
+                    : previous + change);
+        }
+
+        void apply() {
+            for (Entry<Long, OrderElement> each : orderElements.entrySet()) {
+                int direct = valueOrZero(directSeconds.get(each.getKey()));
+                int indirect = valueOrZero(indirectSeconds.get(each.getKey()));
+                if (direct == 0 && indirect == 0) {
+                    continue;
+                }
+                SumChargedEffort sumChargedEffort = getByOrderElement(each
+                        .getValue());
+                if (direct > 0) {
+                    sumChargedEffort.addDirectChargedEffort(EffortDuration
+                            .seconds(direct));
+                } else if (direct < 0) {
+                    sumChargedEffort.subtractDirectChargedEffort(EffortDuration
+                            .seconds(-direct));
+                }
+                if (indirect > 0) {
+                    sumChargedEffort.addIndirectChargedEffort(EffortDuration
+                            .seconds(indirect));
+                } else if (indirect < 0) {
+                    sumChargedEffort
+                            .subtractIndirectChargedEffort(EffortDuration
+                                    .seconds(-indirect));
+                }
+                save(sumChargedEffort);
+            }
+        }
+
+        private int valueOrZero(Integer value) {
+            return value == null ? 0 : value;
+        }
+
+    }
+
     @Override
     public void updateRelatedSumChargedEffortWithWorkReportLineSet(
             Set<WorkReportLine> workReportLineSet) {
         resetMapSumChargedEfforts();
 
+        ChargedEffortChanges changes = new ChargedEffortChanges();
         for (WorkReportLine workReportLine : workReportLineSet) {
-            updateRelatedSumChargedEffortWithAddedOrModifiedWorkReportLine(workReportLine);
+            updateRelatedSumChargedEffortWithAddedOrModifiedWorkReportLine(
+                    changes, workReportLine);
         }
+        changes.apply();
     }
 
     private void updateRelatedSumChargedEffortWithAddedOrModifiedWorkReportLine(
-            final WorkReportLine workReportLine) {
+            ChargedEffortChanges changes, final WorkReportLine workReportLine) {
         boolean increase = true;
         boolean sameOrderElement = true;
         EffortDuration effort = workReportLine.getEffort();
@@ -143,36 +221,14 @@ public class SumChargedEffortDAO extends
 
             if (!effort.isZero()) {
                 if (increase) {
-                    addDirectChargedEffort(orderElement, effort);
+                    changes.add(orderElement, effort);
                 } else {
-                    substractDirectChargedEffort(orderElement, effort);
+                    changes.subtract(orderElement, effort);
                 }
             }
         } else {
-            substractDirectChargedEffort(previousOrderElement, previousEffort);
-            addDirectChargedEffort(orderElement, effort);
-        }
-    }
-
-    private void addDirectChargedEffort(OrderElement orderElement,
-            EffortDuration effort) {
-        SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
-
-        sumChargedEffort.addDirectChargedEffort(effort);
-        save(sumChargedEffort);
-
-        addInirectChargedEffortRecursively(orderElement.getParent(), effort);
-    }
-
-    private void addInirectChargedEffortRecursively(OrderElement orderElement,
-            EffortDuration effort) {
-        if (orderElement != null) {
-            SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
-
-            sumChargedEffort.addIndirectChargedEffort(effort);
-            save(sumChargedEffort);
-
-            addInirectChargedEffortRecursively(orderElement.getParent(), effort);
+            changes.subtract(previousOrderElement, previousEffort);
+            changes.add(orderElement, effort);
         }
     }
 
@@ -181,9 +237,12 @@ public class SumChargedEffortDAO extends
             Set<WorkReportLine> workReportLineSet) {
         resetMapSumChargedEfforts();
 
+        ChargedEffortChanges changes = new ChargedEffortChanges();
         for (WorkReportLine workReportLine : workReportLineSet) {
-            updateRelatedSumChargedEffortWithDeletedWorkReportLine(workReportLine);
+            updateRelatedSumChargedEffortWithDeletedWorkReportLine(changes,
+                    workReportLine);
         }
+        changes.apply();
     }
 
     private void resetMapSumChargedEfforts() {
@@ -191,7 +250,7 @@ public class SumChargedEffortDAO extends
     }
 
     private void updateRelatedSumChargedEffortWithDeletedWorkReportLine(
-            WorkReportLine workReportLine) {
+            ChargedEffortChanges changes, WorkReportLine workReportLine) {
         if (workReportLine.isNewObject()) {
             // If the line hasn't been saved, we have nothing to update
             return;
@@ -201,33 +260,10 @@ public class SumChargedEffortDAO extends
         // useful for the following operations
         sessionFactory.getCurrentSession().refresh(workReportLine);
 
-        substractDirectChargedEffort(workReportLine.getOrderElement(),
+        changes.subtract(workReportLine.getOrderElement(),
                 workReportLine.getEffort());
     }
 
-    private void substractDirectChargedEffort(OrderElement orderElement,
-            EffortDuration effort) {
-        SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
-
-        sumChargedEffort.subtractDirectChargedEffort(effort);
-        save(sumChargedEffort);
-
-        substractInirectChargedEffortRecursively(orderElement.getParent(),
-                effort);
-    }
-
-    private void substractInirectChargedEffortRecursively(OrderElement orderElement,
-            EffortDuration effort) {
-        if (orderElement != null) {
-            SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
-
-            sumChargedEffort.subtractIndirectChargedEffort(effort);
-            save(sumChargedEffort);
-
-            substractInirectChargedEffortRecursively(orderElement.getParent(), effort);
-        }
-    }
-
     private SumChargedEffort getByOrderElement(OrderElement orderElement) {
         SumChargedEffort sumChargedEffort = mapSumChargedEfforts
                 .get(orderElement);
@@ -253,68 +289,131 @@ public class SumChargedEffortDAO extends
     public void recalculateSumChargedEfforts(Long orderId) {
         try {
             Order order = orderDAO.find(orderId);
+            List<OrderElement> orderElements = order.getAllChildren();
+            orderElements.add(order);
+
             resetMapSumChargedEfforts();
-            resetSumChargedEffort(order);
-            calculateDirectChargedEffort(order);
-            calculateTimesheetData(order);
+            loadSumChargedEfforts(orderElements);
+            recalculateSumChargedEffort(order,
+                    summarizeTimesheets(orderElements));
         } catch (InstanceNotFoundException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private void resetSumChargedEffort(OrderElement orderElement) {
-        SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
-        sumChargedEffort.reset();
+    /**
+     * What the timesheets say about an {@link OrderElement} without taking
+     * into account its children
+     */
+    private static class TimesheetsSummary {
+
+        private EffortDuration effort = EffortDuration.zero();
+
+        private Date firstDate;
+
+        private Date lastDate;
+
+        private boolean finished = false;
 
-        for (OrderElement each : orderElement.getChildren()) {
-            resetSumChargedEffort(each);
-        }
     }
 
-    private void calculateDirectChargedEffort(OrderElement orderElement) {
-        for (OrderElement each : orderElement.getChildren()) {
-            calculateDirectChargedEffort(each);
+    /**
+     * Retrieves the summary of the timesheets for all the order elements with
+     * a single grouped query, instead of several queries for each one
+     */
+    private Map<Long, TimesheetsSummary> summarizeTimesheets(
+            List<OrderElement> orderElements) {
+        Map<Long, TimesheetsSummary> result = new HashMap<Long, TimesheetsSummary>();
+        List<Object[]> sums = listInChunks(getSession().createQuery(
+                "SELECT wrl.orderElement.id, SUM(wrl.effort), "
+                        + "MIN(wrl.date), MAX(wrl.date) "
+                        + "FROM WorkReportLine wrl "
+                        + "WHERE wrl.orderElement IN (:orderElements) "
+                        + "GROUP BY wrl.orderElement.id"), "orderElements",
+                orderElements);
+        for (Object[] row : sums) {
+            TimesheetsSummary summary = getOrCreate(result, (Long) row[0]);
+            summary.effort = EffortDuration.seconds(((Long) row[1])
+                    .intValue());
+            summary.firstDate = (Date) row[2];
+            summary.lastDate = (Date) row[3];
         }
 
-        EffortDuration effort = EffortDuration.zero();
-        for (WorkReportLine line : workReportLineDAO
-                .findByOrderElement(orderElement)) {
-            effort = effort.plus(line.getEffort());
+        List<Long> finished = listInChunks(getSession().createQuery(
+                "SELECT DISTINCT wrl.orderElement.id "
+                        + "FROM WorkReportLine wrl "
+                        + "WHERE wrl.orderElement IN (:orderElements) "
+                        + "AND wrl.finished = true"), "orderElements",
+                orderElements);
+        for (Long id : finished) {
+            getOrCreate(result, id).finished = true;
         }
-        addDirectChargedEffort(orderElement, effort);
+        return result;
     }
 
-    private void calculateTimesheetData(OrderElement orderElement) {
-        calculateTimesheetDatesAndChildren(orderElement);
-        calculateFinishedTimesheetsAndChildren(orderElement);
+    private static TimesheetsSummary getOrCreate(
+            Map<Long, TimesheetsSummary> summaries, Long orderElementId) {
+        TimesheetsSummary result = summaries.get(orderElementId);
+        if (result == null) {
+            result = new TimesheetsSummary();
+            summaries.put(orderElementId, result);
+        }
+        return result;
     }
 
-    private Pair<Date, Date> calculateTimesheetDatesAndChildren(
-            OrderElement orderElement) {
-        Pair<Date, Date> minMax = workReportLineDAO
-                .findMinAndMaxDatesByOrderElement(orderElement);
+    private void loadSumChargedEfforts(List<OrderElement> orderElements) {
+        Map<Long, SumChargedEffort> byOrderElementId = new HashMap<Long, SumChargedEffort>();
+        List<SumChargedEffort> found = listInChunks(getSession().createQuery(
+                "FROM SumChargedEffort s "
+                        + "WHERE s.orderElement IN (:orderElements)"),
+                "orderElements", orderElements);
+        for (SumChargedEffort sumChargedEffort : found) {
+            byOrderElementId.put(sumChargedEffort.getOrderElement().getId(),
+                    sumChargedEffort);
+        }
+        for (OrderElement each : orderElements) {
+            SumChargedEffort sumChargedEffort = byOrderElementId.get(each
+                    .getId());
+            mapSumChargedEfforts.put(each,
+                    sumChargedEffort != null ? sumChargedEffort
+                            : SumChargedEffort.create(each));
+        }
+    }
+
+    /**
+     * Calculates the {@link SumChargedEffort} of the element from the ones of
+     * its children, so the whole tree is traversed only once
+     */
+    private SumChargedEffort recalculateSumChargedEffort(
+            OrderElement orderElement, Map<Long, TimesheetsSummary> summaries) {
+        SumChargedEffort result = getByOrderElement(orderElement);
+        result.reset();
 
         Set<Date> minDates = new HashSet<Date>();
         Set<Date> maxDates = new HashSet<Date>();
 
-        addIfNotNull(minDates, minMax.getFirst());
-        addIfNotNull(maxDates, minMax.getSecond());
+        TimesheetsSummary own = summaries.get(orderElement.getId());
+        if (own != null) {
+            result.addDirectChargedEffort(own.effort);
+            addIfNotNull(minDates, own.firstDate);
+            addIfNotNull(maxDates, own.lastDate);
+        }
 
         for (OrderElement child : orderElement.getChildren()) {
-            Pair<Date, Date> minMaxChild = calculateTimesheetDatesAndChildren(child);
-            addIfNotNull(minDates, minMaxChild.getFirst());
-            addIfNotNull(maxDates, minMaxChild.getSecond());
+            SumChargedEffort childSumChargedEffort = recalculateSumChargedEffort(
+                    child, summaries);
+            result.addIndirectChargedEffort(childSumChargedEffort
+                    .getTotalChargedEffort());
+            addIfNotNull(minDates,
+                    childSumChargedEffort.getFirstTimesheetDate());
+            addIfNotNull(maxDates, childSumChargedEffort.getLastTimesheetDate());
         }
 
-        Pair<Date, Date> result = Pair.create(
+        result.setTimesheetDates(
                 minDates.isEmpty() ? null : Collections.min(minDates),
                 maxDates.isEmpty() ? null : Collections.max(maxDates));
-
-        SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
-        sumChargedEffort.setTimesheetDates(result.getFirst(),
-                result.getSecond());
-        save(sumChargedEffort);
-
+        result.setFinishedTimesheets(own != null && own.finished);
+        save(result);
         return result;
     }
 
@@ -324,15 +423,6 @@ public class SumChargedEffortDAO extends
         }
     }
 
-    private void calculateFinishedTimesheetsAndChildren(
-            OrderElement orderElement) {
-        calculateFinishedTimesheets(orderElement);
-
-        for (OrderElement child : orderElement.getChildren()) {
-            calculateFinishedTimesheetsAndChildren(child);
-        }
-    }
-
     private void calculateFinishedTimesheets(OrderElement orderElement) {
         SumChargedEffort sumChargedEffort = getByOrderElement(orderElement);
         sumChargedEffort.setFinishedTimesheets(workReportLineDAO
@@ -864,6 +864,20 @@ public abstract class OrderElement extends IntegrationEntity implements
 
     public abstract BigDecimal getAdvancePercentage(LocalDate date);
 
+    /**
+     * @return the same as calling {@link #getAdvancePercentage(LocalDate)} for
+     *         each one of the dates, in the same order. Subclasses can
+     *         calculate all of them at once avoiding to repeat the work done
+     *         for each date
+     */
+    public List<BigDecimal> getAdvancePercentages(List<LocalDate> dates) {
+        List<BigDecimal> result = new ArrayList<BigDecimal>();
+        for (LocalDate each : dates) {
+            result.add(getAdvancePercentage(each));
+        }
+        return result;
+    }
+
     public abstract Set<IndirectAdvanceAssignment> getIndirectAdvanceAssignments();
 
     public abstract DirectAdvanceAssignment calculateFakeDirectAdvanceAssignment(
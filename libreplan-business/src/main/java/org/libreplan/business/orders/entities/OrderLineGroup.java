@@ -480,6 +480,46 @@ public class OrderLineGroup extends OrderElement implements
         return BigDecimal.ZERO;
     }
 
+    /**
+     * The advance assignment reporting the global advance is looked for once
+     * for all the dates. If it's calculated from the children or from the
+     * assignments of the descendants, that is done once too, instead of once
+     * for each date.
+     */
+    @Override
+    public List<BigDecimal> getAdvancePercentages(List<LocalDate> dates) {
+        for (DirectAdvanceAssignment directAdvanceAssignment : directAdvanceAssignments) {
+            if (directAdvanceAssignment.getReportGlobalAdvance()) {
+                return getAdvancePercentages(directAdvanceAssignment, dates);
+            }
+        }
+
+        for (IndirectAdvanceAssignment indirectAdvanceAssignment : indirectAdvanceAssignments) {
+            if (indirectAdvanceAssignment.getReportGlobalAdvance()) {
+                if (indirectAdvanceAssignment.getAdvanceType().getUnitName()
+                        .equals(PredefinedAdvancedTypes.CHILDREN.getTypeName())) {
+                    return getAdvancePercentagesChildren(dates);
+                }
+                return getAdvancePercentages(
+                        calculateFakeDirectAdvanceAssignment(indirectAdvanceAssignment),
+                        dates);
+            }
+        }
+
+        return new ArrayList<BigDecimal>(Collections.nCopies(dates.size(),
+                BigDecimal.ZERO));
+    }
+
+    private static List<BigDecimal> getAdvancePercentages(
+            DirectAdvanceAssignment directAdvanceAssignment,
+            List<LocalDate> dates) {
+        List<BigDecimal> result = new ArrayList<BigDecimal>();
+        for (LocalDate each : dates) {
+            result.add(directAdvanceAssignment.getAdvancePercentage(each));
+        }
+        return result;
+    }
+
     @Override
     public BigDecimal getAdvancePercentageChildren() {
         return getAdvancePercentageChildren(null);
@@ -509,6 +549,36 @@ public class OrderLineGroup extends OrderElement implements
         return result;
     }
 
+    /**
+     * @return the same as calling {@link #getAdvancePercentageChildren(LocalDate)}
+     *         for each one of the dates, but traversing the children only once
+     */
+    public List<BigDecimal> getAdvancePercentagesChildren(List<LocalDate> dates) {
+        Integer hours = getWorkHours();
+        List<BigDecimal> result = new ArrayList<BigDecimal>(
+                Collections.nCopies(dates.size(), new BigDecimal(0)));
+
+        if (hours > 0) {
+            for (OrderElement orderElement : children) {
+                List<BigDecimal> childPercentages = orderElement
+                        .getAdvancePercentages(dates);
+                BigDecimal childHours = new BigDecimal(
+                        orderElement.getWorkHours());
+                for (int i = 0; i < result.size(); i++) {
+                    result.set(i, result.get(i).add(
+                            childPercentages.get(i).multiply(childHours)));
+                }
+            }
+            BigDecimal divisor = new BigDecimal(hours).setScale(2);
+            for (int i = 0; i < result.size(); i++) {
+                result.set(i, result.get(i).divide(divisor, 4,
+                        RoundingMode.DOWN));
+            }
+        }
+
+        return result;
+    }
+
     @Override
     public DirectAdvanceAssignment calculateFakeDirectAdvanceAssignment(
             IndirectAdvanceAssignment indirectAdvanceAssignment) {
@@ -546,13 +616,13 @@ public class OrderLineGroup extends OrderElement implements
         }
 
         List<LocalDate> measurementDates = getMeasurementDates(advanceMeasurements);
+        List<BigDecimal> percentages = getAdvancePercentagesChildren(measurementDates);
         SortedSet<AdvanceMeasurement> newAdvanceMeasurements = new TreeSet<AdvanceMeasurement>(
                 new AdvanceMeasurementComparator());
-        for (LocalDate localDate : measurementDates) {
-            BigDecimal value = getAdvancePercentageChildren(localDate)
-                    .multiply(new BigDecimal(100));
+        for (int i = 0; i < measurementDates.size(); i++) {
+            BigDecimal value = percentages.get(i).multiply(new BigDecimal(100));
             AdvanceMeasurement advanceMeasurement = AdvanceMeasurement.create(
-                    localDate, value);
+                    measurementDates.get(i), value);
             advanceMeasurement.setAdvanceAssignment(newDirectAdvanceAssignment);
             newAdvanceMeasurements.add(advanceMeasurement);
         }
@@ -564,17 +634,11 @@ public class OrderLineGroup extends OrderElement implements
 
     private List<LocalDate> getMeasurementDates(
             List<AdvanceMeasurement> advanceMeasurements) {
-        List<LocalDate> result = new ArrayList<LocalDate>();
+        SortedSet<LocalDate> result = new TreeSet<LocalDate>();
         for (AdvanceMeasurement advanceMeasurement : advanceMeasurements) {
-            LocalDate date = advanceMeasurement.getDate();
-            if (result.indexOf(date) < 0) {
-                result.add(date);
-            }
+            result.add(advanceMeasurement.getDate());
         }
-
-        Collections.sort(result);
-
-        return result;
+        return new ArrayList<LocalDate>(result);
     }
 
     private DirectAdvanceAssignment mergeAdvanceAssignments(
@@ -15,4 +15,20 @@ public interface ILoadChartData {
     SortedMap<LocalDate, EffortDuration> getAvailability();
 
     SortedMap<LocalDate, EffortDuration> getOverload();
+
+    /**
+     * The values of {@link #getLoad()} accumulated for each week. The keys are
+     * the first day of each week
+     */
+    SortedMap<LocalDate, EffortDuration> getLoadPerWeek();
+
+    /**
+     * @see #getLoadPerWeek()
+     */
+    SortedMap<LocalDate, EffortDuration> getAvailabilityPerWeek();
+
+    /**
+     * @see #getLoadPerWeek()
+     */
+    SortedMap<LocalDate, EffortDuration> getOverloadPerWeek();
 }
\ No newline at end of file
@@ -27,6 +27,7 @@ import static org.libreplan.business.planner.chart.ContiguousDaysLine.toSortedMa
 import static org.libreplan.business.workingday.EffortDuration.min;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -34,7 +35,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.TreeMap;
 
+import org.apache.commons.lang.Validate;
 import org.joda.time.LocalDate;
 import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots;
 import org.libreplan.business.planner.chart.ContiguousDaysLine.IValueTransformer;
@@ -49,6 +52,11 @@ import org.libreplan.business.workingday.IntraDayDate.PartialDay;
  * chart of the company global resource load. The purpose of the class is
  * having these data pre-calculated to prevent heavy algorithms being
  * run each time the chart is shown.
+ * <p>
+ * Besides the values for each day, their sums for each week are kept and
+ * updated together with them, so the charts grouping by week don't need to
+ * go through all the days.
+ * </p>
  * @see PredefinedDatabaseSnapshots
  * @author Jacobo Aragunde Pérez<jaragunde@igalia.com>
  *
@@ -61,6 +69,12 @@ public class ResourceLoadChartData implements ILoadChartData {
 
     private SortedMap<LocalDate, EffortDuration> availability;
 
+    private SortedMap<LocalDate, EffortDuration> loadPerWeek;
+
+    private SortedMap<LocalDate, EffortDuration> overloadPerWeek;
+
+    private SortedMap<LocalDate, EffortDuration> availabilityPerWeek;
+
     public ResourceLoadChartData(List<DayAssignment> dayAssignments, List<Resource> resources) {
         this(dayAssignments, resources, null, null);
     }
@@ -87,6 +101,140 @@ public class ResourceLoadChartData implements ILoadChartData {
                 availabilityOnAllResources));
         this.overload = toSortedMap(sum(overload, availabilityOnAllResources));
         this.availability = toSortedMap(availabilityOnAllResources);
+        this.loadPerWeek = accumulatePerWeek(this.load);
+        this.overloadPerWeek = accumulatePerWeek(this.overload);
+        this.availabilityPerWeek = accumulatePerWeek(this.availability);
+    }
+
+    private ResourceLoadChartData(SortedMap<LocalDate, EffortDuration> load,
+            SortedMap<LocalDate, EffortDuration> overload,
+            SortedMap<LocalDate, EffortDuration> availability,
+            SortedMap<LocalDate, EffortDuration> loadPerWeek,
+            SortedMap<LocalDate, EffortDuration> overloadPerWeek,
+            SortedMap<LocalDate, EffortDuration> availabilityPerWeek) {
+        this.load = load;
+        this.overload = overload;
+        this.availability = availability;
+        this.loadPerWeek = loadPerWeek;
+        this.overloadPerWeek = overloadPerWeek;
+        this.availabilityPerWeek = availabilityPerWeek;
+    }
+
+    private static LocalDate weekStart(LocalDate day) {
+        return day.dayOfWeek().withMinimumValue();
+    }
+
+    private static SortedMap<LocalDate, EffortDuration> accumulatePerWeek(
+            SortedMap<LocalDate, EffortDuration> byDay) {
+        SortedMap<LocalDate, EffortDuration> result = new TreeMap<LocalDate, EffortDuration>();
+        for (Entry<LocalDate, EffortDuration> each : byDay.entrySet()) {
+            LocalDate week = weekStart(each.getKey());
+            EffortDuration accumulated = result.get(week);
+            result.put(week, accumulated == null ? each.getValue()
+                    : accumulated.plus(each.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Puts the new value for the day updating the sum of its week
+     */
+    private static void replace(SortedMap<LocalDate, EffortDuration> byDay,
+            SortedMap<LocalDate, EffortDuration> byWeek, LocalDate day,
+            EffortDuration value) {
+        EffortDuration previous = byDay.put(day, value);
+        LocalDate week = weekStart(day);
+        EffortDuration accumulated = byWeek.get(week);
+        if (accumulated == null) {
+            accumulated = EffortDuration.zero();
+        }
+        if (previous != null) {
+            accumulated = accumulated.minus(previous);
+        }
+        byWeek.put(week, accumulated.plus(value));
+    }
+
+    /**
+     * Creates a new {@link ResourceLoadChartData} with the same values as this
+     * one except for the provided days, that are calculated again. This allows
+     * to keep it updated without having to process all the day assignments.
+     *
+     * @param days
+     *            the days to recalculate
+     * @param dayAssignments
+     *            all the day assignments on the days to recalculate. The ones
+     *            on other days are ignored
+     * @param resources
+     *            all the resources
+     */
+    public ResourceLoadChartData recalculateDays(Collection<LocalDate> days,
+            List<DayAssignment> dayAssignments, List<Resource> resources) {
+        Validate.notNull(resources);
+        return recalculate(days, dayAssignments, resources);
+    }
+
+    /**
+     * Like {@link #recalculateDays(Collection, List, List)}, but the
+     * availability already calculated for the days is kept, so the resources
+     * are not needed. It can only be used if neither the resources nor their
+     * calendars have changed.
+     *
+     * @param days
+     *            the days to recalculate. All of them must have been
+     *            calculated before
+     * @param dayAssignments
+     *            all the day assignments on the days to recalculate. The ones
+     *            on other days are ignored
+     */
+    public ResourceLoadChartData recalculateDays(Collection<LocalDate> days,
+            List<DayAssignment> dayAssignments) {
+        for (LocalDate each : days) {
+            Validate.isTrue(availability.containsKey(each),
+                    "the availability of " + each + " is not calculated");
+        }
+        return recalculate(days, dayAssignments, null);
+    }
+
+    /**
+     * If <code>resources</code> is <code>null</code> the availability of each
+     * day is kept
+     */
+    private ResourceLoadChartData recalculate(Collection<LocalDate> days,
+            List<DayAssignment> dayAssignments, List<Resource> resources) {
+        SortedMap<LocalDate, EffortDuration> newLoad = new TreeMap<LocalDate, EffortDuration>(
+                load);
+        SortedMap<LocalDate, EffortDuration> newOverload = new TreeMap<LocalDate, EffortDuration>(
+                overload);
+        SortedMap<LocalDate, EffortDuration> newAvailability = new TreeMap<LocalDate, EffortDuration>(
+                availability);
+        SortedMap<LocalDate, EffortDuration> newLoadPerWeek = new TreeMap<LocalDate, EffortDuration>(
+                loadPerWeek);
+        SortedMap<LocalDate, EffortDuration> newOverloadPerWeek = new TreeMap<LocalDate, EffortDuration>(
+                overloadPerWeek);
+        SortedMap<LocalDate, EffortDuration> newAvailabilityPerWeek = new TreeMap<LocalDate, EffortDuration>(
+                availabilityPerWeek);
+
+        Map<LocalDate, List<DayAssignment>> byDay = DayAssignment
+                .byDay(dayAssignments);
+        IValueTransformer<List<DayAssignment>, EffortDuration> loadExtractor = extractLoad();
+        IValueTransformer<List<DayAssignment>, EffortDuration> overloadExtractor = extractOverload();
+        for (LocalDate day : new HashSet<LocalDate>(days)) {
+            List<DayAssignment> assignments = byDay.containsKey(day) ? byDay
+                    .get(day) : Collections.<DayAssignment> emptyList();
+            EffortDuration availabilityOnDay = resources != null
+                    ? sumCalendarCapacitiesForDay(resources, day)
+                    : availability.get(day);
+            replace(newLoad, newLoadPerWeek, day,
+                    min(loadExtractor.transform(day, assignments),
+                            availabilityOnDay));
+            replace(newOverload, newOverloadPerWeek, day, overloadExtractor
+                    .transform(day, assignments).plus(availabilityOnDay));
+            replace(newAvailability, newAvailabilityPerWeek, day,
+                    availabilityOnDay);
+        }
+        return new ResourceLoadChartData(newLoad, newOverload,
+                newAvailability, newLoadPerWeek, newOverloadPerWeek,
+                newAvailabilityPerWeek);
     }
 
     public static IValueTransformer<List<DayAssignment>, EffortDuration> extractOverload() {
@@ -191,6 +339,21 @@ public class ResourceLoadChartData implements ILoadChartData {
         return availability;
     }
 
+    @Override
+    public SortedMap<LocalDate, EffortDuration> getLoadPerWeek() {
+        return loadPerWeek;
+    }
+
+    @Override
+    public SortedMap<LocalDate, EffortDuration> getOverloadPerWeek() {
+        return overloadPerWeek;
+    }
+
+    @Override
+    public SortedMap<LocalDate, EffortDuration> getAvailabilityPerWeek() {
+        return availabilityPerWeek;
+    }
+
     public ILoadChartData on(final LocalDate startInclusive,
             final LocalDate endExclusive) {
 
@@ -215,19 +378,98 @@ public class ResourceLoadChartData implements ILoadChartData {
                 return filter(original.getAvailability());
             }
 
+            @Override
+            public SortedMap<LocalDate, EffortDuration> getLoadPerWeek() {
+                return filterPerWeek(original.getLoad(),
+                        original.getLoadPerWeek());
+            }
+
+            @Override
+            public SortedMap<LocalDate, EffortDuration> getOverloadPerWeek() {
+                return filterPerWeek(original.getOverload(),
+                        original.getOverloadPerWeek());
+            }
+
+            @Override
+            public SortedMap<LocalDate, EffortDuration> getAvailabilityPerWeek() {
+                return filterPerWeek(original.getAvailability(),
+                        original.getAvailabilityPerWeek());
+            }
+
             private SortedMap<LocalDate, EffortDuration> filter(
                     SortedMap<LocalDate, EffortDuration> map) {
+                return between(map, startInclusive, endExclusive);
+            }
+
+            /**
+             * The weeks completely inside the interval are taken from the
+             * sums already calculated, only the days of the weeks partially
+             * inside it are added
+             */
+            private SortedMap<LocalDate, EffortDuration> filterPerWeek(
+                    SortedMap<LocalDate, EffortDuration> byDay,
+                    SortedMap<LocalDate, EffortDuration> byWeek) {
+                LocalDate firstWholeWeek = null;
                 if (startInclusive != null) {
-                    return map.tailMap(startInclusive);
+                    firstWholeWeek = weekStart(startInclusive).equals(
+                            startInclusive) ? startInclusive : weekStart(
+                            startInclusive).plusWeeks(1);
                 }
-                if (endExclusive != null) {
-                    return map.headMap(endExclusive);
+                LocalDate endOfWholeWeeks = endExclusive == null ? null
+                        : weekStart(endExclusive);
+                SortedMap<LocalDate, EffortDuration> result = new TreeMap<LocalDate, EffortDuration>();
+                if (firstWholeWeek != null && endOfWholeWeeks != null
+                        && endOfWholeWeeks.isBefore(firstWholeWeek)) {
+                    addPartialWeek(result, byDay, startInclusive, endExclusive);
+                    return result;
                 }
-                return map.subMap(startInclusive, endExclusive);
+                result.putAll(between(byWeek, firstWholeWeek, endOfWholeWeeks));
+                if (startInclusive != null
+                        && startInclusive.isBefore(firstWholeWeek)) {
+                    addPartialWeek(result, byDay, startInclusive,
+                            firstWholeWeek);
+                }
+                if (endExclusive != null
+                        && endOfWholeWeeks.isBefore(endExclusive)) {
+                    addPartialWeek(result, byDay, endOfWholeWeeks,
+                            endExclusive);
+                }
+                return result;
+            }
+
+            private void addPartialWeek(
+                    SortedMap<LocalDate, EffortDuration> result,
+                    SortedMap<LocalDate, EffortDuration> byDay,
+                    LocalDate start, LocalDate end) {
+                SortedMap<LocalDate, EffortDuration> days = byDay.subMap(
+                        start, end);
+                if (days.isEmpty()) {
+                    return;
+                }
+                EffortDuration sum = EffortDuration.zero();
+                for (EffortDuration each : days.values()) {
+                    sum = sum.plus(each);
+                }
+                result.put(weekStart(start), sum);
             }
         };
     }
 
+    private static SortedMap<LocalDate, EffortDuration> between(
+            SortedMap<LocalDate, EffortDuration> map, LocalDate startInclusive,
+            LocalDate endExclusive) {
+        if (startInclusive == null) {
+            return endExclusive == null ? map : map.headMap(endExclusive);
+        }
+        if (endExclusive == null) {
+            return map.tailMap(startInclusive);
+        }
+        if (endExclusive.isBefore(startInclusive)) {
+            return map.subMap(startInclusive, startInclusive);
+        }
+        return map.subMap(startInclusive, endExclusive);
+    }
+
     private static EffortDuration sumCalendarCapacitiesForDay(
             Collection<? extends Resource> resources, LocalDate day) {
 
@@ -31,6 +31,7 @@ import org.hibernate.Query;
 import org.hibernate.criterion.Restrictions;
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.GenericDAOHibernate;
+import org.libreplan.business.common.daos.IScrollVisitor;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.planner.entities.DerivedDayAssignment;
 import org.libreplan.business.planner.entities.GenericDayAssignment;
@@ -53,6 +54,8 @@ import org.springframework.stereotype.Repository;
 public class DayAssignmentDAO extends GenericDAOHibernate<DayAssignment, Long>
         implements IDayAssignmentDAO {
 
+    private static final int SCROLL_CLEAR_INTERVAL = 500;
+
     @Override
     public void removeDerived(
             Collection<? extends DerivedDayAssignment> assignments) {
@@ -85,25 +88,45 @@ public class DayAssignmentDAO extends GenericDAOHibernate<DayAssignment, Long>
             LocalDate startDateInclusive, LocalDate endDateInclusive,
             Resource resource) {
         List<DayAssignment> result = new ArrayList<DayAssignment>();
+        List<Resource> resources = resource != null ? Collections
+                .singletonList(resource) : null;
+        result.addAll(getSpecific(scenario, startDateInclusive,
+                endDateInclusive, resources));
+        result.addAll(getGeneric(scenario, startDateInclusive,
+                endDateInclusive, resources));
+        result.addAll(getDerived(scenario, startDateInclusive,
+                endDateInclusive, resources));
+        return result;
+    }
+
+    @Override
+    public List<DayAssignment> findByResources(Scenario scenario,
+            List<Resource> resources, LocalDate startDateInclusive,
+            LocalDate endDateInclusive) {
+        if (resources.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<DayAssignment> result = new ArrayList<DayAssignment>();
         result.addAll(getSpecific(scenario, startDateInclusive,
-                endDateInclusive, resource));
+                endDateInclusive, resources));
         result.addAll(getGeneric(scenario, startDateInclusive,
-                endDateInclusive, resource));
+                endDateInclusive, resources));
         result.addAll(getDerived(scenario, startDateInclusive,
-                endDateInclusive, resource));
+                endDateInclusive, resources));
         return result;
     }
 
     private List<DerivedDayAssignment> getDerived(Scenario scenario,
-            LocalDate initInclusive, LocalDate endInclusive, Resource resource) {
+            LocalDate initInclusive, LocalDate endInclusive,
+            Collection<? extends Resource> resources) {
         String queryString = "select d from DerivedDayAssignmentsContainer c "
                 + "JOIN c.dayAssignments d where c.scenario = :scenario"
                 + addQueryConditionForInitAndEndDate(initInclusive,
-                        endInclusive) + addQueryConditionsForResource(resource);
+                        endInclusive) + addQueryConditionsForResources(resources);
         Query query = getSession().createQuery(queryString);
         query = query.setParameter("scenario", scenario);
         addInitAndEndParameters(query, initInclusive, endInclusive);
-        addResourceParameter(query, resource);
+        addResourcesParameter(query, resources);
         return query.list();
     }
 
@@ -115,8 +138,9 @@ public class DayAssignmentDAO extends GenericDAOHibernate<DayAssignment, Long>
         return initCondition + endCondition;
     }
 
-    private String addQueryConditionsForResource(Resource resource) {
-        return resource != null ? " and d.resource = :resource " : "";
+    private String addQueryConditionsForResources(
+            Collection<? extends Resource> resources) {
+        return resources != null ? " and d.resource in (:resources) " : "";
     }
 
     private Query addInitAndEndParameters(Query query, LocalDate initInclusive,
@@ -130,34 +154,37 @@ public class DayAssignmentDAO extends GenericDAOHibernate<DayAssignment, Long>
         return query;
     }
 
-    private Query addResourceParameter(Query query, Resource resource) {
-        return resource != null ? query.setParameter("resource", resource)
-                : query;
+    private Query addResourcesParameter(Query query,
+            Collection<? extends Resource> resources) {
+        return resources != null ? query.setParameterList("resources",
+                resources) : query;
     }
 
     private List<GenericDayAssignment> getGeneric(Scenario scenario,
-            LocalDate initInclusive, LocalDate endInclusive, Resource resource) {
+            LocalDate initInclusive, LocalDate endInclusive,
+            Collection<? extends Resource> resources) {
         String queryString = "select d from GenericDayAssignmentsContainer c "
                 + "JOIN c.dayAssignments d where c.scenario = :scenario"
                 + addQueryConditionForInitAndEndDate(initInclusive,
-                        endInclusive) + addQueryConditionsForResource(resource);
+                        endInclusive) + addQueryConditionsForResources(resources);
         Query query = getSession().createQuery(queryString).setParameter(
                 "scenario", scenario);
         addInitAndEndParameters(query, initInclusive, endInclusive);
-        addResourceParameter(query, resource);
+        addResourcesParameter(query, resources);
         return query.list();
     }
 
     private List<SpecificDayAssignment> getSpecific(Scenario scenario,
-            LocalDate initInclusive, LocalDate endInclusive, Resource resource) {
+            LocalDate initInclusive, LocalDate endInclusive,
+            Collection<? extends Resource> resources) {
         String queryString = "select d from SpecificDayAssignmentsContainer c "
                 + "JOIN c.dayAssignments d where c.scenario = :scenario"
                 + addQueryConditionForInitAndEndDate(initInclusive,
-                        endInclusive) + addQueryConditionsForResource(resource);
+                        endInclusive) + addQueryConditionsForResources(resources);
         Query query = getSession().createQuery(queryString).setParameter(
                 "scenario", scenario);
         addInitAndEndParameters(query, initInclusive, endInclusive);
-        addResourceParameter(query, resource);
+        addResourcesParameter(query, resources);
         return query.list();
     }
 
@@ -196,4 +223,31 @@ public class DayAssignmentDAO extends GenericDAOHibernate<DayAssignment, Long>
         return criteria.list();
     }
 
+    @Override
+    public void scrollOrderedById(Scenario scenario,
+            LocalDate startDateInclusive, LocalDate endDateInclusive,
+            Long afterId, Integer limit, IScrollVisitor<DayAssignment> visitor) {
+        // the container is only mapped on the subclasses, so the scenario is
+        // checked with subqueries in order to have a single ordered cursor
+        String queryString = "select d from DayAssignment d where ("
+                + "d.id in (select s.id from SpecificDayAssignmentsContainer c "
+                + "JOIN c.dayAssignments s where c.scenario = :scenario) or "
+                + "d.id in (select g.id from GenericDayAssignmentsContainer c "
+                + "JOIN c.dayAssignments g where c.scenario = :scenario))"
+                + addQueryConditionForInitAndEndDate(startDateInclusive,
+                        endDateInclusive)
+                + (afterId != null ? " and d.id > :afterId" : "")
+                + " order by d.id";
+        Query query = getSession().createQuery(queryString).setParameter(
+                "scenario", scenario);
+        addInitAndEndParameters(query, startDateInclusive, endDateInclusive);
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        scroll(query, SCROLL_CLEAR_INTERVAL, visitor);
+    }
+
 }
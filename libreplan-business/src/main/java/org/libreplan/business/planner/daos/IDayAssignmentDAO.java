@@ -26,6 +26,7 @@ import java.util.List;
 
 import org.joda.time.LocalDate;
 import org.libreplan.business.common.daos.IGenericDAO;
+import org.libreplan.business.common.daos.IScrollVisitor;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.planner.entities.DerivedDayAssignment;
 import org.libreplan.business.resources.entities.Resource;
@@ -58,4 +59,27 @@ public interface IDayAssignmentDAO extends IGenericDAO<DayAssignment, Long> {
 
     public List<DayAssignment> findByResources(List<Resource> resources);
 
+    /**
+     * Returns the {@link DayAssignment day assignments} of the provided
+     * resources on the scenario between the dates provided. If a date is
+     * <code>null</code> the interval is not bounded on that side.
+     */
+    public List<DayAssignment> findByResources(Scenario scenario,
+            List<Resource> resources, LocalDate startDateInclusive,
+            LocalDate endDateInclusive);
+
+    /**
+     * Goes through the specific and generic {@link DayAssignment day
+     * assignments} of the scenario between the dates, ordered by id, without
+     * retrieving all of them at once. The derived ones are not visited.<br />
+     *
+     * If a date is <code>null</code> the interval is not bounded on that side.
+     * If <code>afterId</code> is not <code>null</code> only the day
+     * assignments with a greater id are visited, and no more than
+     * <code>limit</code> are visited if it's not <code>null</code>.
+     */
+    public void scrollOrderedById(Scenario scenario,
+            LocalDate startDateInclusive, LocalDate endDateInclusive,
+            Long afterId, Integer limit, IScrollVisitor<DayAssignment> visitor);
+
 }
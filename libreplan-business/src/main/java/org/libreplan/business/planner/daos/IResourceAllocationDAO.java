@@ -21,6 +21,7 @@
 
 package org.libreplan.business.planner.daos;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -100,4 +101,13 @@ public interface IResourceAllocationDAO extends
             Date intervalFilterStartDate,
             Date intervalFilterEndDate);
 
-}
\ No newline at end of file
+    /**
+     * Initializes with a few queries the day assignments of the provided
+     * allocations on <code>scenario</code>, their derived allocations and the
+     * criteria of the generic ones
+     */
+    void prefetchForScenario(
+            Collection<? extends ResourceAllocation<?>> allocations,
+            Scenario scenario);
+
+}
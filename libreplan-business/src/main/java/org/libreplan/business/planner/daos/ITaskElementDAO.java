@@ -21,6 +21,7 @@
 
 package org.libreplan.business.planner.daos;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -39,4 +40,20 @@ public interface ITaskElementDAO extends IGenericDAO<TaskElement, Long> {
 
     List<TaskElement> getTaskElementsNoMilestonesWithoutTaskSource();
 
+    /**
+     * Loads the whole tree of {@link TaskElement} under <code>root</code> with
+     * a query per level, initializing the children of each group. Unlike
+     * {@link #findChildrenOf(TaskGroup)}, it doesn't need a query per group.
+     *
+     * @return <code>root</code> and all its descendants
+     */
+    List<TaskElement> loadTree(TaskGroup root);
+
+    /**
+     * Initializes with a few queries the resource allocations and the
+     * dependencies of the provided {@link TaskElement task elements}
+     */
+    void prefetchAllocationsAndDependencies(
+            Collection<? extends TaskElement> taskElements);
+
 }
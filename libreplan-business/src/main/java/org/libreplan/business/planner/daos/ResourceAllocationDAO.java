@@ -23,6 +23,7 @@ package org.libreplan.business.planner.daos;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -596,4 +597,42 @@ public class ResourceAllocationDAO extends
         }
     }
 
-}
\ No newline at end of file
+    @Override
+    public void prefetchForScenario(
+            Collection<? extends ResourceAllocation<?>> allocations,
+            Scenario scenario) {
+        List<Long> ids = getIds(allocations);
+        if (ids.isEmpty()) {
+            return;
+        }
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT a FROM SpecificResourceAllocation a "
+                        + "LEFT JOIN FETCH a.specificDayAssignmentsContainers "
+                        + "WHERE a.id IN (:ids)"), "ids", ids);
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT c FROM SpecificDayAssignmentsContainer c "
+                        + "LEFT JOIN FETCH c.dayAssignments "
+                        + "WHERE c.scenario = :scenario "
+                        + "AND c.resourceAllocation.id IN (:ids)")
+                .setParameter("scenario", scenario), "ids", ids);
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT a FROM GenericResourceAllocation a "
+                        + "LEFT JOIN FETCH a.genericDayAssignmentsContainers "
+                        + "WHERE a.id IN (:ids)"), "ids", ids);
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT c FROM GenericDayAssignmentsContainer c "
+                        + "LEFT JOIN FETCH c.dayAssignments "
+                        + "WHERE c.scenario = :scenario "
+                        + "AND c.resourceAllocation.id IN (:ids)")
+                .setParameter("scenario", scenario), "ids", ids);
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT a FROM GenericResourceAllocation a "
+                        + "LEFT JOIN FETCH a.criterions "
+                        + "WHERE a.id IN (:ids)"), "ids", ids);
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT a FROM ResourceAllocation a "
+                        + "LEFT JOIN FETCH a.derivedAllocations "
+                        + "WHERE a.id IN (:ids)"), "ids", ids);
+    }
+
+}
@@ -21,6 +21,9 @@
 
 package org.libreplan.business.planner.daos;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -135,4 +138,46 @@ public class TaskElementDAO extends GenericDAOHibernate<TaskElement, Long>
         return query.list();
     }
 
+    @Override
+    public List<TaskElement> loadTree(TaskGroup root) {
+        List<TaskElement> result = new ArrayList<TaskElement>();
+        result.add(root);
+        String strQuery = "SELECT DISTINCT g FROM TaskGroup g "
+                + "LEFT JOIN FETCH g.taskElements ";
+        Query byId = getSession().createQuery(strQuery + "WHERE g.id IN (:ids)");
+        Query byParent = getSession().createQuery(
+                strQuery + "WHERE g.parent.id IN (:ids)");
+
+        List<TaskGroup> level = listInChunks(byId, "ids",
+                Collections.singletonList(root.getId()));
+        while (!level.isEmpty()) {
+            for (TaskGroup each : level) {
+                result.addAll(each.getChildren());
+            }
+            level = listInChunks(byParent, "ids", getIds(level));
+        }
+        return result;
+    }
+
+    @Override
+    public void prefetchAllocationsAndDependencies(
+            Collection<? extends TaskElement> taskElements) {
+        List<Long> ids = getIds(taskElements);
+        if (ids.isEmpty()) {
+            return;
+        }
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT t FROM Task t "
+                        + "LEFT JOIN FETCH t.resourceAllocations "
+                        + "WHERE t.id IN (:ids)"), "ids", ids);
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT t FROM TaskElement t "
+                        + "LEFT JOIN FETCH t.dependenciesWithThisOrigin "
+                        + "WHERE t.id IN (:ids)"), "ids", ids);
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT t FROM TaskElement t "
+                        + "LEFT JOIN FETCH t.dependenciesWithThisDestination "
+                        + "WHERE t.id IN (:ids)"), "ids", ids);
+    }
+
 }
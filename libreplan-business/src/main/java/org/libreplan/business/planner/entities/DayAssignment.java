@@ -317,7 +317,11 @@ public abstract class DayAssignment extends BaseEntity {
     protected abstract void detachFromAllocation();
 
     public final boolean belongsToSomeOf(Map<Long, Set<BaseEntity>> allocations) {
-        BaseEntity parent = getParent();
+        return isSomeOf(getParent(), allocations);
+    }
+
+    static boolean isSomeOf(BaseEntity parent,
+            Map<Long, Set<BaseEntity>> allocations) {
         if (parent.getId() == null) {
             Set<BaseEntity> entitiesWithNullId = allocations.get(null);
             return entitiesWithNullId != null
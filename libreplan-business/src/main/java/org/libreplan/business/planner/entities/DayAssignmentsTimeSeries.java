@@ -0,0 +1,314 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.entities;
+
+import static org.libreplan.business.util.EpochDays.fromEpochDay;
+import static org.libreplan.business.util.EpochDays.toEpochDay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.common.BaseEntity;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Read only columnar view of the effort of some {@link DayAssignment day
+ * assignments}.
+ * <p>
+ * The days are kept as a sorted array of days since the epoch and the effort
+ * of each day as an array of seconds, together with their prefix sums. So the
+ * effort assigned in any interval is obtained with two binary searches instead
+ * of traversing the assignments. The effort is stored both for all the
+ * resources together and for each resource. The effort of each allocation is
+ * only separated when some allocation must be discounted.
+ * </p>
+ * <p>
+ * It must be discarded when the assignments it was created from change.
+ * </p>
+ */
+public class DayAssignmentsTimeSeries {
+
+    private static final DayAssignmentsTimeSeries EMPTY = new DayAssignmentsTimeSeries(
+            Collections.<DayAssignment> emptyList(), Columns.EMPTY,
+            Collections.<Resource, Columns> emptyMap());
+
+    public static DayAssignmentsTimeSeries empty() {
+        return EMPTY;
+    }
+
+    public static DayAssignmentsTimeSeries create(
+            Collection<? extends DayAssignment> assignments) {
+        Validate.notNull(assignments);
+        if (assignments.isEmpty()) {
+            return EMPTY;
+        }
+        Map<Resource, List<DayAssignment>> byResource = DayAssignment
+                .byResourceAndOrdered(assignments);
+        Map<Resource, Columns> columnsByResource = new HashMap<Resource, Columns>();
+        for (Entry<Resource, List<DayAssignment>> each : byResource.entrySet()) {
+            columnsByResource.put(each.getKey(),
+                    Columns.fromOrdered(each.getValue()));
+        }
+        Columns all = columnsByResource.size() == 1 ? columnsByResource
+                .values().iterator().next() : Columns.fromOrdered(DayAssignment
+                .orderedByDay(new ArrayList<DayAssignment>(assignments)));
+        return new DayAssignmentsTimeSeries(new ArrayList<DayAssignment>(
+                assignments), all, columnsByResource);
+    }
+
+    private final List<DayAssignment> assignments;
+
+    private final Columns all;
+
+    private final Map<Resource, Columns> byResource;
+
+    /**
+     * The effort of each allocation, keyed by the allocation instance. It's
+     * built the first time some allocation is discounted
+     */
+    private Map<BaseEntity, Columns> byAllocation;
+
+    private Map<Long, Set<BaseEntity>> lastDiscounted;
+
+    private List<Columns> lastDiscountedColumns;
+
+    private DayAssignmentsTimeSeries(List<DayAssignment> assignments,
+            Columns all, Map<Resource, Columns> byResource) {
+        this.assignments = assignments;
+        this.all = all;
+        this.byResource = byResource;
+    }
+
+    public boolean isEmpty() {
+        return all.size() == 0;
+    }
+
+    /**
+     * @return the first day with some effort assigned or <code>null</code> if
+     *         there is none
+     */
+    public LocalDate getFirstDay() {
+        return isEmpty() ? null : fromEpochDay(all.epochDays[0]);
+    }
+
+    /**
+     * @return the last day with some effort assigned or <code>null</code> if
+     *         there is none
+     */
+    public LocalDate getLastDay() {
+        return isEmpty() ? null : fromEpochDay(all.epochDays[all.size() - 1]);
+    }
+
+    public EffortDuration getTotalEffort() {
+        return all.totalEffort();
+    }
+
+    public EffortDuration getEffortAt(LocalDate day) {
+        return getEffort(day, day.plusDays(1));
+    }
+
+    public EffortDuration getEffort(LocalDate startInclusive,
+            LocalDate endExclusive) {
+        return all.effortBetween(startInclusive, endExclusive);
+    }
+
+    public EffortDuration getEffort(Resource resource,
+            LocalDate startInclusive, LocalDate endExclusive) {
+        return columnsFor(resource).effortBetween(startInclusive, endExclusive);
+    }
+
+    public EffortDuration getTotalEffort(Resource resource) {
+        return columnsFor(resource).totalEffort();
+    }
+
+    /**
+     * @return the effort at the day of the assignments not belonging to the
+     *         provided allocations
+     * @see DayAssignment#belongsToSomeOf(Map)
+     */
+    public EffortDuration getEffortDiscounting(
+            Map<Long, Set<BaseEntity>> allocations, LocalDate day) {
+        LocalDate nextDay = day.plusDays(1);
+        EffortDuration result = getEffort(day, nextDay);
+        if (result.isZero()) {
+            return result;
+        }
+        for (Columns each : columnsOf(allocations)) {
+            result = result.minus(each.effortBetween(day, nextDay));
+        }
+        return result;
+    }
+
+    /**
+     * The same allocations are usually discounted for many days in a row, so
+     * the columns for the last ones are kept
+     */
+    private List<Columns> columnsOf(Map<Long, Set<BaseEntity>> allocations) {
+        if (allocations == lastDiscounted) {
+            return lastDiscountedColumns;
+        }
+        List<Columns> result = new ArrayList<Columns>();
+        for (Entry<BaseEntity, Columns> each : getByAllocation().entrySet()) {
+            if (DayAssignment.isSomeOf(each.getKey(), allocations)) {
+                result.add(each.getValue());
+            }
+        }
+        lastDiscounted = allocations;
+        lastDiscountedColumns = result;
+        return result;
+    }
+
+    private Map<BaseEntity, Columns> getByAllocation() {
+        if (byAllocation != null) {
+            return byAllocation;
+        }
+        Map<BaseEntity, List<DayAssignment>> grouped = new HashMap<BaseEntity, List<DayAssignment>>();
+        for (DayAssignment each : assignments) {
+            BaseEntity parent = each.getParent();
+            if (parent == null) {
+                continue;
+            }
+            List<DayAssignment> list = grouped.get(parent);
+            if (list == null) {
+                list = new ArrayList<DayAssignment>();
+                grouped.put(parent, list);
+            }
+            list.add(each);
+        }
+        Map<BaseEntity, Columns> result = new HashMap<BaseEntity, Columns>();
+        for (Entry<BaseEntity, List<DayAssignment>> each : grouped.entrySet()) {
+            result.put(each.getKey(), Columns.fromOrdered(DayAssignment
+                    .orderedByDay(each.getValue())));
+        }
+        return byAllocation = result;
+    }
+
+    private Columns columnsFor(Resource resource) {
+        Columns result = byResource.get(resource);
+        return result != null ? result : Columns.EMPTY;
+    }
+
+    /**
+     * The days with effort assigned and the accumulated effort up to each one
+     * of them. Several assignments on the same day are merged in one entry.
+     */
+    private static class Columns {
+
+        private static final Columns EMPTY = new Columns(new int[0],
+                new int[0], new long[] { 0 });
+
+        static Columns fromOrdered(List<? extends DayAssignment> ordered) {
+            int[] days = new int[ordered.size()];
+            int[] seconds = new int[ordered.size()];
+            int size = 0;
+            LocalDate previous = null;
+            for (DayAssignment each : ordered) {
+                int effort = each.getDuration().getSeconds();
+                if (each.getDay().equals(previous)) {
+                    seconds[size - 1] += effort;
+                } else {
+                    previous = each.getDay();
+                    days[size] = toEpochDay(previous);
+                    seconds[size] = effort;
+                    size++;
+                }
+            }
+            if (size < days.length) {
+                days = Arrays.copyOf(days, size);
+                seconds = Arrays.copyOf(seconds, size);
+            }
+            long[] accumulated = new long[size + 1];
+            for (int i = 0; i < size; i++) {
+                accumulated[i + 1] = accumulated[i] + seconds[i];
+            }
+            return new Columns(days, seconds, accumulated);
+        }
+
+        private final int[] epochDays;
+
+        private final int[] effortSeconds;
+
+        /**
+         * Its i-th element is the sum of the first i elements of
+         * {@link #effortSeconds}
+         */
+        private final long[] accumulatedSeconds;
+
+        private Columns(int[] epochDays, int[] effortSeconds,
+                long[] accumulatedSeconds) {
+            this.epochDays = epochDays;
+            this.effortSeconds = effortSeconds;
+            this.accumulatedSeconds = accumulatedSeconds;
+        }
+
+        int size() {
+            return epochDays.length;
+        }
+
+        EffortDuration totalEffort() {
+            return toEffort(accumulatedSeconds[size()]);
+        }
+
+        EffortDuration effortBetween(LocalDate startInclusive,
+                LocalDate endExclusive) {
+            if (size() == 0 || !startInclusive.isBefore(endExclusive)) {
+                return EffortDuration.zero();
+            }
+            int from = firstNotBefore(toEpochDay(startInclusive));
+            int to = firstNotBefore(toEpochDay(endExclusive));
+            if (to - from == 1) {
+                return EffortDuration.seconds(effortSeconds[from]);
+            }
+            return toEffort(accumulatedSeconds[to] - accumulatedSeconds[from]);
+        }
+
+        private int firstNotBefore(int epochDay) {
+            int start = 0;
+            int end = epochDays.length - 1;
+            while (start <= end) {
+                int middle = (start + end) >>> 1;
+                if (epochDays[middle] < epochDay) {
+                    start = middle + 1;
+                } else {
+                    end = middle - 1;
+                }
+            }
+            return start;
+        }
+
+        private static EffortDuration toEffort(long seconds) {
+            Validate.isTrue(seconds <= Integer.MAX_VALUE,
+                    "the effort doesn't fit in an EffortDuration");
+            return EffortDuration.seconds((int) seconds);
+        }
+
+    }
+
+}
@@ -21,12 +21,18 @@ package org.libreplan.business.planner.entities;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.libreplan.business.costcategories.daos.IHourCostDAO;
+import org.libreplan.business.costcategories.entities.HourCostRateTable;
 import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
 import org.libreplan.business.workreports.entities.WorkReportLine;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,7 +47,11 @@ import org.springframework.stereotype.Component;
  * the cost category of each resource in the different dates.<br />
  *
  * Money cost is stored in a map that will be cached in memeroy. This map could
- * be reseted when needed with method {@code resetMoneyCostMap}.
+ * be reseted when needed with method {@code resetMoneyCostMap}.<br />
+ *
+ * The work report lines of an element and its descendants are retrieved at
+ * once and their prices are taken from a {@link HourCostRateTable} loaded for
+ * that calculation, so the database is not accessed for each line.
  *
  * @author Manuel Rego Casasnovas <mrego@igalia.com>
  * @author Susana Montes Pedreira <smontes@wirelessgalicia.com>
@@ -107,22 +117,68 @@ public class MoneyCostCalculator implements IMoneyCostCalculator {
 
     @Override
     public BigDecimal getHoursMoneyCost(OrderElement orderElement) {
+        BigDecimal cached = getCachedHoursMoneyCost(orderElement);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<WorkReportLine> workReportLines = workReportLineDAO
+                .findByOrderElementAndChildren(orderElement, false);
+        HourCostRateTable rates = hourCostDAO
+                .getRateTableFor(resourcesOf(workReportLines));
+        return getHoursMoneyCost(orderElement,
+                byOrderElement(workReportLines), rates);
+    }
+
+    private BigDecimal getCachedHoursMoneyCost(OrderElement orderElement) {
         MoneyCost moneyCost = moneyCostTotalMap.get(orderElement);
-        if (moneyCost != null) {
-            BigDecimal result = moneyCost.getCostOfHours();
-            if (result != null) {
-                return result;
+        return moneyCost != null ? moneyCost.getCostOfHours() : null;
+    }
+
+    private static Set<Resource> resourcesOf(
+            List<WorkReportLine> workReportLines) {
+        Set<Resource> result = new HashSet<Resource>();
+        for (WorkReportLine each : workReportLines) {
+            result.add(each.getResource());
+        }
+        return result;
+    }
+
+    private static Map<Long, List<WorkReportLine>> byOrderElement(
+            List<WorkReportLine> workReportLines) {
+        Map<Long, List<WorkReportLine>> result = new HashMap<Long, List<WorkReportLine>>();
+        for (WorkReportLine each : workReportLines) {
+            Long orderElementId = each.getOrderElement().getId();
+            List<WorkReportLine> lines = result.get(orderElementId);
+            if (lines == null) {
+                lines = new ArrayList<WorkReportLine>();
+                result.put(orderElementId, lines);
             }
+            lines.add(each);
+        }
+        return result;
+    }
+
+    private BigDecimal getHoursMoneyCost(OrderElement orderElement,
+            Map<Long, List<WorkReportLine>> workReportLinesByOrderElement,
+            HourCostRateTable rates) {
+        BigDecimal cached = getCachedHoursMoneyCost(orderElement);
+        if (cached != null) {
+            return cached;
         }
 
         BigDecimal result = BigDecimal.ZERO.setScale(2);
         for (OrderElement each : orderElement.getChildren()) {
-            result = result.add(getHoursMoneyCost(each));
+            result = result.add(getHoursMoneyCost(each,
+                    workReportLinesByOrderElement, rates));
         }
 
-        result = result.add(getMoneyCostFromOwnWorkReportLines(orderElement))
-                .setScale(2, RoundingMode.HALF_UP);
+        result = result.add(
+                getMoneyCostFromOwnWorkReportLines(
+                        linesOf(orderElement, workReportLinesByOrderElement),
+                        rates)).setScale(2, RoundingMode.HALF_UP);
 
+        MoneyCost moneyCost = moneyCostTotalMap.get(orderElement);
         if (moneyCost == null) {
             moneyCost = new MoneyCost();
         }
@@ -131,17 +187,22 @@ public class MoneyCostCalculator implements IMoneyCostCalculator {
         return result;
     }
 
-    private BigDecimal getMoneyCostFromOwnWorkReportLines(OrderElement orderElement) {
-        List<WorkReportLine> workReportLines = workReportLineDAO
-                .findByOrderElement(orderElement);
+    private static List<WorkReportLine> linesOf(OrderElement orderElement,
+            Map<Long, List<WorkReportLine>> workReportLinesByOrderElement) {
+        List<WorkReportLine> result = orderElement.getId() != null ? workReportLinesByOrderElement
+                .get(orderElement.getId()) : null;
+        return result != null ? result : Collections
+                .<WorkReportLine> emptyList();
+    }
 
+    private BigDecimal getMoneyCostFromOwnWorkReportLines(
+            List<WorkReportLine> workReportLines, HourCostRateTable rates) {
         BigDecimal result = BigDecimal.ZERO.setScale(2);
         for (WorkReportLine workReportLine : workReportLines) {
-            BigDecimal priceCost = hourCostDAO
-                    .getPriceCostFromResourceDateAndType(
-                            workReportLine.getResource(),
-                            workReportLine.getLocalDate(),
-                            workReportLine.getTypeOfWorkHours());
+            BigDecimal priceCost = rates.getPriceCost(
+                    workReportLine.getResource(),
+                    workReportLine.getLocalDate(),
+                    workReportLine.getTypeOfWorkHours());
 
             // If cost undefined via CostCategory get it from type
             if (priceCost == null) {
@@ -53,6 +53,9 @@ import org.libreplan.business.calendars.entities.ThereAreHoursOnWorkHoursCalcula
 import org.libreplan.business.calendars.entities.ThereAreHoursOnWorkHoursCalculator.CapacityResult;
 import org.libreplan.business.common.BaseEntity;
 import org.libreplan.business.common.Registry;
+import org.libreplan.business.common.metrics.Counter;
+import org.libreplan.business.common.metrics.MetricsRegistry;
+import org.libreplan.business.common.metrics.Timer;
 import org.libreplan.business.planner.entities.AssignedEffortForResource.IAssignedEffortForResource;
 import org.libreplan.business.planner.entities.DerivedAllocationGenerator.IWorkerFinder;
 import org.libreplan.business.planner.entities.allocationalgorithms.AllocationModification;
@@ -89,6 +92,18 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
 
     private static final Log LOG = LogFactory.getLog(ResourceAllocation.class);
 
+    private static final Timer UNTIL_ALLOCATING_TIMER = MetricsRegistry
+            .getInstance().timer("allocation.until_allocating");
+
+    private static final Timer RESOURCES_PER_DAY_TIMER = MetricsRegistry
+            .getInstance().timer("allocation.resources_per_day");
+
+    private static final Timer EFFORTS_TIMER = MetricsRegistry.getInstance()
+            .timer("allocation.efforts");
+
+    private static final Counter UNSATISFIED = MetricsRegistry.getInstance()
+            .counter("allocation.unsatisfied");
+
     public static <T extends ResourceAllocation<?>> List<T> getSatisfied(
             Collection<T> resourceAllocations) {
         Validate.notNull(resourceAllocations);
@@ -416,12 +431,19 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
                 protected void markUnsatisfied(
                         ResourcesPerDayModification allocationAttempt,
                         CapacityResult capacityResult) {
+                    UNSATISFIED.increment();
                     allocationAttempt.getBeingModified().markAsUnsatisfied();
                     receiver.cantFulfill(allocationAttempt, capacityResult);
                 }
 
             };
-            IntraDayDate result = allocator.untilAllocating(toAllocate);
+            IntraDayDate result;
+            Timer.Context context = UNTIL_ALLOCATING_TIMER.start();
+            try {
+                result = allocator.untilAllocating(toAllocate);
+            } finally {
+                context.stop();
+            }
             if (result == null) {
                 // allocation could not be done
                 return direction == Direction.FORWARD ? task
@@ -433,19 +455,34 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
         public void allocateOnTaskLength() {
             AllocatorForTaskDurationAndSpecifiedResourcesPerDay allocator = new AllocatorForTaskDurationAndSpecifiedResourcesPerDay(
                     allocations);
-            allocator.allocateOnTaskLength();
+            Timer.Context context = RESOURCES_PER_DAY_TIMER.start();
+            try {
+                allocator.allocateOnTaskLength();
+            } finally {
+                context.stop();
+            }
         }
 
         public void allocateUntil(IntraDayDate endExclusive) {
             AllocatorForTaskDurationAndSpecifiedResourcesPerDay allocator = new AllocatorForTaskDurationAndSpecifiedResourcesPerDay(
                     allocations);
-            allocator.allocateUntil(endExclusive);
+            Timer.Context context = RESOURCES_PER_DAY_TIMER.start();
+            try {
+                allocator.allocateUntil(endExclusive);
+            } finally {
+                context.stop();
+            }
         }
 
         public void allocateFromEndUntil(IntraDayDate start) {
             AllocatorForTaskDurationAndSpecifiedResourcesPerDay allocator = new AllocatorForTaskDurationAndSpecifiedResourcesPerDay(
                     allocations);
-            allocator.allocateFromEndUntil(start);
+            Timer.Context context = RESOURCES_PER_DAY_TIMER.start();
+            try {
+                allocator.allocateFromEndUntil(start);
+            } finally {
+                context.stop();
+            }
         }
     }
 
@@ -492,18 +529,27 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
         public void allocateUntil(IntraDayDate end) {
             Validate.notNull(end);
             checkStartLessOrEqualToEnd(task.getIntraDayStartDate(), end);
-            for (EffortModification each : hoursModifications) {
-                each.allocateUntil(end);
+            Timer.Context context = EFFORTS_TIMER.start();
+            try {
+                for (EffortModification each : hoursModifications) {
+                    each.allocateUntil(end);
+                }
+            } finally {
+                context.stop();
             }
         }
 
         public void allocateFromEndUntil(IntraDayDate start) {
             Validate.notNull(start);
             checkStartLessOrEqualToEnd(start, task.getIntraDayEndDate());
-            for (EffortModification each : hoursModifications) {
-                each.allocateFromEndUntil(start);
+            Timer.Context context = EFFORTS_TIMER.start();
+            try {
+                for (EffortModification each : hoursModifications) {
+                    each.allocateFromEndUntil(start);
+                }
+            } finally {
+                context.stop();
             }
-
         }
 
     }
@@ -1480,7 +1526,16 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
     }
 
     public EffortDuration getAssignedEffort() {
-        return DayAssignment.sum(getAssignments());
+        return getTimeSeries().getTotalEffort();
+    }
+
+    /**
+     * @return the effort of the current assignments by day and resource.
+     *         Prefer it over {@link #getAssignments()} when only the effort
+     *         is needed
+     */
+    public DayAssignmentsTimeSeries getTimeSeries() {
+        return getDayAssignmentsState().getTimeSeries();
     }
 
     protected EffortDuration getIntendedNonConsolidatedEffort() {
@@ -1506,6 +1561,8 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
 
         private List<T> dayAssignmentsOrdered = null;
 
+        private DayAssignmentsTimeSeries timeSeries = null;
+
         protected List<T> getOrderedDayAssignments() {
             if (dayAssignmentsOrdered == null) {
                 dayAssignmentsOrdered = DayAssignment
@@ -1514,6 +1571,14 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
             return dayAssignmentsOrdered;
         }
 
+        protected DayAssignmentsTimeSeries getTimeSeries() {
+            if (timeSeries == null) {
+                timeSeries = DayAssignmentsTimeSeries
+                        .create(getOrderedDayAssignments());
+            }
+            return timeSeries;
+        }
+
         /**
          * It can be null. It allows to mark that the allocation is started in a
          * point within a day instead of the start of the day
@@ -1555,6 +1620,7 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
 
         protected void clearCachedData() {
             dayAssignmentsOrdered = null;
+            timeSeries = null;
         }
 
         private void setParentFor(Collection<? extends T> assignments) {
@@ -1975,9 +2041,53 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
 
     public EffortDuration getAssignedEffort(final Resource resource,
             IntraDayDate start, IntraDayDate endExclusive) {
-        List<DayAssignment> assignments = getAssingments(resource,
-                start.getDate(), endExclusive.asExclusiveEnd());
-        return getAssignedDuration(assignments, start, endExclusive);
+        Validate.notNull(resource);
+        return sumAssignedEffort(resource, start, endExclusive);
+    }
+
+    /**
+     * Only the first and the last days of the interval can be partially
+     * included, so just their assignments are checked. The effort of the days
+     * in between is taken from the {@link #getTimeSeries() time series}.
+     *
+     * @param resource
+     *            if <code>null</code> the effort of all the resources is
+     *            summed
+     */
+    private EffortDuration sumAssignedEffort(Resource resource,
+            IntraDayDate start, IntraDayDate endExclusive) {
+        LocalDate firstDay = start.getDate();
+        LocalDate lastDay = endExclusive.asExclusiveEnd().minusDays(1);
+        if (lastDay.isBefore(firstDay)) {
+            return zero();
+        }
+        EffortDuration result = getAssignedDuration(
+                getAssignmentsAt(resource, firstDay), start, endExclusive);
+        if (lastDay.isAfter(firstDay)) {
+            result = result.plus(
+                    getWholeDaysEffort(resource, firstDay.plusDays(1), lastDay))
+                    .plus(getAssignedDuration(
+                            getAssignmentsAt(resource, lastDay), start,
+                            endExclusive));
+        }
+        return result;
+    }
+
+    private EffortDuration getWholeDaysEffort(Resource resource,
+            LocalDate startInclusive, LocalDate endExclusive) {
+        DayAssignmentsTimeSeries timeSeries = getTimeSeries();
+        if (resource == null) {
+            return timeSeries.getEffort(startInclusive, endExclusive);
+        }
+        return timeSeries.getEffort(resource, startInclusive, endExclusive);
+    }
+
+    private List<DayAssignment> getAssignmentsAt(Resource resource,
+            LocalDate day) {
+        if (resource == null) {
+            return getAssignments(day, day.plusDays(1));
+        }
+        return getAssingments(resource, day, day.plusDays(1));
     }
 
     @Override
@@ -2030,9 +2140,7 @@ public abstract class ResourceAllocation<T extends DayAssignment> extends
 
     protected EffortDuration getAssignedDuration(IntraDayDate startInclusive,
             IntraDayDate endExclusive) {
-        return getAssignedDuration(
-                getAssignments(startInclusive, endExclusive), startInclusive,
-                endExclusive);
+        return sumAssignedEffort(null, startInclusive, endExclusive);
     }
 
     private EffortDuration sumDuration(
@@ -0,0 +1,279 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.entities;
+
+import static org.libreplan.business.util.EpochDays.fromEpochDay;
+import static org.libreplan.business.util.EpochDays.toEpochDay;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.LocalDate;
+import org.libreplan.business.common.BaseEntity;
+import org.libreplan.business.planner.daos.IDayAssignmentDAO;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+
+/**
+ * Load of several {@link Resource resources} on a scenario, shared by all of
+ * them.
+ * <p>
+ * The load of each resource is kept in windows of {@link #WINDOW_DAYS} days,
+ * each one with the effort of every day and the assignments contributing to
+ * it. A window is only loaded the first time some day in it is asked for. If
+ * the assignments of the resource are not in memory yet, the window is
+ * retrieved with one query for all the resources in the same situation, so
+ * allocating a task among many resources doesn't load their whole history.
+ * </p>
+ * <p>
+ * Once loaded, the windows are updated as assignments are added to or
+ * removed from the resources.
+ * </p>
+ *
+ * @see Resource#useLoadIndex(ResourceLoadIndex)
+ */
+public class ResourceLoadIndex {
+
+    public static final int WINDOW_DAYS = 28;
+
+    public static ResourceLoadIndex create(Scenario scenario,
+            IDayAssignmentDAO dayAssignmentDAO) {
+        return new ResourceLoadIndex(scenario, dayAssignmentDAO);
+    }
+
+    private final Scenario scenario;
+
+    private final IDayAssignmentDAO dayAssignmentDAO;
+
+    private final Map<Resource, Map<Integer, Window>> windowsByResource = new HashMap<Resource, Map<Integer, Window>>();
+
+    private ResourceLoadIndex(Scenario scenario,
+            IDayAssignmentDAO dayAssignmentDAO) {
+        Validate.notNull(scenario);
+        Validate.notNull(dayAssignmentDAO);
+        this.scenario = scenario;
+        this.dayAssignmentDAO = dayAssignmentDAO;
+    }
+
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    /**
+     * Starts keeping the load of the resource. If it was already kept, the
+     * windows loaded for it are discarded.
+     */
+    public void add(Resource resource) {
+        Validate.notNull(resource);
+        windowsByResource.put(resource, new HashMap<Integer, Window>());
+    }
+
+    /**
+     * @return the effort of the resource at the day of the assignments not
+     *         belonging to the provided allocations
+     * @see DayAssignment#belongsToSomeOf(Map)
+     */
+    public EffortDuration getEffortDiscounting(Resource resource,
+            Map<Long, Set<BaseEntity>> allocations, LocalDate day) {
+        return getWindow(resource, day).getEffortDiscounting(allocations, day);
+    }
+
+    public void added(Resource resource,
+            Collection<? extends DayAssignment> assignments) {
+        Map<Integer, Window> windows = windowsByResource.get(resource);
+        if (windows == null) {
+            return;
+        }
+        for (DayAssignment each : assignments) {
+            Window window = windows.get(windowNumber(each.getDay()));
+            if (window != null && isOfScenario(each)) {
+                window.add(each);
+            }
+        }
+    }
+
+    public void removed(Resource resource,
+            Collection<? extends DayAssignment> assignments) {
+        Map<Integer, Window> windows = windowsByResource.get(resource);
+        if (windows == null) {
+            return;
+        }
+        for (DayAssignment each : assignments) {
+            Window window = windows.get(windowNumber(each.getDay()));
+            if (window != null) {
+                window.remove(each);
+            }
+        }
+    }
+
+    private boolean isOfScenario(DayAssignment assignment) {
+        return assignment.getScenario() == null
+                || assignment.getScenario().equals(scenario);
+    }
+
+    private Window getWindow(Resource resource, LocalDate day) {
+        Map<Integer, Window> windows = windowsByResource.get(resource);
+        if (windows == null) {
+            add(resource);
+            windows = windowsByResource.get(resource);
+        }
+        int number = windowNumber(day);
+        Window result = windows.get(number);
+        if (result == null) {
+            if (resource.isDayAssignmentsLoaded()) {
+                result = loadFromMemory(resource, number);
+                windows.put(number, result);
+            } else {
+                loadFromDatabase(number);
+                result = windows.get(number);
+            }
+        }
+        return result;
+    }
+
+    private Window loadFromMemory(Resource resource, int number) {
+        Window result = new Window(number);
+        for (DayAssignment each : resource.getAssignments()) {
+            if (result.contains(each.getDay())) {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads the window for all the resources lacking it whose assignments are
+     * not in memory
+     */
+    private void loadFromDatabase(int number) {
+        List<Resource> resources = new ArrayList<Resource>();
+        Map<Long, Window> byResourceId = new HashMap<Long, Window>();
+        for (Map.Entry<Resource, Map<Integer, Window>> each : windowsByResource
+                .entrySet()) {
+            Resource resource = each.getKey();
+            if (!each.getValue().containsKey(number)
+                    && !resource.isDayAssignmentsLoaded()) {
+                Window window = new Window(number);
+                each.getValue().put(number, window);
+                resources.add(resource);
+                byResourceId.put(resource.getId(), window);
+            }
+        }
+        LocalDate start = fromEpochDay(number * WINDOW_DAYS);
+        for (DayAssignment each : dayAssignmentDAO.findByResources(scenario,
+                resources, start, start.plusDays(WINDOW_DAYS - 1))) {
+            Window window = byResourceId.get(each.getResource().getId());
+            if (window != null) {
+                window.add(each);
+            }
+        }
+    }
+
+    private static int windowNumber(LocalDate day) {
+        int epochDay = toEpochDay(day);
+        int result = epochDay / WINDOW_DAYS;
+        return epochDay % WINDOW_DAYS < 0 ? result - 1 : result;
+    }
+
+    private static class Window {
+
+        private final int firstEpochDay;
+
+        private final int[] effortSeconds = new int[WINDOW_DAYS];
+
+        private final List<List<DayAssignment>> assignmentsByDay = new ArrayList<List<DayAssignment>>();
+
+        Window(int number) {
+            this.firstEpochDay = number * WINDOW_DAYS;
+            for (int i = 0; i < WINDOW_DAYS; i++) {
+                assignmentsByDay.add(null);
+            }
+        }
+
+        boolean contains(LocalDate day) {
+            int position = toEpochDay(day) - firstEpochDay;
+            return position >= 0 && position < WINDOW_DAYS;
+        }
+
+        void add(DayAssignment assignment) {
+            int position = positionOf(assignment.getDay());
+            List<DayAssignment> assignments = assignmentsByDay.get(position);
+            if (assignments == null) {
+                assignments = new ArrayList<DayAssignment>();
+                assignmentsByDay.set(position, assignments);
+            }
+            assignments.add(assignment);
+            effortSeconds[position] += assignment.getDuration().getSeconds();
+        }
+
+        /**
+         * The assignment retrieved from the database can be another instance
+         * of the same row, so they are also compared by id
+         */
+        void remove(DayAssignment assignment) {
+            int position = positionOf(assignment.getDay());
+            List<DayAssignment> assignments = assignmentsByDay.get(position);
+            if (assignments == null) {
+                return;
+            }
+            Iterator<DayAssignment> iterator = assignments.iterator();
+            while (iterator.hasNext()) {
+                DayAssignment each = iterator.next();
+                if (each == assignment || assignment.getId() != null
+                        && assignment.getId().equals(each.getId())) {
+                    iterator.remove();
+                    effortSeconds[position] -= each.getDuration()
+                            .getSeconds();
+                    return;
+                }
+            }
+        }
+
+        EffortDuration getEffortDiscounting(
+                Map<Long, Set<BaseEntity>> allocations, LocalDate day) {
+            int position = positionOf(day);
+            int result = effortSeconds[position];
+            if (result == 0) {
+                return EffortDuration.zero();
+            }
+            for (DayAssignment each : assignmentsByDay.get(position)) {
+                BaseEntity parent = each.getParent();
+                if (parent != null
+                        && DayAssignment.isSomeOf(parent, allocations)) {
+                    result -= each.getDuration().getSeconds();
+                }
+            }
+            return EffortDuration.seconds(result);
+        }
+
+        private int positionOf(LocalDate day) {
+            return toEpochDay(day) - firstEpochDay;
+        }
+
+    }
+
+}
@@ -78,14 +78,14 @@ public class GapInterval {
 
     private GapInterval delimitByInterval(CalendarAvailability interval) {
         DateAndHour intervalStart = DateAndHour.from(interval.getStartDate());
-        DateAndHour intervalEnd = DateAndHour.from(interval.getEndDate());
+        // the end date of an activation period is included
+        DateAndHour intervalEnd = interval.getEndDate() != null ? DateAndHour
+                .from(interval.getEndDate().plusDays(1)) : null;
 
-        DateAndHour newStart = (start == null || intervalStart == null) ? null
-                : DateAndHour.max(start, intervalStart);
-        DateAndHour newEnd = (end == null || intervalEnd == null) ? null
-                : DateAndHour.min(end, intervalStart);
-        if ((newStart == null && newEnd == null)
-                || (newEnd != null && newStart.isAfter(newEnd))) {
+        // a null start or end is unbounded, so max and min ignore it
+        DateAndHour newStart = DateAndHour.max(start, intervalStart);
+        DateAndHour newEnd = DateAndHour.min(end, intervalEnd);
+        if (newEnd != null && newStart.isAfter(newEnd)) {
             // The period of time is not valid, as it's not an activated period
             // of time according to calendar
             return null;
@@ -0,0 +1,240 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.planner.limiting.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Keeps the gaps of a queue ordered by start time, so they can be added and
+ * removed one by one as the queue elements change instead of calculating all
+ * of them again.
+ * <p>
+ * The gaps of a queue don't overlap, so they are also ordered by end time.
+ * Each node knows the maximum {@link Gap#getHoursInGap() hours} of its
+ * subtree, so the first gap ending after some time with enough hours is found
+ * in logarithmic time. It's implemented as a treap: a binary search tree
+ * balanced with random priorities.
+ * </p>
+ *
+ * @see org.libreplan.business.resources.entities.LimitingResourceQueue
+ */
+public class GapsIndex {
+
+    private static class Node {
+
+        private final Gap gap;
+
+        private final int priority;
+
+        private Node left;
+
+        private Node right;
+
+        private int maxHoursInGap;
+
+        Node(Gap gap, int priority) {
+            this.gap = gap;
+            this.priority = priority;
+            update();
+        }
+
+        void update() {
+            maxHoursInGap = gap.getHoursInGap();
+            if (left != null) {
+                maxHoursInGap = Math.max(maxHoursInGap, left.maxHoursInGap);
+            }
+            if (right != null) {
+                maxHoursInGap = Math.max(maxHoursInGap, right.maxHoursInGap);
+            }
+        }
+
+    }
+
+    private static int maxHoursInGap(Node node) {
+        return node == null ? -1 : node.maxHoursInGap;
+    }
+
+    private static boolean endsAfter(Gap gap, DateAndHour time) {
+        return time == null || gap.getEndTime() == null
+                || gap.getEndTime().isAfter(time);
+    }
+
+    private final Random random = new Random();
+
+    private Node root;
+
+    private int size = 0;
+
+    public void add(Gap gap) {
+        root = insert(root, new Node(gap, random.nextInt()));
+        size++;
+    }
+
+    private static Node insert(Node node, Node newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (newNode.gap.compareTo(node.gap) < 0) {
+            node.left = insert(node.left, newNode);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, newNode);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node result = node.left;
+        node.left = result.right;
+        result.right = node;
+        node.update();
+        result.update();
+        return result;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node result = node.right;
+        node.right = result.left;
+        result.left = node;
+        node.update();
+        result.update();
+        return result;
+    }
+
+    public void remove(Gap gap) {
+        int previousSize = size;
+        root = remove(root, gap);
+        Validate.isTrue(size == previousSize - 1,
+                "the gap must be in the index");
+    }
+
+    private Node remove(Node node, Gap gap) {
+        if (node == null) {
+            return null;
+        }
+        if (node.gap == gap) {
+            size--;
+            return merge(node.left, node.right);
+        }
+        int comparison = gap.compareTo(node.gap);
+        if (comparison <= 0) {
+            node.left = remove(node.left, gap);
+        }
+        // several gaps can start at the same time if they are empty
+        if (comparison >= 0) {
+            node.right = remove(node.right, gap);
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return all the gaps ordered by start time
+     */
+    public List<Gap> getGaps() {
+        return getGapsEndingAfter(null);
+    }
+
+    /**
+     * @return the gaps that end after <code>time</code>, or never end,
+     *         ordered by start time. If <code>time</code> is
+     *         <code>null</code> all the gaps are returned
+     */
+    public List<Gap> getGapsEndingAfter(DateAndHour time) {
+        List<Gap> result = new ArrayList<Gap>();
+        addGapsEndingAfter(root, time, result);
+        return result;
+    }
+
+    private static void addGapsEndingAfter(Node node, DateAndHour time,
+            List<Gap> result) {
+        if (node == null) {
+            return;
+        }
+        if (endsAfter(node.gap, time)) {
+            addGapsEndingAfter(node.left, time, result);
+            result.add(node.gap);
+            addGapsEndingAfter(node.right, null, result);
+        } else {
+            // the previous gaps end before this one
+            addGapsEndingAfter(node.right, time, result);
+        }
+    }
+
+    /**
+     * @return the first gap ending after <code>time</code>, or never ending,
+     *         that has at least <code>hours</code>. <code>null</code> if there
+     *         is none
+     */
+    public Gap getFirstGapEndingAfter(DateAndHour time, int hours) {
+        Node result = findFirst(root, time, hours);
+        return result != null ? result.gap : null;
+    }
+
+    private static Node findFirst(Node node, DateAndHour time, int hours) {
+        if (maxHoursInGap(node) < hours) {
+            return null;
+        }
+        if (!endsAfter(node.gap, time)) {
+            return findFirst(node.right, time, hours);
+        }
+        Node result = findFirst(node.left, time, hours);
+        if (result != null) {
+            return result;
+        }
+        if (node.gap.getHoursInGap() >= hours) {
+            return node;
+        }
+        return findFirst(node.right, null, hours);
+    }
+
+}
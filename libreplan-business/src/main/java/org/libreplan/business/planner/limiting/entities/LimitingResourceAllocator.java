@@ -99,6 +99,11 @@ public class LimitingResourceAllocator {
      * It is possible that queue.resource does not hold element.criteria at any
      * interval of time
      *
+     * The gaps are the ones of the queue, so the gaps between two elements
+     * only include the parts inside the activation periods of the resource's
+     * calendar, as in {@link LimitingResourceQueue#getGaps()}. The gap after
+     * the last element is not delimited.
+     *
      * @param queue search gap inside queue
      * @param element element to fit into queue
      * @return
@@ -107,25 +112,19 @@ public class LimitingResourceAllocator {
             LimitingResourceQueue queue, LimitingResourceQueueElement element) {
 
         final Resource resource = queue.getResource();
-        final List<LimitingResourceQueueElement> elements = new LinkedList<LimitingResourceQueueElement>(
-                queue.getLimitingResourceQueueElements());
-        final int size = elements.size();
         final DateAndHour startTime = getStartTimeBecauseOfGantt(element);
-
-        int pos = 0;
-
-        // Iterate through queue elements
-        while (pos <= size) {
-            Gap gap = getGapInQueueAtPosition(
-                    resource, elements, startTime, pos++);
-
-            if (gap != null) {
-                List<Gap> subgaps = getFittingSubgaps(
-                        element, gap, resource);
-                if (!subgaps.isEmpty()) {
-                    return subgaps.get(0);
-                }
+        final int hours = element.getIntentedTotalHours();
+
+        // Only the gaps of the queue with enough hours are checked
+        Gap each = queue.getFirstGapEndingAfter(startTime, hours);
+        while (each != null) {
+            List<Gap> subgaps = getFittingSubgaps(element,
+                    startingSince(resource, each, startTime), resource);
+            if (!subgaps.isEmpty()) {
+                return subgaps.get(0);
             }
+            each = each.getEndTime() != null ? queue.getFirstGapEndingAfter(
+                    each.getEndTime(), hours) : null;
         }
 
         // The queue cannot hold this element (queue.resource
@@ -133,6 +132,17 @@ public class LimitingResourceAllocator {
         return null;
     }
 
+    /**
+     * @return the part of the gap after <code>since</code>
+     */
+    private static Gap startingSince(Resource resource, Gap gap,
+            DateAndHour since) {
+        if (gap.getStartTime() != null && !gap.getStartTime().isBefore(since)) {
+            return gap;
+        }
+        return Gap.create(resource, since, gap.getEndTime());
+    }
+
     private static List<Gap> getFittingSubgaps(
             LimitingResourceQueueElement element,
             final Gap gap, final Resource resource) {
@@ -167,50 +177,15 @@ public class LimitingResourceAllocator {
         List<Gap> result = new ArrayList<Gap>();
 
         final Resource resource = queue.getResource();
-        final List<LimitingResourceQueueElement> elements = new LinkedList<LimitingResourceQueueElement>(
-                queue.getLimitingResourceQueueElements());
-        final int size = elements.size();
-
-        int pos = moveUntil(elements, since);
-
-        // Iterate through queue elements
-        while (pos <= size) {
-            Gap gap = getGapInQueueAtPosition(
-                    resource, elements, since, pos++);
-
+        for (Gap each : queue.getGapsEndingAfter(since)) {
             // The queue cannot hold this element (queue.resource
             // doesn't meet element.criteria)
-            if (gap != null) {
-                List<Gap> subgaps = getFittingSubgaps(
-                        element, gap, resource);
-                result.addAll(subgaps);
-            }
+            result.addAll(getFittingSubgaps(element,
+                    startingSince(resource, each, since), resource));
         }
-
         return result;
     }
 
-    private static int moveUntil(List<LimitingResourceQueueElement> elements, DateAndHour until) {
-        int pos = 0;
-
-        if (elements.size() > 0) {
-            // Space between until and first element start time
-            LimitingResourceQueueElement first = elements.get(0);
-            if (until.isBefore(first.getStartTime())) {
-                return 0;
-            }
-
-            for (pos = 1; pos < elements.size(); pos++) {
-                final LimitingResourceQueueElement each = elements.get(pos);
-                final DateAndHour startTime = each.getStartTime();
-                if (until.isBefore(startTime) || until.isEquals(startTime)) {
-                    return pos;
-                }
-            }
-        }
-        return pos;
-    }
-
     private static boolean isGeneric(LimitingResourceQueueElement element) {
         return element.getResourceAllocation() instanceof GenericResourceAllocation;
     }
@@ -229,58 +204,10 @@ public class LimitingResourceAllocator {
         return new DateAndHour(end.getDay(), end.getHours());
     }
 
-    private static Gap getGapInQueueAtPosition(
-            Resource resource, List<LimitingResourceQueueElement> elements,
-            DateAndHour startTimeBecauseOfGantt, int pos) {
-
-        final int size = elements.size();
-
-        // No elements in queue
-        if (size == 0) {
-            return createLastGap(startTimeBecauseOfGantt, null, resource);
-        }
-
-        // Last element
-        if (pos == size) {
-            return createLastGap(startTimeBecauseOfGantt, elements.get(size - 1), resource);
-        }
-
-        LimitingResourceQueueElement next = elements.get(pos);
-
-        // First element
-        if (pos == 0
-                && startTimeBecauseOfGantt.getDate().isBefore(
-                        next.getStartDate())) {
-            return Gap.create(resource,
-                    startTimeBecauseOfGantt, next.getStartTime());
-        }
-
-        // In the middle of two elements
-        if (pos > 0) {
-            LimitingResourceQueueElement previous = elements.get(pos - 1);
-            return Gap.create(resource, DateAndHour
-                    .max(previous.getEndTime(), startTimeBecauseOfGantt), next
-                    .getStartTime());
-        }
-
-        return null;
-    }
-
     private static DateAndHour getStartTimeBecauseOfGantt(LimitingResourceQueueElement element) {
         return new DateAndHour(new LocalDate(element.getEarliestStartDateBecauseOfGantt()), 0);
     }
 
-    private static Gap createLastGap(
-            DateAndHour _startTime, LimitingResourceQueueElement lastElement,
-            Resource resource) {
-
-        final DateAndHour queueEndTime = (lastElement != null) ? lastElement
-                .getEndTime() : null;
-        DateAndHour startTime = DateAndHour.max(_startTime, queueEndTime);
-        return Gap
-                .create(resource, startTime, null);
-    }
-
     /**
      * Generates a list of {@link DayAssignment} for {@link Resource} starting
      * from startTime
@@ -124,10 +124,29 @@ public class LimitingResourceQueueElement extends BaseEntity {
     }
 
     public void setStartDate(LocalDate date) {
+        notifyQueueElementIsMoving();
         startQueuePosition.setDate(date);
         notifyQueueElementIsMoved();
     }
 
+    /**
+     * Moves the element notifying its queue only once
+     */
+    public void moveTo(DateAndHour startTime, DateAndHour endTime) {
+        notifyQueueElementIsMoving();
+        startQueuePosition.setDate(startTime.getDate());
+        startQueuePosition.setHour(startTime.getHour());
+        endQueuePosition.setDate(endTime.getDate());
+        endQueuePosition.setHour(endTime.getHour());
+        notifyQueueElementIsMoved();
+    }
+
+    private void notifyQueueElementIsMoving() {
+        if (getLimitingResourceQueue() != null) {
+            getLimitingResourceQueue().queueElementMoving(this);
+        }
+    }
+
     private void notifyQueueElementIsMoved() {
         if (getLimitingResourceQueue() != null) {
             getLimitingResourceQueue().queueElementMoved(this);
@@ -139,6 +158,7 @@ public class LimitingResourceQueueElement extends BaseEntity {
     }
 
     public void setStartHour(int hour) {
+        notifyQueueElementIsMoving();
         startQueuePosition.setHour(hour);
         notifyQueueElementIsMoved();
     }
@@ -148,8 +168,9 @@ public class LimitingResourceQueueElement extends BaseEntity {
     }
 
     public void setEndDate(LocalDate date) {
-        notifyQueueElementIsMoved();
+        notifyQueueElementIsMoving();
         endQueuePosition.setDate(date);
+        notifyQueueElementIsMoved();
     }
 
     public int getEndHour() {
@@ -157,6 +178,7 @@ public class LimitingResourceQueueElement extends BaseEntity {
     }
 
     public void setEndHour(int hour) {
+        notifyQueueElementIsMoving();
         endQueuePosition.setHour(hour);
         notifyQueueElementIsMoved();
     }
@@ -21,6 +21,7 @@
 
 package org.libreplan.business.resources.daos;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -120,4 +121,11 @@ public interface IResourceDAO extends IIntegrationEntityDAO<Resource> {
      */
     List<HoursWorkedPerWorkerInAMonthDTO> getWorkingHoursPerWorker(Integer year, Integer month);
 
+    /**
+     * Initializes with a few queries the day assignments of the provided
+     * resources, along with the containers that tell the scenario each one
+     * belongs to
+     */
+    void prefetchDayAssignments(Collection<? extends Resource> resources);
+
 }
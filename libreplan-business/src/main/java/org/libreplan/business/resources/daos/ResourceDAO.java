@@ -22,6 +22,8 @@
 package org.libreplan.business.resources.daos;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -264,4 +266,25 @@ public class ResourceDAO extends IntegrationEntityDAO<Resource> implements
         return result;
     }
 
+    @Override
+    public void prefetchDayAssignments(Collection<? extends Resource> resources) {
+        List<Long> ids = getIds(resources);
+        if (ids.isEmpty()) {
+            return;
+        }
+        listInChunks(getSession().createQuery(
+                "SELECT DISTINCT r FROM Resource r "
+                        + "LEFT JOIN FETCH r.dayAssignments "
+                        + "WHERE r.id IN (:ids)"), "ids", ids);
+        for (String container : Arrays.asList(
+                "SpecificDayAssignmentsContainer",
+                "GenericDayAssignmentsContainer",
+                "DerivedDayAssignmentsContainer")) {
+            listInChunks(getSession().createQuery(
+                    "SELECT DISTINCT c FROM " + container + " c "
+                            + "JOIN c.dayAssignments d "
+                            + "WHERE d.resource.id IN (:ids)"), "ids", ids);
+        }
+    }
+
 }
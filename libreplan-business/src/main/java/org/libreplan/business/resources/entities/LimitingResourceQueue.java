@@ -28,18 +28,21 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 import org.libreplan.business.calendars.entities.CalendarAvailability;
-import org.libreplan.business.calendars.entities.ResourceCalendar;
 import org.libreplan.business.common.BaseEntity;
 import org.libreplan.business.planner.limiting.entities.DateAndHour;
 import org.libreplan.business.planner.limiting.entities.Gap;
 import org.libreplan.business.planner.limiting.entities.Gap.GapOnQueue;
 import org.libreplan.business.planner.limiting.entities.GapInterval;
+import org.libreplan.business.planner.limiting.entities.GapsIndex;
 import org.libreplan.business.planner.limiting.entities.InsertionRequirements;
 import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
 /**
@@ -54,7 +57,18 @@ public class LimitingResourceQueue extends BaseEntity {
     private SortedSet<LimitingResourceQueueElement> limitingResourceQueueElements =
         new TreeSet<LimitingResourceQueueElement>(new LimitingResourceQueueElementComparator());
 
-    private List<GapOnQueue> cachedGaps;
+    /**
+     * It's created the first time the gaps are needed and then it's updated
+     * when the elements are added, removed or moved
+     */
+    private GapsIndex gapsIndex;
+
+    /**
+     * The gaps just before each element
+     */
+    private Map<LimitingResourceQueueElement, List<Gap>> gapsBefore;
+
+    private List<Gap> gapsAfterLast;
 
     public static Collection<LimitingResourceQueue> queuesOf(
             Collection<LimitingResourceQueueElement> queueElements) {
@@ -84,46 +98,131 @@ public class LimitingResourceQueue extends BaseEntity {
     public void addLimitingResourceQueueElement(LimitingResourceQueueElement element) {
         element.setLimitingResourceQueue(this);
         limitingResourceQueueElements.add(element);
-        invalidCachedGaps();
+        addToGapsIndex(element);
     }
 
     public void removeLimitingResourceQueueElement(LimitingResourceQueueElement element) {
+        removeFromGapsIndex(element);
         limitingResourceQueueElements.remove(element);
         element.detach();
-        invalidCachedGaps();
     }
 
-    private void invalidCachedGaps() {
-        cachedGaps = null;
+    private GapsIndex getGapsIndex() {
+        if (gapsIndex == null) {
+            gapsIndex = new GapsIndex();
+            gapsBefore = new IdentityHashMap<LimitingResourceQueueElement, List<Gap>>();
+            gapsAfterLast = Collections.emptyList();
+            LimitingResourceQueueElement previous = null;
+            for (LimitingResourceQueueElement each : limitingResourceQueueElements) {
+                replaceGapsBetween(previous, each);
+                previous = each;
+            }
+            replaceGapsBetween(previous, null);
+        }
+        return gapsIndex;
     }
 
-    public List<GapOnQueue> getGaps() {
-        if (cachedGaps == null) {
-            cachedGaps = calculateGaps();
+    private void addToGapsIndex(LimitingResourceQueueElement element) {
+        if (gapsIndex == null) {
+            return;
         }
-        return cachedGaps;
+        replaceGapsBetween(previousTo(element), element);
+        replaceGapsBetween(element, nextTo(element));
     }
 
-    private List<GapOnQueue> calculateGaps() {
-        List<Gap> result = new ArrayList<Gap>();
-        DateAndHour previousEnd = null;
-        ResourceCalendar calendar = resource.getCalendar();
-        List<CalendarAvailability> activationPeriods = calendar.getCalendarAvailabilities();
-
-        for (LimitingResourceQueueElement each : limitingResourceQueueElements) {
-            DateAndHour startTime = each.getStartTime();
-            if (previousEnd == null || startTime.isAfter(previousEnd)) {
-                List<GapInterval> gapIntervals = GapInterval.
-                        create(previousEnd, startTime).
-                        delimitByActivationPeriods(activationPeriods);
-                if (!gapIntervals.isEmpty()) {
-                    result.addAll(GapInterval.gapsOn(gapIntervals, resource));
-                }
+    /**
+     * It must be called while the element is still in the queue
+     */
+    private void removeFromGapsIndex(LimitingResourceQueueElement element) {
+        if (gapsIndex == null) {
+            return;
+        }
+        if (!gapsBefore.containsKey(element)) {
+            return;
+        }
+        LimitingResourceQueueElement previous = previousTo(element);
+        LimitingResourceQueueElement next = nextTo(element);
+        for (Gap each : gapsBefore.remove(element)) {
+            gapsIndex.remove(each);
+        }
+        replaceGapsBetween(previous, next);
+    }
+
+    private LimitingResourceQueueElement previousTo(
+            LimitingResourceQueueElement element) {
+        SortedSet<LimitingResourceQueueElement> previous = limitingResourceQueueElements
+                .headSet(element);
+        return previous.isEmpty() ? null : previous.last();
+    }
+
+    private LimitingResourceQueueElement nextTo(
+            LimitingResourceQueueElement element) {
+        Iterator<LimitingResourceQueueElement> iterator = limitingResourceQueueElements
+                .tailSet(element).iterator();
+        // the tail set starts with the element itself
+        iterator.next();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * Replaces the gaps between two consecutive elements. A <code>null</code>
+     * previous means the start of the queue and a <code>null</code> next its
+     * end.
+     */
+    private void replaceGapsBetween(LimitingResourceQueueElement previous,
+            LimitingResourceQueueElement next) {
+        List<Gap> gaps = calculateGapsBetween(
+                previous != null ? previous.getEndTime() : null, next);
+        List<Gap> replaced = next != null ? gapsBefore.put(next, gaps)
+                : gapsAfterLast;
+        if (next == null) {
+            gapsAfterLast = gaps;
+        }
+        if (replaced != null) {
+            for (Gap each : replaced) {
+                gapsIndex.remove(each);
             }
-            previousEnd = each.getEndTime();
         }
-        result.add(Gap.create(resource, previousEnd, null));
-        return GapOnQueue.onQueue(this, result);
+        for (Gap each : gaps) {
+            gapsIndex.add(each);
+        }
+    }
+
+    private List<Gap> calculateGapsBetween(DateAndHour previousEnd,
+            LimitingResourceQueueElement next) {
+        if (next == null) {
+            return Collections.singletonList(Gap.create(resource, previousEnd,
+                    null));
+        }
+        DateAndHour startTime = next.getStartTime();
+        if (previousEnd != null && !startTime.isAfter(previousEnd)) {
+            return Collections.emptyList();
+        }
+        List<CalendarAvailability> activationPeriods = resource.getCalendar()
+                .getCalendarAvailabilities();
+        List<GapInterval> gapIntervals = GapInterval.create(previousEnd,
+                startTime).delimitByActivationPeriods(activationPeriods);
+        return new ArrayList<Gap>(GapInterval.gapsOn(gapIntervals, resource));
+    }
+
+    public List<GapOnQueue> getGaps() {
+        return GapOnQueue.onQueue(this, getGapsIndex().getGaps());
+    }
+
+    /**
+     * @return the gaps that end after <code>time</code>, or never end,
+     *         ordered by start date
+     */
+    public List<Gap> getGapsEndingAfter(DateAndHour time) {
+        return getGapsIndex().getGapsEndingAfter(time);
+    }
+
+    /**
+     * @return the first gap ending after <code>time</code> with at least
+     *         <code>hours</code>, or <code>null</code> if there is none
+     */
+    public Gap getFirstGapEndingAfter(DateAndHour time, int hours) {
+        return getGapsIndex().getFirstGapEndingAfter(time, hours);
     }
 
     public SortedSet<LimitingResourceQueueElement> getLimitingResourceQueueElements() {
@@ -136,13 +235,14 @@ public class LimitingResourceQueue extends BaseEntity {
      */
     public List<GapOnQueue> getGapsPotentiallyValidFor(
             InsertionRequirements requirements) {
-        List<GapOnQueue> result = new ArrayList<GapOnQueue>();
-        for (GapOnQueue each : getGaps()) {
-            if (requirements.isPotentiallyValid(each.getGap())) {
+        List<Gap> result = new ArrayList<Gap>();
+        for (Gap each : getGapsEndingAfter(requirements
+                .getEarliestPossibleStart())) {
+            if (requirements.isPotentiallyValid(each)) {
                 result.add(each);
             }
         }
-        return result;
+        return GapOnQueue.onQueue(this, result);
     }
 
     public List<LimitingResourceQueueElement> getElementsAfter(
@@ -166,9 +266,22 @@ public class LimitingResourceQueue extends BaseEntity {
         return result;
     }
 
+    /**
+     * Called just before the start or end of one of its elements change. The
+     * element is taken out of the queue until it's
+     * {@link #queueElementMoved(LimitingResourceQueueElement) moved}, so the
+     * elements are kept sorted.
+     */
+    public void queueElementMoving(
+            LimitingResourceQueueElement limitingResourceQueueElement) {
+        removeFromGapsIndex(limitingResourceQueueElement);
+        limitingResourceQueueElements.remove(limitingResourceQueueElement);
+    }
+
     public void queueElementMoved(
             LimitingResourceQueueElement limitingResourceQueueElement) {
-        invalidCachedGaps();
+        limitingResourceQueueElements.add(limitingResourceQueueElement);
+        addToGapsIndex(limitingResourceQueueElement);
     }
 
     public String toString() {
@@ -42,6 +42,7 @@ import javax.validation.constraints.AssertTrue;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
+import org.hibernate.Hibernate;
 import org.joda.time.LocalDate;
 import org.libreplan.business.calendars.entities.AvailabilityTimeLine;
 import org.libreplan.business.calendars.entities.BaseCalendar;
@@ -61,7 +62,9 @@ import org.libreplan.business.costcategories.entities.CostCategory;
 import org.libreplan.business.costcategories.entities.ResourcesCostCategoryAssignment;
 import org.libreplan.business.planner.entities.AvailabilityCalculator;
 import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.DayAssignmentsTimeSeries;
 import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.ResourceLoadIndex;
 import org.libreplan.business.resources.daos.IResourceDAO;
 import org.libreplan.business.scenarios.entities.Scenario;
 import org.libreplan.business.workingday.EffortDuration;
@@ -135,7 +138,9 @@ public abstract class Resource extends IntegrationEntity implements
 
     private Set<DayAssignment> dayAssignments = new HashSet<DayAssignment>();
 
-    private Map<LocalDate, List<DayAssignment>> assignmentsByDayCached = null;
+    private DayAssignmentsTimeSeries timeSeriesCached = null;
+
+    private ResourceLoadIndex loadIndex = null;
 
     private Set<ResourcesCostCategoryAssignment> resourcesCostCategoryAssignments =
         new HashSet<ResourcesCostCategoryAssignment>();
@@ -145,19 +150,16 @@ public abstract class Resource extends IntegrationEntity implements
     private LimitingResourceQueue limitingResourceQueue;
 
     private void clearCachedData() {
-        assignmentsByDayCached = null;
+        timeSeriesCached = null;
         dayAssignmentsState.clearCachedData();
     }
 
-    private List<DayAssignment> getAssignmentsForDay(LocalDate date) {
-        if (assignmentsByDayCached == null) {
-            assignmentsByDayCached = DayAssignment.byDay(getAssignments());
-        }
-        List<DayAssignment> list = assignmentsByDayCached.get(date);
-        if (list == null){
-            return Collections.emptyList();
+    private DayAssignmentsTimeSeries getTimeSeries() {
+        if (timeSeriesCached == null) {
+            timeSeriesCached = DayAssignmentsTimeSeries
+                    .create(getAssignments());
         }
-        return list;
+        return timeSeriesCached;
     }
 
     private abstract class DayAssignmentsState {
@@ -852,21 +854,23 @@ public abstract class Resource extends IntegrationEntity implements
     }
 
     public EffortDuration getAssignedEffort(LocalDate localDate) {
-        return DayAssignment.sum(getAssignmentsForDay(localDate));
+        return getTimeSeries().getEffortAt(localDate);
+    }
+
+    public EffortDuration getAssignedEffort(LocalDate startInclusive,
+            LocalDate endExclusive) {
+        return getTimeSeries().getEffort(startInclusive, endExclusive);
     }
 
     public EffortDuration getAssignedDurationDiscounting(
             Map<Long, Set<BaseEntity>> allocationsFromWhichDiscountHours,
             LocalDate day) {
-        EffortDuration result = zero();
-        for (DayAssignment dayAssignment : getAssignmentsForDay(day)) {
-
-            if (!dayAssignment
-                    .belongsToSomeOf(allocationsFromWhichDiscountHours)) {
-                result = result.plus(dayAssignment.getDuration());
-            }
+        if (loadIndex != null) {
+            return loadIndex.getEffortDiscounting(this,
+                    allocationsFromWhichDiscountHours, day);
         }
-        return result;
+        return getTimeSeries().getEffortDiscounting(
+                allocationsFromWhichDiscountHours, day);
     }
 
     public void addNewAssignments(Collection<? extends DayAssignment> assignments) {
@@ -874,6 +878,9 @@ public abstract class Resource extends IntegrationEntity implements
         Validate.noNullElements(assignments);
         clearCachedData();
         this.dayAssignments.addAll(assignments);
+        if (loadIndex != null) {
+            loadIndex.added(this, assignments);
+        }
     }
 
     public void removeAssignments(
@@ -881,6 +888,17 @@ public abstract class Resource extends IntegrationEntity implements
         Validate.noNullElements(assignments);
         clearCachedData();
         this.dayAssignments.removeAll(assignments);
+        if (loadIndex != null) {
+            loadIndex.removed(this, assignments);
+        }
+    }
+
+    /**
+     * @return if the {@link DayAssignment day assignments} of the resource are
+     *         in memory, so retrieving them doesn't hit the database
+     */
+    public boolean isDayAssignmentsLoaded() {
+        return Hibernate.isInitialized(dayAssignments);
     }
 
     public List<DayAssignment> getAssignments() {
@@ -889,6 +907,20 @@ public abstract class Resource extends IntegrationEntity implements
 
     public void useScenario(Scenario scenario) {
         dayAssignmentsState = new OnSpecifiedScenario(scenario);
+        loadIndex = null;
+        clearCachedData();
+    }
+
+    /**
+     * Uses the scenario of the provided index and looks up there the load of
+     * the resource when discounting allocations, so only the days asked for
+     * are loaded.
+     */
+    public void useLoadIndex(ResourceLoadIndex loadIndex) {
+        Validate.notNull(loadIndex);
+        useScenario(loadIndex.getScenario());
+        this.loadIndex = loadIndex;
+        loadIndex.add(this);
     }
 
     public int getTotalWorkHours(LocalDate start, LocalDate end) {
@@ -922,6 +954,11 @@ public abstract class Resource extends IntegrationEntity implements
             IntraDayDate startInclusive, IntraDayDate endExclusive,
             final ICriterion criterionToSatisfy) {
 
+        if (criterionToSatisfy == null && calendar instanceof BaseCalendar) {
+            return ((BaseCalendar) calendar).getCapacityBetween(
+                    startInclusive, endExclusive);
+        }
+
         Iterable<PartialDay> daysBetween = startInclusive
                 .daysUntil(endExclusive);
 
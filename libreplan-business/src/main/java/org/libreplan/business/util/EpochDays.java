@@ -0,0 +1,50 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.util;
+
+import org.joda.time.DateTimeConstants;
+import org.joda.time.LocalDate;
+import org.joda.time.chrono.ISOChronology;
+
+/**
+ * Conversions between {@link LocalDate} and the number of days since
+ * 1970-01-01. They allow to index by day arrays of primitive values.
+ */
+public class EpochDays {
+
+    private EpochDays() {
+    }
+
+    public static int toEpochDay(LocalDate date) {
+        long millis = ISOChronology.getInstanceUTC().getDateTimeMillis(
+                date.getYear(), date.getMonthOfYear(), date.getDayOfMonth(), 0);
+        long days = millis / DateTimeConstants.MILLIS_PER_DAY;
+        if (millis % DateTimeConstants.MILLIS_PER_DAY < 0) {
+            days--;
+        }
+        return (int) days;
+    }
+
+    public static LocalDate fromEpochDay(int epochDay) {
+        return new LocalDate(epochDay * (long) DateTimeConstants.MILLIS_PER_DAY,
+                ISOChronology.getInstanceUTC());
+    }
+
+}
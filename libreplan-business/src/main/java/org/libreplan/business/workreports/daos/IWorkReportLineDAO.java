@@ -25,6 +25,7 @@ import java.util.Date;
 import java.util.List;
 
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
+import org.libreplan.business.common.daos.IScrollVisitor;
 import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.reports.dtos.WorkReportLineDTO;
 import org.libreplan.business.resources.entities.Resource;
@@ -84,4 +85,18 @@ public interface IWorkReportLineDAO extends
     List<WorkReportLine> findByOrderElementAndChildrenFilteredByDate(
             OrderElement orderElement, Date start, Date end, boolean sortByDate);
 
+    /**
+     * Goes through the {@link WorkReportLine WorkReportLines} between the
+     * dates, ordered by code, without retrieving all of them at once.<br />
+     *
+     * Any of the parameters can be <code>null</code>. If
+     * <code>afterCode</code> is not <code>null</code> only the lines with a
+     * greater code are visited, and no more than <code>limit</code> lines are
+     * visited if it's not <code>null</code>. This way the lines can be
+     * retrieved in pages, starting each one after the last code of the
+     * previous page.
+     */
+    void scrollOrderedByCode(Date start, Date end, String afterCode,
+            Integer limit, IScrollVisitor<WorkReportLine> visitor);
+
 }
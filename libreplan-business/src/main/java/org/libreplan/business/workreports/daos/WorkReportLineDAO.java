@@ -24,12 +24,14 @@ package org.libreplan.business.workreports.daos;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
 import org.hibernate.criterion.Restrictions;
+import org.libreplan.business.common.daos.IScrollVisitor;
 import org.libreplan.business.common.daos.IntegrationEntityDAO;
 import org.libreplan.business.orders.entities.OrderElement;
 import org.libreplan.business.reports.dtos.WorkReportLineDTO;
@@ -55,6 +57,8 @@ import org.springframework.transaction.annotation.Transactional;
 public class WorkReportLineDAO extends IntegrationEntityDAO<WorkReportLine>
         implements IWorkReportLineDAO {
 
+    private static final int SCROLL_CLEAR_INTERVAL = 500;
+
     @SuppressWarnings("unchecked")
     @Override
     public List<WorkReportLine> findByOrderElement(OrderElement orderElement){
@@ -91,7 +95,10 @@ public class WorkReportLineDAO extends IntegrationEntityDAO<WorkReportLine>
         return findByOrderElementAndChildren(orderElement, false);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * The lines are searched by the ids of the elements, so the elements not
+     * saved yet are skipped instead of making the query fail
+     */
     @Override
     @Transactional(readOnly=true)
     public List<WorkReportLine> findByOrderElementAndChildren(OrderElement orderElement, boolean sortByDate) {
@@ -99,13 +106,19 @@ public class WorkReportLineDAO extends IntegrationEntityDAO<WorkReportLine>
         Collection<OrderElement> orderElements = orderElement.getAllChildren();
         orderElements.add(orderElement);
 
-        // Prepare criteria
-        final Criteria criteria = getSession().createCriteria(WorkReportLine.class);
-        criteria.add(Restrictions.in("orderElement", orderElements));
+        List<WorkReportLine> result = listInChunks(getSession().createQuery(
+                "FROM WorkReportLine wrl WHERE wrl.orderElement.id IN (:ids)"),
+                "ids", getIds(orderElements));
         if (sortByDate) {
-            criteria.addOrder(org.hibernate.criterion.Order.asc("date"));
+            Collections.sort(result, new Comparator<WorkReportLine>() {
+
+                @Override
+                public int compare(WorkReportLine o1, WorkReportLine o2) {
+                    return o1.getDate().compareTo(o2.getDate());
+                }
+            });
         }
-        return criteria.list();
+        return result;
     }
 
     @Override
@@ -245,4 +258,35 @@ public class WorkReportLineDAO extends IntegrationEntityDAO<WorkReportLine>
 
     }
 
+    @Override
+    public void scrollOrderedByCode(Date start, Date end, String afterCode,
+            Integer limit, IScrollVisitor<WorkReportLine> visitor) {
+        String strQuery = "SELECT wrl FROM WorkReportLine wrl WHERE 1 = 1 ";
+        if (start != null) {
+            strQuery += "AND wrl.date >= :start ";
+        }
+        if (end != null) {
+            strQuery += "AND wrl.date <= :end ";
+        }
+        if (afterCode != null) {
+            strQuery += "AND wrl.code > :afterCode ";
+        }
+        strQuery += "ORDER BY wrl.code";
+
+        Query query = getSession().createQuery(strQuery);
+        if (start != null) {
+            query.setParameter("start", start);
+        }
+        if (end != null) {
+            query.setParameter("end", end);
+        }
+        if (afterCode != null) {
+            query.setParameter("afterCode", afterCode);
+        }
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        scroll(query, SCROLL_CLEAR_INTERVAL, visitor);
+    }
+
 }
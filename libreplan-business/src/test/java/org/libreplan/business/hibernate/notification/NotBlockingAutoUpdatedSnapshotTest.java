@@ -0,0 +1,121 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.hibernate.notification;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link NotBlockingAutoUpdatedSnapshot}.
+ */
+public class NotBlockingAutoUpdatedSnapshotTest {
+
+    private ExecutorService reloadsExecutor;
+
+    private ExecutorService readersExecutor;
+
+    private AtomicInteger calculations;
+
+    private CountDownLatch reloadsBlocked;
+
+    private NotBlockingAutoUpdatedSnapshot<Integer> snapshot;
+
+    @Before
+    public void createSnapshot() {
+        reloadsExecutor = Executors.newFixedThreadPool(2);
+        readersExecutor = Executors.newSingleThreadExecutor();
+        calculations = new AtomicInteger();
+        reloadsBlocked = new CountDownLatch(1);
+        snapshot = new NotBlockingAutoUpdatedSnapshot<Integer>("test",
+                new Callable<Integer>() {
+
+                    @Override
+                    public Integer call() throws Exception {
+                        int result = calculations.incrementAndGet();
+                        if (result > 1) {
+                            reloadsBlocked.await();
+                        }
+                        return result;
+                    }
+                });
+    }
+
+    @After
+    public void shutdownExecutors() {
+        reloadsBlocked.countDown();
+        reloadsExecutor.shutdownNow();
+        readersExecutor.shutdownNow();
+    }
+
+    @Test
+    public void theLatestValueWaitsForTheOngoingReload() throws Exception {
+        snapshot.reloadNeeded(reloadsExecutor);
+        assertEquals(1, snapshot.getValue().intValue());
+
+        snapshot.reloadNeeded(reloadsExecutor);
+        Future<Integer> latest = waitForLatestValue();
+        assertEquals(1, snapshot.getValue().intValue());
+
+        reloadsBlocked.countDown();
+        assertEquals(2, latest.get(5, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void theLatestValueWaitsForTheReloadReplacingACancelledOne()
+            throws Exception {
+        snapshot.reloadNeeded(reloadsExecutor);
+        assertEquals(1, snapshot.getValue().intValue());
+
+        snapshot.reloadNeeded(reloadsExecutor);
+        Future<Integer> latest = waitForLatestValue();
+        snapshot.reloadNeeded(reloadsExecutor);
+
+        reloadsBlocked.countDown();
+        assertEquals(3, latest.get(5, TimeUnit.SECONDS).intValue());
+    }
+
+    private Future<Integer> waitForLatestValue() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        Future<Integer> result = readersExecutor
+                .submit(new Callable<Integer>() {
+
+                    @Override
+                    public Integer call() {
+                        started.countDown();
+                        return snapshot.getLatestValue();
+                    }
+                });
+        started.await();
+        // gives it time to start waiting for the ongoing reload
+        Thread.sleep(100);
+        return result;
+    }
+
+}
@@ -0,0 +1,525 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.hibernate.notification;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.easymock.IAnswer;
+import org.hibernate.LazyInitializationException;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.advance.entities.DirectAdvanceAssignment;
+import org.libreplan.business.calendars.entities.ICalendar;
+import org.libreplan.business.common.exceptions.InstanceNotFoundException;
+import org.libreplan.business.hibernate.notification.IAutoUpdatedSnapshot.IIncrementalCalculation;
+import org.libreplan.business.orders.daos.IOrderElementDAO;
+import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.orders.entities.TaskSource;
+import org.libreplan.business.planner.chart.ResourceLoadChartData;
+import org.libreplan.business.planner.daos.IDayAssignmentDAO;
+import org.libreplan.business.planner.daos.ITaskElementDAO;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.DerivedDayAssignment;
+import org.libreplan.business.planner.entities.ICostCalculator;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.business.planner.entities.TaskElement;
+import org.libreplan.business.resources.daos.IResourceDAO;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests that the incremental calculations of
+ * {@link PredefinedDatabaseSnapshots} give the same values as calculating
+ * them again from scratch, and that they ask for a full reload when they
+ * can't.
+ */
+public class PredefinedDatabaseSnapshotsTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private static final int DAYS = 30;
+
+    private PredefinedDatabaseSnapshots snapshots;
+
+    /**
+     * The day assignments in the database
+     */
+    private List<DayAssignment> dayAssignments;
+
+    private int resourcesListed;
+
+    private List<Resource> resources;
+
+    private List<TaskElement> tasks;
+
+    private Map<Task, SortedMap<LocalDate, BigDecimal>> costs;
+
+    private Map<Long, OrderElement> orderElements;
+
+    @Before
+    public void setUp() {
+        dayAssignments = new ArrayList<DayAssignment>();
+        resourcesListed = 0;
+        resources = Arrays.<Resource> asList(worker(), worker());
+        tasks = new ArrayList<TaskElement>();
+        costs = new HashMap<Task, SortedMap<LocalDate, BigDecimal>>();
+        orderElements = new HashMap<Long, OrderElement>();
+        snapshots = new PredefinedDatabaseSnapshots();
+        ReflectionTestUtils.setField(snapshots, "dayAssignmentDAO",
+                dayAssignmentDAO());
+        ReflectionTestUtils.setField(snapshots, "resourceDAO", resourceDAO());
+        ReflectionTestUtils.setField(snapshots, "scenarioManager",
+                scenarioManager());
+        ReflectionTestUtils.setField(snapshots, "taskElementDAO",
+                taskElementDAO());
+        ReflectionTestUtils.setField(snapshots, "hoursCostCalculator",
+                costCalculator());
+        ReflectionTestUtils.setField(snapshots, "orderElementDAO",
+                orderElementDAO());
+    }
+
+    private static LocalDate day(int day) {
+        return START.plusDays(day);
+    }
+
+    private static Worker worker() {
+        ICalendar calendar = createNiceMock(ICalendar.class);
+        expect(calendar.getCapacityOn(isA(PartialDay.class))).andReturn(
+                hours(8)).anyTimes();
+        Worker result = createNiceMock(Worker.class);
+        expect(result.getCalendarOrDefault()).andReturn(calendar).anyTimes();
+        replay(calendar, result);
+        return result;
+    }
+
+    private IDayAssignmentDAO dayAssignmentDAO() {
+        IDayAssignmentDAO result = createNiceMock(IDayAssignmentDAO.class);
+        expect(
+                result.getAllFor((Scenario) anyObject(),
+                        (LocalDate) anyObject(), (LocalDate) anyObject()))
+                .andAnswer(new IAnswer<List<DayAssignment>>() {
+
+                    @Override
+                    public List<DayAssignment> answer() {
+                        LocalDate start = (LocalDate) getCurrentArguments()[1];
+                        LocalDate end = (LocalDate) getCurrentArguments()[2];
+                        List<DayAssignment> found = new ArrayList<DayAssignment>();
+                        for (DayAssignment each : dayAssignments) {
+                            if ((start == null || !each.getDay().isBefore(start))
+                                    && (end == null || !each.getDay().isAfter(end))) {
+                                found.add(each);
+                            }
+                        }
+                        return found;
+                    }
+                }).anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private IResourceDAO resourceDAO() {
+        IResourceDAO result = createNiceMock(IResourceDAO.class);
+        expect(result.list(Resource.class)).andAnswer(
+                new IAnswer<List<Resource>>() {
+
+                    @Override
+                    public List<Resource> answer() {
+                        resourcesListed++;
+                        return resources;
+                    }
+                }).anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private static IScenarioManager scenarioManager() {
+        IScenarioManager result = createNiceMock(IScenarioManager.class);
+        replay(result);
+        return result;
+    }
+
+    private ITaskElementDAO taskElementDAO() {
+        ITaskElementDAO result = createNiceMock(ITaskElementDAO.class);
+        expect(result.list(TaskElement.class)).andAnswer(
+                new IAnswer<List<TaskElement>>() {
+
+                    @Override
+                    public List<TaskElement> answer() {
+                        return new ArrayList<TaskElement>(tasks);
+                    }
+                }).anyTimes();
+        try {
+            expect(result.find(anyLong())).andAnswer(new IAnswer<TaskElement>() {
+
+                @Override
+                public TaskElement answer() throws Throwable {
+                    Long id = (Long) getCurrentArguments()[0];
+                    for (TaskElement each : tasks) {
+                        if (each.getId().equals(id)) {
+                            return each;
+                        }
+                    }
+                    throw new InstanceNotFoundException(id,
+                            TaskElement.class.getName());
+                }
+            }).anyTimes();
+        } catch (InstanceNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        replay(result);
+        return result;
+    }
+
+    private ICostCalculator costCalculator() {
+        ICostCalculator result = createNiceMock(ICostCalculator.class);
+        IAnswer<SortedMap<LocalDate, BigDecimal>> cost = new IAnswer<SortedMap<LocalDate, BigDecimal>>() {
+
+            @Override
+            public SortedMap<LocalDate, BigDecimal> answer() {
+                return new TreeMap<LocalDate, BigDecimal>(
+                        costs.get(getCurrentArguments()[0]));
+            }
+        };
+        expect(result.getEstimatedCost(isA(Task.class))).andAnswer(cost)
+                .anyTimes();
+        expect(result.getAdvanceCost(isA(Task.class))).andAnswer(cost)
+                .anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private IOrderElementDAO orderElementDAO() {
+        IOrderElementDAO result = createNiceMock(IOrderElementDAO.class);
+        try {
+            expect(result.find(anyLong())).andAnswer(
+                    new IAnswer<OrderElement>() {
+
+                        @Override
+                        public OrderElement answer() throws Throwable {
+                            Long id = (Long) getCurrentArguments()[0];
+                            if (!orderElements.containsKey(id)) {
+                                throw new InstanceNotFoundException(id,
+                                        OrderElement.class.getName());
+                            }
+                            return orderElements.get(id);
+                        }
+                    }).anyTimes();
+        } catch (InstanceNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        replay(result);
+        return result;
+    }
+
+    private void givenDayAssignmentsOnEveryDay() {
+        for (int i = 0; i < DAYS; i++) {
+            for (Resource each : resources) {
+                dayAssignments.add(SpecificDayAssignment.create(day(i),
+                        hours(i % 11), each));
+            }
+        }
+    }
+
+    private List<DayAssignment> removeDayAssignmentsOn(int day) {
+        List<DayAssignment> result = new ArrayList<DayAssignment>();
+        for (DayAssignment each : new ArrayList<DayAssignment>(dayAssignments)) {
+            if (each.getDay().equals(day(day))) {
+                dayAssignments.remove(each);
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+    private DayAssignment addDayAssignment(int day, int hours,
+            Resource resource) {
+        DayAssignment result = SpecificDayAssignment.create(day(day),
+                hours(hours), resource);
+        dayAssignments.add(result);
+        return result;
+    }
+
+    private static void assertSameChart(ResourceLoadChartData expected,
+            ResourceLoadChartData actual) {
+        assertEquals(expected.getLoad(), actual.getLoad());
+        assertEquals(expected.getOverload(), actual.getOverload());
+        assertEquals(expected.getAvailability(), actual.getAvailability());
+        assertEquals(expected.getLoadPerWeek(), actual.getLoadPerWeek());
+        assertEquals(expected.getOverloadPerWeek(),
+                actual.getOverloadPerWeek());
+        assertEquals(expected.getAvailabilityPerWeek(),
+                actual.getAvailabilityPerWeek());
+    }
+
+    @Test
+    public void theResourceLoadIsRecalculatedOnlyOnTheModifiedDays()
+            throws Exception {
+        givenDayAssignmentsOnEveryDay();
+        IIncrementalCalculation<ResourceLoadChartData> calculation = snapshots
+                .calculateResourceLoadChartData();
+        ResourceLoadChartData previous = calculation.call();
+
+        ModifiedEntities.Builder modified = new ModifiedEntities.Builder();
+        for (DayAssignment each : removeDayAssignmentsOn(5)) {
+            modified.deleted(SpecificDayAssignment.class, each);
+        }
+        for (DayAssignment each : removeDayAssignmentsOn(12)) {
+            modified.deleted(SpecificDayAssignment.class, each);
+        }
+        modified.modified(SpecificDayAssignment.class,
+                addDayAssignment(12, 14, resources.get(0)));
+        modified.modified(SpecificDayAssignment.class,
+                addDayAssignment(20, 6, resources.get(1)));
+        ResourceLoadChartData incremental = calculation.applyModifications(
+                previous, modified.build());
+
+        assertEquals(1, resourcesListed);
+        assertSameChart(calculation.call(), incremental);
+    }
+
+    @Test
+    public void modifyingTheFirstOrTheLastDayOfTheResourceLoadForcesAFullReload()
+            throws Exception {
+        givenDayAssignmentsOnEveryDay();
+        IIncrementalCalculation<ResourceLoadChartData> calculation = snapshots
+                .calculateResourceLoadChartData();
+        ResourceLoadChartData previous = calculation.call();
+
+        ModifiedEntities.Builder first = new ModifiedEntities.Builder();
+        for (DayAssignment each : removeDayAssignmentsOn(0)) {
+            first.deleted(SpecificDayAssignment.class, each);
+        }
+        assertNull(calculation.applyModifications(previous, first.build()));
+
+        ModifiedEntities.Builder after = new ModifiedEntities.Builder();
+        after.modified(SpecificDayAssignment.class,
+                addDayAssignment(DAYS + 3, 8, resources.get(0)));
+        assertNull(calculation.applyModifications(previous, after.build()));
+    }
+
+    @Test
+    public void modifyingResourcesOrCalendarsForcesAFullReloadOfTheResourceLoad()
+            throws Exception {
+        givenDayAssignmentsOnEveryDay();
+        IIncrementalCalculation<ResourceLoadChartData> calculation = snapshots
+                .calculateResourceLoadChartData();
+        ResourceLoadChartData previous = calculation.call();
+
+        assertNull(calculation.applyModifications(previous,
+                new ModifiedEntities.Builder().modified(Worker.class,
+                        resources.get(0)).build()));
+    }
+
+    @Test
+    public void theResourceLoadIsKeptIfNoDayAssignmentIsModified()
+            throws Exception {
+        givenDayAssignmentsOnEveryDay();
+        IIncrementalCalculation<ResourceLoadChartData> calculation = snapshots
+                .calculateResourceLoadChartData();
+        ResourceLoadChartData previous = calculation.call();
+
+        assertSame(previous, calculation.applyModifications(previous,
+                new ModifiedEntities.Builder().modified(Task.class,
+                        createNiceMock(Task.class)).build()));
+    }
+
+    private Task givenTask(long id, int cost) {
+        Task result = createNiceMock(Task.class);
+        expect(result.getId()).andReturn(id).anyTimes();
+        replay(result);
+        tasks.add(result);
+        givenCost(result, cost);
+        return result;
+    }
+
+    private void givenCost(Task task, int cost) {
+        SortedMap<LocalDate, BigDecimal> byDay = new TreeMap<LocalDate, BigDecimal>();
+        byDay.put(START, new BigDecimal(cost));
+        costs.put(task, byDay);
+    }
+
+    private static SpecificDayAssignment dayAssignmentOf(
+            SpecificResourceAllocation allocation) {
+        SpecificDayAssignment result = createNiceMock(SpecificDayAssignment.class);
+        expect(result.getSpecificResourceAllocation()).andReturn(allocation)
+                .anyTimes();
+        replay(result);
+        return result;
+    }
+
+    private static SpecificDayAssignment dayAssignmentOf(Task task) {
+        SpecificResourceAllocation allocation = createNiceMock(SpecificResourceAllocation.class);
+        expect(allocation.getTask()).andReturn(task).anyTimes();
+        replay(allocation);
+        return dayAssignmentOf(allocation);
+    }
+
+    private static ModifiedEntities modifiedDayAssignment(
+            DayAssignment dayAssignment) {
+        return new ModifiedEntities.Builder().modified(
+                dayAssignment.getClass(), dayAssignment).build();
+    }
+
+    @Test
+    public void theEstimatedCostIsRecalculatedOnlyForTheTasksOfTheDayAssignments()
+            throws Exception {
+        Task modified = givenTask(1, 10);
+        givenTask(2, 20);
+        IIncrementalCalculation<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculation = snapshots
+                .calculateEstimatedCostPerTask();
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> previous = calculation
+                .call();
+
+        givenCost(modified, 15);
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> incremental = calculation
+                .applyModifications(previous,
+                        modifiedDayAssignment(dayAssignmentOf(modified)));
+
+        assertEquals(calculation.call(), incremental);
+        assertEquals(new BigDecimal(15), incremental.get(modified).get(START));
+    }
+
+    @Test
+    public void aDayAssignmentWithoutTaskForcesAFullReloadOfTheEstimatedCost()
+            throws Exception {
+        givenTask(1, 10);
+        IIncrementalCalculation<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculation = snapshots
+                .calculateEstimatedCostPerTask();
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> previous = calculation
+                .call();
+
+        assertNull(calculation.applyModifications(previous,
+                modifiedDayAssignment(dayAssignmentOf((Task) null))));
+        assertNull(calculation.applyModifications(previous,
+                modifiedDayAssignment(dayAssignmentOf(
+                        (SpecificResourceAllocation) null))));
+    }
+
+    @Test
+    public void anUninitializedAllocationForcesAFullReloadOfTheEstimatedCost()
+            throws Exception {
+        givenTask(1, 10);
+        IIncrementalCalculation<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculation = snapshots
+                .calculateEstimatedCostPerTask();
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> previous = calculation
+                .call();
+
+        SpecificResourceAllocation allocation = createNiceMock(SpecificResourceAllocation.class);
+        expect(allocation.getTask()).andThrow(
+                new LazyInitializationException("no session")).anyTimes();
+        replay(allocation);
+        assertNull(calculation.applyModifications(previous,
+                modifiedDayAssignment(dayAssignmentOf(allocation))));
+    }
+
+    @Test
+    public void theDerivedDayAssignmentsDontChangeTheEstimatedCost()
+            throws Exception {
+        givenTask(1, 10);
+        IIncrementalCalculation<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculation = snapshots
+                .calculateEstimatedCostPerTask();
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> previous = calculation
+                .call();
+
+        DerivedDayAssignment derived = createNiceMock(DerivedDayAssignment.class);
+        replay(derived);
+        assertEquals(previous, calculation.applyModifications(previous,
+                modifiedDayAssignment(derived)));
+    }
+
+    private DirectAdvanceAssignment givenAdvanceOf(long orderElementId,
+            Task task) {
+        OrderElement orderElement = createNiceMock(OrderElement.class);
+        expect(orderElement.getId()).andReturn(orderElementId).anyTimes();
+        if (task != null) {
+            TaskSource taskSource = createNiceMock(TaskSource.class);
+            expect(taskSource.getTask()).andReturn(task).anyTimes();
+            expect(orderElement.getTaskSource()).andReturn(taskSource)
+                    .anyTimes();
+            replay(taskSource);
+            orderElements.put(orderElementId, orderElement);
+        }
+        DirectAdvanceAssignment result = createNiceMock(DirectAdvanceAssignment.class);
+        expect(result.getOrderElement()).andReturn(orderElement).anyTimes();
+        replay(orderElement, result);
+        return result;
+    }
+
+    @Test
+    public void theAdvanceCostIsRecalculatedOnlyForTheTasksOfTheAdvances()
+            throws Exception {
+        Task modified = givenTask(1, 10);
+        givenTask(2, 20);
+        IIncrementalCalculation<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculation = snapshots
+                .calculateAdvanceCostPerTask();
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> previous = calculation
+                .call();
+
+        givenCost(modified, 5);
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> incremental = calculation
+                .applyModifications(previous, new ModifiedEntities.Builder()
+                        .modified(DirectAdvanceAssignment.class,
+                                givenAdvanceOf(7, modified)).build());
+
+        assertEquals(calculation.call(), incremental);
+        assertEquals(new BigDecimal(5), incremental.get(modified).get(START));
+    }
+
+    @Test
+    public void anAdvanceOfAMissingOrderElementForcesAFullReloadOfTheAdvanceCost()
+            throws Exception {
+        givenTask(1, 10);
+        IIncrementalCalculation<Map<TaskElement, SortedMap<LocalDate, BigDecimal>>> calculation = snapshots
+                .calculateAdvanceCostPerTask();
+        Map<TaskElement, SortedMap<LocalDate, BigDecimal>> previous = calculation
+                .call();
+
+        assertNull(calculation.applyModifications(previous,
+                new ModifiedEntities.Builder().modified(
+                        DirectAdvanceAssignment.class,
+                        givenAdvanceOf(7, null)).build()));
+    }
+
+}
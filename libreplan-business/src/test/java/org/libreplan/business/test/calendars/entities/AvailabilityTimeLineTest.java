@@ -288,6 +288,51 @@ public class AvailabilityTimeLineTest {
                 point(contemporaryExample.plusDays(40)), EndOfTime.create()));
     }
 
+    @Test
+    public void doingOROnContiguousInvalidPeriodsInvalidatesNothing() {
+        AvailabilityTimeLine one = AvailabilityTimeLine.allValid();
+        one.invalidAt(contemporaryExample.minusDays(10), contemporaryExample);
+
+        AvailabilityTimeLine another = AvailabilityTimeLine.allValid();
+        another.invalidAt(contemporaryExample, contemporaryExample
+                .plusDays(10));
+
+        AvailabilityTimeLine result = one.or(another);
+
+        assertTrue(result.isValid(contemporaryExample));
+        assertThat(result.getValidPeriods().size(), equalTo(1));
+    }
+
+    @Test
+    public void anEmptyIntervalInvalidatesNothing() {
+        AvailabilityTimeLine timeLine = AvailabilityTimeLine.allValid();
+        timeLine.invalidAt(contemporaryExample, contemporaryExample);
+
+        assertTrue(timeLine.isValid(contemporaryExample));
+        assertThat(timeLine.getValidPeriods().size(), equalTo(1));
+    }
+
+    @Test
+    public void theValidPeriodsOfAnAndAreTheSameRegardlessOfTheOrder() {
+        AvailabilityTimeLine one = AvailabilityTimeLine.allValid();
+        one.invalidUntil(earlyExample);
+        one.invalidAt(contemporaryExample, contemporaryExample.plusDays(10));
+        one.invalidAt(contemporaryExample.plusDays(30),
+                contemporaryExample.plusDays(40));
+
+        AvailabilityTimeLine another = AvailabilityTimeLine.allValid();
+        another.invalidAt(contemporaryExample.plusDays(5),
+                contemporaryExample.plusDays(30));
+        another.invalidFrom(lateExample);
+
+        List<Interval> expected = one.and(another).getValidPeriods();
+        assertEquals(expected, another.and(one).getValidPeriods());
+        assertThat(expected, definedBy(point(earlyExample),
+                point(contemporaryExample),
+                point(contemporaryExample.plusDays(40)), point(lateExample)));
+        assertThat(expected.size(), equalTo(2));
+    }
+
     @Test
     public void doingOROnTheSameTimeLineResultsInTheSameTimeLine() {
         AvailabilityTimeLine timeLine = AvailabilityTimeLine.allValid();
@@ -44,6 +44,7 @@ import org.libreplan.business.calendars.entities.CalendarExceptionType;
 import org.libreplan.business.calendars.entities.CalendarExceptionTypeColor;
 import org.libreplan.business.calendars.entities.Capacity;
 import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate;
 import org.libreplan.business.workingday.IntraDayDate.PartialDay;
 import org.libreplan.business.workingday.ResourcesPerDay;
 
@@ -912,4 +913,63 @@ public class BaseCalendarTest {
         AvailabilityTimeLine availability = calendar.getAvailability();
         assertFalse(availability.isValid(MONDAY_LOCAL_DATE));
     }
+    @Test
+    public void theChangesOnTheCalendarAreSeenAfterQueryingIt() {
+        BaseCalendar calendar = createBasicCalendar();
+        assertThat(calendar.getCapacityOn(wholeDay(MONDAY_LOCAL_DATE)),
+                equalTo(hours(8)));
+
+        calendar.setCapacityAt(Days.MONDAY, withNormalDuration(hours(4)));
+        assertThat(calendar.getCapacityOn(wholeDay(MONDAY_LOCAL_DATE)),
+                equalTo(hours(4)));
+
+        addExceptionOn(calendar, MONDAY_LOCAL_DATE,
+                withNormalDuration(hours(2)));
+        assertThat(calendar.getCapacityOn(wholeDay(MONDAY_LOCAL_DATE)),
+                equalTo(hours(2)));
+    }
+
+    @Test
+    public void theChangesOnTheParentAreSeenByTheDerivedCalendar() {
+        BaseCalendar parent = createBasicCalendar();
+        BaseCalendar calendar = parent.newDerivedCalendar();
+        assertThat(calendar.getWorkableDuration(MONDAY_LOCAL_DATE,
+                SUNDAY_LOCAL_DATE), equalTo(hours(40)));
+
+        addExceptionOn(parent, TUESDAY_LOCAL_DATE, Capacity.zero());
+        assertThat(calendar.getWorkableDuration(MONDAY_LOCAL_DATE,
+                SUNDAY_LOCAL_DATE), equalTo(hours(32)));
+        assertThat(calendar.getCapacityOn(wholeDay(TUESDAY_LOCAL_DATE)),
+                equalTo(zero()));
+    }
+
+    @Test
+    public void theWorkableDurationOfLongIntervalsIsTheSumOfEachDay() {
+        BaseCalendar calendar = createChristmasCalendar();
+        LocalDate start = MONDAY_LOCAL_DATE.minusYears(3);
+        LocalDate end = MONDAY_LOCAL_DATE.plusYears(2);
+        EffortDuration expected = zero();
+        for (LocalDate day = start; day.compareTo(end) <= 0; day = day
+                .plusDays(1)) {
+            expected = expected.plus(calendar.getCapacityOn(wholeDay(day)));
+        }
+        assertThat(calendar.getWorkableDuration(start, end), equalTo(expected));
+        assertThat(calendar.getWorkableDuration(end, start), equalTo(zero()));
+    }
+
+    @Test
+    public void theCapacityBetweenTwoDatesConsidersPartialDays() {
+        BaseCalendar calendar = createBasicCalendar();
+        IntraDayDate start = IntraDayDate.create(MONDAY_LOCAL_DATE, hours(2));
+        IntraDayDate end = IntraDayDate.create(FRIDAY_LOCAL_DATE, hours(3));
+        assertThat(calendar.getCapacityBetween(start, end), equalTo(hours(33)));
+        assertThat(calendar.getCapacityBetween(start,
+                IntraDayDate.create(MONDAY_LOCAL_DATE, hours(5))),
+                equalTo(hours(3)));
+        assertThat(calendar.getCapacityBetween(start,
+                IntraDayDate.startOfDay(SATURDAY_LOCAL_DATE.plusWeeks(1))),
+                equalTo(hours(78)));
+        assertThat(calendar.getCapacityBetween(end, start), equalTo(zero()));
+    }
+
 }
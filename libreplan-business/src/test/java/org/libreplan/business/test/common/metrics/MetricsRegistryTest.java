@@ -0,0 +1,160 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.common.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.LogFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.common.metrics.Counter;
+import org.libreplan.business.common.metrics.Histogram;
+import org.libreplan.business.common.metrics.IMetric;
+import org.libreplan.business.common.metrics.MetricsRegistry;
+import org.libreplan.business.common.metrics.PhaseTimer;
+import org.libreplan.business.common.metrics.Timer;
+
+/**
+ * Tests for {@link MetricsRegistry} and the metrics it creates.
+ */
+public class MetricsRegistryTest {
+
+    private MetricsRegistry registry;
+
+    @Before
+    public void createRegistry() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    public void theSameMetricIsReturnedForTheSameName() {
+        Counter counter = registry.counter("a.counter");
+        assertSame(counter, registry.counter("a.counter"));
+        Timer timer = registry.timer("a.timer");
+        assertSame(timer, registry.timer("a.timer"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aNameCantBeUsedForMetricsOfDifferentType() {
+        registry.counter("a.metric");
+        registry.timer("a.metric");
+    }
+
+    @Test
+    public void theCountersAreExported() {
+        Counter counter = registry.counter("a.counter");
+        counter.increment();
+        counter.increment(2);
+        assertEquals(3L, registry.getValues().get("a.counter"));
+        assertEquals("a.counter 3\n", registry.getValuesAsText());
+    }
+
+    @Test
+    public void theHistogramKeepsTheDistribution() {
+        Histogram histogram = registry.histogram("a.histogram");
+        for (int i = 1; i <= 100; i++) {
+            histogram.update(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0.0001);
+        assertPercentileApproximated(50, histogram.getPercentile(0.5));
+        assertPercentileApproximated(95, histogram.getPercentile(0.95));
+        assertEquals(100, histogram.getPercentile(1));
+    }
+
+    private static void assertPercentileApproximated(long expected,
+            long actual) {
+        assertTrue(actual + " must approximate " + expected,
+                actual >= expected && actual <= expected * 1.25);
+    }
+
+    @Test
+    public void anEmptyHistogramHasZeroValues() {
+        Histogram histogram = registry.histogram("a.histogram");
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(0.99));
+    }
+
+    @Test
+    public void theHugeValuesAreCounted() {
+        Histogram histogram = registry.histogram("a.histogram");
+        histogram.update(Long.MAX_VALUE);
+        histogram.update(-1);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(1));
+        assertEquals(0, histogram.getPercentile(0.5));
+    }
+
+    @Test
+    public void theTimersAreExportedInMilliseconds() {
+        Timer timer = registry.timer("a.timer");
+        timer.update(3, TimeUnit.MILLISECONDS);
+        timer.update(5, TimeUnit.MILLISECONDS);
+        SortedMap<String, Number> values = registry.getValues();
+        assertEquals(2L, values.get("a.timer.count"));
+        assertEquals(8.0, values.get("a.timer.sum_ms").doubleValue(), 0.0001);
+        assertEquals(5.0, values.get("a.timer.max_ms").doubleValue(), 0.0001);
+    }
+
+    @Test
+    public void eachPhaseIsTimedFromTheEndOfThePreviousOne()
+            throws InterruptedException {
+        Timer first = registry.timer("a.first");
+        Timer second = registry.timer("a.second");
+        Timer all = registry.timer("a.all");
+        PhaseTimer phases = new PhaseTimer(LogFactory
+                .getLog(MetricsRegistryTest.class));
+        Thread.sleep(20);
+        phases.phaseDone(first, "first");
+        Thread.sleep(20);
+        phases.phaseDone(second, "second");
+        phases.allDone(all, "all");
+
+        long firstNanos = first.getNanoseconds().getSum();
+        long secondNanos = second.getNanoseconds().getSum();
+        assertTrue(firstNanos >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(secondNanos >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(all.getNanoseconds().getSum() >= firstNanos + secondNanos);
+    }
+
+    @Test
+    public void otherMetricsCanBeRegistered() {
+        registry.register("a.gauge", new IMetric() {
+
+            @Override
+            public void addValues(String name, Map<String, Number> values) {
+                values.put(name, 42);
+            }
+        });
+        assertEquals(42, registry.getValues().get("a.gauge"));
+        registry.remove("a.gauge");
+        assertTrue(registry.getValues().isEmpty());
+    }
+
+}
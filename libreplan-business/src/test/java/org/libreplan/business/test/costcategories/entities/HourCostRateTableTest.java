@@ -0,0 +1,110 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.costcategories.entities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.costcategories.entities.HourCostRateTable;
+
+public class HourCostRateTableTest {
+
+    private static final Long RESOURCE = 1L;
+
+    private static final String TYPE = "type";
+
+    private static final LocalDate JANUARY = new LocalDate(2013, 1, 1);
+
+    private static final LocalDate FEBRUARY = new LocalDate(2013, 2, 1);
+
+    private static final LocalDate MARCH = new LocalDate(2013, 3, 1);
+
+    private HourCostRateTable table;
+
+    @Before
+    public void setUp() {
+        table = new HourCostRateTable();
+    }
+
+    @Test
+    public void thereIsNoPriceIfNothingIsAdded() {
+        assertNull(table.getPriceCost(RESOURCE, JANUARY, TYPE));
+    }
+
+    @Test
+    public void thePriceAppliesOnlyInTheIntersectionOfBothPeriods() {
+        table.add(RESOURCE, TYPE, JANUARY, MARCH, FEBRUARY, null,
+                new BigDecimal(10));
+        assertNull(table.getPriceCost(RESOURCE, JANUARY, TYPE));
+        assertNull(table.getPriceCost(RESOURCE, FEBRUARY.minusDays(1), TYPE));
+        assertEquals(new BigDecimal(10),
+                table.getPriceCost(RESOURCE, FEBRUARY, TYPE));
+        assertEquals(new BigDecimal(10),
+                table.getPriceCost(RESOURCE, MARCH, TYPE));
+        assertNull(table.getPriceCost(RESOURCE, MARCH.plusDays(1), TYPE));
+    }
+
+    @Test
+    public void periodsWithoutEndApplyForever() {
+        table.add(RESOURCE, TYPE, JANUARY, null, JANUARY, null,
+                new BigDecimal(10));
+        assertEquals(new BigDecimal(10),
+                table.getPriceCost(RESOURCE, JANUARY.plusYears(100), TYPE));
+    }
+
+    @Test
+    public void thePriceOfEachPeriodIsFoundWhateverTheOrderTheyAreAdded() {
+        table.add(RESOURCE, TYPE, MARCH, null, JANUARY, null,
+                new BigDecimal(30));
+        table.add(RESOURCE, TYPE, JANUARY, JANUARY.plusDays(9), JANUARY,
+                null, new BigDecimal(10));
+        table.add(RESOURCE, TYPE, FEBRUARY, FEBRUARY.plusDays(9), JANUARY,
+                null, new BigDecimal(20));
+        assertEquals(new BigDecimal(10),
+                table.getPriceCost(RESOURCE, JANUARY.plusDays(9), TYPE));
+        assertNull(table.getPriceCost(RESOURCE, JANUARY.plusDays(10), TYPE));
+        assertEquals(new BigDecimal(20),
+                table.getPriceCost(RESOURCE, FEBRUARY, TYPE));
+        assertNull(table.getPriceCost(RESOURCE, FEBRUARY.plusDays(10), TYPE));
+        assertEquals(new BigDecimal(30),
+                table.getPriceCost(RESOURCE, MARCH.plusDays(10), TYPE));
+    }
+
+    @Test
+    public void thePricesAreKeptForEachResourceAndType() {
+        table.add(RESOURCE, TYPE, JANUARY, null, JANUARY, null,
+                new BigDecimal(10));
+        table.add(RESOURCE, "other", JANUARY, null, JANUARY, null,
+                new BigDecimal(20));
+        table.add(2L, TYPE, JANUARY, null, JANUARY, null, new BigDecimal(30));
+        assertEquals(new BigDecimal(10),
+                table.getPriceCost(RESOURCE, FEBRUARY, TYPE));
+        assertEquals(new BigDecimal(20),
+                table.getPriceCost(RESOURCE, FEBRUARY, "other"));
+        assertEquals(new BigDecimal(30), table.getPriceCost(2L, FEBRUARY, TYPE));
+        assertNull(table.getPriceCost(3L, FEBRUARY, TYPE));
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.orders.daos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.orders.daos.OrderCatalogue;
+import org.libreplan.business.orders.entities.OrderStatusEnum;
+
+/**
+ * Tests for {@link OrderCatalogue}.
+ */
+public class OrderCatalogueTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 1);
+
+    private static Date day(int day) {
+        return START.plusDays(day).toDateTimeAtStartOfDay().toDate();
+    }
+
+    private OrderCatalogue catalogue;
+
+    @Before
+    public void buildCatalogue() {
+        catalogue = OrderCatalogue.builder()
+                .order(10L, 100L, OrderStatusEnum.ACCEPTED, day(0))
+                .order(20L, null, OrderStatusEnum.STARTED, day(10))
+                .order(30L, 100L, OrderStatusEnum.STARTED, null)
+                .label(10L, 1L).label(20L, 1L).label(20L, 2L)
+                .criterion(30L, 5L)
+                .userAuthorization(10L, 7L)
+                .profileAuthorization(30L, 8L)
+                .unscheduled(20L)
+                .rootTask(10L, START, START.plusDays(5))
+                .rootTask(30L, START.plusDays(20), START.plusDays(30))
+                .rootTask(99L, START, START.plusDays(100)).build();
+    }
+
+    @Test
+    public void allTheOrdersAreIncluded() {
+        assertEquals(3, catalogue.size());
+        assertEquals(Arrays.asList(10L, 20L, 30L),
+                catalogue.getIds(catalogue.all()));
+    }
+
+    @Test
+    public void theOrdersAreFoundByTheirProperties() {
+        assertEquals(Arrays.asList(10L, 20L),
+                catalogue.getIds(catalogue.withLabel(1L)));
+        assertEquals(Arrays.asList(30L),
+                catalogue.getIds(catalogue.withCriterion(5L)));
+        assertEquals(Arrays.asList(10L, 30L),
+                catalogue.getIds(catalogue.withCustomer(100L)));
+        assertEquals(Arrays.asList(20L, 30L),
+                catalogue.getIds(catalogue.withState(OrderStatusEnum.STARTED)));
+        assertTrue(catalogue.withLabel(3L).isEmpty());
+    }
+
+    @Test
+    public void theFiltersCanBeCombined() {
+        BitSet filtered = catalogue.withLabel(1L);
+        filtered.and(catalogue.withLabel(2L));
+        assertEquals(Arrays.asList(20L), catalogue.getIds(filtered));
+        // the catalogue is not modified
+        assertEquals(Arrays.asList(10L, 20L),
+                catalogue.getIds(catalogue.withLabel(1L)));
+    }
+
+    @Test
+    public void theAuthorizationsOfTheUserAndItsProfilesAreJoined() {
+        assertEquals(Arrays.asList(10L, 30L), catalogue.getIds(catalogue
+                .withAuthorization(7L, Arrays.asList(8L))));
+        assertEquals(Arrays.asList(10L), catalogue.getIds(catalogue
+                .withAuthorization(7L, Collections.<Long> emptyList())));
+    }
+
+    @Test
+    public void theOrdersAreFoundByInitDate() {
+        assertEquals(Arrays.asList(10L, 20L), catalogue.getIds(catalogue
+                .withInitDateBetween(null, null)));
+        assertEquals(Arrays.asList(20L), catalogue.getIds(catalogue
+                .withInitDateBetween(day(1), null)));
+        assertEquals(Arrays.asList(10L, 20L), catalogue.getIds(catalogue
+                .withInitDateBetween(day(0), day(10))));
+        assertEquals(Arrays.asList(10L), catalogue.getIds(catalogue
+                .withInitDateBetween(null, day(9))));
+    }
+
+    @Test
+    public void theOrdersAreFoundByTheirRootTasks() {
+        assertEquals(Arrays.asList(10L, 30L), catalogue.getIds(catalogue
+                .withRootTaskBetween(null, null)));
+        assertEquals(Arrays.asList(10L), catalogue.getIds(catalogue
+                .withRootTaskBetween(day(5), day(19))));
+        assertEquals(Arrays.asList(30L), catalogue.getIds(catalogue
+                .withRootTaskBetween(day(6), null)));
+        assertTrue(catalogue.withRootTaskBetween(day(6), day(19)).isEmpty());
+    }
+
+    @Test
+    public void onlyTheOrdersCanBeUnscheduled() {
+        assertEquals(Arrays.asList(20L),
+                catalogue.getIds(catalogue.unscheduled()));
+    }
+
+}
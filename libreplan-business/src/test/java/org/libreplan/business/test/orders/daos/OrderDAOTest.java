@@ -27,7 +27,10 @@ import static org.junit.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 import org.joda.time.LocalDate;
@@ -38,6 +41,7 @@ import org.libreplan.business.calendars.daos.IBaseCalendarDAO;
 import org.libreplan.business.calendars.entities.BaseCalendar;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.common.daos.IScrollVisitor;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.externalcompanies.entities.DeadlineCommunication;
 import org.libreplan.business.orders.daos.IOrderDAO;
@@ -207,4 +211,38 @@ public class OrderDAOTest {
         });
     }
 
+    private List<String> scrollCodes(final String prefix, String afterCode,
+            Integer limit) {
+        final List<String> result = new ArrayList<String>();
+        orderDAO.scrollOrderedByCode(afterCode, limit,
+                new IScrollVisitor<Order>() {
+                    @Override
+                    public void visit(Order each) {
+                        if (each.getCode().startsWith(prefix)) {
+                            result.add(each.getCode());
+                        }
+                    }
+                });
+        return result;
+    }
+
+    @Test
+    @Transactional
+    public void testScrollOrderedByCodeAfterCodeWithLimit() {
+        String prefix = UUID.randomUUID().toString();
+        for (String each : Arrays.asList("-2", "-3", "-1")) {
+            Order order = createValidOrder(UUID.randomUUID().toString());
+            order.setCode(prefix + each);
+            orderDAO.save(order);
+        }
+        orderDAO.flush();
+
+        assertThat(scrollCodes(prefix, null, null), equalTo(Arrays.asList(
+                prefix + "-1", prefix + "-2", prefix + "-3")));
+        assertThat(scrollCodes(prefix, prefix + "-1", null),
+                equalTo(Arrays.asList(prefix + "-2", prefix + "-3")));
+        assertThat(scrollCodes(prefix, prefix + "-1", 1),
+                equalTo(Arrays.asList(prefix + "-2")));
+    }
+
 }
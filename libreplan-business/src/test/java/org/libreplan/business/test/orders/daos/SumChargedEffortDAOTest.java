@@ -0,0 +1,560 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.orders.daos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
+import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.libreplan.business.IDataBootstrap;
+import org.libreplan.business.calendars.daos.IBaseCalendarDAO;
+import org.libreplan.business.calendars.entities.BaseCalendar;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.common.exceptions.InstanceNotFoundException;
+import org.libreplan.business.costcategories.daos.ITypeOfWorkHoursDAO;
+import org.libreplan.business.costcategories.entities.TypeOfWorkHours;
+import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.daos.IOrderElementDAO;
+import org.libreplan.business.orders.daos.ISumChargedEffortDAO;
+import org.libreplan.business.orders.entities.Order;
+import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.orders.entities.OrderLine;
+import org.libreplan.business.orders.entities.OrderLineGroup;
+import org.libreplan.business.orders.entities.SumChargedEffort;
+import org.libreplan.business.resources.daos.IResourceDAO;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.entities.OrderVersion;
+import org.libreplan.business.test.calendars.entities.BaseCalendarTest;
+import org.libreplan.business.test.planner.daos.ResourceAllocationDAOTest;
+import org.libreplan.business.util.Pair;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workreports.daos.IWorkReportDAO;
+import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
+import org.libreplan.business.workreports.daos.IWorkReportTypeDAO;
+import org.libreplan.business.workreports.entities.WorkReport;
+import org.libreplan.business.workreports.entities.WorkReportLine;
+import org.libreplan.business.workreports.entities.WorkReportType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Tests for {@link ISumChargedEffortDAO}.
+ * <p>
+ * The previous state of the modified lines is read in another transaction,
+ * so the data is committed instead of being rolled back after each test. The
+ * results are checked against the values calculated element by element from
+ * the timesheet lines.
+ * </p>
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { BUSINESS_SPRING_CONFIG_FILE,
+        BUSINESS_SPRING_CONFIG_TEST_FILE })
+public class SumChargedEffortDAOTest {
+
+    @javax.annotation.Resource
+    private IDataBootstrap scenariosBootstrap;
+
+    @Autowired
+    private IAdHocTransactionService transactionService;
+
+    @Autowired
+    private ISumChargedEffortDAO sumChargedEffortDAO;
+
+    @Autowired
+    private IOrderDAO orderDAO;
+
+    @Autowired
+    private IOrderElementDAO orderElementDAO;
+
+    @Autowired
+    private IBaseCalendarDAO calendarDAO;
+
+    @Autowired
+    private IScenarioManager scenarioManager;
+
+    @Autowired
+    private IResourceDAO resourceDAO;
+
+    @Autowired
+    private ITypeOfWorkHoursDAO typeOfWorkHoursDAO;
+
+    @Autowired
+    private IWorkReportTypeDAO workReportTypeDAO;
+
+    @Autowired
+    private IWorkReportDAO workReportDAO;
+
+    @Autowired
+    private IWorkReportLineDAO workReportLineDAO;
+
+    private static final Date FIRST_DATE = new LocalDate(2013, 1, 7)
+            .toDateTimeAtStartOfDay().toDate();
+
+    private static final Date SECOND_DATE = new LocalDate(2013, 1, 8)
+            .toDateTimeAtStartOfDay().toDate();
+
+    private static final Date THIRD_DATE = new LocalDate(2013, 1, 9)
+            .toDateTimeAtStartOfDay().toDate();
+
+    private Long orderId;
+
+    private Long groupId;
+
+    private Long firstLineId;
+
+    private Long secondLineId;
+
+    private Long thirdLineId;
+
+    private Long workReportId;
+
+    private Long resourceId;
+
+    /**
+     * Stores a project with a group containing two lines and a third line
+     * directly under the project, and a timesheet with one line for each of
+     * them. Only the line of the second element is finished.
+     */
+    @Before
+    public void givenAProjectWithATimesheet() {
+        transactionService.runOnTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                scenariosBootstrap.loadRequiredData();
+
+                Order order = createOrder();
+                OrderLineGroup group = OrderLineGroup.create();
+                setNameAndCode(group);
+                order.add(group);
+                OrderLine first = createOrderLine();
+                group.add(first);
+                OrderLine second = createOrderLine();
+                group.add(second);
+                OrderLine third = createOrderLine();
+                order.add(third);
+                orderDAO.save(order);
+
+                orderId = order.getId();
+                groupId = group.getId();
+                firstLineId = first.getId();
+                secondLineId = second.getId();
+                thirdLineId = third.getId();
+                return null;
+            }
+        });
+
+        // the validation of the lines checks the finished ones in another
+        // transaction, so the project must be already committed
+        transactionService.runOnTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                WorkReport workReport = createWorkReport();
+                Resource resource = createWorker();
+                TypeOfWorkHours typeOfWorkHours = createTypeOfWorkHours();
+                addLine(workReport, resource, typeOfWorkHours,
+                        findOrderElement(firstLineId), 10, FIRST_DATE, false);
+                addLine(workReport, resource, typeOfWorkHours,
+                        findOrderElement(secondLineId), 5, SECOND_DATE, true);
+                addLine(workReport, resource, typeOfWorkHours,
+                        findOrderElement(thirdLineId), 3, THIRD_DATE, false);
+
+                sumChargedEffortDAO
+                        .updateRelatedSumChargedEffortWithWorkReportLineSet(workReport
+                                .getWorkReportLines());
+                workReportDAO.save(workReport);
+
+                workReportId = workReport.getId();
+                resourceId = resource.getId();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Removes the timesheet and its worker, so other tests can remove all the
+     * resources
+     */
+    @After
+    public void removeTheTimesheet() {
+        transactionService.runOnTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                try {
+                    workReportDAO.remove(workReportId);
+                    resourceDAO.remove(resourceId);
+                } catch (InstanceNotFoundException e) {
+                    throw new RuntimeException(e);
+                }
+                return null;
+            }
+        });
+    }
+
+    private Order createOrder() {
+        Order order = Order.create();
+        setNameAndCode(order);
+        order.setInitDate(new Date());
+        BaseCalendar calendar = BaseCalendarTest.createBasicCalendar();
+        calendarDAO.save(calendar);
+        order.setCalendar(calendar);
+        OrderVersion orderVersion = ResourceAllocationDAOTest
+                .setupVersionUsing(scenarioManager, order);
+        order.useSchedulingDataFor(orderVersion);
+        return order;
+    }
+
+    private OrderLine createOrderLine() {
+        OrderLine result = OrderLine.createOrderLineWithUnfixedPercentage(100);
+        setNameAndCode(result);
+        result.getHoursGroups().get(0).setCode(UUID.randomUUID().toString());
+        return result;
+    }
+
+    private void setNameAndCode(OrderElement orderElement) {
+        orderElement.setName(UUID.randomUUID().toString());
+        orderElement.setCode(UUID.randomUUID().toString());
+    }
+
+    private WorkReport createWorkReport() {
+        WorkReportType workReportType = WorkReportType.create(UUID
+                .randomUUID().toString(), UUID.randomUUID().toString());
+        workReportTypeDAO.save(workReportType);
+        WorkReport result = WorkReport.create(workReportType);
+        result.setCode(UUID.randomUUID().toString());
+        return result;
+    }
+
+    private Resource createWorker() {
+        Worker result = Worker.create();
+        result.setFirstName(UUID.randomUUID().toString());
+        result.setSurname(UUID.randomUUID().toString());
+        result.setNif(UUID.randomUUID().toString());
+        resourceDAO.save(result);
+        return result;
+    }
+
+    private TypeOfWorkHours createTypeOfWorkHours() {
+        TypeOfWorkHours result = TypeOfWorkHours.create(UUID.randomUUID()
+                .toString(), UUID.randomUUID().toString());
+        result.setDefaultPrice(BigDecimal.TEN);
+        typeOfWorkHoursDAO.save(result);
+        return result;
+    }
+
+    private void addLine(WorkReport workReport, Resource resource,
+            TypeOfWorkHours typeOfWorkHours, OrderElement orderElement,
+            int hours, Date date, boolean finished) {
+        WorkReportLine line = WorkReportLine.create(workReport);
+        line.setCode(UUID.randomUUID().toString());
+        line.setResource(resource);
+        line.setTypeOfWorkHours(typeOfWorkHours);
+        line.setOrderElement(orderElement);
+        line.setEffort(EffortDuration.hours(hours));
+        line.setDate(date);
+        line.setFinished(finished);
+        workReport.addWorkReportLine(line);
+    }
+
+    @Test
+    public void theEffortOfTheNewLinesIsAddedToTheElementsAndAncestors() {
+        assertEffortIs(firstLineId, 10, 0);
+        assertEffortIs(secondLineId, 5, 0);
+        assertEffortIs(thirdLineId, 3, 0);
+        assertEffortIs(groupId, 0, 15);
+        assertEffortIs(orderId, 0, 18);
+        assertEffortMatchesTheLines();
+    }
+
+    @Test
+    public void theEffortOfALineMovedToAnotherElementIsMovedToo() {
+        transactionService.runOnTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                WorkReportLine line = findLineOf(firstLineId);
+                line.setOrderElement(findOrderElement(thirdLineId));
+                sumChargedEffortDAO
+                        .updateRelatedSumChargedEffortWithWorkReportLineSet(line
+                                .getWorkReport().getWorkReportLines());
+                workReportDAO.save(line.getWorkReport());
+                return null;
+            }
+        });
+
+        assertEffortIs(firstLineId, 0, 0);
+        assertEffortIs(thirdLineId, 13, 0);
+        assertEffortIs(groupId, 0, 5);
+        assertEffortIs(orderId, 0, 18);
+        assertEffortMatchesTheLines();
+    }
+
+    @Test
+    public void theEffortOfADeletedLineIsSubtracted() {
+        transactionService.runOnTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                WorkReportLine line = findLineOf(secondLineId);
+                WorkReport workReport = line.getWorkReport();
+                workReport.removeWorkReportLine(line);
+                sumChargedEffortDAO
+                        .updateRelatedSumChargedEffortWithDeletedWorkReportLineSet(Collections
+                                .singleton(line));
+                workReportDAO.save(workReport);
+                return null;
+            }
+        });
+
+        assertEffortIs(secondLineId, 0, 0);
+        assertEffortIs(groupId, 0, 10);
+        assertEffortIs(orderId, 0, 13);
+        assertEffortMatchesTheLines();
+    }
+
+    @Test
+    public void theRecalculationMatchesTheIncrementalUpdates() {
+        recalculate();
+
+        assertEffortIs(firstLineId, 10, 0);
+        assertEffortIs(secondLineId, 5, 0);
+        assertEffortIs(thirdLineId, 3, 0);
+        assertEffortIs(groupId, 0, 15);
+        assertEffortIs(orderId, 0, 18);
+        assertEffortMatchesTheLines();
+    }
+
+    @Test
+    public void theRecalculationSetsTheTimesheetDatesOfTheElementsAndAncestors() {
+        recalculate();
+
+        assertTimesheetDatesAre(firstLineId, FIRST_DATE, FIRST_DATE);
+        assertTimesheetDatesAre(groupId, FIRST_DATE, SECOND_DATE);
+        assertTimesheetDatesAre(orderId, FIRST_DATE, THIRD_DATE);
+        assertTimesheetDatesMatchTheLines();
+    }
+
+    @Test
+    public void theRecalculationOnlyMarksAsFinishedTheElementsWithAFinishedLine() {
+        recalculate();
+
+        transactionService.runOnReadOnlyTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                for (Long each : allIds()) {
+                    OrderElement orderElement = findOrderElement(each);
+                    assertEquals(workReportLineDAO.isFinished(orderElement),
+                            sumChargedEffortDAO
+                                    .findByOrderElement(orderElement)
+                                    .isFinishedTimesheets());
+                }
+                assertTrue(findSumChargedEffort(secondLineId)
+                        .isFinishedTimesheets());
+                assertFalse(findSumChargedEffort(groupId)
+                        .isFinishedTimesheets());
+                return null;
+            }
+        });
+    }
+
+    private void recalculate() {
+        transactionService.runOnTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                sumChargedEffortDAO.recalculateSumChargedEfforts(orderId);
+                return null;
+            }
+        });
+    }
+
+    private Set<Long> allIds() {
+        Set<Long> result = new HashSet<Long>();
+        result.add(orderId);
+        result.add(groupId);
+        result.add(firstLineId);
+        result.add(secondLineId);
+        result.add(thirdLineId);
+        return result;
+    }
+
+    private WorkReportLine findLineOf(Long orderElementId) {
+        try {
+            WorkReport workReport = workReportDAO.find(workReportId);
+            for (WorkReportLine each : workReport.getWorkReportLines()) {
+                if (each.getOrderElement().getId().equals(orderElementId)) {
+                    return each;
+                }
+            }
+            throw new RuntimeException("no line for " + orderElementId);
+        } catch (InstanceNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private OrderElement findOrderElement(Long id) {
+        try {
+            return orderElementDAO.find(id);
+        } catch (InstanceNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private SumChargedEffort findSumChargedEffort(Long orderElementId) {
+        return sumChargedEffortDAO
+                .findByOrderElement(findOrderElement(orderElementId));
+    }
+
+    private void assertEffortIs(final Long orderElementId,
+            final int directHours, final int indirectHours) {
+        transactionService.runOnReadOnlyTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                SumChargedEffort sumChargedEffort = findSumChargedEffort(orderElementId);
+                assertEquals(EffortDuration.hours(directHours),
+                        sumChargedEffort.getDirectChargedEffort());
+                assertEquals(EffortDuration.hours(indirectHours),
+                        sumChargedEffort.getIndirectChargedEffort());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Checks the stored effort of every element against the one calculated
+     * from the lines of the element and the totals of its children
+     */
+    private void assertEffortMatchesTheLines() {
+        transactionService.runOnReadOnlyTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                assertEffortMatchesTheLines(findOrderElement(orderId));
+                return null;
+            }
+        });
+    }
+
+    private EffortDuration assertEffortMatchesTheLines(
+            OrderElement orderElement) {
+        EffortDuration direct = EffortDuration.zero();
+        for (WorkReportLine each : workReportLineDAO
+                .findByOrderElement(orderElement)) {
+            direct = direct.plus(each.getEffort());
+        }
+        EffortDuration indirect = EffortDuration.zero();
+        for (OrderElement child : orderElement.getChildren()) {
+            indirect = indirect.plus(assertEffortMatchesTheLines(child));
+        }
+
+        SumChargedEffort sumChargedEffort = sumChargedEffortDAO
+                .findByOrderElement(orderElement);
+        assertEquals(direct, sumChargedEffort.getDirectChargedEffort());
+        assertEquals(indirect, sumChargedEffort.getIndirectChargedEffort());
+        return direct.plus(indirect);
+    }
+
+    private void assertTimesheetDatesAre(final Long orderElementId,
+            final Date first, final Date last) {
+        transactionService.runOnReadOnlyTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                SumChargedEffort sumChargedEffort = findSumChargedEffort(orderElementId);
+                assertEquals(first.getTime(), sumChargedEffort
+                        .getFirstTimesheetDate().getTime());
+                assertEquals(last.getTime(), sumChargedEffort
+                        .getLastTimesheetDate().getTime());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Checks the stored timesheet dates of every element against the ones
+     * calculated from the lines of the element and the dates of its children
+     */
+    private void assertTimesheetDatesMatchTheLines() {
+        transactionService.runOnReadOnlyTransaction(new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+                assertTimesheetDatesMatchTheLines(findOrderElement(orderId));
+                return null;
+            }
+        });
+    }
+
+    private Pair<Date, Date> assertTimesheetDatesMatchTheLines(
+            OrderElement orderElement) {
+        Pair<Date, Date> own = workReportLineDAO
+                .findMinAndMaxDatesByOrderElement(orderElement);
+        Date first = own.getFirst();
+        Date last = own.getSecond();
+        for (OrderElement child : orderElement.getChildren()) {
+            Pair<Date, Date> childDates = assertTimesheetDatesMatchTheLines(child);
+            first = earliest(first, childDates.getFirst());
+            last = latest(last, childDates.getSecond());
+        }
+
+        SumChargedEffort sumChargedEffort = sumChargedEffortDAO
+                .findByOrderElement(orderElement);
+        assertEquals(first, sumChargedEffort.getFirstTimesheetDate());
+        assertEquals(last, sumChargedEffort.getLastTimesheetDate());
+        return Pair.create(first, last);
+    }
+
+    private static Date earliest(Date a, Date b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return a.before(b) ? a : b;
+    }
+
+    private static Date latest(Date a, Date b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return a.after(b) ? a : b;
+    }
+
+}
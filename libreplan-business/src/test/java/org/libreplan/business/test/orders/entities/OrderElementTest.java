@@ -33,6 +33,7 @@ import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -1104,6 +1105,64 @@ public class OrderElementTest {
                 sameValueAs(division.divide(4545, 10000)));
     }
 
+    @Test
+    @Transactional
+    public void checkAdvancePercentagesAreTheSameAsAskingForEachDate()
+            throws DuplicateValueTrueReportGlobalAdvanceException,
+            DuplicateAdvanceAssignmentForOrderElementException {
+        OrderLineGroup orderLineGroup_1 = OrderLineGroup.create();
+        orderLineGroup_1.setName("OrderLineGroup 1");
+        orderLineGroup_1.setCode("1");
+        orderLineGroup_1.useSchedulingDataFor(mockedOrderVersion);
+        OrderLineGroup orderLineGroup_1_1 = OrderLineGroup.create();
+        orderLineGroup_1_1.setName("OrderLineGroup 1.1");
+        orderLineGroup_1_1.setCode("1.1");
+
+        OrderLine orderLine_1_1_1 = givenOrderLine("OrderLine 1.1.1", "1.1.1",
+                1000);
+        OrderLine orderLine_1_1_2 = givenOrderLine("OrderLine 1.1.2", "1.1.2",
+                3000);
+        OrderLine orderLine_1_2 = givenOrderLine("OrderLine 1.2", "1.2", 2000);
+
+        orderLineGroup_1.add(orderLineGroup_1_1);
+        orderLineGroup_1.add(orderLine_1_2);
+        orderLineGroup_1_1.add(orderLine_1_1_1);
+        orderLineGroup_1_1.add(orderLine_1_1_2);
+
+        LocalDate one = new LocalDate(2009, 9, 1);
+        LocalDate two = new LocalDate(2009, 9, 2);
+        LocalDate three = new LocalDate(2009, 9, 3);
+        LocalDate four = new LocalDate(2009, 9, 4);
+        LocalDate five = new LocalDate(2009, 9, 5);
+
+        AdvanceType advanceType = PredefinedAdvancedTypes.UNITS.getType();
+        addAvanceAssignmentWithMeasurements(orderLine_1_1_1, advanceType,
+                true, new BigDecimal(1000), one, new BigDecimal(100), three,
+                new BigDecimal(400), five, new BigDecimal(900));
+        addAvanceAssignmentWithMeasurements(orderLine_1_1_2, advanceType,
+                true, new BigDecimal(1000), two, new BigDecimal(50), three,
+                new BigDecimal(500), four, new BigDecimal(600));
+        addAvanceAssignmentWithMeasurements(orderLine_1_2, advanceType, true,
+                new BigDecimal(100), one, new BigDecimal(10), two,
+                new BigDecimal(20), four, new BigDecimal(80));
+
+        List<LocalDate> dates = Arrays.asList(one.minusDays(1), one, two,
+                three, four, five, five.plusDays(1));
+        for (OrderLineGroup each : Arrays.asList(orderLineGroup_1,
+                orderLineGroup_1_1)) {
+            List<BigDecimal> percentages = each.getAdvancePercentages(dates);
+            List<BigDecimal> childrenPercentages = each
+                    .getAdvancePercentagesChildren(dates);
+            assertThat(percentages.size(), equalTo(dates.size()));
+            for (int i = 0; i < dates.size(); i++) {
+                assertThat(percentages.get(i),
+                        equalTo(each.getAdvancePercentage(dates.get(i))));
+                assertThat(childrenPercentages.get(i), equalTo(each
+                        .getAdvancePercentageChildren(dates.get(i))));
+            }
+        }
+    }
+
     public static void removeReportGlobalAdvanceFromChildrenAdvance(
             OrderLineGroup orderLineGroup) {
         for (IndirectAdvanceAssignment indirectAdvanceAssignment : orderLineGroup
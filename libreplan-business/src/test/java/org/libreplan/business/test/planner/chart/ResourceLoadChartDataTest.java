@@ -0,0 +1,149 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.chart;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.ICalendar;
+import org.libreplan.business.planner.chart.ILoadChartData;
+import org.libreplan.business.planner.chart.ResourceLoadChartData;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+
+public class ResourceLoadChartDataTest {
+
+    // it's a Wednesday
+    private static final LocalDate START = new LocalDate(2013, 1, 2);
+
+    private static final int DAYS = 60;
+
+    private Worker worker;
+
+    private List<Resource> resources;
+
+    private List<DayAssignment> assignments;
+
+    @Before
+    public void setUp() {
+        ICalendar calendar = createNiceMock(ICalendar.class);
+        expect(calendar.getCapacityOn(isA(PartialDay.class))).andReturn(
+                hours(8)).anyTimes();
+        worker = createNiceMock(Worker.class);
+        expect(worker.getCalendarOrDefault()).andReturn(calendar).anyTimes();
+        replay(calendar, worker);
+        resources = Arrays.<Resource> asList(worker);
+        assignments = new ArrayList<DayAssignment>();
+        for (int i = 0; i < DAYS; i++) {
+            assignments.add(SpecificDayAssignment.create(START.plusDays(i),
+                    hours(i % 12), worker));
+        }
+    }
+
+    @Test
+    public void theSumsPerWeekAreTheSumsOfTheDaysOfEachWeek() {
+        ResourceLoadChartData data = new ResourceLoadChartData(assignments,
+                resources);
+        assertSumsPerWeekMatchDays(data);
+    }
+
+    @Test
+    public void theSumsPerWeekOnAnIntervalOnlyIncludeItsDays() {
+        ResourceLoadChartData data = new ResourceLoadChartData(assignments,
+                resources);
+        for (int start = -3; start < DAYS + 3; start += 2) {
+            for (int end = start; end < DAYS + 3; end += 3) {
+                assertSumsPerWeekMatchDays(data.on(START.plusDays(start),
+                        START.plusDays(end)));
+            }
+            assertSumsPerWeekMatchDays(data.on(START.plusDays(start), null));
+            assertSumsPerWeekMatchDays(data.on(null, START.plusDays(start)));
+        }
+    }
+
+    @Test
+    public void theOnlyDaysShownAreTheOnesOnTheInterval() {
+        ResourceLoadChartData data = new ResourceLoadChartData(assignments,
+                resources);
+        SortedMap<LocalDate, EffortDuration> load = data.on(
+                START.plusDays(10), START.plusDays(20)).getLoad();
+        assertEquals(START.plusDays(10), load.firstKey());
+        assertEquals(START.plusDays(19), load.lastKey());
+    }
+
+    @Test
+    public void theSumsPerWeekAreKeptUpdatedWhenRecalculatingDays() {
+        ResourceLoadChartData data = new ResourceLoadChartData(assignments,
+                resources);
+        List<LocalDate> modified = Arrays.asList(START.plusDays(3),
+                START.plusDays(4), START.plusDays(30), START.plusDays(DAYS + 5));
+        List<DayAssignment> newAssignments = new ArrayList<DayAssignment>();
+        for (LocalDate each : modified) {
+            newAssignments.add(SpecificDayAssignment.create(each, hours(10),
+                    worker));
+        }
+        ResourceLoadChartData recalculated = data.recalculateDays(modified,
+                newAssignments, resources);
+        assertEquals(hours(10),
+                recalculated.getOverload().get(START.plusDays(30)));
+        assertSumsPerWeekMatchDays(recalculated);
+        assertSumsPerWeekMatchDays(data);
+    }
+
+    private void assertSumsPerWeekMatchDays(ILoadChartData data) {
+        assertEquals(sumPerWeek(data.getLoad()), data.getLoadPerWeek());
+        assertEquals(sumPerWeek(data.getOverload()), data.getOverloadPerWeek());
+        assertEquals(sumPerWeek(data.getAvailability()),
+                data.getAvailabilityPerWeek());
+    }
+
+    private static SortedMap<LocalDate, EffortDuration> sumPerWeek(
+            SortedMap<LocalDate, EffortDuration> byDay) {
+        SortedMap<LocalDate, EffortDuration> result = new TreeMap<LocalDate, EffortDuration>();
+        for (Entry<LocalDate, EffortDuration> each : byDay.entrySet()) {
+            LocalDate week = each.getKey().dayOfWeek().withMinimumValue();
+            assertTrue(week.getDayOfWeek() == 1);
+            EffortDuration previous = result.get(week);
+            result.put(week, previous == null ? each.getValue() : previous
+                    .plus(each.getValue()));
+        }
+        return result;
+    }
+
+}
@@ -29,6 +29,7 @@ import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
@@ -38,6 +39,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
+import org.libreplan.business.common.metrics.HibernateStatisticsInterceptor;
 import org.libreplan.business.orders.daos.IHoursGroupDAO;
 import org.libreplan.business.orders.daos.IOrderElementDAO;
 import org.libreplan.business.orders.entities.HoursGroup;
@@ -60,6 +62,7 @@ import org.libreplan.business.scenarios.IScenarioManager;
 import org.libreplan.business.scenarios.bootstrap.IScenariosBootstrap;
 import org.libreplan.business.scenarios.entities.OrderVersion;
 import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.ResourcesPerDay;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
@@ -301,4 +304,38 @@ public class ResourceAllocationDAOTest {
                 resources,
                 intervalInitDate, null).contains(resourceAllocation1));
   }
+
+    private static final int DAYS = 200;
+
+    @Test
+    @Transactional
+    public void theDayAssignmentsAreWrittenInBatches() {
+        SpecificResourceAllocation allocation = createValidSpecificResourceAllocation();
+        allocation.switchToScenario(scenarioManager.getCurrent());
+        resourceAllocationDAO.save(allocation);
+        resourceAllocationDAO.flush();
+
+        allocateEveryDay(allocation, EffortDuration.hours(8));
+        assertEquals(DAYS, allocation.getAssignments().size());
+        assertTrue(statementsToSave(allocation) < DAYS / 10);
+
+        allocateEveryDay(allocation, EffortDuration.hours(4));
+        assertEquals(DAYS, allocation.getAssignments().size());
+        assertTrue(statementsToSave(allocation) < DAYS / 10);
+    }
+
+    private void allocateEveryDay(SpecificResourceAllocation allocation,
+            EffortDuration effort) {
+        LocalDate start = allocation.getTask().getStartAsLocalDate();
+        allocation.onInterval(start, start.plusDays(DAYS)).allocate(
+                Collections.nCopies(DAYS, effort));
+    }
+
+    private long statementsToSave(ResourceAllocation<?> allocation) {
+        HibernateStatisticsInterceptor.startRequest();
+        resourceAllocationDAO.save(allocation);
+        resourceAllocationDAO.flush();
+        return HibernateStatisticsInterceptor.finishRequest().getStatements();
+    }
+
 }
@@ -0,0 +1,214 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.entities;
+
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+import static org.libreplan.business.workingday.EffortDuration.zero;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.common.BaseEntity;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.DayAssignmentsTimeSeries;
+import org.libreplan.business.planner.entities.GenericDayAssignment;
+import org.libreplan.business.planner.entities.GenericResourceAllocation;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.EffortDuration;
+
+public class DayAssignmentsTimeSeriesTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private Worker worker1;
+
+    private Worker worker2;
+
+    private List<DayAssignment> assignments;
+
+    private DayAssignmentsTimeSeries timeSeries;
+
+    @Before
+    public void setUp() {
+        worker1 = createNiceMock(Worker.class);
+        worker2 = createNiceMock(Worker.class);
+        replay(worker1, worker2);
+        assignments = new ArrayList<DayAssignment>();
+    }
+
+    private void givenAssignment(LocalDate day, EffortDuration effort,
+            Worker worker) {
+        assignments.add(GenericDayAssignment.create(day, effort, worker));
+    }
+
+    private void givenTimeSeries() {
+        Collections.shuffle(assignments, new Random(1));
+        timeSeries = DayAssignmentsTimeSeries.create(assignments);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void theAssignmentsMustBeNotNull() {
+        DayAssignmentsTimeSeries.create(null);
+    }
+
+    @Test
+    public void anEmptyTimeSeriesHasNoEffort() {
+        givenTimeSeries();
+        assertTrue(timeSeries.isEmpty());
+        assertNull(timeSeries.getFirstDay());
+        assertNull(timeSeries.getLastDay());
+        assertEquals(zero(), timeSeries.getTotalEffort());
+        assertEquals(zero(), timeSeries.getEffort(START, START.plusDays(10)));
+        assertEquals(zero(),
+                timeSeries.getEffort(worker1, START, START.plusDays(10)));
+    }
+
+    @Test
+    public void theTotalEffortIsTheSumOfAllTheAssignments() {
+        givenAssignment(START, hours(8), worker1);
+        givenAssignment(START.plusDays(1), hours(4), worker1);
+        givenAssignment(START.plusDays(1), hours(3), worker2);
+        givenTimeSeries();
+        assertEquals(hours(15), timeSeries.getTotalEffort());
+        assertEquals(hours(12), timeSeries.getTotalEffort(worker1));
+        assertEquals(hours(3), timeSeries.getTotalEffort(worker2));
+    }
+
+    @Test
+    public void theFirstAndLastDaysAreKnown() {
+        givenAssignment(START.plusDays(3), hours(8), worker1);
+        givenAssignment(START, hours(8), worker2);
+        givenAssignment(START.plusDays(1), hours(8), worker1);
+        givenTimeSeries();
+        assertEquals(START, timeSeries.getFirstDay());
+        assertEquals(START.plusDays(3), timeSeries.getLastDay());
+    }
+
+    @Test
+    public void theEndOfTheIntervalIsExcluded() {
+        givenAssignment(START, hours(8), worker1);
+        givenAssignment(START.plusDays(1), hours(4), worker1);
+        givenAssignment(START.plusDays(2), hours(2), worker1);
+        givenTimeSeries();
+        assertEquals(hours(12), timeSeries.getEffort(START, START.plusDays(2)));
+        assertEquals(hours(6),
+                timeSeries.getEffort(START.plusDays(1), START.plusDays(3)));
+        assertEquals(hours(4), timeSeries.getEffortAt(START.plusDays(1)));
+        assertEquals(zero(), timeSeries.getEffort(START, START));
+        assertEquals(zero(),
+                timeSeries.getEffort(START.plusDays(2), START));
+    }
+
+    @Test
+    public void theIntervalCanGoBeyondTheAssignments() {
+        givenAssignment(START, hours(8), worker1);
+        givenAssignment(START.plusDays(5), hours(4), worker1);
+        givenTimeSeries();
+        assertEquals(hours(12),
+                timeSeries.getEffort(START.minusDays(30), START.plusDays(30)));
+        assertEquals(zero(),
+                timeSeries.getEffort(START.plusDays(1), START.plusDays(5)));
+        assertEquals(zero(),
+                timeSeries.getEffort(START.plusDays(6), START.plusDays(30)));
+    }
+
+    @Test
+    public void theEffortCanBeAskedForEachResource() {
+        givenAssignment(START, hours(8), worker1);
+        givenAssignment(START, hours(2), worker2);
+        givenAssignment(START.plusDays(1), hours(4), worker2);
+        givenTimeSeries();
+        assertEquals(hours(10), timeSeries.getEffortAt(START));
+        assertEquals(hours(8),
+                timeSeries.getEffort(worker1, START, START.plusDays(2)));
+        assertEquals(hours(6),
+                timeSeries.getEffort(worker2, START, START.plusDays(2)));
+        Worker notAssigned = createNiceMock(Worker.class);
+        replay(notAssigned);
+        assertEquals(zero(),
+                timeSeries.getEffort(notAssigned, START, START.plusDays(2)));
+    }
+
+    @Test
+    public void theEffortIsTheSameAsSummingTheAssignments() {
+        Random random = new Random(3);
+        for (int i = 0; i < 400; i++) {
+            givenAssignment(START.plusDays(random.nextInt(200)),
+                    hours(random.nextInt(9)), random.nextBoolean() ? worker1
+                            : worker2);
+        }
+        givenTimeSeries();
+        for (int i = 0; i < 200; i++) {
+            LocalDate start = START.plusDays(random.nextInt(220) - 10);
+            LocalDate end = start.plusDays(random.nextInt(60));
+            assertEquals(sum(null, start, end),
+                    timeSeries.getEffort(start, end));
+            assertEquals(sum(worker1, start, end),
+                    timeSeries.getEffort(worker1, start, end));
+            assertEquals(sum(worker2, start, end),
+                    timeSeries.getEffort(worker2, start, end));
+        }
+    }
+
+    @Test
+    public void discountingAllocationsWithoutAssignmentsDiscountsNothing() {
+        givenAssignment(START, hours(8), worker1);
+        givenAssignment(START, hours(2), worker1);
+        givenAssignment(START.plusDays(1), hours(4), worker1);
+        givenTimeSeries();
+        Map<Long, Set<BaseEntity>> noAllocations = BaseEntity
+                .byId(Collections.<BaseEntity> emptyList());
+        Map<Long, Set<BaseEntity>> otherAllocation = BaseEntity.byId(Arrays
+                .<BaseEntity> asList(GenericResourceAllocation.create()));
+        assertEquals(hours(10),
+                timeSeries.getEffortDiscounting(noAllocations, START));
+        assertEquals(hours(10),
+                timeSeries.getEffortDiscounting(otherAllocation, START));
+        assertEquals(hours(4), timeSeries.getEffortDiscounting(
+                otherAllocation, START.plusDays(1)));
+        assertEquals(zero(), timeSeries.getEffortDiscounting(otherAllocation,
+                START.plusDays(2)));
+    }
+
+    private EffortDuration sum(Worker worker, LocalDate start, LocalDate end) {
+        EffortDuration result = zero();
+        for (DayAssignment each : assignments) {
+            if ((worker == null || each.isAssignedTo(worker))
+                    && each.includedIn(start, end)) {
+                result = result.plus(each.getDuration());
+            }
+        }
+        return result;
+    }
+
+}
@@ -353,6 +353,21 @@ public class MoneyCostCalculatorTest {
                 equalTo(new BigDecimal(500).setScale(2)));
     }
 
+    @Test
+    @Transactional
+    public void theChildrenNotSavedYetAreIgnored() {
+        givenExampleOrderLineGroup();
+        OrderLine notSaved = OrderLine.createOrderLineWithUnfixedPercentage(100);
+        notSaved.setCode("order-line-3-" + UUID.randomUUID());
+        notSaved.setName("order-line-3-" + UUID.randomUUID());
+        ((OrderLineGroup) orderElements.get(0)).add(notSaved);
+
+        assertThat(moneyCostCalculator.getHoursMoneyCost(orderElements.get(0)),
+                equalTo(new BigDecimal(1500).setScale(2)));
+        assertThat(moneyCostCalculator.getHoursMoneyCost(notSaved),
+                equalTo(new BigDecimal(0).setScale(2)));
+    }
+
     @Test
     @Transactional
     public void exampleOrderLineGroupWithDifferentHours1() {
@@ -0,0 +1,259 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.entities;
+
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.same;
+import static org.easymock.classextension.EasyMock.createMock;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.easymock.classextension.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.workingday.EffortDuration.hours;
+import static org.libreplan.business.workingday.EffortDuration.zero;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.easymock.IAnswer;
+import org.hibernate.collection.internal.PersistentSet;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.common.BaseEntity;
+import org.libreplan.business.planner.daos.IDayAssignmentDAO;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.DerivedAllocation;
+import org.libreplan.business.planner.entities.DerivedDayAssignment;
+import org.libreplan.business.planner.entities.GenericDayAssignment;
+import org.libreplan.business.planner.entities.ResourceLoadIndex;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.resources.entities.Machine;
+import org.libreplan.business.resources.entities.MachineWorkersConfigurationUnit;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests for {@link ResourceLoadIndex}.
+ */
+public class ResourceLoadIndexTest {
+
+    /**
+     * The first day of a window
+     */
+    private static final LocalDate START = new LocalDate(2013, 1, 31);
+
+    private static final Map<Long, Set<BaseEntity>> NOTHING = BaseEntity
+            .byId(Collections.<BaseEntity> emptyList());
+
+    private Scenario scenario;
+
+    private IDayAssignmentDAO dayAssignmentDAO;
+
+    private ResourceLoadIndex loadIndex;
+
+    private Worker worker;
+
+    @Before
+    public void setUp() {
+        scenario = createNiceMock(Scenario.class);
+        replay(scenario);
+        dayAssignmentDAO = createMock(IDayAssignmentDAO.class);
+        loadIndex = ResourceLoadIndex.create(scenario, dayAssignmentDAO);
+        worker = Worker.create("first name", "surname", "nif");
+    }
+
+    private static DerivedAllocation createAllocation() {
+        SpecificResourceAllocation derivedFrom = createNiceMock(SpecificResourceAllocation.class);
+        Machine machine = Machine.create();
+        expect(derivedFrom.getResource()).andReturn(machine).anyTimes();
+        MachineWorkersConfigurationUnit configurationUnit = createNiceMock(MachineWorkersConfigurationUnit.class);
+        expect(configurationUnit.getMachine()).andReturn(machine).anyTimes();
+        replay(derivedFrom, configurationUnit);
+        return DerivedAllocation.create(derivedFrom, configurationUnit);
+    }
+
+    private static DayAssignment assignment(LocalDate day,
+            EffortDuration effort, Resource resource,
+            DerivedAllocation allocation) {
+        return DerivedDayAssignment.create(day, effort, resource, allocation);
+    }
+
+    private static Worker notLoadedWorker(long id) {
+        Worker result = Worker.create("first name", "surname", "nif");
+        ReflectionTestUtils.setField(result, "id", id);
+        ReflectionTestUtils.setField(result, "dayAssignments",
+                new PersistentSet(null));
+        return result;
+    }
+
+    private static Map<Long, Set<BaseEntity>> discounting(
+            DerivedAllocation allocation) {
+        return BaseEntity.byId(Arrays.<BaseEntity> asList(allocation));
+    }
+
+    private EffortDuration effortAt(Resource resource, LocalDate day) {
+        return resource.getAssignedDurationDiscounting(NOTHING, day);
+    }
+
+    private void givenWindowRetrieved(final LocalDate start,
+            final Resource... resources) {
+        final List<DayAssignment> result = new ArrayList<DayAssignment>();
+        givenWindowRetrieved(start, result, resources);
+    }
+
+    private void givenWindowRetrieved(final LocalDate start,
+            final List<DayAssignment> retrieved, final Resource... resources) {
+        expect(dayAssignmentDAO.findByResources(same(scenario),
+                isA(List.class), eq(start),
+                eq(start.plusDays(ResourceLoadIndex.WINDOW_DAYS - 1))))
+                .andAnswer(new IAnswer<List<DayAssignment>>() {
+
+                    @Override
+                    public List<DayAssignment> answer() {
+                        assertEquals(new HashSet<Resource>(Arrays
+                                .asList(resources)), new HashSet<Object>(
+                                (List<?>) getCurrentArguments()[1]));
+                        return retrieved;
+                    }
+                });
+    }
+
+    @Test
+    public void theLoadOfTheResourcesInMemoryIsNotRetrievedAgain() {
+        replay(dayAssignmentDAO);
+        worker.useLoadIndex(loadIndex);
+        worker.addNewAssignments(Arrays.asList(
+                GenericDayAssignment.create(START, hours(8), worker),
+                GenericDayAssignment.create(START, hours(2), worker),
+                GenericDayAssignment.create(START.plusDays(40), hours(4),
+                        worker)));
+
+        assertEquals(hours(10), effortAt(worker, START));
+        assertEquals(zero(), effortAt(worker, START.plusDays(1)));
+        assertEquals(hours(4), effortAt(worker, START.plusDays(40)));
+        verify(dayAssignmentDAO);
+    }
+
+    @Test
+    public void theLoadIsUpdatedWhenTheAssignmentsChange() {
+        replay(dayAssignmentDAO);
+        worker.useLoadIndex(loadIndex);
+        DayAssignment first = GenericDayAssignment.create(START, hours(8),
+                worker);
+        worker.addNewAssignments(Arrays.asList(first));
+        assertEquals(hours(8), effortAt(worker, START));
+
+        DayAssignment second = GenericDayAssignment.create(START, hours(3),
+                worker);
+        worker.addNewAssignments(Arrays.asList(second));
+        assertEquals(hours(11), effortAt(worker, START));
+
+        worker.removeAssignments(Arrays.asList(first));
+        assertEquals(hours(3), effortAt(worker, START));
+        worker.removeAssignments(Arrays.asList(first));
+        assertEquals(hours(3), effortAt(worker, START));
+    }
+
+    @Test
+    public void theLoadOfTheDiscountedAllocationsIsNotCounted() {
+        replay(dayAssignmentDAO);
+        DerivedAllocation allocation = createAllocation();
+        DerivedAllocation other = createAllocation();
+        worker.useLoadIndex(loadIndex);
+        worker.addNewAssignments(Arrays.asList(
+                assignment(START, hours(8), worker, allocation),
+                assignment(START, hours(3), worker, other)));
+
+        assertEquals(hours(3),
+                worker.getAssignedDurationDiscounting(discounting(allocation),
+                        START));
+        assertEquals(hours(8), worker.getAssignedDurationDiscounting(
+                discounting(other), START));
+        assertEquals(zero(), worker.getAssignedDurationDiscounting(
+                discounting(allocation), START.plusDays(1)));
+    }
+
+    @Test
+    public void onlyTheWindowAskedForIsRetrievedForAllTheResourcesNotLoaded() {
+        Worker first = notLoadedWorker(1);
+        Worker second = notLoadedWorker(2);
+        givenWindowRetrieved(START, Arrays.<DayAssignment> asList(
+                GenericDayAssignment.create(START, hours(8), first),
+                GenericDayAssignment.create(START.plusDays(1), hours(4),
+                        second),
+                GenericDayAssignment.create(START.plusDays(1), hours(2),
+                        second)), first, second);
+        LocalDate nextWindow = START.plusDays(ResourceLoadIndex.WINDOW_DAYS);
+        givenWindowRetrieved(nextWindow, first, second);
+        replay(dayAssignmentDAO);
+        worker.useLoadIndex(loadIndex);
+        first.useLoadIndex(loadIndex);
+        second.useLoadIndex(loadIndex);
+
+        assertEquals(hours(8), effortAt(first, START));
+        assertEquals(hours(6), effortAt(second, START.plusDays(1)));
+        assertEquals(zero(), effortAt(second, START));
+        assertEquals(zero(), effortAt(first, START.plusDays(
+                ResourceLoadIndex.WINDOW_DAYS - 1)));
+        assertEquals(zero(), effortAt(second, nextWindow.plusDays(3)));
+        assertEquals(zero(), effortAt(first, nextWindow));
+
+        verify(dayAssignmentDAO);
+        assertFalse(first.isDayAssignmentsLoaded());
+        assertFalse(second.isDayAssignmentsLoaded());
+        assertTrue(worker.isDayAssignmentsLoaded());
+    }
+
+    @Test
+    public void theWindowsRetrievedAreUpdatedToo() {
+        Worker notLoaded = notLoadedWorker(1);
+        DayAssignment retrieved = GenericDayAssignment.create(START,
+                hours(8), notLoaded);
+        givenWindowRetrieved(START, Arrays.asList(retrieved), notLoaded);
+        replay(dayAssignmentDAO);
+        notLoaded.useLoadIndex(loadIndex);
+        assertEquals(hours(8), effortAt(notLoaded, START));
+
+        // modifying the assignments loads them
+        ReflectionTestUtils.setField(notLoaded, "dayAssignments",
+                new HashSet<DayAssignment>(Arrays.asList(retrieved)));
+        notLoaded.removeAssignments(Arrays.asList(retrieved));
+        notLoaded.addNewAssignments(Arrays.asList(GenericDayAssignment.create(
+                START, hours(5), notLoaded)));
+
+        assertEquals(hours(5), effortAt(notLoaded, START));
+        verify(dayAssignmentDAO);
+    }
+
+}
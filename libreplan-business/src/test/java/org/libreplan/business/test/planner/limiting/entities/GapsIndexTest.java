@@ -0,0 +1,166 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.business.test.planner.limiting.entities;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.libreplan.business.test.planner.entities.SpecificResourceAllocationTest.createResourceCalendarAlwaysReturning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.Gap;
+import org.libreplan.business.planner.limiting.entities.GapsIndex;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+
+public class GapsIndexTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private Resource resource;
+
+    private GapsIndex index;
+
+    @Before
+    public void setUp() {
+        ResourceCalendar calendar = createResourceCalendarAlwaysReturning(8);
+        resource = createNiceMock(Worker.class);
+        expect(resource.getCalendar()).andReturn(calendar).anyTimes();
+        replay(resource);
+        index = new GapsIndex();
+    }
+
+    private static DateAndHour day(int day) {
+        return DateAndHour.from(START.plusDays(day));
+    }
+
+    /**
+     * @return a gap of <code>days</code> days, so 8 hours per day
+     */
+    private Gap gap(int from, int days) {
+        return Gap.create(resource, day(from), day(from + days));
+    }
+
+    private Gap gapUntilEnd(int from) {
+        return Gap.create(resource, day(from), null);
+    }
+
+    @Test
+    public void theGapsAreReturnedOrderedByStart() {
+        Gap first = gap(0, 1);
+        Gap second = gap(2, 3);
+        Gap third = gap(6, 1);
+        Gap last = gapUntilEnd(10);
+        for (Gap each : Arrays.asList(third, last, first, second)) {
+            index.add(each);
+        }
+        assertEquals(Arrays.asList(first, second, third, last),
+                index.getGaps());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void onlyTheGapsEndingAfterAGivenTimeAreReturned() {
+        Gap first = gap(0, 1);
+        Gap second = gap(2, 3);
+        Gap last = gapUntilEnd(10);
+        index.add(first);
+        index.add(second);
+        index.add(last);
+        assertEquals(Arrays.asList(second, last),
+                index.getGapsEndingAfter(day(1)));
+        assertEquals(Arrays.asList(second, last),
+                index.getGapsEndingAfter(day(4)));
+        assertEquals(Arrays.asList(last), index.getGapsEndingAfter(day(5)));
+    }
+
+    @Test
+    public void theFirstGapWithEnoughHoursIsFound() {
+        Gap small = gap(0, 1);
+        Gap big = gap(2, 3);
+        Gap other = gap(6, 1);
+        Gap last = gapUntilEnd(10);
+        for (Gap each : Arrays.asList(small, big, other, last)) {
+            index.add(each);
+        }
+        assertSame(small, index.getFirstGapEndingAfter(null, 8));
+        assertSame(big, index.getFirstGapEndingAfter(null, 9));
+        assertSame(other, index.getFirstGapEndingAfter(day(5), 8));
+        assertSame(last, index.getFirstGapEndingAfter(day(5), 9));
+    }
+
+    @Test
+    public void thereIsNoGapIfNoneHasEnoughHours() {
+        index.add(gap(0, 1));
+        index.add(gap(2, 3));
+        assertNull(index.getFirstGapEndingAfter(null, 25));
+        assertNull(index.getFirstGapEndingAfter(day(5), 1));
+    }
+
+    @Test
+    public void theRemovedGapsAreNotReturned() {
+        Gap first = gap(0, 1);
+        Gap second = gap(2, 3);
+        Gap last = gapUntilEnd(10);
+        index.add(first);
+        index.add(second);
+        index.add(last);
+        index.remove(second);
+        assertEquals(Arrays.asList(first, last), index.getGaps());
+        assertSame(last, index.getFirstGapEndingAfter(null, 9));
+    }
+
+    @Test
+    public void manyGapsCanBeAddedAndRemovedInAnyOrder() {
+        List<Gap> gaps = new ArrayList<Gap>();
+        for (int i = 0; i < 200; i++) {
+            gaps.add(gap(i * 2, 1));
+        }
+        List<Gap> shuffled = new ArrayList<Gap>(gaps);
+        Collections.shuffle(shuffled);
+        for (Gap each : shuffled) {
+            index.add(each);
+        }
+        assertEquals(gaps, index.getGaps());
+        for (Gap each : shuffled.subList(0, 100)) {
+            index.remove(each);
+            gaps.remove(each);
+        }
+        assertEquals(gaps, index.getGaps());
+        assertTrue(index.getGapsEndingAfter(day(400)).isEmpty());
+        assertSame(gaps.get(gaps.size() - 1),
+                index.getFirstGapEndingAfter(gaps.get(gaps.size() - 2)
+                        .getEndTime(), 8));
+    }
+
+}
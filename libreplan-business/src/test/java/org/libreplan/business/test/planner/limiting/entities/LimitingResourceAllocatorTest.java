@@ -0,0 +1,129 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.business.test.planner.limiting.entities;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.calendars.entities.CalendarAvailability;
+import org.libreplan.business.calendars.entities.ResourceCalendar;
+import org.libreplan.business.planner.entities.SpecificResourceAllocation;
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.Gap;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceAllocator;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+import org.libreplan.business.resources.entities.Resource;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.business.workingday.IntraDayDate.PartialDay;
+
+public class LimitingResourceAllocatorTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private LimitingResourceQueue queue;
+
+    private static LocalDate day(int day) {
+        return START.plusDays(day);
+    }
+
+    /**
+     * Creates a queue whose resource works 8 hours every day inside the
+     * activation periods
+     */
+    private void givenQueueWithActivationPeriods(
+            CalendarAvailability... activationPeriods) {
+        ResourceCalendar calendar = createNiceMock(ResourceCalendar.class);
+        expect(calendar.getCapacityOn(isA(PartialDay.class))).andReturn(
+                EffortDuration.hours(8)).anyTimes();
+        List<CalendarAvailability> periods = Arrays.asList(activationPeriods);
+        expect(calendar.getCalendarAvailabilities()).andReturn(periods)
+                .anyTimes();
+        Resource resource = createNiceMock(Worker.class);
+        expect(resource.getCalendar()).andReturn(calendar).anyTimes();
+        replay(calendar, resource);
+        queue = LimitingResourceQueue.create();
+        queue.setResource(resource);
+    }
+
+    private void givenElementInQueue(int from, int to) {
+        LimitingResourceQueueElement element = LimitingResourceQueueElement
+                .create();
+        element.moveTo(DateAndHour.from(day(from)), DateAndHour.from(day(to)));
+        queue.addLimitingResourceQueueElement(element);
+    }
+
+    private LimitingResourceQueueElement elementToPlace(int hours) {
+        SpecificResourceAllocation allocation = createNiceMock(SpecificResourceAllocation.class);
+        expect(allocation.getIntendedTotalHours()).andReturn(hours)
+                .anyTimes();
+        replay(allocation);
+        LimitingResourceQueueElement result = LimitingResourceQueueElement
+                .create();
+        result.setResourceAllocation(allocation);
+        result.setEarlierStartDateBecauseOfGantt(START.toDateTimeAtStartOfDay()
+                .toDate());
+        return result;
+    }
+
+    private Gap firstValidGapFor(int hours) {
+        return LimitingResourceAllocator.getFirstValidGap(queue,
+                elementToPlace(hours));
+    }
+
+    @Test
+    public void theGapsBetweenElementsOnlyIncludeTheActivationPeriods() {
+        givenQueueWithActivationPeriods(
+                CalendarAvailability.create(day(0), day(9)),
+                CalendarAvailability.create(day(20), null));
+        givenElementInQueue(0, 2);
+        givenElementInQueue(30, 31);
+
+        Gap gap = firstValidGapFor(64);
+        assertEquals(DateAndHour.from(day(2)), gap.getStartTime());
+        assertEquals(DateAndHour.from(day(10)), gap.getEndTime());
+
+        gap = firstValidGapFor(80);
+        assertEquals(DateAndHour.from(day(20)), gap.getStartTime());
+        assertEquals(DateAndHour.from(day(30)), gap.getEndTime());
+    }
+
+    @Test
+    public void aGapBetweenElementsEndsAtTheNextElement() {
+        givenQueueWithActivationPeriods(CalendarAvailability.create(day(0),
+                null));
+        givenElementInQueue(0, 2);
+        givenElementInQueue(5, 6);
+
+        Gap gap = firstValidGapFor(40);
+        assertEquals(DateAndHour.from(day(6)), gap.getStartTime());
+        assertNull(gap.getEndTime());
+    }
+
+}
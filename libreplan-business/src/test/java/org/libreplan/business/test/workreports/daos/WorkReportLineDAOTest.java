@@ -27,14 +27,20 @@ import static junit.framework.Assert.assertTrue;
 import static org.libreplan.business.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_FILE;
 import static org.libreplan.business.test.BusinessGlobalNames.BUSINESS_SPRING_CONFIG_TEST_FILE;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 
 import javax.annotation.Resource;
 
+import org.joda.time.LocalDate;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.libreplan.business.IDataBootstrap;
+import org.libreplan.business.common.daos.IScrollVisitor;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
 import org.libreplan.business.workreports.entities.WorkReportLine;
@@ -95,4 +101,63 @@ public class WorkReportLineDAOTest extends AbstractWorkReportTest {
                 .list(WorkReportLine.class);
         assertEquals(previous + 2, list.size());
     }
+
+    private List<String> scrollCodes(final String prefix, Date start,
+            Date end, String afterCode, Integer limit) {
+        final List<String> result = new ArrayList<String>();
+        workReportLineDAO.scrollOrderedByCode(start, end, afterCode, limit,
+                new IScrollVisitor<WorkReportLine>() {
+                    @Override
+                    public void visit(WorkReportLine each) {
+                        if (each.getCode().startsWith(prefix)) {
+                            result.add(each.getCode());
+                        }
+                    }
+                });
+        return result;
+    }
+
+    private static Date day(int day) {
+        return new LocalDate(2001, 1, day).toDateTimeAtStartOfDay().toDate();
+    }
+
+    @Test
+    @Transactional
+    public void testScrollOrderedByCode() {
+        String prefix = UUID.randomUUID().toString();
+        for (int day : Arrays.asList(2, 3, 1)) {
+            WorkReportLine workReportLine = createValidWorkReportLine();
+            workReportLine.setCode(prefix + "-" + day);
+            workReportLine.setDate(day(day));
+            workReportLineDAO.save(workReportLine);
+        }
+        workReportLineDAO.flush();
+
+        assertEquals(Arrays.asList(prefix + "-1", prefix + "-2", prefix
+                + "-3"), scrollCodes(prefix, null, null, null, null));
+        assertEquals(Arrays.asList(prefix + "-2", prefix + "-3"),
+                scrollCodes(prefix, null, null, prefix + "-1", null));
+        assertEquals(Arrays.asList(prefix + "-2"),
+                scrollCodes(prefix, null, null, prefix + "-1", 1));
+    }
+
+    @Test
+    @Transactional
+    public void testScrollOrderedByCodeBetweenDates() {
+        String prefix = UUID.randomUUID().toString();
+        for (int day : Arrays.asList(1, 2, 3, 4)) {
+            WorkReportLine workReportLine = createValidWorkReportLine();
+            workReportLine.setCode(prefix + "-" + day);
+            workReportLine.setDate(day(day));
+            workReportLineDAO.save(workReportLine);
+        }
+        workReportLineDAO.flush();
+
+        assertEquals(Arrays.asList(prefix + "-2", prefix + "-3"),
+                scrollCodes(prefix, day(2), day(3), null, null));
+        assertEquals(Arrays.asList(prefix + "-3", prefix + "-4"),
+                scrollCodes(prefix, day(3), null, null, null));
+        assertEquals(Arrays.asList(prefix + "-1"),
+                scrollCodes(prefix, null, day(1), null, null));
+    }
 }
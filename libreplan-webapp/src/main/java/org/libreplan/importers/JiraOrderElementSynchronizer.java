@@ -29,8 +29,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -80,8 +86,18 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
     private static final Log LOG = LogFactory
             .getLog(JiraOrderElementSynchronizer.class);
 
+    /**
+     * Max number of orders whose JIRA issues are requested at the same time
+     */
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
+
     private SynchronizationInfo synchronizationInfo;
 
+    /**
+     * Whether the last synchronized order has been modified
+     */
+    private boolean orderChanged;
+
     @Autowired
     private IConnectorDAO connectorDAO;
 
@@ -132,20 +148,21 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
                     _("Connection values of JIRA connector are invalid"));
         }
 
-        return getJiraIssues(label, connector);
+        return getJiraIssues("labels=" + label,
+                connector.getPropertiesAsMap());
     }
 
     /**
-     * Gets all jira issues for the specified <code>label</code>
+     * Gets all jira issues matching the specified <code>query</code>
      *
-     * @param label
+     * @param query
      *            the search criteria
-     * @param connector
-     *            where to read the configuration parameters
+     * @param properties
+     *            the configuration parameters of the connector
      * @return a list of {@link IssueDTO}
      */
-    private List<IssueDTO> getJiraIssues(String label, Connector connector) {
-        Map<String, String> properties = connector.getPropertiesAsMap();
+    private static List<IssueDTO> getJiraIssues(String query,
+            Map<String, String> properties) {
         String url = properties.get(PredefinedConnectorProperties.SERVER_URL);
 
         String username = properties
@@ -155,7 +172,6 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
                 .get(PredefinedConnectorProperties.PASSWORD);
 
         String path = JiraRESTClient.PATH_SEARCH;
-        String query = "labels=" + label;
 
         List<IssueDTO> issues = JiraRESTClient.getIssues(url, username, password,
                 path, query);
@@ -169,6 +185,7 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
 
         synchronizationInfo = new SynchronizationInfo(_(
                 "Synchronization order {0}", order.getName()));
+        orderChanged = false;
 
         for (IssueDTO issue : issues) {
             String code = PredefinedConnectorProperties.JIRA_CODE_PREFIX
@@ -232,8 +249,12 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
             orderLine = OrderLine.create();
             orderLine.setCode(code);
             order.add(orderLine);
+            orderChanged = true;
+        }
+        if (!StringUtils.equals(orderLine.getName(), name)) {
+            orderLine.setName(name);
+            orderChanged = true;
         }
-        orderLine.setName(name);
         return orderLine;
     }
 
@@ -259,9 +280,13 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
             hoursGroup = HoursGroup.create(orderLine);
             hoursGroup.setCode(code);
             orderLine.addHoursGroup(hoursGroup);
+            orderChanged = true;
         }
 
-        hoursGroup.setWorkingHours(workingHours);
+        if (!workingHours.equals(hoursGroup.getWorkingHours())) {
+            hoursGroup.setWorkingHours(workingHours);
+            orderChanged = true;
+        }
     }
 
     /**
@@ -403,6 +428,7 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
                                 orderElement.getCode()));
                 return;
             }
+            orderChanged = true;
         }
 
         AdvanceMeasurement advanceMeasurement = directAdvanceAssignment
@@ -411,18 +437,25 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
             advanceMeasurement = AdvanceMeasurement.create();
             advanceMeasurement.setDate(latestWorkLogDate);
             directAdvanceAssignment.addAdvanceMeasurements(advanceMeasurement);
+            orderChanged = true;
         }
 
-        advanceMeasurement.setValue(percentage
-                .setScale(2, RoundingMode.HALF_UP));
+        BigDecimal value = percentage.setScale(2, RoundingMode.HALF_UP);
+        if (advanceMeasurement.getValue() == null
+                || advanceMeasurement.getValue().compareTo(value) != 0) {
+            advanceMeasurement.setValue(value);
+            orderChanged = true;
+        }
 
         DirectAdvanceAssignment spreadAdvanceAssignment = orderElement
                 .getReportGlobalAdvanceAssignment();
-        if (spreadAdvanceAssignment != null) {
-            spreadAdvanceAssignment.setReportGlobalAdvance(false);
+        if (spreadAdvanceAssignment != directAdvanceAssignment) {
+            if (spreadAdvanceAssignment != null) {
+                spreadAdvanceAssignment.setReportGlobalAdvance(false);
+            }
+            directAdvanceAssignment.setReportGlobalAdvance(true);
+            orderChanged = true;
         }
-
-        directAdvanceAssignment.setReportGlobalAdvance(true);
     }
 
     /**
@@ -472,6 +505,11 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
     @Override
     @Transactional
     public void saveSyncInfo(final String key, final Order order) {
+        saveSyncInfo(key, order, new Date());
+    }
+
+    private void saveSyncInfo(final String key, final Order order,
+            final Date syncDate) {
         adHocTransactionService
                 .runOnAnotherTransaction(new IOnTransaction<Void>() {
                     @Override
@@ -483,7 +521,7 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
                             orderSyncInfo = OrderSyncInfo.create(key, order,
                                     PredefinedConnectors.JIRA.getName());
                         }
-                        orderSyncInfo.setLastSyncDate(new Date());
+                        orderSyncInfo.setLastSyncDate(syncDate);
                         orderSyncInfoDAO.save(orderSyncInfo);
                         return null;
                     }
@@ -526,15 +564,37 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
             return syncInfos;
         }
 
-        for (OrderSyncInfo orderSyncInfo : orderSyncInfos) {
+        // issues updated while synchronizing will be got again next time
+        Date syncDate = new Date();
+        List<Future<List<IssueDTO>>> updatedIssues = getUpdatedJiraIssues(
+                orderSyncInfos, connector);
+
+        for (int i = 0; i < orderSyncInfos.size(); i++) {
+            OrderSyncInfo orderSyncInfo = orderSyncInfos.get(i);
             Order order = orderSyncInfo.getOrder();
             LOG.info("Synchronizing '" + order.getName() + "'");
             synchronizationInfo = new SynchronizationInfo(_(
                     "Synchronization order {0}", order.getName()));
 
-            List<IssueDTO> issueDTOs = getJiraIssues(orderSyncInfo.getKey(),
-                    connector);
+            List<IssueDTO> issueDTOs;
+            try {
+                issueDTOs = get(updatedIssues.get(i));
+            } catch (RuntimeException e) {
+                LOG.error("Getting JIRA issues for '" + orderSyncInfo.getKey()
+                        + "' failed", e);
+                synchronizationInfo.addFailedReason(_(
+                        "Getting JIRA issues for key {0} failed: {1}",
+                        orderSyncInfo.getKey(), e.getMessage()));
+                syncInfos.add(synchronizationInfo);
+                continue;
+            }
             if (issueDTOs == null || issueDTOs.isEmpty()) {
+                if (orderSyncInfo.getLastSyncDate() != null) {
+                    LOG.info("No JIRA issues updated for '"
+                            + orderSyncInfo.getKey() + "' since "
+                            + orderSyncInfo.getLastSyncDate());
+                    continue;
+                }
                 LOG.warn("No JIRA issues found for '" + orderSyncInfo.getKey()
                         + "'");
                 synchronizationInfo.addFailedReason(_(
@@ -550,9 +610,13 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
                 syncInfos.add(synchronizationInfo);
                 continue;
             }
-            orderModel.save(false);
+            if (orderChanged) {
+                orderModel.save(false);
+            } else {
+                LOG.info("Nothing changed in '" + order.getName() + "'");
+            }
 
-            saveSyncInfo(orderSyncInfo.getKey(), order);
+            saveSyncInfo(orderSyncInfo.getKey(), order, syncDate);
 
             jiraTimesheetSynchronizer.syncJiraTimesheetWithJiraIssues(
                     issueDTOs, order);
@@ -562,4 +626,51 @@ public class JiraOrderElementSynchronizer implements IJiraOrderElementSynchroniz
         }
         return syncInfos;
     }
+
+    /**
+     * Requests the JIRA issues of several orders at the same time, but not
+     * more than {@link #MAX_CONCURRENT_REQUESTS}. Only the issues updated
+     * since the last synchronization of each order are requested
+     *
+     * @return the issues of each {@link OrderSyncInfo}, in the same order
+     */
+    private List<Future<List<IssueDTO>>> getUpdatedJiraIssues(
+            List<OrderSyncInfo> orderSyncInfos, Connector connector) {
+        // the connector is not touched out of this thread
+        final Map<String, String> properties = new HashMap<String, String>(
+                connector.getPropertiesAsMap());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+                MAX_CONCURRENT_REQUESTS, orderSyncInfos.size()));
+        try {
+            List<Future<List<IssueDTO>>> result = new ArrayList<Future<List<IssueDTO>>>();
+            for (OrderSyncInfo each : orderSyncInfos) {
+                final String query = JiraRESTClient.updatedSince("labels="
+                        + each.getKey(), each.getLastSyncDate());
+                result.add(executor.submit(new Callable<List<IssueDTO>>() {
+
+                    @Override
+                    public List<IssueDTO> call() {
+                        return getJiraIssues(query, properties);
+                    }
+                }));
+            }
+            return result;
+        } finally {
+            // the requests already submitted are still done
+            executor.shutdown();
+        }
+    }
+
+    private static List<IssueDTO> get(Future<List<IssueDTO>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
 }
@@ -19,8 +19,12 @@
 
 package org.libreplan.importers;
 
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.TimeZone;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -64,10 +68,26 @@ public class JiraRESTClient {
     private static final String FIELDS_TO_INCLUDE_IN_RESPONSE = "summary,status,timetracking,worklog";
 
     /**
-     * Max number of issues to return(default is 50)
+     * Max number of issues to return in each page(default is 50). JIRA can
+     * return less than that, so pages are requested until all the issues are
+     * read
      */
     private static final long MAX_RESULTS = 1000;
 
+    /**
+     * Format of the dates in JQL queries. JIRA interprets them in the time
+     * zone of the user
+     */
+    private static final String JQL_DATE_FORMAT = "yyyy/MM/dd HH:mm";
+
+    /**
+     * The time zone of the JIRA user is unknown, so the dates of the queries
+     * are written in UTC and moved back the largest offset a time zone can
+     * have from UTC. Then the query never misses an issue, at the cost of
+     * returning again some of the issues already read
+     */
+    private static final long JQL_DATE_MARGIN_MILLISECONDS = 14 * 60 * 60 * 1000L;
+
     private static final MediaType[] mediaTypes = new MediaType[] {
             MediaType.valueOf(MediaType.APPLICATION_JSON),
             MediaType.valueOf(MediaType.APPLICATION_XML) };
@@ -88,6 +108,9 @@ public class JiraRESTClient {
     /**
      * Query Jira for all issues with the specified query parameter
      *
+     * The search is paginated, so several requests are done until all the
+     * issues matching the query are read
+     *
      * @param url
      *            the url(end point)
      * @param username
@@ -107,18 +130,63 @@ public class JiraRESTClient {
 
         checkAutherization(client, username, password);
 
-        client.back(true);// Go to baseURI
+        List<IssueDTO> result = new ArrayList<IssueDTO>();
+        SearchResultDTO searchResult;
+        do {
+            searchResult = getIssuesPage(url, username, password, path,
+                    query, result.size());
+            List<IssueDTO> issues = searchResult.getIssues();
+            if (issues == null || issues.isEmpty()) {
+                break;
+            }
+            result.addAll(issues);
+        } while (searchResult.getTotal() != null
+                && result.size() < searchResult.getTotal());
+
+        return result;
+    }
+
+    private static SearchResultDTO getIssuesPage(String url, String username,
+            String password, String path, String query, int startAt) {
+        WebClient client = createClient(url);
+        Util.addAuthorizationHeader(client, username, password);
+
         client.path(path);
         if (!query.isEmpty()) {
             client.query("jql", query);
         }
+        client.query("startAt", startAt);
         client.query("maxResults", MAX_RESULTS);
         client.query("fields",
                 StringUtils.deleteWhitespace(FIELDS_TO_INCLUDE_IN_RESPONSE));
 
-        SearchResultDTO searchResult = client.get(SearchResultDTO.class);
+        return client.get(SearchResultDTO.class);
+    }
 
-        return searchResult.getIssues();
+    /**
+     * Restricts the query to the issues updated since the specified
+     * <code>date</code>. Some issues updated a few hours before it can be
+     * included too, whatever the time zone of the JIRA user is
+     *
+     * @param query
+     *            the query
+     * @param date
+     *            the date, if <code>null</code> the query is not modified
+     * @return the restricted query
+     */
+    public static String updatedSince(String query, Date date) {
+        if (date == null) {
+            return query;
+        }
+        SimpleDateFormat format = new SimpleDateFormat(JQL_DATE_FORMAT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String condition = "updated >= \""
+                + format.format(new Date(date.getTime()
+                        - JQL_DATE_MARGIN_MILLISECONDS)) + "\"";
+        if (query.isEmpty()) {
+            return condition;
+        }
+        return query + " AND " + condition;
     }
 
     /**
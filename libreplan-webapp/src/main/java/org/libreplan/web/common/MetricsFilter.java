@@ -0,0 +1,182 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Path;
+
+import org.apache.commons.lang.StringUtils;
+import org.libreplan.business.common.metrics.HibernateStatisticsInterceptor;
+import org.libreplan.business.common.metrics.HibernateStatisticsInterceptor.RequestStatistics;
+import org.libreplan.business.common.metrics.MetricsRegistry;
+import org.libreplan.business.common.metrics.Timer;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+/**
+ * Measures the requests to the pages, the ZK updates and the REST services.
+ * For each kind of request it records the time taken and the statements
+ * executed and entities loaded by Hibernate. The REST services are also timed
+ * one by one. Only the services whose {@link Path} is found in the Spring
+ * context get their own timer, the requests to any other path are recorded
+ * together, so the requests can't make the number of metrics grow.
+ *
+ * @see HibernateStatisticsInterceptor
+ */
+public class MetricsFilter implements Filter {
+
+    static final String UNKNOWN_REST_SERVICE = "unknown";
+
+    private static final MetricsRegistry registry = MetricsRegistry
+            .getInstance();
+
+    private static String kindOf(HttpServletRequest request) {
+        String servletPath = request.getServletPath();
+        if (servletPath.startsWith("/ws/rest")) {
+            return "rest";
+        }
+        if (servletPath.startsWith("/zkau")) {
+            return "zk_updates";
+        }
+        return "pages";
+    }
+
+    private static List<String> pathsOfServices(ListableBeanFactory context) {
+        List<String> result = new ArrayList<String>();
+        for (String each : context.getBeanNamesForAnnotation(Path.class)) {
+            result.add(context.findAnnotationOnBean(each, Path.class).value());
+        }
+        return result;
+    }
+
+    /**
+     * The roots are sorted from the longest, so the most specific one is
+     * matched first
+     */
+    private static List<String> rootsOf(Collection<String> paths) {
+        List<String> result = new ArrayList<String>();
+        for (String each : paths) {
+            String root = StringUtils.strip(each, "/");
+            if (!root.isEmpty() && !result.contains(root)) {
+                result.add(root);
+            }
+        }
+        Collections.sort(result, new Comparator<String>() {
+
+            @Override
+            public int compare(String o1, String o2) {
+                return o2.length() - o1.length();
+            }
+        });
+        return result;
+    }
+
+    private List<String> restServiceRoots = Collections.emptyList();
+
+    public MetricsFilter() {
+    }
+
+    /**
+     * @param restServicePaths
+     *            the paths of the REST services timed one by one
+     */
+    public MetricsFilter(Collection<String> restServicePaths) {
+        this.restServiceRoots = rootsOf(restServicePaths);
+    }
+
+    /**
+     * @return the name of the REST service requested,
+     *         {@link #UNKNOWN_REST_SERVICE} if it's none of the known ones
+     */
+    private String restServiceOf(HttpServletRequest request) {
+        String path = StringUtils.strip(request.getPathInfo(), "/");
+        if (path != null) {
+            for (String each : restServiceRoots) {
+                if (path.equals(each) || path.startsWith(each + "/")) {
+                    return each.replace('/', '.');
+                }
+            }
+        }
+        return UNKNOWN_REST_SERVICE;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        WebApplicationContext context = WebApplicationContextUtils
+                .getWebApplicationContext(filterConfig.getServletContext());
+        if (context != null) {
+            restServiceRoots = rootsOf(pathsOfServices(context));
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response,
+            FilterChain chain) throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HibernateStatisticsInterceptor.startRequest();
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            RequestStatistics statistics = HibernateStatisticsInterceptor
+                    .finishRequest();
+            record(httpRequest, elapsed, statistics);
+        }
+    }
+
+    private void record(HttpServletRequest request, long elapsed,
+            RequestStatistics statistics) {
+        String name = "requests." + kindOf(request);
+        registry.timer(name).update(elapsed, TimeUnit.NANOSECONDS);
+        registry.histogram(name + ".statements").update(
+                statistics.getStatements());
+        registry.histogram(name + ".entities_loaded").update(
+                statistics.getEntitiesLoaded());
+        if ("requests.rest".equals(name)) {
+            Timer timer = registry.timer(name + "." + restServiceOf(request));
+            timer.update(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.web.limitingresources;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.libreplan.business.planner.limiting.entities.AllocationSpec;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+
+/**
+ * Assigns several {@link LimitingResourceQueueElement} at once. They are
+ * placed in topological order of their dependencies, each one where it ends
+ * first among the allocations found for it (list scheduling).
+ *
+ * @see ILimitingResourceQueueModel#assignInBatch(List)
+ */
+class BatchAssignment {
+
+    /**
+     * Finds and applies the allocations of the elements in the queues
+     */
+    interface IAllocator {
+
+        /**
+         * @return the valid allocations for <code>element</code>, at most one
+         *         for each queue it can be assigned to
+         */
+        List<AllocationSpec> getAllocationsFor(
+                LimitingResourceQueueElement element);
+
+        /**
+         * @return the already assigned elements that have been moved to keep
+         *         their dependencies satisfied
+         */
+        Collection<? extends LimitingResourceQueueElement> apply(
+                AllocationSpec allocation);
+    }
+
+    /**
+     * The elements are sorted by the date they can start because of the Gantt
+     * and then the longest first, so the topological order keeps that
+     * priority among the elements without dependencies between them
+     */
+    private static final Comparator<LimitingResourceQueueElement> priority = new Comparator<LimitingResourceQueueElement>() {
+
+        @Override
+        public int compare(LimitingResourceQueueElement o1,
+                LimitingResourceQueueElement o2) {
+            int result = o1.getEarliestStartDateBecauseOfGantt().compareTo(
+                    o2.getEarliestStartDateBecauseOfGantt());
+            if (result != 0) {
+                return result;
+            }
+            return o2.getIntentedTotalHours().compareTo(
+                    o1.getIntentedTotalHours());
+        }
+    };
+
+    static BatchAssignmentResult assign(QueuesState queuesState,
+            List<LimitingResourceQueueElement> elements, IAllocator allocator) {
+        Validate.notNull(allocator);
+        BatchAssignmentResult result = new BatchAssignmentResult();
+        List<LimitingResourceQueueElement> byPriority = new ArrayList<LimitingResourceQueueElement>(
+                elements);
+        Collections.sort(byPriority, priority);
+        for (LimitingResourceQueueElement each : queuesState
+                .inTopologicalOrder(byPriority)) {
+            AllocationSpec allocation = earliestEnding(allocator
+                    .getAllocationsFor(each));
+            if (allocation == null) {
+                result.unplaceable(each);
+                continue;
+            }
+            result.moved(allocator.apply(allocation));
+            result.placed(allocation);
+        }
+        return result;
+    }
+
+    private static AllocationSpec earliestEnding(
+            List<AllocationSpec> allocations) {
+        AllocationSpec result = null;
+        for (AllocationSpec each : allocations) {
+            if (result == null
+                    || each.getEndExclusive().isBefore(
+                            result.getEndExclusive())) {
+                result = each;
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.limitingresources;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.libreplan.business.planner.limiting.entities.AllocationSpec;
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+
+/**
+ * Summary of the assignment of several {@link LimitingResourceQueueElement} at
+ * once.
+ *
+ * @see ILimitingResourceQueueModel#assignInBatch(List)
+ */
+public class BatchAssignmentResult {
+
+    private final List<LimitingResourceQueueElement> placed = new ArrayList<LimitingResourceQueueElement>();
+
+    private final List<LimitingResourceQueueElement> unplaceable = new ArrayList<LimitingResourceQueueElement>();
+
+    private final Set<LimitingResourceQueueElement> modified = new HashSet<LimitingResourceQueueElement>();
+
+    private DateAndHour start;
+
+    private DateAndHour end;
+
+    void placed(AllocationSpec allocation) {
+        placed.add(allocation.getElement());
+        modified.add(allocation.getElement());
+        start = DateAndHour.min(start, allocation.getStartInclusive());
+        end = DateAndHour.max(end, allocation.getEndExclusive());
+    }
+
+    void unplaceable(LimitingResourceQueueElement element) {
+        unplaceable.add(element);
+    }
+
+    void moved(Collection<? extends LimitingResourceQueueElement> elements) {
+        modified.addAll(elements);
+    }
+
+    /**
+     * @return the elements assigned to a queue, in the order they were placed
+     */
+    public List<LimitingResourceQueueElement> getPlaced() {
+        return Collections.unmodifiableList(placed);
+    }
+
+    /**
+     * @return the elements for which no queue has a valid gap
+     */
+    public List<LimitingResourceQueueElement> getUnplaceable() {
+        return Collections.unmodifiableList(unplaceable);
+    }
+
+    /**
+     * @return the placed elements plus the already assigned elements that had
+     *         to be moved to keep their dependencies satisfied
+     */
+    public Set<LimitingResourceQueueElement> getModified() {
+        return Collections.unmodifiableSet(modified);
+    }
+
+    /**
+     * @return the start of the earliest placed element or <code>null</code> if
+     *         none was placed
+     */
+    public DateAndHour getStart() {
+        return start;
+    }
+
+    /**
+     * @return the end of the latest placed element or <code>null</code> if
+     *         none was placed. Together with {@link #getStart()} it's the
+     *         makespan of the batch
+     */
+    public DateAndHour getEnd() {
+        return end;
+    }
+
+    public boolean isEmpty() {
+        return placed.isEmpty();
+    }
+
+}
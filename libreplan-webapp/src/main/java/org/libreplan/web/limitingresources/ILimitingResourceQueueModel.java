@@ -145,7 +145,17 @@ public interface ILimitingResourceQueueModel {
             LimitingResourceQueueElement oldElement,
             LimitingResourceQueueElement newElement);
 
-    Set<LimitingResourceQueueElement> assignLimitingResourceQueueElements(
+    /**
+     * Assigns all the elements at once, in topological order of their
+     * dependencies, each one to the queue where it ends first. Already assigned
+     * elements are never unscheduled to make room for them.
+     *
+     * The changes are kept in memory until {@link #confirm()} saves all of them
+     * in the same transaction.
+     *
+     * @return which elements could be placed and which couldn't
+     */
+    BatchAssignmentResult assignInBatch(
             List<LimitingResourceQueueElement> elements);
 
 }
@@ -88,6 +88,7 @@ import org.libreplan.business.users.entities.UserRole;
 import org.libreplan.business.workingday.EffortDuration;
 import org.libreplan.business.workingday.IntraDayDate;
 import org.libreplan.web.common.concurrentdetection.OnConcurrentModification;
+import org.libreplan.web.limitingresources.BatchAssignment.IAllocator;
 import org.libreplan.web.limitingresources.QueuesState.Edge;
 import org.libreplan.web.planner.order.SaveCommandBuilder;
 import org.libreplan.web.security.SecurityUtils;
@@ -469,6 +470,7 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
         List<LimitingResourceQueueElement> result = new ArrayList<LimitingResourceQueueElement>();
         List<LimitingResourceQueueElement> toReschedule = new ArrayList<LimitingResourceQueueElement>();
 
+        boolean appropriative = checkAllocationIsAppropriative();
         checkAllocationIsAppropriative(false);
         for (LimitingResourceQueueElement each: moved) {
             toReschedule.add(unschedule(each));
@@ -479,7 +481,7 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
         for (LimitingResourceQueueElement each: queuesState.inTopologicalOrder(toReschedule)) {
             result.addAll(assignLimitingResourceQueueElement(each));
         }
-        checkAllocationIsAppropriative(true);
+        checkAllocationIsAppropriative(appropriative);
 
         return result;
     }
@@ -879,10 +881,7 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
     private void updateStartAndEndTimes(LimitingResourceQueueElement element,
             DateAndHour startTime, DateAndHour endTime) {
 
-        element.setStartDate(startTime.getDate());
-        element.setStartHour(startTime.getHour());
-        element.setEndDate(endTime.getDate());
-        element.setEndHour(endTime.getHour());
+        element.moveTo(startTime, endTime);
 
         // Update starting and ending dates for associated Task
         Task task = element.getResourceAllocation().getTask();
@@ -1237,13 +1236,77 @@ public class LimitingResourceQueueModel implements ILimitingResourceQueueModel {
 
 
     @Override
-    public Set<LimitingResourceQueueElement> assignLimitingResourceQueueElements(
+    public BatchAssignmentResult assignInBatch(
             List<LimitingResourceQueueElement> queueElements) {
-        Set<LimitingResourceQueueElement> result = new HashSet<LimitingResourceQueueElement>();
-        for (LimitingResourceQueueElement each: queuesState.inTopologicalOrder(queueElements)) {
-            result.addAll(assignLimitingResourceQueueElement(each));
+        boolean appropriative = checkAllocationIsAppropriative();
+        checkAllocationIsAppropriative(false);
+        try {
+            return BatchAssignment.assign(queuesState, queueElements,
+                    new IAllocator() {
+
+                        @Override
+                        public List<AllocationSpec> getAllocationsFor(
+                                LimitingResourceQueueElement element) {
+                            return findAllocationsInEachQueueFor(queuesState
+                                    .getRequirementsFor(element));
+                        }
+
+                        @Override
+                        public Collection<? extends LimitingResourceQueueElement> apply(
+                                AllocationSpec allocation) {
+                            return applyInBatch(allocation);
+                        }
+                    });
+        } finally {
+            checkAllocationIsAppropriative(appropriative);
+        }
+    }
+
+    private List<AllocationSpec> findAllocationsInEachQueueFor(
+            InsertionRequirements requirements) {
+        List<AllocationSpec> result = new ArrayList<AllocationSpec>();
+        for (LimitingResourceQueue each : queuesState
+                .getAssignableQueues(requirements.getElement())) {
+            AllocationSpec allocation = findAllocationSpecFor(
+                    each.getGapsPotentiallyValidFor(requirements),
+                    requirements);
+            if (allocation != null) {
+                result.add(allocation);
+            }
+        }
+        return result;
+    }
+
+    private List<LimitingResourceQueueElement> applyInBatch(
+            AllocationSpec allocation) {
+        applyAllocation(allocation);
+        LimitingResourceQueueElement element = allocation.getElement();
+        if (!hasAssignedDestinations(element)) {
+            return Collections.emptyList();
         }
+        List<LimitingResourceQueueElement> result = new ArrayList<LimitingResourceQueueElement>();
+        List<LimitingResourceQueueElement> moved = shift(
+                queuesState.getPotentiallyAffectedByInsertion(element),
+                element, allocation);
+        result.addAll(moved);
+        result.addAll(rescheduleAffectedElementsToSatisfyDependencies(
+                allocation, moved));
         return result;
     }
 
+    /**
+     * Inserting an element in a gap doesn't move the elements of the queue, so
+     * only the already assigned elements depending on it might have to be
+     * shifted
+     */
+    private boolean hasAssignedDestinations(LimitingResourceQueueElement element) {
+        for (LimitingResourceQueueDependency each : element
+                .getDependenciesAsOrigin()) {
+            if (!each.getHasAsDestiny().isDetached()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 }
@@ -589,17 +589,52 @@ public class LimitingResourcesController extends GenericForwardComposer {
     public void assignAllSelectedElements() {
         List<LimitingResourceQueueElement> elements = getAllSelectedQueueElements();
         if (!elements.isEmpty()) {
-            Set<LimitingResourceQueueElement> inserted = limitingResourceQueueModel
-                    .assignLimitingResourceQueueElements(elements);
+            assignInBatch(elements,
+                    _("Cannot allocate selected element. There is not any queue "
+                            + "that matches resource allocation criteria at any interval of time"));
             clearSelectAllCheckbox();
+        }
+    }
 
-            if (inserted.isEmpty()) {
-                showErrorMessage(_("Cannot allocate selected element. There is not any queue "
-                        + "that matches resource allocation criteria at any interval of time"));
-                return;
-            }
-            limitingResourcesPanel.refreshQueues(LimitingResourceQueue.queuesOf(inserted));
-            reloadUnassignedLimitingResourceQueueElements();
+    public void assignAllUnassignedElements() {
+        List<LimitingResourceQueueElement> elements = limitingResourceQueueModel
+                .getUnassignedLimitingResourceQueueElements();
+        if (!elements.isEmpty()) {
+            assignInBatch(elements,
+                    _("Cannot allocate any unassigned element. There is not any queue "
+                            + "that matches their resource allocation criteria at any interval of time"));
+        }
+    }
+
+    private void assignInBatch(List<LimitingResourceQueueElement> elements,
+            String errorIfNoneAssigned) {
+        BatchAssignmentResult result = limitingResourceQueueModel
+                .assignInBatch(elements);
+        if (result.isEmpty()) {
+            showErrorMessage(errorIfNoneAssigned);
+            return;
+        }
+        limitingResourcesPanel.refreshQueues(LimitingResourceQueue
+                .queuesOf(result.getModified()));
+        reloadUnassignedLimitingResourceQueueElements();
+        showBatchAssignmentSummary(result);
+    }
+
+    private void showBatchAssignmentSummary(BatchAssignmentResult result) {
+        String summary = _("{0} elements assigned between {1} and {2}",
+                result.getPlaced().size(),
+                Util.formatDate(result.getStart().getDate()),
+                Util.formatDate(result.getEnd().getDate()));
+        if (!result.getUnplaceable().isEmpty()) {
+            summary += ". "
+                    + _("{0} elements could not be assigned to any queue",
+                            result.getUnplaceable().size());
+        }
+        try {
+            Messagebox.show(summary, _("Information"), Messagebox.OK,
+                    Messagebox.INFORMATION);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
         }
     }
 
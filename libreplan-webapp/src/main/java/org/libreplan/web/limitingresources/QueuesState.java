@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -614,6 +615,8 @@ public class QueuesState {
     private DirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> buildSubgraphFor(
             List<LimitingResourceQueueElement> queueElements) {
         SimpleDirectedGraph<LimitingResourceQueueElement, LimitingResourceQueueDependency> result = instantiateDirectedGraph();
+        Set<LimitingResourceQueueElement> elements = new HashSet<LimitingResourceQueueElement>(
+                queueElements);
 
         // Iterate through elements and construct graph
         for (LimitingResourceQueueElement each : queueElements) {
@@ -622,7 +625,7 @@ public class QueuesState {
                     .getDependenciesAsOrigin()) {
                 LimitingResourceQueueElement destiny = dependency
                         .getHasAsDestiny();
-                if (queueElements.contains(destiny)) {
+                if (elements.contains(destiny)) {
                     // Add source, destiny and edge between them
                     addDependency(result, dependency);
                 }
@@ -35,8 +35,22 @@ import org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter;
  */
 public interface IMonteCarloModel {
 
+    /**
+     * Simulates the given critical path as many times as requested, unless
+     * the distribution of end dates converges before. The same seed always
+     * produces the same result.
+     *
+     * @return the probability of finishing in each end date or an empty map if
+     *         the calculation was {@link #cancelMonteCarlo() cancelled}
+     */
     Map<LocalDate, BigDecimal> calculateMonteCarlo(List<MonteCarloTask> tasks,
-            int times, IDesktopUpdatesEmitter<Integer> iterationProgress);
+            int times, long seed,
+            IDesktopUpdatesEmitter<Integer> iterationProgress);
+
+    /**
+     * Stops the calculation in progress, if any
+     */
+    void cancelMonteCarlo();
 
     void setCriticalPath(List<TaskElement> criticalPath);
 
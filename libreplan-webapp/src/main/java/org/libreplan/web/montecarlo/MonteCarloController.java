@@ -74,7 +74,7 @@ public class MonteCarloController extends GenericForwardComposer {
 
     private final Integer DEFAULT_ITERATIONS = Integer.valueOf(10000);
 
-    private final Integer MAX_NUMBER_ITERATIONS = Integer.valueOf(100000);
+    private final Integer MAX_NUMBER_ITERATIONS = Integer.valueOf(1000000);
 
     private final RowRenderer gridCriticalPathTasksRender = new CriticalPathTasksRender();
 
@@ -82,8 +82,12 @@ public class MonteCarloController extends GenericForwardComposer {
 
     private Intbox ibIterations;
 
+    private Intbox ibSeed;
+
     private Button btnRunMonteCarlo;
 
+    private Button btnCancelMonteCarlo;
+
     private Checkbox cbGroupByWeeks;
 
     private Listbox lbCriticalPaths;
@@ -110,32 +114,50 @@ public class MonteCarloController extends GenericForwardComposer {
 
         });
 
+        btnCancelMonteCarlo.setDisabled(true);
+        btnCancelMonteCarlo.addEventListener(Events.ON_CLICK,
+                new EventListener() {
+
+                    @Override
+                    public void onEvent(Event event) {
+                        monteCarloModel.cancelMonteCarlo();
+                    }
+
+                });
+
         btnRunMonteCarlo.addEventListener(Events.ON_CLICK, new EventListener() {
 
             @Override
             public void onEvent(Event event) {
                 validateRowsPercentages();
+                final long seed = getSeed();
                 IBackGroundOperation<IDesktopUpdate> operation = new IBackGroundOperation<IDesktopUpdate>() {
 
                      @Override
                     public void doOperation(
                             IDesktopUpdatesEmitter<IDesktopUpdate> desktopUpdateEmitter) {
-                        executeMontecarlo(desktopUpdateEmitter);
+                        executeMontecarlo(desktopUpdateEmitter, seed);
                      }
                 };
                 LongOperationFeedback.progressive(self.getDesktop(), operation);
             }
 
             private void executeMontecarlo(
-                    IDesktopUpdatesEmitter<IDesktopUpdate> updatesEmitter) {
+                    IDesktopUpdatesEmitter<IDesktopUpdate> updatesEmitter,
+                    long seed) {
                 try {
                     updatesEmitter.doUpdate(disableButton(true));
                     int iterations = getIterations();
                     final Map<LocalDate, BigDecimal> monteCarloData = monteCarloModel
                             .calculateMonteCarlo(getSelectedCriticalPath(),
-                                    iterations,
+                                    iterations, seed,
                                     percentageCompletedNotifier(updatesEmitter));
-                    updatesEmitter.doUpdate(showCalculatedData(monteCarloData));
+                    if (monteCarloData.isEmpty()) {
+                        updatesEmitter.doUpdate(resetProgress());
+                    } else {
+                        updatesEmitter
+                                .doUpdate(showCalculatedData(monteCarloData));
+                    }
                 } finally {
                     updatesEmitter.doUpdate(disableButton(false));
                 }
@@ -147,10 +169,32 @@ public class MonteCarloController extends GenericForwardComposer {
                     @Override
                     public void doUpdate() {
                         btnRunMonteCarlo.setDisabled(disable);
+                        btnCancelMonteCarlo.setDisabled(!disable);
+                    }
+                };
+            }
+
+            private IDesktopUpdate resetProgress() {
+                return new IDesktopUpdate() {
+
+                    @Override
+                    public void doUpdate() {
+                        progressMonteCarloCalculation.setValue(0);
                     }
                 };
             }
 
+            /**
+             * If no seed is specified a new one is generated and shown, so the
+             * calculation can be repeated later
+             */
+            private long getSeed() {
+                if (ibSeed.getValue() == null) {
+                    ibSeed.setValue((int) System.nanoTime() & Integer.MAX_VALUE);
+                }
+                return ibSeed.getValue().longValue();
+            }
+
             private int getIterations() {
                 int iterations = ibIterations.getValue() != null ? ibIterations
                         .getValue().intValue() : 0;
@@ -24,19 +24,14 @@ package org.libreplan.web.montecarlo;
 import static org.libreplan.web.I18nHelper._;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.Validate;
 import org.hibernate.Hibernate;
 import org.joda.time.LocalDate;
 import org.libreplan.business.orders.entities.Order;
@@ -45,6 +40,7 @@ import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.planner.entities.Dependency;
 import org.libreplan.business.planner.entities.Task;
 import org.libreplan.business.planner.entities.TaskElement;
+import org.libreplan.web.montecarlo.MonteCarloSimulation.Result;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
@@ -77,6 +73,8 @@ public class MonteCarloModel implements IMonteCarloModel {
 
     private List<Task> tasksInCriticalPath;
 
+    private volatile MonteCarloSimulation currentSimulation;
+
     @Override
     @Transactional(readOnly = true)
     public void setCriticalPath(List<TaskElement> tasksInCriticalPath) {
@@ -194,21 +192,42 @@ public class MonteCarloModel implements IMonteCarloModel {
 
     @Override
     public Map<LocalDate, BigDecimal> calculateMonteCarlo(
-            List<MonteCarloTask> _tasks, int iterations,
+            List<MonteCarloTask> _tasks, int iterations, long seed,
             IDesktopUpdatesEmitter<Integer> iterationProgress) {
+        List<MonteCarloTask> tasks = copyOf(_tasks);
+        adjustDurationDays(tasks);
+        MonteCarloSimulation simulation = MonteCarloSimulation.create(tasks);
+        currentSimulation = simulation;
+        try {
+            Result result = simulation.run(iterations, seed,
+                    iterationProgress);
+            if (result.isCancelled()) {
+                return new HashMap<LocalDate, BigDecimal>();
+            }
+            return result.getProbabilities();
+        } finally {
+            currentSimulation = null;
+        }
+    }
 
-        MonteCarloCalculation monteCarloCalculation = new MonteCarloCalculation(
-                copyOf(_tasks), iterations, iterationProgress);
-        Map<LocalDate, BigDecimal> monteCarloValues = monteCarloCalculation.doCalculation();
+    private void adjustDurationDays(List<MonteCarloTask> tasks) {
+        for (MonteCarloTask each : tasks) {
+            each.setPessimisticDuration(MonteCarloTask
+                    .calculateRealDurationFor(each,
+                            each.getPessimisticDuration()));
+            each.setNormalDuration(MonteCarloTask.calculateRealDurationFor(
+                    each, each.getNormalDuration()));
+            each.setOptimisticDuration(MonteCarloTask.calculateRealDurationFor(
+                    each, each.getOptimisticDuration()));
+        }
+    }
 
-        // Convert number of times to probability
-        for (LocalDate key : monteCarloValues.keySet()) {
-            BigDecimal times = monteCarloValues.get(key);
-            BigDecimal probability = times.divide(
-                    BigDecimal.valueOf(iterations), 8, RoundingMode.HALF_UP);
-            monteCarloValues.put(key, probability);
+    @Override
+    public void cancelMonteCarlo() {
+        MonteCarloSimulation simulation = currentSimulation;
+        if (simulation != null) {
+            simulation.cancel();
         }
-        return monteCarloValues;
     }
 
     private List<MonteCarloTask> copyOf(List<MonteCarloTask> _tasks) {
@@ -232,120 +251,4 @@ public class MonteCarloModel implements IMonteCarloModel {
         return StringUtils.join(result, ",");
     }
 
-    private static class MonteCarloCalculation {
-
-        private Map<MonteCarloTask, Set<EstimationRange>> estimationRangesForTasks = new HashMap<MonteCarloTask, Set<EstimationRange>>();
-
-        private List<MonteCarloTask> tasks;
-
-        private int iterations;
-
-        private IDesktopUpdatesEmitter<Integer> iterationProgress;
-
-        public MonteCarloCalculation(List<MonteCarloTask> tasks,
-                int iterations,
-                IDesktopUpdatesEmitter<Integer> iterationProgress) {
-            adjustDurationDays(tasks);
-            initializeEstimationRanges(tasks);
-            this.tasks = tasks;
-            this.iterations = iterations;
-            this.iterationProgress = iterationProgress;
-        }
-
-        public Map<LocalDate, BigDecimal> doCalculation() {
-            Map<LocalDate, BigDecimal> result = new HashMap<LocalDate, BigDecimal>();
-
-            final int ONE_PERCENT = iterations / 100;
-            Random randomGenerator = new Random((new Date()).getTime());
-            // Calculate number of times a date is repeated
-            for (int i = 0; i < iterations; i++) {
-                LocalDate endDate = calculateEndDateFor(tasks, randomGenerator);
-                BigDecimal times = result.get(endDate);
-                times = times != null ? times.add(BigDecimal.ONE) : BigDecimal.ONE;
-                result.put(endDate, times);
-                if (i % ONE_PERCENT == 0) {
-                    increaseProgressMeter((i * 100) / iterations);
-                }
-            }
-
-            return result;
-        }
-
-        private void increaseProgressMeter(int completedPercent) {
-            iterationProgress.doUpdate(completedPercent);
-        }
-
-        private LocalDate calculateEndDateFor(List<MonteCarloTask> tasks,
-                Random randomGenerator) {
-            Validate.notEmpty(tasks);
-            BigDecimal durationDays = BigDecimal.ZERO;
-            MonteCarloTask first = tasks.get(0);
-
-            for (MonteCarloTask each : tasks) {
-                BigDecimal randomNumber = generate(randomGenerator);
-                durationDays = durationDays.add(getDuration(each, randomNumber));
-            }
-            return first.getStartDate().plusDays(durationDays.intValue());
-        }
-
-        private BigDecimal generate(Random randomGenerator) {
-            return BigDecimal.valueOf(randomGenerator.nextDouble());
-        }
-
-        private BigDecimal getDuration(MonteCarloTask each, BigDecimal random) {
-            ESTIMATION_TYPE type = getEstimationType(each, random);
-            Validate.notNull(type);
-            switch (type) {
-            case PESSIMISTIC:
-                BigDecimal duration = each.getPessimisticDuration();
-                return duration;
-            case NORMAL:
-                return each.getNormalDuration();
-            case OPTIMISTIC:
-                return each.getOptimisticDuration();
-            }
-            return BigDecimal.ZERO;
-        }
-
-        private void adjustDurationDays(List<MonteCarloTask> tasks) {
-            for (MonteCarloTask each : tasks) {
-                each.setPessimisticDuration(MonteCarloTask
-                        .calculateRealDurationFor(each,
-                                each.getPessimisticDuration()));
-                each.setNormalDuration(MonteCarloTask.calculateRealDurationFor(
-                        each, each.getNormalDuration()));
-                each.setOptimisticDuration(MonteCarloTask.calculateRealDurationFor(
-                        each, each.getOptimisticDuration()));
-            }
-        }
-
-        private void initializeEstimationRanges(List<MonteCarloTask> tasks) {
-            estimationRangesForTasks.clear();
-            for (MonteCarloTask each : tasks) {
-                createEstimationRangesFor(each);
-            }
-        }
-
-        private void createEstimationRangesFor(MonteCarloTask task) {
-            Set<EstimationRange> estimationRanges = new HashSet<EstimationRange>();
-            estimationRanges.add(EstimationRange.pessimisticRangeFor(task));
-            estimationRanges.add(EstimationRange.normalRangeFor(task));
-            estimationRanges.add(EstimationRange.optimisticRangeFor(task));
-            estimationRangesForTasks.put(task, estimationRanges);
-        }
-
-        public ESTIMATION_TYPE getEstimationType(MonteCarloTask task,
-                BigDecimal random) {
-            Set<EstimationRange> estimationRanges = estimationRangesForTasks
-                    .get(task);
-            for (EstimationRange each : estimationRanges) {
-                if (each.contains(random)) {
-                    return each.getEstimationType();
-                }
-            }
-            return null;
-        }
-
-    }
-
 }
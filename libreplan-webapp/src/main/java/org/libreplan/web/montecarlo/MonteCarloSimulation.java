@@ -0,0 +1,413 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.montecarlo;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.Validate;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.zkoss.ganttz.util.LongOperationFeedback.IDesktopUpdatesEmitter;
+
+/**
+ * Runs the MonteCarlo simulation of a critical path in parallel.
+ * <p>
+ * The iterations are split in blocks of {@link #BLOCK_SIZE} iterations. Every
+ * block has its own random generator derived from the seed and the block
+ * index, so the same seed always produces the same histogram no matter how
+ * many threads are used. The end dates are accumulated as offsets in days from
+ * the start of the first task and the histograms of each block are merged at
+ * the end of every round of {@link #BLOCKS_PER_ROUND} blocks. If the
+ * distribution barely changes between consecutive rounds the simulation stops
+ * early.
+ * </p>
+ *
+ * @see MonteCarloModel
+ */
+public class MonteCarloSimulation {
+
+    static final int BLOCK_SIZE = 8192;
+
+    static final int BLOCKS_PER_ROUND = 16;
+
+    private static final int CHECK_CANCELLATION_EACH = 1024;
+
+    /**
+     * Maximum difference between the cumulative distributions of consecutive
+     * rounds to consider that the simulation has converged
+     */
+    private static final double CONVERGENCE_THRESHOLD = 0.0005;
+
+    private static final int CONVERGED_ROUNDS_TO_STOP = 2;
+
+    private static final ExecutorService sharedExecutor = Executors
+            .newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory() {
+
+                        private final AtomicInteger counter = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread result = new Thread(runnable,
+                                    "montecarlo-" + counter.incrementAndGet());
+                            result.setDaemon(true);
+                            return result;
+                        }
+                    });
+
+    /**
+     * @param tasks
+     *            the tasks of the critical path with the durations already
+     *            adjusted to real days
+     */
+    public static MonteCarloSimulation create(List<MonteCarloTask> tasks) {
+        Validate.notEmpty(tasks);
+        return new MonteCarloSimulation(tasks);
+    }
+
+    private final LocalDate startDate;
+
+    private final int[] pessimisticDuration;
+
+    private final int[] normalDuration;
+
+    private final int[] optimisticDuration;
+
+    private final double[] pessimisticUpperLimit;
+
+    private final double[] normalUpperLimit;
+
+    private final int minDuration;
+
+    private final int maxDuration;
+
+    private ExecutorService executor = sharedExecutor;
+
+    private boolean stopOnConvergence = true;
+
+    private volatile boolean cancelled = false;
+
+    private MonteCarloSimulation(List<MonteCarloTask> tasks) {
+        int size = tasks.size();
+        startDate = tasks.get(0).getStartDate();
+        pessimisticDuration = new int[size];
+        normalDuration = new int[size];
+        optimisticDuration = new int[size];
+        pessimisticUpperLimit = new double[size];
+        normalUpperLimit = new double[size];
+        int min = 0;
+        int max = 0;
+        for (int i = 0; i < size; i++) {
+            MonteCarloTask each = tasks.get(i);
+            pessimisticDuration[i] = each.getPessimisticDuration().intValue();
+            normalDuration[i] = each.getNormalDuration().intValue();
+            optimisticDuration[i] = each.getOptimisticDuration().intValue();
+            pessimisticUpperLimit[i] = each
+                    .getPessimisticDurationPercentageUpperLimit().doubleValue();
+            normalUpperLimit[i] = each.getNormalDurationPercentageUpperLimit()
+                    .doubleValue();
+            min += Math.min(pessimisticDuration[i],
+                    Math.min(normalDuration[i], optimisticDuration[i]));
+            max += Math.max(pessimisticDuration[i],
+                    Math.max(normalDuration[i], optimisticDuration[i]));
+        }
+        minDuration = min;
+        maxDuration = max;
+    }
+
+    /**
+     * By default the simulation finishes before doing all the requested
+     * iterations if the distribution has converged
+     */
+    public MonteCarloSimulation stopOnConvergence(boolean stopOnConvergence) {
+        this.stopOnConvergence = stopOnConvergence;
+        return this;
+    }
+
+    /**
+     * By default the blocks are simulated in a pool shared by all the
+     * simulations with one thread per core
+     */
+    MonteCarloSimulation runningOn(ExecutorService executor) {
+        Validate.notNull(executor);
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * It can be called from any thread. The running simulation finishes as
+     * soon as possible, returning a {@link Result#isCancelled() cancelled}
+     * result.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public Result run(int iterations, long seed,
+            IDesktopUpdatesEmitter<Integer> progress) {
+        Validate.isTrue(iterations > 0);
+        long[] histogram = new long[maxDuration - minDuration + 1];
+        int blocks = (iterations + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int done = 0;
+        int convergedRounds = 0;
+        int lastPercentage = -1;
+        for (int round = 0; round * BLOCKS_PER_ROUND < blocks && !cancelled; round++) {
+            long[] previous = histogram.clone();
+            int firstBlock = round * BLOCKS_PER_ROUND;
+            int lastBlock = Math.min(blocks, firstBlock + BLOCKS_PER_ROUND);
+            List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+            for (int block = firstBlock; block < lastBlock; block++) {
+                int blockIterations = Math.min(BLOCK_SIZE, iterations - block
+                        * BLOCK_SIZE);
+                futures.add(executor.submit(simulateBlock(seed, block,
+                        blockIterations)));
+            }
+            for (Future<long[]> each : futures) {
+                long[] blockHistogram = get(each);
+                if (blockHistogram == null) {
+                    break;
+                }
+                add(histogram, blockHistogram);
+                done += sum(blockHistogram);
+                int percentage = (int) ((done * 100L) / iterations);
+                if (progress != null && percentage != lastPercentage) {
+                    progress.doUpdate(percentage);
+                    lastPercentage = percentage;
+                }
+            }
+            if (cancelled) {
+                break;
+            }
+            if (round > 0
+                    && maxDistance(previous, histogram) < CONVERGENCE_THRESHOLD) {
+                convergedRounds++;
+            } else {
+                convergedRounds = 0;
+            }
+            if (stopOnConvergence && convergedRounds >= CONVERGED_ROUNDS_TO_STOP) {
+                break;
+            }
+        }
+        return new Result(startDate, minDuration, histogram, done, cancelled);
+    }
+
+    private Callable<long[]> simulateBlock(final long seed, final int block,
+            final int blockIterations) {
+        return new Callable<long[]>() {
+
+            @Override
+            public long[] call() {
+                if (cancelled) {
+                    return null;
+                }
+                long[] result = new long[maxDuration - minDuration + 1];
+                SplitMix64 random = SplitMix64.forBlock(seed, block);
+                for (int i = 0; i < blockIterations; i++) {
+                    if (i % CHECK_CANCELLATION_EACH == 0 && cancelled) {
+                        return null;
+                    }
+                    result[simulateDuration(random) - minDuration]++;
+                }
+                return result;
+            }
+        };
+    }
+
+    private int simulateDuration(SplitMix64 random) {
+        int result = 0;
+        for (int i = 0; i < pessimisticDuration.length; i++) {
+            double value = random.nextDouble();
+            if (value <= pessimisticUpperLimit[i]) {
+                result += pessimisticDuration[i];
+            } else if (value <= normalUpperLimit[i]) {
+                result += normalDuration[i];
+            } else {
+                result += optimisticDuration[i];
+            }
+        }
+        return result;
+    }
+
+    private static long[] get(Future<long[]> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static void add(long[] accumulated, long[] histogram) {
+        for (int i = 0; i < accumulated.length; i++) {
+            accumulated[i] += histogram[i];
+        }
+    }
+
+    private static long sum(long[] histogram) {
+        long result = 0;
+        for (long each : histogram) {
+            result += each;
+        }
+        return result;
+    }
+
+    /**
+     * @return the maximum distance between the cumulative distributions of
+     *         both histograms
+     */
+    private static double maxDistance(long[] a, long[] b) {
+        long totalA = sum(a);
+        long totalB = sum(b);
+        if (totalA == 0 || totalB == 0) {
+            return 1;
+        }
+        long accumulatedA = 0;
+        long accumulatedB = 0;
+        double result = 0;
+        for (int i = 0; i < a.length; i++) {
+            accumulatedA += a[i];
+            accumulatedB += b[i];
+            result = Math.max(result, Math.abs((double) accumulatedA / totalA
+                    - (double) accumulatedB / totalB));
+        }
+        return result;
+    }
+
+    /**
+     * Number of times each end date has been obtained by the simulation
+     */
+    public static class Result {
+
+        private final LocalDate startDate;
+
+        private final int minDuration;
+
+        private final long[] histogram;
+
+        private final long iterations;
+
+        private final boolean cancelled;
+
+        private Result(LocalDate startDate, int minDuration, long[] histogram,
+                long iterations, boolean cancelled) {
+            this.startDate = startDate;
+            this.minDuration = minDuration;
+            this.histogram = histogram;
+            this.iterations = iterations;
+            this.cancelled = cancelled;
+        }
+
+        /**
+         * @return the number of iterations actually done. It can be less than
+         *         the requested ones if the simulation converged or was
+         *         cancelled
+         */
+        public long getIterations() {
+            return iterations;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public long getTimesFor(LocalDate endDate) {
+            int index = Days.daysBetween(startDate, endDate)
+                    .getDays() - minDuration;
+            if (index < 0 || index >= histogram.length) {
+                return 0;
+            }
+            return histogram[index];
+        }
+
+        /**
+         * @return the probability of finishing in each of the end dates
+         *         obtained
+         */
+        public Map<LocalDate, BigDecimal> getProbabilities() {
+            Map<LocalDate, BigDecimal> result = new HashMap<LocalDate, BigDecimal>();
+            if (iterations == 0) {
+                return result;
+            }
+            BigDecimal total = BigDecimal.valueOf(iterations);
+            for (int i = 0; i < histogram.length; i++) {
+                if (histogram[i] > 0) {
+                    result.put(startDate.plusDays(minDuration + i), BigDecimal
+                            .valueOf(histogram[i]).divide(total, 8,
+                                    RoundingMode.HALF_UP));
+                }
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Small and fast pseudorandom generator. Independent generators are
+     * obtained by mixing the seed with the index of the block they are used
+     * for.
+     */
+    private static class SplitMix64 {
+
+        private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+        private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+        static SplitMix64 forBlock(long seed, int block) {
+            return new SplitMix64(mix(seed + (block + 1) * GOLDEN_GAMMA));
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+
+        private long state;
+
+        private SplitMix64(long state) {
+            this.state = state;
+        }
+
+        long nextLong() {
+            state += GOLDEN_GAMMA;
+            return mix(state);
+        }
+
+        double nextDouble() {
+            return (nextLong() >>> 11) * DOUBLE_UNIT;
+        }
+
+    }
+
+}
@@ -50,6 +50,7 @@ import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.externalcompanies.daos.IExternalCompanyDAO;
 import org.libreplan.business.externalcompanies.entities.EndDateCommunication;
 import org.libreplan.business.externalcompanies.entities.ExternalCompany;
+import org.libreplan.business.hibernate.notification.PredefinedDatabaseSnapshots;
 import org.libreplan.business.labels.daos.ILabelDAO;
 import org.libreplan.business.labels.entities.Label;
 import org.libreplan.business.orders.daos.IOrderDAO;
@@ -125,6 +126,9 @@ public class OrderModel extends IntegrationEntityModel implements IOrderModel {
     @Autowired
     private IOrderDAO orderDAO;
 
+    @Autowired
+    private PredefinedDatabaseSnapshots databaseSnapshots;
+
     @Autowired
     private PlanningStateCreator planningStateCreator;
 
@@ -231,6 +235,7 @@ public class OrderModel extends IntegrationEntityModel implements IOrderModel {
         getLabelsOnConversation().reattachLabels();
         List<Order> orders = orderDAO
                 .getOrdersByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState(
+                        databaseSnapshots.snapshotOrderCatalogue(),
                         SecurityUtils.getSessionUserLoginName(),
                         scenarioManager.getCurrent(), startDate, endDate,
                         labels, criteria, customer, state);
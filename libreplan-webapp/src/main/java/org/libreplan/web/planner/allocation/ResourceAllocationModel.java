@@ -285,8 +285,12 @@ public class ResourceAllocationModel implements IResourceAllocationModel {
 
     private void reattachResource(Resource resource) {
         resourceDAO.reattach(resource);
-        for (DayAssignment dayAssignment : resource.getAssignments()) {
-            Hibernate.initialize(dayAssignment);
+        // the load in the days being allocated is retrieved by the
+        // ResourceLoadIndex of the planning state
+        if (resource.isDayAssignmentsLoaded()) {
+            for (DayAssignment dayAssignment : resource.getAssignments()) {
+                Hibernate.initialize(dayAssignment);
+            }
         }
         if (resource instanceof Machine) {
             loadMachine((Machine) resource);
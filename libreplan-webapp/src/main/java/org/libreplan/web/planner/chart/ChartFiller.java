@@ -389,6 +389,28 @@ public abstract class ChartFiller implements IChartFiller {
         return groupByWeekDurations(map);
     }
 
+    /**
+     * Like {@link #groupAsNeededByZoom(SortedMap)} but using the sums for each
+     * week already calculated when grouping by week
+     *
+     * @param accumulatedPerWeek
+     *            the sum of the values of each week with the first day of the
+     *            week as key
+     */
+    protected SortedMap<LocalDate, EffortDuration> groupAsNeededByZoom(
+            SortedMap<LocalDate, EffortDuration> map,
+            SortedMap<LocalDate, EffortDuration> accumulatedPerWeek) {
+        if (isZoomByDayOrWeek()) {
+            return map;
+        }
+        SortedMap<LocalDate, EffortDuration> centered = new TreeMap<LocalDate, EffortDuration>();
+        for (Entry<LocalDate, EffortDuration> each : accumulatedPerWeek
+                .entrySet()) {
+            centered.put(getThursdayOfThisWeek(each.getKey()), each.getValue());
+        }
+        return average(centered);
+    }
+
     protected SortedMap<LocalDate, EffortDuration> groupByWeekDurations(
             SortedMap<LocalDate, EffortDuration> map) {
         return average(accumulatePerWeek(map));
@@ -58,16 +58,18 @@ public abstract class StandardLoadChartFiller extends LoadChartFiller {
     }
 
     private SortedMap<LocalDate, EffortDuration> getLoad(ILoadChartData data) {
-        return groupAsNeededByZoom(data.getLoad());
+        return groupAsNeededByZoom(data.getLoad(), data.getLoadPerWeek());
     }
 
     private SortedMap<LocalDate, EffortDuration> getOverload(ILoadChartData data) {
-        return groupAsNeededByZoom(data.getOverload());
+        return groupAsNeededByZoom(data.getOverload(),
+                data.getOverloadPerWeek());
     }
 
     private SortedMap<LocalDate, EffortDuration> getCalendarMaximumAvailability(
             ILoadChartData data) {
-        return groupAsNeededByZoom(data.getAvailability());
+        return groupAsNeededByZoom(data.getAvailability(),
+                data.getAvailabilityPerWeek());
     }
 
 }
@@ -796,7 +796,8 @@ public class CompanyPlanningModel implements ICompanyPlanningModel {
 
         return orderDAO
                 .getOrdersByReadAuthorizationBetweenDatesByLabelsCriteriaCustomerAndState(
-                        username, currentScenario, startDate, endDate, labels,
+                        databaseSnapshots.snapshotOrderCatalogue(), username,
+                        currentScenario, startDate, endDate, labels,
                         criteria, customer, state);
     }
 
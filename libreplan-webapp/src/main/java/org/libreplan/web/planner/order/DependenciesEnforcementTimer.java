@@ -0,0 +1,75 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.planner.order;
+
+import org.libreplan.business.common.metrics.MetricsRegistry;
+import org.libreplan.business.common.metrics.Timer;
+import org.zkoss.ganttz.adapters.PlannerConfiguration;
+import org.zkoss.ganttz.data.GanttDiagramGraph;
+import org.zkoss.ganttz.data.GanttDiagramGraph.IGraphChangeListener;
+
+/**
+ * Records in the <code>planner.dependencies_enforcement</code> metric how long
+ * the {@link GanttDiagramGraph} takes to enforce the dependencies after a
+ * change. It uses the graph change listeners, which are called when entering
+ * and exiting the enforcement.
+ * <p>
+ * The listeners of a configuration can be added several times to the graph,
+ * so only the first call of each is taken into account.
+ * </p>
+ */
+class DependenciesEnforcementTimer {
+
+    private static final Timer ENFORCEMENT_TIMER = MetricsRegistry
+            .getInstance().timer("planner.dependencies_enforcement");
+
+    static void addTo(PlannerConfiguration<?> configuration) {
+        DependenciesEnforcementTimer timer = new DependenciesEnforcementTimer();
+        configuration.addPreGraphChangeListener(timer.start);
+        configuration.addPostGraphChangeListener(timer.stop);
+    }
+
+    private Timer.Context context;
+
+    private final IGraphChangeListener start = new IGraphChangeListener() {
+
+        @Override
+        public void execute() {
+            if (context == null) {
+                context = ENFORCEMENT_TIMER.start();
+            }
+        }
+    };
+
+    private final IGraphChangeListener stop = new IGraphChangeListener() {
+
+        @Override
+        public void execute() {
+            if (context != null) {
+                context.stop();
+                context = null;
+            }
+        }
+    };
+
+    private DependenciesEnforcementTimer() {
+    }
+
+}
@@ -38,6 +38,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.Validate;
 import org.apache.commons.logging.Log;
@@ -49,6 +50,8 @@ import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.Registry;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
+import org.libreplan.business.common.metrics.MetricsRegistry;
+import org.libreplan.business.common.metrics.Timer;
 import org.libreplan.business.orders.daos.IOrderDAO;
 import org.libreplan.business.orders.entities.HoursGroup;
 import org.libreplan.business.orders.entities.Order;
@@ -157,6 +160,9 @@ public class OrderPlanningModel implements IOrderPlanningModel {
     private static final Log PROFILING_LOG = ProfilingLogFactory
             .getLog(OrderPlanningModel.class);
 
+    private static final Timer SET_CONFIGURATION_TIMER = MetricsRegistry
+            .getInstance().timer("planner.set_configuration");
+
     public static <T extends Collection<Resource>> T loadRequiredDataFor(
             T resources) {
         for (Resource each : resources) {
@@ -364,10 +370,13 @@ public class OrderPlanningModel implements IOrderPlanningModel {
 
         configuration.setChartComponent(chartComponent);
         configureModificators(planningState.getOrder(), configuration);
-        long setConfigurationTime = System.currentTimeMillis();
+        DependenciesEnforcementTimer.addTo(configuration);
+        Timer.Context setConfigurationContext = SET_CONFIGURATION_TIMER
+                .start();
         planner.setConfiguration(configuration);
         PROFILING_LOG.debug("setConfiguration on planner took: "
-                + (System.currentTimeMillis() - setConfigurationTime) + " ms");
+                + TimeUnit.NANOSECONDS.toMillis(setConfigurationContext.stop())
+                + " ms");
         long preparingChartsAndMisc = System.currentTimeMillis();
 
         setupZoomLevelListener(planner, order);
@@ -30,6 +30,7 @@ import java.util.Set;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.Validate;
+import org.apache.commons.logging.Log;
 import org.hibernate.Hibernate;
 import org.joda.time.LocalDate;
 import org.libreplan.business.advance.entities.DirectAdvanceAssignment;
@@ -39,8 +40,12 @@ import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.daos.IEntitySequenceDAO;
 import org.libreplan.business.common.entities.EntityNameEnum;
+import org.libreplan.business.common.metrics.MetricsRegistry;
+import org.libreplan.business.common.metrics.PhaseTimer;
+import org.libreplan.business.common.metrics.Timer;
 import org.libreplan.business.labels.entities.Label;
 import org.libreplan.business.orders.daos.IOrderDAO;
+import org.libreplan.business.orders.daos.IOrderElementDAO;
 import org.libreplan.business.orders.entities.HoursGroup;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.orders.entities.OrderElement;
@@ -48,6 +53,8 @@ import org.libreplan.business.orders.entities.OrderStatusEnum;
 import org.libreplan.business.orders.entities.TaskSource;
 import org.libreplan.business.orders.entities.TaskSource.IOptionalPersistence;
 import org.libreplan.business.orders.entities.TaskSource.TaskSourceSynchronization;
+import org.libreplan.business.planner.daos.IDayAssignmentDAO;
+import org.libreplan.business.planner.daos.IResourceAllocationDAO;
 import org.libreplan.business.planner.daos.ITaskElementDAO;
 import org.libreplan.business.planner.daos.ITaskSourceDAO;
 import org.libreplan.business.planner.entities.AssignmentFunction;
@@ -59,6 +66,7 @@ import org.libreplan.business.planner.entities.GenericResourceAllocation;
 import org.libreplan.business.planner.entities.IMoneyCostCalculator;
 import org.libreplan.business.planner.entities.ResourceAllocation;
 import org.libreplan.business.planner.entities.ResourceAllocation.IVisitor;
+import org.libreplan.business.planner.entities.ResourceLoadIndex;
 import org.libreplan.business.planner.entities.HoursCostCalculator;
 import org.libreplan.business.planner.entities.SpecificResourceAllocation;
 import org.libreplan.business.planner.entities.StretchesFunction;
@@ -95,6 +103,7 @@ import org.springframework.stereotype.Component;
 import org.zkoss.ganttz.adapters.IAdapterToTaskFundamentalProperties;
 import org.zkoss.ganttz.adapters.IStructureNavigator;
 import org.zkoss.ganttz.adapters.PlannerConfiguration;
+import org.zkoss.ganttz.util.ProfilingLogFactory;
 import org.zkoss.zk.ui.Desktop;
 
 /**
@@ -110,6 +119,25 @@ public class PlanningStateCreator {
 
     private static final String ATTRIBUTE_NAME = PlanningState.class.getName();
 
+    private static final Log PROFILING_LOG = ProfilingLogFactory
+            .getLog(PlanningStateCreator.class);
+
+    private static final Timer OPEN_TIMER = timer("planner.open");
+
+    private static final Timer RESOURCES_TIMER = timer("planner.open.resources");
+
+    private static final Timer ORDER_ELEMENTS_TIMER = timer("planner.open.order_elements");
+
+    private static final Timer TASK_ELEMENTS_TIMER = timer("planner.open.task_elements");
+
+    private static final Timer DAY_ASSIGNMENTS_TIMER = timer("planner.open.day_assignments");
+
+    private static final Timer STATE_TIMER = timer("planner.open.state");
+
+    private static Timer timer(String name) {
+        return MetricsRegistry.getInstance().timer(name);
+    }
+
     /**
      * When the scenario is not the owner, all the tasks are copied, creating
      * new assignments. But the previous assignments keep on being referenced by
@@ -159,6 +187,15 @@ public class PlanningStateCreator {
     @Autowired
     private IOrderDAO orderDAO;
 
+    @Autowired
+    private IOrderElementDAO orderElementDAO;
+
+    @Autowired
+    private IResourceAllocationDAO resourceAllocationDAO;
+
+    @Autowired
+    private IDayAssignmentDAO dayAssignmentDAO;
+
     @Autowired
     private IScenarioDAO scenarioDAO;
 
@@ -267,18 +304,47 @@ public class PlanningStateCreator {
         }
     }
 
+    /**
+     * The data needed by the planner is loaded layer by layer: first the
+     * order elements, then the task elements with their allocations and
+     * finally the day assignments of the resources involved. Each layer is
+     * fetched with a few queries before walking it, so the walk doesn't fire
+     * a lazy load for each object. The time taken by each phase is recorded
+     * in the <code>planner.open</code> metrics.
+     */
     private PlanningState createPlanning(Order orderReloaded) {
+        PhaseTimer phases = new PhaseTimer(PROFILING_LOG);
         Scenario currentScenario = scenarioManager.getCurrent();
         final List<Resource> allResources = resourceDAO.list(Resource.class);
         criterionDAO.list(Criterion.class);
+        phases.phaseDone(RESOURCES_TIMER, "loading resources and criteria");
+
+        List<OrderElement> orderElements = orderElementDAO
+                .loadTree(orderReloaded);
+        orderElementDAO.prefetchPlanningData(orderElements);
+        forceLoadOfOrderAssociatedData(orderElements);
+        phases.phaseDone(ORDER_ELEMENTS_TIMER, "loading order elements");
 
-        forceLoadOfOrderAssociatedData(orderReloaded);
         TaskGroup rootTask = orderReloaded.getAssociatedTaskElement();
         if (rootTask != null) {
-            forceLoadOf(rootTask);
-            forceLoadDayAssignments(orderReloaded
-                    .getResources(FilterType.KEEP_ALL));
+            List<TaskElement> taskElements = taskDAO.loadTree(rootTask);
+            taskDAO.prefetchAllocationsAndDependencies(taskElements);
+            resourceAllocationDAO.prefetchForScenario(
+                    getAllocations(taskElements), currentScenario);
+            for (TaskElement each : taskElements) {
+                forceLoadOfDataAssociatedTo(each);
+            }
             forceLoadOfDepedenciesCollections(rootTask);
+            phases.phaseDone(TASK_ELEMENTS_TIMER,
+                    "loading task elements and allocations");
+
+            Set<Resource> resources = orderReloaded
+                    .getResources(FilterType.KEEP_ALL);
+            resourceDAO.prefetchDayAssignments(resources);
+            forceLoadDayAssignments(resources);
+            phases.phaseDone(DAY_ASSIGNMENTS_TIMER,
+                    "loading day assignments of resources");
+
             forceLoadOfLabels(Arrays.asList((TaskElement) rootTask));
         }
 
@@ -293,14 +359,24 @@ public class PlanningStateCreator {
         forceLoadOfWorkingHours(result.getInitial());
 
         moneyCostCalculator.resetMoneyCostMap();
+        phases.phaseDone(STATE_TIMER, "creating planning state");
+        phases.allDone(OPEN_TIMER, "opening the planning");
+
+        return result;
+    }
 
+    private static Set<ResourceAllocation<?>> getAllocations(
+            List<TaskElement> taskElements) {
+        Set<ResourceAllocation<?>> result = new HashSet<ResourceAllocation<?>>();
+        for (TaskElement each : taskElements) {
+            if (each.isTask()) {
+                result.addAll(each.getAllResourceAllocations());
+            }
+        }
         return result;
     }
 
-    private void forceLoadOfOrderAssociatedData(Order order) {
-        List<OrderElement> all = new ArrayList<OrderElement>();
-        all.add(order);
-        all.addAll(order.getAllChildren());
+    private void forceLoadOfOrderAssociatedData(List<OrderElement> all) {
         for (OrderElement each : all) {
             for (DirectAdvanceAssignment direct : each.getDirectAdvanceAssignments()) {
                 direct.getAdvanceMeasurements().size();
@@ -334,16 +410,6 @@ public class PlanningStateCreator {
         }
     }
 
-    private void forceLoadOf(TaskElement taskElement) {
-        forceLoadOfDataAssociatedTo(taskElement);
-        if (taskElement instanceof TaskGroup) {
-            findChildrenWithQueryToAvoidProxies((TaskGroup) taskElement);
-            for (TaskElement each : taskElement.getChildren()) {
-                forceLoadOf(each);
-            }
-        }
-    }
-
     private void forceLoadOfDataAssociatedTo(TaskElement each) {
         forceLoadOfResourceAllocationsResourcesAndAssignmentFunction(each);
         forceLoadOfCriterions(each);
@@ -419,13 +485,6 @@ public class PlanningStateCreator {
         }
     }
 
-    private void findChildrenWithQueryToAvoidProxies(TaskGroup group) {
-        for (TaskElement eachTask : taskDAO.findChildrenOf(group)) {
-            Hibernate.initialize(eachTask);
-            eachTask.getParent().getName();
-        }
-    }
-
     private IScenarioInfo buildScenarioInfo(Order orderReloaded) {
         Scenario currentScenario = scenarioManager.getCurrent();
         if (orderReloaded.isUsingTheOwnerScenario()) {
@@ -719,6 +778,8 @@ public class PlanningStateCreator {
 
         private Set<Resource> resources = new HashSet<Resource>();
 
+        private ResourceLoadIndex loadIndex;
+
         private final IScenarioInfo scenarioInfo;
 
         private List<OrderAuthorization> orderAuthorizations;
@@ -788,11 +849,21 @@ public class PlanningStateCreator {
             }
         }
 
+        /**
+         * The resources share a {@link ResourceLoadIndex}, so allocating among
+         * the ones not involved in the order only loads their assignments in
+         * the days being allocated
+         */
         private void associateWithScenario(
                 Collection<? extends Resource> resources) {
             Scenario currentScenario = getCurrentScenario();
+            if (loadIndex == null
+                    || !loadIndex.getScenario().equals(currentScenario)) {
+                loadIndex = ResourceLoadIndex.create(currentScenario,
+                        dayAssignmentDAO);
+            }
             for (Resource each : resources) {
-                each.useScenario(currentScenario);
+                each.useLoadIndex(loadIndex);
             }
         }
 
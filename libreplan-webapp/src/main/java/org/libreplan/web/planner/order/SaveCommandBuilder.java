@@ -48,6 +48,10 @@ import org.libreplan.business.common.entities.EntityNameEnum;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.common.exceptions.ValidationException.InvalidValue;
+import org.libreplan.business.common.metrics.Counter;
+import org.libreplan.business.common.metrics.MetricsRegistry;
+import org.libreplan.business.common.metrics.PhaseTimer;
+import org.libreplan.business.common.metrics.Timer;
 import org.libreplan.business.orders.daos.IOrderDAO;
 import org.libreplan.business.orders.daos.IOrderElementDAO;
 import org.libreplan.business.orders.entities.HoursGroup;
@@ -106,6 +110,7 @@ import org.zkoss.ganttz.data.DependencyType.Point;
 import org.zkoss.ganttz.data.GanttDate;
 import org.zkoss.ganttz.data.constraint.Constraint;
 import org.zkoss.ganttz.extensions.IContext;
+import org.zkoss.ganttz.util.ProfilingLogFactory;
 import org.zkoss.zk.ui.Executions;
 import org.zkoss.zul.Label;
 import org.zkoss.zul.Messagebox;
@@ -128,6 +133,38 @@ public class SaveCommandBuilder {
 
     private static final Log LOG = LogFactory.getLog(SaveCommandBuilder.class);
 
+    private static final Log PROFILING_LOG = ProfilingLogFactory
+            .getLog(SaveCommandBuilder.class);
+
+    private static final Timer SAVE_TIMER = timer("planner.save");
+
+    private static final Timer TRANSACTION_TIMER = timer("planner.save.transaction");
+
+    private static final Timer PREPARE_TIMER = timer("planner.save.prepare");
+
+    private static final Timer SYNCHRONIZE_TREES_TIMER = timer("planner.save.synchronize_trees");
+
+    private static final Timer SAVE_PROJECT_TIMER = timer("planner.save.project");
+
+    private static final Timer REMOVE_UNATTACHED_TIMER = timer("planner.save.remove_unattached");
+
+    private static final Timer SAVE_TASKS_TIMER = timer("planner.save.tasks");
+
+    private static final Timer SAVE_REMAINING_TIMER = timer("planner.save.remaining");
+
+    private static final Timer COMMIT_TIMER = timer("planner.save.commit");
+
+    private static final Timer SUM_CHARGED_EFFORTS_TIMER = timer("planner.save.sum_charged_efforts");
+
+    private static final Timer SUM_EXPENSES_TIMER = timer("planner.save.sum_expenses");
+
+    private static final Counter VALIDATION_ERRORS = MetricsRegistry
+            .getInstance().counter("planner.save.validation_errors");
+
+    private static Timer timer(String name) {
+        return MetricsRegistry.getInstance().timer(name);
+    }
+
     public ISaveCommand build(PlanningState planningState,
             PlannerConfiguration<TaskElement> plannerConfiguration) {
         SaveCommand result = new SaveCommand(planningState,
@@ -231,6 +268,8 @@ public class SaveCommandBuilder {
 
         private boolean disabled = false;
 
+        private PhaseTimer phases;
+
         public SaveCommand(PlanningState planningState,
                 PlannerConfiguration<TaskElement> configuration) {
             this.state = planningState;
@@ -285,6 +324,7 @@ public class SaveCommandBuilder {
             try {
                 if (state.getScenarioInfo().isUsingTheOwnerScenario()
                         || userAcceptsCreateANewOrderVersion()) {
+                    phases = new PhaseTimer(PROFILING_LOG);
                     transactionService
                             .runOnTransaction(new IOnTransaction<Void>() {
                                 @Override
@@ -300,16 +340,23 @@ public class SaveCommandBuilder {
                     dontPoseAsTransientObjectAnymore(state.getOrder()
                             .getEndDateCommunicationToCustomer());
                     state.getScenarioInfo().afterCommit();
+                    phases.phaseDone(COMMIT_TIMER, "committing");
+                    phases.allDone(TRANSACTION_TIMER, "saving transaction");
 
                     if (state.getOrder()
                             .isNeededToRecalculateSumChargedEfforts()) {
                         sumChargedEffortRecalculator.recalculate(state
                                 .getOrder().getId());
+                        phases.phaseDone(SUM_CHARGED_EFFORTS_TIMER,
+                                "recalculating sum charged efforts");
                     }
 
                     if (state.getOrder().isNeededToRecalculateSumExpenses()) {
                         sumExpensesRecalculator.recalculate(state.getOrder().getId());
+                        phases.phaseDone(SUM_EXPENSES_TIMER,
+                                "recalculating sum expenses");
                     }
+                    phases.allDone(SAVE_TIMER, "saving the project");
 
                     fireAfterSave();
                     if (afterSaveActions != null) {
@@ -317,6 +364,7 @@ public class SaveCommandBuilder {
                     }
                 }
             } catch (ValidationException validationException) {
+                VALIDATION_ERRORS.increment();
                 if (Executions.getCurrent() == null) {
                     throw validationException;
                 }
@@ -385,7 +433,10 @@ public class SaveCommandBuilder {
             order.calculateAndSetTotalHours();
             checkConstraintOrderUniqueCode(order);
             checkConstraintHoursGroupUniqueCode(order);
+            phases.phaseDone(PREPARE_TIMER,
+                    "preparing and checking the project");
             state.synchronizeTrees();
+            phases.phaseDone(SYNCHRONIZE_TREES_TIMER, "synchronizing trees");
 
             TaskGroup rootTask = state.getRootTask();
 
@@ -398,13 +449,17 @@ public class SaveCommandBuilder {
                 taskElementDAO.reattach(rootTask);
             }
             orderDAO.save(order);
+            phases.phaseDone(SAVE_PROJECT_TIMER, "saving project");
 
             saveDerivedScenarios(order);
             deleteOrderElementWithoutParent(order);
             deleteUnboundedDependencies();
+            phases.phaseDone(REMOVE_UNATTACHED_TIMER,
+                    "removing unattached elements");
 
             updateTasksRelatedData();
             removeTasksToRemove();
+            phases.phaseDone(SAVE_TASKS_TIMER, "saving tasks");
             loadDataAccessedWithNotPosedAsTransientInOrder(state.getOrder());
             loadDataAccessedWithNotPosedAsTransient(state.getOrder());
             if (state.getRootTask() != null) {
@@ -417,6 +472,7 @@ public class SaveCommandBuilder {
             removeTaskElementsWithTaskSourceNull();
 
             state.updateSavedOrderState();
+            phases.phaseDone(SAVE_REMAINING_TIMER, "saving remaining data");
         }
 
         private void removeTaskElementsWithTaskSourceNull() {
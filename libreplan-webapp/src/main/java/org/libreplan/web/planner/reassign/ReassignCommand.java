@@ -24,8 +24,11 @@ import static org.libreplan.web.I18nHelper._;
 import static org.zkoss.ganttz.util.LongOperationFeedback.and;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
@@ -40,7 +43,9 @@ import org.libreplan.business.resources.daos.ICriterionTypeDAO;
 import org.libreplan.business.resources.daos.IResourcesSearcher;
 import org.libreplan.business.resources.entities.Criterion;
 import org.libreplan.business.resources.entities.CriterionType;
+import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.web.planner.order.PlanningStateCreator.PlanningState;
+import org.libreplan.web.planner.reassign.ReassignmentWaves.IFootprint;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
@@ -124,7 +129,8 @@ public class ReassignCommand implements IReassignCommand {
                             .getGanttDiagramGraph();
                     notifications = ganttDiagramGraph
                             .manualNotificationOn(doReassignations(
-                                    ganttDiagramGraph, reassignations, updater));
+                                    ganttDiagramGraph, context.getMapper(),
+                                    reassignations, updater));
                 } finally {
                     if (notifications != null) {
                         // null if error
@@ -157,27 +163,33 @@ public class ReassignCommand implements IReassignCommand {
     }
 
     private IAction doReassignations(final GanttDiagramGraph<Task, Dependency> diagramGraph,
+            final IDomainAndBeansMapper<TaskElement> mapper,
             final List<WithAssociatedEntity> reassignations,
             final IDesktopUpdatesEmitter<IDesktopUpdate> updater) {
         return new IAction() {
 
             @Override
             public void doAction() {
-                int i = 1;
+                List<List<WithAssociatedEntity>> waves = transactionService
+                        .runOnReadOnlyTransaction(partitionInWaves(
+                                diagramGraph, mapper, reassignations));
+                int done = 0;
                 final int total = reassignations.size();
-                for (final WithAssociatedEntity each : reassignations) {
-                    Task ganttTask = each.ganntTask;
-                    GanttDate previousStart = ganttTask.getBeginDate();
-                    GanttDate previousEnd = ganttTask.getEndDate();
-
+                for (List<WithAssociatedEntity> wave : waves) {
+                    for (WithAssociatedEntity each : wave) {
+                        each.rememberPosition();
+                    }
                     transactionService
-                            .runOnReadOnlyTransaction(reassignmentTransaction(each));
-                    diagramGraph.enforceRestrictions(each.ganntTask);
-                    ganttTask.enforceDependenciesDueToPositionPotentiallyModified();
-                    ganttTask.updateSizeDueToDateChanges(previousStart, previousEnd);
-
-                    updater.doUpdate(showCompleted(i, total));
-                    i++;
+                            .runOnReadOnlyTransaction(reassignmentTransaction(
+                                    wave, done, total, updater));
+                    for (WithAssociatedEntity each : wave) {
+                        Task ganttTask = each.ganntTask;
+                        diagramGraph.enforceRestrictions(ganttTask);
+                        ganttTask.enforceDependenciesDueToPositionPotentiallyModified();
+                        ganttTask.updateSizeDueToDateChanges(
+                                each.previousStart, each.previousEnd);
+                    }
+                    done += wave.size();
                 }
             }
         };
@@ -283,6 +295,10 @@ public class ReassignCommand implements IReassignCommand {
 
         private Task ganntTask;
 
+        private GanttDate previousStart;
+
+        private GanttDate previousEnd;
+
         WithAssociatedEntity(TaskElement domainEntity, Task ganntTask) {
             Validate.notNull(domainEntity);
             Validate.notNull(ganntTask);
@@ -290,6 +306,11 @@ public class ReassignCommand implements IReassignCommand {
             this.ganntTask = ganntTask;
         }
 
+        void rememberPosition() {
+            previousStart = ganntTask.getBeginDate();
+            previousEnd = ganntTask.getEndDate();
+        }
+
     }
 
     private List<WithAssociatedEntity> getReassignations(
@@ -310,22 +331,130 @@ public class ReassignCommand implements IReassignCommand {
         return result;
     }
 
+    /**
+     * Splits the reassignations in {@link ReassignmentWaves waves}. The tasks
+     * of a wave can be reassigned in the same transaction, enforcing the
+     * dependencies after all of them are done. They are still reassigned one
+     * after another in this thread, since the session and the entities can't
+     * be shared between threads. What is saved is a transaction per task and
+     * enforcing the dependencies after each one of them.
+     */
+    private IOnTransaction<List<List<WithAssociatedEntity>>> partitionInWaves(
+            final GanttDiagramGraph<Task, Dependency> diagramGraph,
+            final IDomainAndBeansMapper<TaskElement> mapper,
+            final List<WithAssociatedEntity> reassignations) {
+        return new IOnTransaction<List<List<WithAssociatedEntity>>>() {
+
+            @Override
+            public List<List<WithAssociatedEntity>> execute() {
+                planningState.reassociateResourcesWithSession();
+                Map<Task, WithAssociatedEntity> byGanttTask = new HashMap<Task, WithAssociatedEntity>();
+                List<Task> ganttTasks = new ArrayList<Task>();
+                for (WithAssociatedEntity each : reassignations) {
+                    byGanttTask.put(each.ganntTask, each);
+                    ganttTasks.add(each.ganntTask);
+                }
+                List<List<WithAssociatedEntity>> result = new ArrayList<List<WithAssociatedEntity>>();
+                for (List<Task> wave : ReassignmentWaves.partition(ganttTasks,
+                        footprintOn(diagramGraph, mapper))) {
+                    List<WithAssociatedEntity> entities = new ArrayList<WithAssociatedEntity>();
+                    for (Task each : wave) {
+                        entities.add(byGanttTask.get(each));
+                    }
+                    result.add(entities);
+                }
+                return result;
+            }
+        };
+    }
+
+    private IFootprint<Task> footprintOn(
+            final GanttDiagramGraph<Task, Dependency> diagramGraph,
+            final IDomainAndBeansMapper<TaskElement> mapper) {
+        final Map<Set<Criterion>, List<Long>> resourcesByCriteria = new HashMap<Set<Criterion>, List<Long>>();
+        return new IFootprint<Task>() {
+
+            @Override
+            public Collection<? extends Task> getSuccessors(Task task) {
+                return diagramGraph.isScheduleForward() ? diagramGraph
+                        .getOutgoingTasksFor(task) : diagramGraph
+                        .getIncomingTasksFor(task);
+            }
+
+            @Override
+            public boolean isChildOf(Task container, Task task) {
+                // when scheduling backwards every container is traversed
+                // completely
+                return diagramGraph.isScheduleForward()
+                        && diagramGraph.contains(container, task);
+            }
+
+            @Override
+            public Collection<Long> getSuitableResources(Task task) {
+                TaskElement taskElement = mapper
+                        .findAssociatedDomainObject(task);
+                taskElementDAO.reattach(taskElement);
+                Set<Long> result = new HashSet<Long>();
+                for (ResourceAllocation<?> each : taskElement
+                        .getSatisfiedResourceAllocations()) {
+                    if (each instanceof GenericResourceAllocation) {
+                        result.addAll(suitableForCriteria(
+                                (GenericResourceAllocation) each));
+                    } else {
+                        result.addAll(idsOf(each
+                                .querySuitableResources(resourcesSearcher)));
+                    }
+                }
+                return result;
+            }
+
+            private List<Long> suitableForCriteria(
+                    GenericResourceAllocation allocation) {
+                Set<Criterion> criteria = new HashSet<Criterion>(
+                        allocation.getCriterions());
+                List<Long> result = resourcesByCriteria.get(criteria);
+                if (result == null) {
+                    result = idsOf(allocation
+                            .querySuitableResources(resourcesSearcher));
+                    resourcesByCriteria.put(criteria, result);
+                }
+                return result;
+            }
+        };
+    }
+
+    private static List<Long> idsOf(List<Resource> resources) {
+        List<Long> result = new ArrayList<Long>();
+        for (Resource each : resources) {
+            result.add(each.getId());
+        }
+        return result;
+    }
+
     private IOnTransaction<Void> reassignmentTransaction(
-            final WithAssociatedEntity withAssociatedEntity) {
+            final List<WithAssociatedEntity> wave, final int alreadyDone,
+            final int total,
+            final IDesktopUpdatesEmitter<IDesktopUpdate> updater) {
         return new IOnTransaction<Void>() {
 
             @Override
             public Void execute() {
-                reattach(withAssociatedEntity);
-                reassign(withAssociatedEntity.domainEntity);
+                planningState.reassociateResourcesWithSession();
+                Set<Long> idsOfTypesAlreadyAttached = new HashSet<Long>();
+                int done = alreadyDone;
+                for (WithAssociatedEntity each : wave) {
+                    reattach(each, idsOfTypesAlreadyAttached);
+                    reassign(each.domainEntity);
+                    done++;
+                    updater.doUpdate(showCompleted(done, total));
+                }
                 return null;
             }
         };
     }
 
-    private void reattach(WithAssociatedEntity each) {
-        planningState.reassociateResourcesWithSession();
-        Set<Long> idsOfTypesAlreadyAttached = new HashSet<Long>();
+    private void reattach(WithAssociatedEntity each,
+            Set<Long> idsOfTypesAlreadyAttached) {
         taskElementDAO.reattach(each.domainEntity);
         Set<ResourceAllocation<?>> resourceAllocations = each.domainEntity
                 .getSatisfiedResourceAllocations();
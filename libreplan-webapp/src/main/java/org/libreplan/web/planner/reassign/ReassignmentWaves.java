@@ -0,0 +1,334 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.web.planner.reassign;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Partitions the tasks to reassign in waves. The reassignment of a task can
+ * affect the tasks that depend on it, since they are moved and reassigned
+ * too, and the resources that could be allocated to all of them. That's the
+ * footprint of the task.
+ * <p>
+ * The footprints of the tasks of a wave are disjoint, so the order in which
+ * they are reassigned doesn't matter and the dependencies can be enforced once
+ * the whole wave is reassigned. If the footprints of two tasks overlap, the
+ * one coming first in the provided order is put in an earlier wave, so the
+ * result is the same as reassigning the tasks one by one in that order.
+ * </p>
+ * <p>
+ * First the tasks whose footprints overlap, directly or through other tasks,
+ * are grouped. The groups are found in a single traversal from all the tasks,
+ * joining them with a union-find structure. The footprint of each task is
+ * only calculated if there are other tasks in its group, since the tasks of
+ * different groups never overlap.
+ * </p>
+ *
+ * @param <T>
+ *            the type of the tasks
+ */
+class ReassignmentWaves<T> {
+
+    interface IFootprint<T> {
+
+        /**
+         * @return the tasks that can be moved when the position of
+         *         <code>task</code> changes
+         */
+        Collection<? extends T> getSuccessors(T task);
+
+        /**
+         * @return if <code>task</code> is a child of <code>container</code>
+         */
+        boolean isChildOf(T container, T task);
+
+        /**
+         * @return the ids of the resources that could be allocated to
+         *         <code>task</code>
+         */
+        Collection<Long> getSuitableResources(T task);
+    }
+
+    static <T> List<List<T>> partition(List<? extends T> tasksInOrder,
+            IFootprint<T> footprint) {
+        return new ReassignmentWaves<T>(footprint).partition(tasksInOrder);
+    }
+
+    /**
+     * Represents the end of a container reached from one of its children
+     */
+    private static class EndOf {
+
+        private final Object container;
+
+        EndOf(Object container) {
+            this.container = container;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof EndOf
+                    && ((EndOf) obj).container.equals(container);
+        }
+
+        @Override
+        public int hashCode() {
+            return container.hashCode();
+        }
+
+    }
+
+    private final IFootprint<T> footprint;
+
+    /**
+     * Union-find over the tasks, the ends of the containers and the resource
+     * ids. Each group is represented by one of its elements.
+     */
+    private final Map<Object, Object> parents = new HashMap<Object, Object>();
+
+    private final Set<T> visited = new HashSet<T>();
+
+    private final LinkedList<T> toTraverse = new LinkedList<T>();
+
+    /**
+     * For each container reached from one of its children, if its end can
+     * affect any task or resource
+     */
+    private final Map<T, Boolean> endAffectsOthers = new HashMap<T, Boolean>();
+
+    private final Map<T, Collection<Long>> suitableResources = new HashMap<T, Collection<Long>>();
+
+    private final Map<T, Collection<? extends T>> successors = new HashMap<T, Collection<? extends T>>();
+
+    private ReassignmentWaves(IFootprint<T> footprint) {
+        Validate.notNull(footprint);
+        this.footprint = footprint;
+    }
+
+    private List<List<T>> partition(List<? extends T> tasksInOrder) {
+        for (T each : tasksInOrder) {
+            visit(each);
+        }
+        while (!toTraverse.isEmpty()) {
+            traverse(toTraverse.removeFirst());
+        }
+        Map<Object, List<T>> groups = new HashMap<Object, List<T>>();
+        for (T each : tasksInOrder) {
+            Object group = find(each);
+            if (!groups.containsKey(group)) {
+                groups.put(group, new ArrayList<T>());
+            }
+            groups.get(group).add(each);
+        }
+        Map<T, Integer> waves = new HashMap<T, Integer>();
+        for (List<T> group : groups.values()) {
+            if (group.size() == 1) {
+                waves.put(group.get(0), 0);
+            } else {
+                waves.putAll(partitionGroup(group));
+            }
+        }
+        List<List<T>> result = new ArrayList<List<T>>();
+        for (T each : tasksInOrder) {
+            int wave = waves.get(each);
+            while (result.size() <= wave) {
+                result.add(new ArrayList<T>());
+            }
+            result.get(wave).add(each);
+        }
+        return result;
+    }
+
+    /**
+     * Each task goes in the first wave after the last one its footprint
+     * overlaps with
+     */
+    private Map<T, Integer> partitionGroup(List<T> group) {
+        Map<T, Integer> result = new HashMap<T, Integer>();
+        Map<Object, Integer> lastWave = new HashMap<Object, Integer>();
+        for (T each : group) {
+            Set<Object> elements = footprintOf(each);
+            int wave = 0;
+            for (Object element : elements) {
+                Integer previous = lastWave.get(element);
+                if (previous != null) {
+                    wave = Math.max(wave, previous + 1);
+                }
+            }
+            for (Object element : elements) {
+                lastWave.put(element, wave);
+            }
+            result.put(each, wave);
+        }
+        return result;
+    }
+
+    /**
+     * Traverses the tasks that can be moved due to the reassignment of
+     * <code>task</code>. When a container is reached from one of its children
+     * only its end can be modified, so its children aren't traversed. Its end
+     * is the latest of its children's ends, so it doesn't depend on the order
+     * of the reassignments and the container isn't part of the footprint.
+     */
+    private Set<Object> footprintOf(T task) {
+        Set<Object> result = new HashSet<Object>();
+        Set<T> fullyVisited = new HashSet<T>();
+        Set<T> visitedFromChild = new HashSet<T>();
+        LinkedList<T> pending = new LinkedList<T>();
+        LinkedList<Boolean> pendingFromChild = new LinkedList<Boolean>();
+        pending.add(task);
+        pendingFromChild.add(false);
+        while (!pending.isEmpty()) {
+            T current = pending.removeFirst();
+            boolean fromChild = pendingFromChild.removeFirst();
+            if (fullyVisited.contains(current)
+                    || (fromChild && !visitedFromChild.add(current))) {
+                continue;
+            }
+            if (!fromChild) {
+                fullyVisited.add(current);
+                result.add(current);
+            }
+            result.addAll(getSuitableResources(current));
+            for (T each : getSuccessors(current)) {
+                if (fromChild && footprint.isChildOf(current, each)) {
+                    continue;
+                }
+                pending.add(each);
+                pendingFromChild.add(footprint.isChildOf(each, current));
+            }
+        }
+        return result;
+    }
+
+    private void visit(T task) {
+        if (visited.add(task)) {
+            toTraverse.add(task);
+        }
+    }
+
+    private void traverse(T task) {
+        for (Long each : getSuitableResources(task)) {
+            union(task, each);
+        }
+        for (T each : getSuccessors(task)) {
+            if (footprint.isChildOf(each, task)) {
+                if (endAffectsOthers(each)) {
+                    union(task, new EndOf(each));
+                }
+            } else {
+                union(task, each);
+                visit(each);
+            }
+        }
+    }
+
+    /**
+     * When a container is reached from one of its children only its end can
+     * be modified, so its children aren't traversed. Its end is the latest of
+     * its children's ends, so it doesn't depend on the order of the
+     * reassignments and the container isn't part of the footprint. The end is
+     * only joined with the group of the child if it reaches other tasks or
+     * resources.
+     */
+    private boolean endAffectsOthers(T container) {
+        Boolean result = endAffectsOthers.get(container);
+        if (result != null) {
+            return result;
+        }
+        // avoids looping if the dependencies have a cycle
+        endAffectsOthers.put(container, false);
+        EndOf end = new EndOf(container);
+        boolean affectsOthers = false;
+        for (Long each : getSuitableResources(container)) {
+            union(end, each);
+            affectsOthers = true;
+        }
+        for (T each : getSuccessors(container)) {
+            if (footprint.isChildOf(container, each)) {
+                continue;
+            }
+            if (footprint.isChildOf(each, container)) {
+                if (endAffectsOthers(each)) {
+                    union(end, new EndOf(each));
+                    affectsOthers = true;
+                }
+            } else {
+                union(end, each);
+                visit(each);
+                affectsOthers = true;
+            }
+        }
+        endAffectsOthers.put(container, affectsOthers);
+        return affectsOthers;
+    }
+
+    private Collection<? extends T> getSuccessors(T task) {
+        Collection<? extends T> result = successors.get(task);
+        if (result == null) {
+            result = footprint.getSuccessors(task);
+            successors.put(task, result);
+        }
+        return result;
+    }
+
+    private Collection<Long> getSuitableResources(T task) {
+        Collection<Long> result = suitableResources.get(task);
+        if (result == null) {
+            result = footprint.getSuitableResources(task);
+            suitableResources.put(task, result);
+        }
+        return result;
+    }
+
+    private Object find(Object element) {
+        Object root = element;
+        Object parent = parents.get(root);
+        while (parent != null) {
+            root = parent;
+            parent = parents.get(root);
+        }
+        // path compression
+        Object current = element;
+        while (!current.equals(root)) {
+            Object next = parents.get(current);
+            parents.put(current, root);
+            current = next;
+        }
+        return root;
+    }
+
+    private void union(Object a, Object b) {
+        Object rootA = find(a);
+        Object rootB = find(b);
+        if (!rootA.equals(rootB)) {
+            parents.put(rootA, rootB);
+        }
+    }
+
+}
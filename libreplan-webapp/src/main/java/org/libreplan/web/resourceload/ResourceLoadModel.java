@@ -50,6 +50,7 @@ import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.orders.daos.IOrderDAO;
 import org.libreplan.business.orders.entities.Order;
 import org.libreplan.business.orders.entities.OrderElement;
+import org.libreplan.business.planner.daos.IDayAssignmentDAO;
 import org.libreplan.business.planner.daos.IResourceAllocationDAO;
 import org.libreplan.business.planner.entities.DayAssignment;
 import org.libreplan.business.planner.entities.GenericResourceAllocation;
@@ -109,6 +110,9 @@ public class ResourceLoadModel implements IResourceLoadModel {
     @Autowired
     private IResourceAllocationDAO resourceAllocationDAO;
 
+    @Autowired
+    private IDayAssignmentDAO dayAssignmentDAO;
+
     @Autowired
     private IUserDAO userDAO;
 
@@ -200,10 +204,11 @@ public class ResourceLoadModel implements IResourceLoadModel {
                 }
 
                 private List<Resource> reattach(List<Resource> resources) {
+                    // only the calendars are needed, the day assignments
+                    // shown are retrieved separately
                     for (Resource resource : resources) {
                         ResourceCalendar calendar = resource.getCalendar();
                         BaseCalendarModel.forceLoadBaseCalendar(calendar);
-                        resource.getAssignments().size();
                     }
                     return resources;
                 }
@@ -224,7 +229,7 @@ public class ResourceLoadModel implements IResourceLoadModel {
             };
         }
 
-        private List<DayAssignment> getAssignmentsShown() {
+        List<DayAssignment> getAssignmentsShown() {
             Set<DayAssignment> result = new HashSet<DayAssignment>();
             Map<T, List<ResourceAllocation<?>>> foundAllocations = getFoundAllocations();
             for (Entry<T, List<ResourceAllocation<?>>> each : foundAllocations
@@ -300,6 +305,22 @@ public class ResourceLoadModel implements IResourceLoadModel {
                     .buildGroupsByResource(getFoundAllocations());
         }
 
+        /**
+         * If there isn't a planning state there are no modifications pending
+         * to be saved, so only the assignments of the resources in the current
+         * page inside the filtered interval are retrieved from the database
+         */
+        @Override
+        List<DayAssignment> getAssignmentsShown() {
+            if (parameters.getPlanningState() != null) {
+                return super.getAssignmentsShown();
+            }
+            return dayAssignmentDAO.findByResources(getCurrentScenario(),
+                    resources.getForCurrentPage(),
+                    parameters.getInitDateFilter(),
+                    parameters.getEndDateFilter());
+        }
+
         private Paginator<Resource> resourcesToShow() {
             return parameters.getEntities(Resource.class,
                     new Callable<List<Resource>>() {
@@ -352,23 +373,49 @@ public class ResourceLoadModel implements IResourceLoadModel {
                     });
         }
 
+        /**
+         * The allocations of all the resources of the page are retrieved at
+         * once and then distributed among them
+         */
         private Map<Resource, List<ResourceAllocation<?>>> eachWithAllocations(
-                List<Resource> allResources) {
+                List<Resource> resourcesInPage) {
+            Map<Long, List<ResourceAllocation<?>>> byResourceId = byResourceId(resourceAllocationDAO
+                    .findAllocationsRelatedToAnyOf(getCurrentScenario(),
+                            resourcesInPage, parameters.getInitDateFilter(),
+                            parameters.getEndDateFilter()));
             Map<Resource, List<ResourceAllocation<?>>> result = new LinkedHashMap<Resource, List<ResourceAllocation<?>>>();
-            for (Resource resource : allResources) {
+            for (Resource resource : resourcesInPage) {
                 IAllocationCriteria criteria = and(onInterval(),
                         relatedToResource(resource));
+                List<ResourceAllocation<?>> found = byResourceId.get(resource
+                        .getId());
                 result.put(resource, ResourceAllocation
                         .sortedByStartDate(doReplacementsIfNeeded(
-                                resourceAllocationDAO.findAllocationsRelatedTo(
-                                        getCurrentScenario(), resource,
-                                        parameters.getInitDateFilter(),
-                                        parameters.getEndDateFilter()),
+                                found != null ? found : Collections
+                                        .<ResourceAllocation<?>> emptyList(),
                                 criteria)));
             }
             return result;
         }
 
+        private Map<Long, List<ResourceAllocation<?>>> byResourceId(
+                List<ResourceAllocation<?>> allocations) {
+            Map<Long, List<ResourceAllocation<?>>> result = new HashMap<Long, List<ResourceAllocation<?>>>();
+            for (ResourceAllocation<?> each : allocations) {
+                if (!each.hasAssignments()) {
+                    continue;
+                }
+                for (Resource resource : each.getAssociatedResources()) {
+                    if (!result.containsKey(resource.getId())) {
+                        result.put(resource.getId(),
+                                new ArrayList<ResourceAllocation<?>>());
+                    }
+                    result.get(resource.getId()).add(each);
+                }
+            }
+            return result;
+        }
+
         private IAllocationCriteria relatedToResource(Resource resource) {
             return new RelatedWithResource(resource);
         }
@@ -102,6 +102,24 @@ public class DateConverter {
 
     }
 
+    /**
+     * It converts a <code>String</code> with a <code>xsd:date</code> value
+     * (e.g. <code>2013-01-31</code>), as received in a query parameter, to a
+     * Joda's <code>LocalDate</code>. <br/>
+     * <br/>
+     * If the date passed as a parameter is <code>null</code>, it also returns
+     * <code>null</code>.
+     *
+     * @throws IllegalArgumentException
+     *             if the date is not well formed
+     */
+    public final static LocalDate toLocalDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        return new LocalDate(date);
+    }
+
     /**
      * It converts a <code>Date</code> to a <code>XMLGregorianCalendar</code>
      * representing a <code>xsd:date</code> XML type.<br/>
@@ -22,11 +22,16 @@
 package org.libreplan.ws.common.impl;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import org.apache.commons.lang.StringUtils;
 import org.libreplan.business.common.IAdHocTransactionService;
 import org.libreplan.business.common.IOnTransaction;
 import org.libreplan.business.common.IntegrationEntity;
@@ -47,6 +52,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 public abstract class GenericRESTService<E extends IntegrationEntity,
     DTO extends IntegrationEntityDTO> {
 
+    /**
+     * Number of entities saved in each transaction by
+     * {@link #saveInBulk(Iterator, Integer)} if no other is specified
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 200;
+
     @Autowired
     protected IAdHocTransactionService transactionService;
 
@@ -64,9 +75,16 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
     protected InstanceConstraintViolationsListDTO save(
         List<? extends DTO> entityDTOs) {
 
+        return new InstanceConstraintViolationsListDTO(save(entityDTOs, 1));
+
+    }
+
+    private List<InstanceConstraintViolationsDTO> save(
+        List<? extends DTO> entityDTOs, long firstNumItem) {
+
         List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList =
             new ArrayList<InstanceConstraintViolationsDTO>();
-        long numItem = 1;
+        long numItem = firstNumItem;
 
         for (DTO entityDTO : entityDTOs) {
 
@@ -101,11 +119,112 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
 
         }
 
+        return instanceConstraintViolationsList;
+
+    }
+
+    /**
+     * It saves (inserts or updates) a list of entities as {@link #save(List)}
+     * but saving up to <code>chunkSize</code> entities in each transaction.
+     * The existing entities of each chunk are retrieved at once and the
+     * statements of the chunk are sent in JDBC batches, so it's intended for
+     * big imports. The entities are taken from the iterator as they are
+     * needed, so it can be a {@link StreamedListDTOReader}.
+     *
+     * A chunk is closed before any code that it already contains, so an
+     * entity is never saved twice in the same transaction. Otherwise the
+     * operations done in {@link #beforeSaving(IntegrationEntity)}, that can
+     * check the state of the entity in another transaction, would see it as
+     * it was before the chunk.
+     *
+     * If any entity of a chunk can't be saved the whole chunk is rolled back
+     * and its entities are saved again one by one, in order to report the
+     * same constraint violations that {@link #save(List)} does.
+     */
+    protected InstanceConstraintViolationsListDTO saveInBulk(
+        Iterator<? extends DTO> entityDTOs, Integer chunkSize) {
+
+        int size = (chunkSize == null || chunkSize < 1) ? DEFAULT_CHUNK_SIZE
+                : chunkSize;
+        List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList =
+            new ArrayList<InstanceConstraintViolationsDTO>();
+        long numItem = 1;
+        DTO next = null;
+
+        while (next != null || entityDTOs.hasNext()) {
+            List<DTO> chunk = new ArrayList<DTO>(size);
+            Set<String> codes = new HashSet<String>();
+            if (next == null) {
+                next = entityDTOs.next();
+            }
+            while (next != null && chunk.size() < size
+                    && isNotRepeated(codes, next)) {
+                chunk.add(next);
+                next = entityDTOs.hasNext() ? entityDTOs.next() : null;
+            }
+            try {
+                insertOrUpdateChunk(chunk);
+            } catch (RuntimeException e) {
+                instanceConstraintViolationsList.addAll(save(chunk, numItem));
+            }
+            numItem += chunk.size();
+        }
+
         return new InstanceConstraintViolationsListDTO(
             instanceConstraintViolationsList);
 
     }
 
+    private static boolean isNotRepeated(Set<String> codes,
+            IntegrationEntityDTO entityDTO) {
+        return StringUtils.isBlank(entityDTO.code)
+                || codes.add(entityDTO.code.trim().toLowerCase());
+    }
+
+    /**
+     * It saves (inserts or updates) the entity DTOs by using a single new
+     * transaction. The codes of the DTOs must not be repeated.
+     *
+     * @throws ValidationException if validations are not passed
+     * @throws RecoverableErrorException if a recoverable error occurs
+     */
+    private void insertOrUpdateChunk(final List<DTO> entityDTOs)
+        throws ValidationException, RecoverableErrorException {
+
+        IOnTransaction<Void> save = new IOnTransaction<Void>() {
+
+            @Override
+            public Void execute() {
+
+                IIntegrationEntityDAO<E> entityDAO =
+                    getIntegrationEntityDAO();
+                List<String> codes = new ArrayList<String>();
+                for (DTO each : entityDTOs) {
+                    codes.add(each.code);
+                }
+                Map<String, E> existing = entityDAO.findByCodes(codes);
+
+                for (DTO each : entityDTOs) {
+                    E entity = each.code == null ? null : existing.get(each.code
+                            .trim().toLowerCase());
+                    if (entity != null) {
+                        updateEntity(entity, each);
+                    } else {
+                        entity = toEntity(each);
+                    }
+                    validateAndSave(entityDAO, entity);
+                }
+
+                return null;
+
+            }
+
+        };
+
+        transactionService.runOnAnotherTransaction(save);
+
+    }
+
     /**
      * It saves (inserts or updates) an entity DTO by using a new transaction.
      *
@@ -137,13 +256,7 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
                     entity = toEntity(entityDTO);
                 }
 
-                /*
-                 * Validate and save (insert or update) the entity.
-                 */
-                entity.validate();
-                beforeSaving(entity);
-                entityDAO.saveWithoutValidating(entity);
-                afterSaving(entity);
+                validateAndSave(entityDAO, entity);
 
                 return null;
 
@@ -155,6 +268,16 @@ public abstract class GenericRESTService<E extends IntegrationEntity,
 
     }
 
+    /**
+     * Validate and save (insert or update) the entity.
+     */
+    private void validateAndSave(IIntegrationEntityDAO<E> entityDAO, E entity) {
+        entity.validate();
+        beforeSaving(entity);
+        entityDAO.saveWithoutValidating(entity);
+        afterSaving(entity);
+    }
+
     /**
      * It allows to add operations that must be done before saving.
      *
@@ -0,0 +1,150 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.ws.common.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.Version;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
+import org.codehaus.jackson.map.module.SimpleModule;
+import org.codehaus.jackson.map.ser.std.ToStringSerializer;
+import org.codehaus.jackson.xc.JaxbAnnotationIntrospector;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.common.daos.IScrollVisitor;
+
+/**
+ * Writes some entities as newline delimited JSON, one DTO per line, while
+ * they are retrieved from the database. This way neither the entities nor
+ * their DTOs are ever fully kept in memory and the first line is sent as soon
+ * as it's converted.
+ * <p>
+ * The output is written after the resource method has returned, so the
+ * entities are retrieved in their own read only transaction. The DTOs are
+ * serialized using their JAXB annotations, so the names of the properties
+ * and the format of the dates are the same than in the XML representation.
+ * </p>
+ *
+ * @param <E>
+ *            Entity
+ */
+public abstract class NDJSONStreamingOutput<E> implements StreamingOutput {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private static final ObjectMapper mapper = createMapper();
+
+    private static ObjectMapper createMapper() {
+        ObjectMapper result = new ObjectMapper();
+        result.setAnnotationIntrospector(new JaxbAnnotationIntrospector());
+        result.configure(SerializationConfig.Feature.WRITE_DATES_AS_TIMESTAMPS,
+                false);
+        // the lines are flushed by the buffer, not one by one
+        result.configure(SerializationConfig.Feature.FLUSH_AFTER_WRITE_VALUE,
+                false);
+        result.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        SimpleModule module = new SimpleModule("NDJSON", Version
+                .unknownVersion());
+        module.addSerializer(XMLGregorianCalendar.class,
+                ToStringSerializer.instance);
+        result.registerModule(module);
+        return result;
+    }
+
+    public static Response ok(NDJSONStreamingOutput<?> output) {
+        return Response.ok(output, MEDIA_TYPE).build();
+    }
+
+    private final IAdHocTransactionService transactionService;
+
+    protected NDJSONStreamingOutput(IAdHocTransactionService transactionService) {
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * Passes to the visitor the entities to write in the order they must be
+     * written. It's called inside a read only transaction.
+     */
+    protected abstract void scroll(IScrollVisitor<E> visitor);
+
+    protected abstract Object toDTO(E entity);
+
+    @Override
+    public void write(OutputStream output) throws IOException,
+            WebApplicationException {
+        final OutputStream buffered = new BufferedOutputStream(output);
+        try {
+            transactionService
+                    .runOnReadOnlyTransaction(new IOnTransaction<Void>() {
+
+                        @Override
+                        public Void execute() {
+                            scroll(new IScrollVisitor<E>() {
+
+                                @Override
+                                public void visit(E each) {
+                                    writeLine(buffered, toDTO(each));
+                                }
+                            });
+                            return null;
+                        }
+                    });
+        } catch (WriteFailedException e) {
+            throw e.getCause();
+        }
+        buffered.flush();
+    }
+
+    private static void writeLine(OutputStream output, Object dto) {
+        try {
+            mapper.writeValue(output, dto);
+            output.write('\n');
+        } catch (IOException e) {
+            throw new WriteFailedException(e);
+        }
+    }
+
+    /**
+     * Carries an {@link IOException} through the transaction, that only lets
+     * unchecked exceptions pass
+     */
+    private static class WriteFailedException extends RuntimeException {
+
+        WriteFailedException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.ws.common.impl;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the elements of a list DTO (e.g. <code>WorkReportListDTO</code>) one
+ * by one from its XML representation. This way, the list is never fully
+ * bound into memory and big lists can be saved as they are read.
+ * <p>
+ * Each child of the root element is unmarshalled as the DTO class registered
+ * for its name. The children with other names are ignored.
+ * </p>
+ *
+ * @see GenericRESTService#saveInBulk(Iterator, Integer)
+ */
+public class StreamedListDTOReader<T> implements Iterator<T> {
+
+    /**
+     * The documents come from the clients of the web services, so DTDs are
+     * not supported and external entities are never resolved
+     */
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory result = XMLInputFactory.newInstance();
+        result.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+                false);
+        return result;
+    }
+
+    public static <T> StreamedListDTOReader<T> read(InputStream input,
+            Class<?> listDTOClass, String elementName,
+            Class<? extends T> elementDTOClass) {
+        return read(input, listDTOClass, Collections
+                .<String, Class<? extends T>> singletonMap(elementName,
+                        elementDTOClass));
+    }
+
+    public static <T> StreamedListDTOReader<T> read(InputStream input,
+            Class<?> listDTOClass,
+            Map<String, Class<? extends T>> elementDTOClasses) {
+        try {
+            Unmarshaller unmarshaller = JAXBContext.newInstance(listDTOClass)
+                    .createUnmarshaller();
+            XMLStreamReader reader = INPUT_FACTORY
+                    .createXMLStreamReader(input);
+            return new StreamedListDTOReader<T>(reader, unmarshaller,
+                    elementDTOClasses);
+        } catch (JAXBException e) {
+            throw new RuntimeException(e);
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private final XMLStreamReader reader;
+
+    private final Unmarshaller unmarshaller;
+
+    private final Map<String, Class<? extends T>> elementDTOClasses;
+
+    private T next;
+
+    private StreamedListDTOReader(XMLStreamReader reader,
+            Unmarshaller unmarshaller,
+            Map<String, Class<? extends T>> elementDTOClasses)
+            throws XMLStreamException, JAXBException {
+        this.reader = reader;
+        this.unmarshaller = unmarshaller;
+        this.elementDTOClasses = elementDTOClasses;
+        // move inside the root element. It fails if there is a DTD
+        reader.nextTag();
+        reader.next();
+        this.next = readNext();
+    }
+
+    private T readNext() throws XMLStreamException, JAXBException {
+        while (true) {
+            switch (reader.getEventType()) {
+            case XMLStreamConstants.START_ELEMENT:
+                Class<? extends T> elementDTOClass = elementDTOClasses
+                        .get(reader.getLocalName());
+                if (elementDTOClass != null) {
+                    // it leaves the reader after the end of the element
+                    return unmarshaller.unmarshal(reader, elementDTOClass)
+                            .getValue();
+                }
+                skipElement();
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+            case XMLStreamConstants.END_DOCUMENT:
+                // end of the root element
+                reader.close();
+                return null;
+            default:
+                reader.next();
+            }
+        }
+    }
+
+    private void skipElement() throws XMLStreamException {
+        int depth = 0;
+        do {
+            if (reader.isStartElement()) {
+                depth++;
+            } else if (reader.isEndElement()) {
+                depth--;
+            }
+            reader.next();
+        } while (depth > 0);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        T result = next;
+        try {
+            next = readNext();
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        } catch (JAXBException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.ws.dayassignments.api;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.libreplan.business.planner.entities.DayAssignment;
+
+/**
+ * DTO for {@link DayAssignment} entity.
+ */
+@XmlRootElement(name = "day-assignment")
+public class DayAssignmentDTO {
+
+    @XmlAttribute
+    public Long id;
+
+    @XmlAttribute
+    public XMLGregorianCalendar day;
+
+    @XmlAttribute
+    public String resource;
+
+    @XmlAttribute(name = "work-order")
+    public String orderElement;
+
+    @XmlAttribute
+    public String hours;
+
+    /**
+     * <code>specific</code> or <code>generic</code>, depending on the kind of
+     * allocation the day assignment belongs to
+     */
+    @XmlAttribute
+    public String type;
+
+    public DayAssignmentDTO() {
+    }
+
+    public DayAssignmentDTO(Long id, XMLGregorianCalendar day,
+            String resource, String orderElement, String hours, String type) {
+        this.id = id;
+        this.day = day;
+        this.resource = resource;
+        this.orderElement = orderElement;
+        this.hours = hours;
+        this.type = type;
+    }
+
+}
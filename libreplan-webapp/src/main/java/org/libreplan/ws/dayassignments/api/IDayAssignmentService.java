@@ -0,0 +1,40 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.ws.dayassignments.api;
+
+import javax.ws.rs.core.Response;
+
+/**
+ * Service to export the planned hours of the resources day by day.
+ */
+public interface IDayAssignmentService {
+
+    /**
+     * Writes the specific and generic day assignments of the current scenario
+     * with a day between <code>from</code> and <code>to</code> (both optional
+     * and inclusive) as newline delimited JSON, ordered by id. It's intended
+     * for incremental extracts: only the day assignments with an id greater
+     * than <code>afterId</code> are written if it's specified, up to
+     * <code>limit</code> day assignments.
+     */
+    Response exportDayAssignments(String from, String to, Long afterId,
+            Integer limit);
+
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.ws.dayassignments.impl;
+
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.GenericDayAssignment;
+import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.ws.common.impl.DateConverter;
+import org.libreplan.ws.dayassignments.api.DayAssignmentDTO;
+
+/**
+ * Converter from {@link DayAssignment} entities to DTOs.
+ */
+public final class DayAssignmentConverter {
+
+    private DayAssignmentConverter() {
+    }
+
+    public final static DayAssignmentDTO toDTO(DayAssignment dayAssignment) {
+        ResourceAllocation<?> allocation = getAllocation(dayAssignment);
+        Task task = allocation != null ? allocation.getTask() : null;
+        String orderElementCode = task != null
+                && task.getOrderElement() != null ? task.getOrderElement()
+                .getCode() : null;
+
+        return new DayAssignmentDTO(dayAssignment.getId(),
+                DateConverter.toXMLGregorianCalendar(dayAssignment.getDay()),
+                dayAssignment.getResource().getCode(), orderElementCode,
+                dayAssignment.getDuration().toFormattedString(),
+                getType(dayAssignment));
+    }
+
+    private static ResourceAllocation<?> getAllocation(
+            DayAssignment dayAssignment) {
+        if (dayAssignment instanceof SpecificDayAssignment) {
+            return ((SpecificDayAssignment) dayAssignment)
+                    .getSpecificResourceAllocation();
+        }
+        if (dayAssignment instanceof GenericDayAssignment) {
+            return ((GenericDayAssignment) dayAssignment)
+                    .getGenericResourceAllocation();
+        }
+        return null;
+    }
+
+    private static String getType(DayAssignment dayAssignment) {
+        return dayAssignment instanceof SpecificDayAssignment ? "specific"
+                : "generic";
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.ws.dayassignments.impl;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.joda.time.LocalDate;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.daos.IScrollVisitor;
+import org.libreplan.business.planner.daos.IDayAssignmentDAO;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.ws.common.impl.DateConverter;
+import org.libreplan.ws.common.impl.NDJSONStreamingOutput;
+import org.libreplan.ws.dayassignments.api.IDayAssignmentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * REST-based implementation of {@link IDayAssignmentService}.
+ */
+@Path("/dayassignments/")
+@Produces("application/xml")
+@Service("dayAssignmentServiceREST")
+public class DayAssignmentServiceREST implements IDayAssignmentService {
+
+    @Autowired
+    private IDayAssignmentDAO dayAssignmentDAO;
+
+    @Autowired
+    private IScenarioManager scenarioManager;
+
+    @Autowired
+    private IAdHocTransactionService transactionService;
+
+    @Override
+    @GET
+    @Path("/export/")
+    @Produces(NDJSONStreamingOutput.MEDIA_TYPE)
+    public Response exportDayAssignments(@QueryParam("from") String from,
+            @QueryParam("to") String to,
+            @QueryParam("after") final Long afterId,
+            @QueryParam("limit") final Integer limit) {
+        final LocalDate start;
+        final LocalDate end;
+        try {
+            start = DateConverter.toLocalDate(from);
+            end = DateConverter.toLocalDate(to);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        final Scenario scenario = scenarioManager.getCurrent();
+        return NDJSONStreamingOutput
+                .ok(new NDJSONStreamingOutput<DayAssignment>(
+                        transactionService) {
+
+                    @Override
+                    protected void scroll(IScrollVisitor<DayAssignment> visitor) {
+                        dayAssignmentDAO.scrollOrderedById(scenario, start,
+                                end, afterId, limit, visitor);
+                    }
+
+                    @Override
+                    protected Object toDTO(DayAssignment entity) {
+                        return DayAssignmentConverter.toDTO(entity);
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.ws.metrics.impl;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+import org.libreplan.business.common.metrics.MetricsRegistry;
+import org.libreplan.ws.metrics.api.IMetricsService;
+import org.springframework.stereotype.Service;
+
+/**
+ * REST-based implementation of {@link IMetricsService}.
+ */
+@Path("/metrics/")
+@Produces("text/plain")
+@Service("metricsServiceREST")
+public class MetricsServiceREST implements IMetricsService {
+
+    @Override
+    @GET
+    public String getMetrics() {
+        return MetricsRegistry.getInstance().getValuesAsText();
+    }
+
+}
@@ -21,6 +21,8 @@
 
 package org.libreplan.ws.orders.api;
 
+import java.io.InputStream;
+
 import javax.ws.rs.core.Response;
 
 import org.libreplan.business.orders.entities.OrderElement;
@@ -35,8 +37,24 @@ public interface IOrderElementService {
 
     InstanceConstraintViolationsListDTO addOrders(OrderListDTO orderListDTO);
 
+    /**
+     * Saves the orders of a <code>order-list</code> read from <code>input</code>
+     * as they are parsed, up to <code>chunkSize</code> in each transaction.
+     * It's intended for big imports.
+     */
+    InstanceConstraintViolationsListDTO addOrdersInBulk(InputStream input,
+            Integer chunkSize);
+
     OrderListDTO getOrders();
 
+    /**
+     * Writes the orders, with all their elements, as newline delimited JSON
+     * ordered by code. Only the orders with a code greater than
+     * <code>afterCode</code> are written if it's specified, up to
+     * <code>limit</code> orders.
+     */
+    Response exportOrders(String afterCode, Integer limit);
+
     Response getOrderElement(String code);
 
     Response removeOrderElement(String code);
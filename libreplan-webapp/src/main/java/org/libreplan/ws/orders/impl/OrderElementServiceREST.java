@@ -21,6 +21,7 @@
 
 package org.libreplan.ws.orders.impl;
 
+import java.io.InputStream;
 import java.util.UUID;
 
 import javax.ws.rs.Consumes;
@@ -30,10 +31,12 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
+import org.libreplan.business.common.daos.IScrollVisitor;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.orders.daos.IOrderDAO;
@@ -47,8 +50,10 @@ import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 import org.libreplan.ws.common.api.OrderDTO;
 import org.libreplan.ws.common.impl.ConfigurationOrderElementConverter;
 import org.libreplan.ws.common.impl.GenericRESTService;
+import org.libreplan.ws.common.impl.NDJSONStreamingOutput;
 import org.libreplan.ws.common.impl.OrderElementConverter;
 import org.libreplan.ws.common.impl.RecoverableErrorException;
+import org.libreplan.ws.common.impl.StreamedListDTOReader;
 import org.libreplan.ws.orders.api.IOrderElementService;
 import org.libreplan.ws.orders.api.OrderListDTO;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -91,6 +96,37 @@ public class OrderElementServiceREST extends
         return save(orderListDTO.orderDTOs);
     }
 
+    @Override
+    @POST
+    @Path("/bulk/")
+    @Consumes("application/xml")
+    public InstanceConstraintViolationsListDTO addOrdersInBulk(
+            InputStream input, @QueryParam("chunk-size") Integer chunkSize) {
+        return saveInBulk(StreamedListDTOReader.<OrderDTO> read(input,
+                OrderListDTO.class, "order", OrderDTO.class), chunkSize);
+    }
+
+    @Override
+    @GET
+    @Path("/export/")
+    @Produces(NDJSONStreamingOutput.MEDIA_TYPE)
+    public Response exportOrders(@QueryParam("after") final String afterCode,
+            @QueryParam("limit") final Integer limit) {
+        return NDJSONStreamingOutput.ok(new NDJSONStreamingOutput<Order>(
+                transactionService) {
+
+            @Override
+            protected void scroll(IScrollVisitor<Order> visitor) {
+                orderDAO.scrollOrderedByCode(afterCode, limit, visitor);
+            }
+
+            @Override
+            protected Object toDTO(Order entity) {
+                return OrderElementServiceREST.this.toDTO(entity);
+            }
+        });
+    }
+
     @Override
     protected OrderDTO toDTO(Order entity) {
         return (OrderDTO) OrderElementConverter.toDTO(entity,
@@ -21,6 +21,8 @@
 
 package org.libreplan.ws.resources.api;
 
+import java.io.InputStream;
+
 import javax.ws.rs.core.Response;
 
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
@@ -41,6 +43,14 @@ public interface IResourceService {
     public InstanceConstraintViolationsListDTO addResources(
         ResourceListDTO resources);
 
+    /**
+     * Saves the resources of a <code>resource-list</code> read from <code>input</code>
+     * as they are parsed, up to <code>chunkSize</code> in each transaction.
+     * It's intended for big imports.
+     */
+    public InstanceConstraintViolationsListDTO addResourcesInBulk(
+        InputStream input, Integer chunkSize);
+
     public ResourceListDTO getResources();
 
     Response getResource(String code);
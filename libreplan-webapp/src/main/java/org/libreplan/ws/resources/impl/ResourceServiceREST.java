@@ -21,9 +21,12 @@
 
 package org.libreplan.ws.resources.impl;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -31,6 +34,7 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 import org.apache.commons.lang.StringUtils;
@@ -48,9 +52,12 @@ import org.libreplan.business.resources.entities.Resource;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
 import org.libreplan.ws.common.impl.GenericRESTService;
 import org.libreplan.ws.common.impl.RecoverableErrorException;
+import org.libreplan.ws.common.impl.StreamedListDTOReader;
 import org.libreplan.ws.resources.api.IResourceService;
+import org.libreplan.ws.resources.api.MachineDTO;
 import org.libreplan.ws.resources.api.ResourceDTO;
 import org.libreplan.ws.resources.api.ResourceListDTO;
+import org.libreplan.ws.resources.api.WorkerDTO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -83,6 +90,23 @@ public class ResourceServiceREST
 
     }
 
+    @Override
+    @POST
+    @Path("/bulk/")
+    @Consumes("application/xml")
+    public InstanceConstraintViolationsListDTO addResourcesInBulk(
+        InputStream input, @QueryParam("chunk-size") Integer chunkSize) {
+
+        Map<String, Class<? extends ResourceDTO>> elements =
+            new HashMap<String, Class<? extends ResourceDTO>>();
+        elements.put("worker", WorkerDTO.class);
+        elements.put("machine", MachineDTO.class);
+
+        return saveInBulk(StreamedListDTOReader.read(input,
+            ResourceListDTO.class, elements), chunkSize);
+
+    }
+
     @Override
     @Transactional
     protected Resource toEntity(ResourceDTO entityDTO)
@@ -21,6 +21,8 @@
 
 package org.libreplan.ws.workreports.api;
 
+import java.io.InputStream;
+
 import javax.ws.rs.core.Response;
 
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
@@ -37,6 +39,24 @@ public interface IWorkReportService {
     public InstanceConstraintViolationsListDTO addWorkReports(
             WorkReportListDTO workReportListDTO);
 
+    /**
+     * Saves the work reports of a <code>work-report-list</code> read from <code>input</code>
+     * as they are parsed, up to <code>chunkSize</code> in each transaction.
+     * It's intended for big imports.
+     */
+    public InstanceConstraintViolationsListDTO addWorkReportsInBulk(
+            InputStream input, Integer chunkSize);
+
+    /**
+     * Writes the work report lines with a date between <code>from</code> and
+     * <code>to</code> (both optional and inclusive) as newline delimited
+     * JSON, ordered by code. It's intended for incremental extracts: only
+     * the lines with a code greater than <code>afterCode</code> are written
+     * if it's specified, up to <code>limit</code> lines.
+     */
+    public Response exportWorkReportLines(String from, String to,
+            String afterCode, Integer limit);
+
     public Response getWorkReport(String code);
 
     Response removeWorkReport(String code);
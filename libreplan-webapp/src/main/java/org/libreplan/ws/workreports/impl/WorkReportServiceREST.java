@@ -21,8 +21,10 @@
 
 package org.libreplan.ws.workreports.impl;
 
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -33,10 +35,14 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import org.joda.time.LocalDate;
+
 import org.libreplan.business.common.daos.IIntegrationEntityDAO;
+import org.libreplan.business.common.daos.IScrollVisitor;
 import org.libreplan.business.common.exceptions.InstanceNotFoundException;
 import org.libreplan.business.common.exceptions.ValidationException;
 import org.libreplan.business.orders.daos.ISumChargedEffortDAO;
@@ -46,7 +52,10 @@ import org.libreplan.business.workreports.daos.IWorkReportLineDAO;
 import org.libreplan.business.workreports.entities.WorkReport;
 import org.libreplan.business.workreports.entities.WorkReportLine;
 import org.libreplan.ws.common.api.InstanceConstraintViolationsListDTO;
+import org.libreplan.ws.common.impl.DateConverter;
 import org.libreplan.ws.common.impl.GenericRESTService;
+import org.libreplan.ws.common.impl.NDJSONStreamingOutput;
+import org.libreplan.ws.common.impl.StreamedListDTOReader;
 import org.libreplan.ws.workreports.api.IWorkReportService;
 import org.libreplan.ws.workreports.api.WorkReportDTO;
 import org.libreplan.ws.workreports.api.WorkReportListDTO;
@@ -92,6 +101,54 @@ public class WorkReportServiceREST extends
         return save(workReportListDTO.workReports);
     }
 
+    @Override
+    @POST
+    @Path("/bulk/")
+    @Consumes("application/xml")
+    public InstanceConstraintViolationsListDTO addWorkReportsInBulk(
+            InputStream input, @QueryParam("chunk-size") Integer chunkSize) {
+        return saveInBulk(StreamedListDTOReader.<WorkReportDTO> read(input,
+                WorkReportListDTO.class, "work-report", WorkReportDTO.class),
+                chunkSize);
+    }
+
+    @Override
+    @GET
+    @Path("/lines/export/")
+    @Produces(NDJSONStreamingOutput.MEDIA_TYPE)
+    public Response exportWorkReportLines(@QueryParam("from") String from,
+            @QueryParam("to") String to,
+            @QueryParam("after") final String afterCode,
+            @QueryParam("limit") final Integer limit) {
+        final Date start;
+        final Date end;
+        try {
+            start = toDate(DateConverter.toLocalDate(from));
+            end = toDate(DateConverter.toLocalDate(to));
+        } catch (IllegalArgumentException e) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        return NDJSONStreamingOutput
+                .ok(new NDJSONStreamingOutput<WorkReportLine>(
+                        transactionService) {
+
+                    @Override
+                    protected void scroll(IScrollVisitor<WorkReportLine> visitor) {
+                        workReportLineDAO.scrollOrderedByCode(start, end,
+                                afterCode, limit, visitor);
+                    }
+
+                    @Override
+                    protected Object toDTO(WorkReportLine entity) {
+                        return WorkReportConverter.toDTO(entity);
+                    }
+                });
+    }
+
+    private static Date toDate(LocalDate date) {
+        return date == null ? null : date.toDateTimeAtStartOfDay().toDate();
+    }
+
     @Override
     protected WorkReport toEntity(WorkReportDTO entityDTO) {
         try {
@@ -19,14 +19,26 @@
 
 package org.libreplan.importers;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Properties;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.ws.rs.WebApplicationException;
 
@@ -36,6 +48,10 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.libreplan.importers.jira.IssueDTO;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
 /**
  * Test for {@link JiraRESTClient }
  *
@@ -45,6 +61,11 @@ public class JiraRESTClientTest {
 
     private Properties properties = null;
 
+    /**
+     * The JQL of the searches received by the JIRA stub
+     */
+    private final List<String> searchQueries = new ArrayList<String>();
+
     @Before
     public void loadProperties() throws FileNotFoundException, IOException {
 
@@ -102,4 +123,143 @@ public class JiraRESTClientTest {
                 "");
         assertTrue(issues.size() > 0);
     }
+
+    /**
+     * Starts a server answering like JIRA to the authentication and search
+     * requests. The search returns <code>total</code> issues, but never more
+     * than <code>pageSize</code> at once
+     */
+    private HttpServer startJiraStub(final int total, final int pageSize)
+            throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(
+                "localhost", 0), 0);
+        server.createContext("/" + JiraRESTClient.PATH_AUTH_SESSION,
+                new HttpHandler() {
+
+                    @Override
+                    public void handle(HttpExchange exchange)
+                            throws IOException {
+                        respond(exchange, "{}");
+                    }
+                });
+        server.createContext("/" + JiraRESTClient.PATH_SEARCH,
+                new HttpHandler() {
+
+                    @Override
+                    public void handle(HttpExchange exchange)
+                            throws IOException {
+                        String query = exchange.getRequestURI().getQuery();
+                        searchQueries.add(getJql(query));
+                        int startAt = getStartAt(query);
+                        int end = Math.min(total, startAt + pageSize);
+                        List<String> issues = new ArrayList<String>();
+                        for (int i = startAt; i < end; i++) {
+                            issues.add("{\"key\":\"ISSUE-" + i
+                                    + "\",\"fields\":{\"summary\":\"Issue "
+                                    + i + "\"}}");
+                        }
+                        respond(exchange, "{\"startAt\":" + startAt
+                                + ",\"maxResults\":" + pageSize
+                                + ",\"total\":" + total + ",\"issues\":["
+                                + StringUtils.join(issues, ",") + "]}");
+                    }
+                });
+        server.start();
+        return server;
+    }
+
+    private static int getStartAt(String query) {
+        Matcher matcher = Pattern.compile("startAt=(\\d+)").matcher(query);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    private static String getJql(String query)
+            throws UnsupportedEncodingException {
+        Matcher matcher = Pattern.compile("jql=([^&]*)").matcher(query);
+        return matcher.find() ? URLDecoder.decode(matcher.group(1), "UTF-8")
+                : "";
+    }
+
+    private static void respond(HttpExchange exchange, String json)
+            throws IOException {
+        byte[] body = json.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream output = exchange.getResponseBody();
+        output.write(body);
+        output.close();
+    }
+
+    private static String urlOf(HttpServer server) {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    @Test
+    public void testGetIssuesReadsAllThePages() throws IOException {
+        HttpServer server = startJiraStub(5, 2);
+        try {
+            List<IssueDTO> issues = JiraRESTClient.getIssues(urlOf(server),
+                    "username", "password", JiraRESTClient.PATH_SEARCH,
+                    getJiraLabel("label"));
+            assertEquals(5, issues.size());
+            for (int i = 0; i < issues.size(); i++) {
+                assertEquals("ISSUE-" + i, issues.get(i).getKey());
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testGetIssuesWithoutResults() throws IOException {
+        HttpServer server = startJiraStub(0, 2);
+        try {
+            assertTrue(JiraRESTClient.getIssues(urlOf(server), "username",
+                    "password", JiraRESTClient.PATH_SEARCH,
+                    getJiraLabel("label")).isEmpty());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testUpdatedSinceRestrictsTheQuery() {
+        String query = JiraRESTClient.updatedSince(getJiraLabel("label"),
+                new Date(0));
+        assertTrue(query.startsWith(getJiraLabel("label")
+                + " AND updated >= \""));
+        assertEquals(getJiraLabel("label"),
+                JiraRESTClient.updatedSince(getJiraLabel("label"), null));
+    }
+
+    @Test
+    public void testUpdatedSinceDoesNotMissIssuesInAnyTimeZone()
+            throws Exception {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+        HttpServer server = startJiraStub(1, 2);
+        try {
+            Date since = new Date(1357560000000L);
+            JiraRESTClient.getIssues(urlOf(server), "username", "password",
+                    JiraRESTClient.PATH_SEARCH, JiraRESTClient.updatedSince(
+                            getJiraLabel("label"), since));
+
+            assertEquals(1, searchQueries.size());
+            Matcher matcher = Pattern.compile("updated >= \"([^\"]*)\"")
+                    .matcher(searchQueries.get(0));
+            assertTrue(matcher.find());
+            // from the westernmost to the easternmost time zone
+            for (String each : Arrays.asList("Etc/GMT+12", "UTC",
+                    "America/Los_Angeles", "Europe/Madrid", "Pacific/Kiritimati")) {
+                SimpleDateFormat format = new SimpleDateFormat(
+                        "yyyy/MM/dd HH:mm");
+                format.setTimeZone(TimeZone.getTimeZone(each));
+                assertFalse(each, format.parse(matcher.group(1)).after(since));
+            }
+        } finally {
+            server.stop(0);
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
 }
@@ -0,0 +1,96 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.common;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+import org.libreplan.business.common.metrics.MetricsRegistry;
+
+/**
+ * Tests for {@link MetricsFilter}.
+ */
+public class MetricsFilterTest {
+
+    private final MetricsRegistry registry = MetricsRegistry.getInstance();
+
+    private final MetricsFilter filter = new MetricsFilter(Arrays.asList(
+            "/orderelements/", "/subcontracting/reportadvances/",
+            "/subcontracting/subcontract/", "/metrics/"));
+
+    private void requestRest(String pathInfo) throws Exception {
+        HttpServletRequest request = createNiceMock(HttpServletRequest.class);
+        expect(request.getServletPath()).andReturn("/ws/rest").anyTimes();
+        expect(request.getPathInfo()).andReturn(pathInfo).anyTimes();
+        FilterChain chain = createNiceMock(FilterChain.class);
+        replay(request, chain);
+        filter.doFilter(request, createNiceMock(ServletResponse.class), chain);
+    }
+
+    private long countOf(String service) {
+        return registry.timer("requests.rest." + service).getNanoseconds()
+                .getCount();
+    }
+
+    @Test
+    public void theKnownServicesAreTimedOneByOne() throws Exception {
+        long orderElements = countOf("orderelements");
+        long reportAdvances = countOf("subcontracting.reportadvances");
+        long subcontract = countOf("subcontracting.subcontract");
+
+        requestRest("/orderelements/");
+        requestRest("/orderelements/some-code");
+        requestRest("/subcontracting/reportadvances");
+        requestRest("/subcontracting/subcontract/");
+
+        assertEquals(orderElements + 2, countOf("orderelements"));
+        assertEquals(reportAdvances + 1,
+                countOf("subcontracting.reportadvances"));
+        assertEquals(subcontract + 1, countOf("subcontracting.subcontract"));
+    }
+
+    @Test
+    public void theOtherPathsAreTimedTogether() throws Exception {
+        long unknown = countOf(MetricsFilter.UNKNOWN_REST_SERVICE);
+
+        requestRest("/notaservice/");
+        requestRest("/orderelementsandmore");
+        requestRest("/subcontracting/");
+        requestRest("/");
+        requestRest(null);
+
+        assertEquals(unknown + 5, countOf(MetricsFilter.UNKNOWN_REST_SERVICE));
+        for (String each : registry.getValues().keySet()) {
+            assertFalse(each, each.startsWith("requests.rest.notaservice")
+                    || each.startsWith("requests.rest.orderelementsandmore"));
+        }
+    }
+
+}
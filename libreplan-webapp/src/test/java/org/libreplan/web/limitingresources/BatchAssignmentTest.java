@@ -0,0 +1,218 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.web.limitingresources;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.planner.entities.Dependency;
+import org.libreplan.business.planner.entities.ResourceAllocation;
+import org.libreplan.business.planner.limiting.entities.AllocationSpec;
+import org.libreplan.business.planner.limiting.entities.DateAndHour;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueDependency;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueDependency.QueueDependencyType;
+import org.libreplan.business.planner.limiting.entities.LimitingResourceQueueElement;
+import org.libreplan.business.resources.entities.LimitingResourceQueue;
+import org.libreplan.web.limitingresources.BatchAssignment.IAllocator;
+
+/**
+ * Tests for {@link BatchAssignment}.
+ */
+public class BatchAssignmentTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    private List<LimitingResourceQueueElement> elements;
+
+    private Map<LimitingResourceQueueElement, List<AllocationSpec>> allocations;
+
+    private Map<LimitingResourceQueueElement, List<LimitingResourceQueueElement>> moved;
+
+    private List<AllocationSpec> applied;
+
+    @Before
+    public void setUp() {
+        elements = new ArrayList<LimitingResourceQueueElement>();
+        allocations = new HashMap<LimitingResourceQueueElement, List<AllocationSpec>>();
+        moved = new HashMap<LimitingResourceQueueElement, List<LimitingResourceQueueElement>>();
+        applied = new ArrayList<AllocationSpec>();
+    }
+
+    private static DateAndHour day(int day) {
+        return DateAndHour.from(START.plusDays(day));
+    }
+
+    private LimitingResourceQueueElement element(int startBecauseOfGantt,
+            int hours) {
+        ResourceAllocation<?> resourceAllocation = createNiceMock(ResourceAllocation.class);
+        expect(resourceAllocation.getIntendedTotalHours()).andReturn(hours)
+                .anyTimes();
+        replay(resourceAllocation);
+        LimitingResourceQueueElement result = LimitingResourceQueueElement
+                .create();
+        result.setResourceAllocation(resourceAllocation);
+        result.setEarlierStartDateBecauseOfGantt(START
+                .plusDays(startBecauseOfGantt).toDateTimeAtStartOfDay()
+                .toDate());
+        elements.add(result);
+        allocations.put(result, new ArrayList<AllocationSpec>());
+        return result;
+    }
+
+    private static void dependency(LimitingResourceQueueElement origin,
+            LimitingResourceQueueElement destination) {
+        LimitingResourceQueueDependency.create(origin, destination,
+                createNiceMock(Dependency.class),
+                QueueDependencyType.END_START);
+    }
+
+    private AllocationSpec allocation(LimitingResourceQueueElement element,
+            int startDay, int endDay) {
+        AllocationSpec result = createNiceMock(AllocationSpec.class);
+        expect(result.getElement()).andReturn(element).anyTimes();
+        expect(result.getStartInclusive()).andReturn(day(startDay))
+                .anyTimes();
+        expect(result.getEndExclusive()).andReturn(day(endDay)).anyTimes();
+        replay(result);
+        allocations.get(element).add(result);
+        return result;
+    }
+
+    private BatchAssignmentResult assignAll() {
+        QueuesState queuesState = new QueuesState(
+                Collections.<LimitingResourceQueue> emptyList(), elements);
+        return BatchAssignment.assign(queuesState, elements, new IAllocator() {
+
+            @Override
+            public List<AllocationSpec> getAllocationsFor(
+                    LimitingResourceQueueElement element) {
+                return allocations.get(element);
+            }
+
+            @Override
+            public Collection<? extends LimitingResourceQueueElement> apply(
+                    AllocationSpec allocation) {
+                applied.add(allocation);
+                List<LimitingResourceQueueElement> result = moved
+                        .get(allocation.getElement());
+                return result != null ? result : Collections
+                        .<LimitingResourceQueueElement> emptyList();
+            }
+        });
+    }
+
+    @Test
+    public void theOriginsOfTheDependenciesArePlacedFirst() {
+        LimitingResourceQueueElement origin = element(5, 8);
+        LimitingResourceQueueElement destination = element(0, 8);
+        LimitingResourceQueueElement independent = element(3, 8);
+        dependency(origin, destination);
+        allocation(origin, 5, 6);
+        allocation(destination, 6, 7);
+        allocation(independent, 3, 4);
+
+        BatchAssignmentResult result = assignAll();
+        List<LimitingResourceQueueElement> placed = result.getPlaced();
+        assertEquals(3, placed.size());
+        assertTrue(placed.indexOf(origin) < placed.indexOf(destination));
+        assertTrue(placed.indexOf(independent) < placed.indexOf(origin));
+    }
+
+    @Test
+    public void withoutDependenciesTheEarliestGoesFirstAndThenTheLongest() {
+        LimitingResourceQueueElement late = element(2, 40);
+        LimitingResourceQueueElement shortOne = element(0, 8);
+        LimitingResourceQueueElement longOne = element(0, 16);
+        allocation(late, 2, 7);
+        allocation(shortOne, 0, 1);
+        allocation(longOne, 1, 3);
+
+        assertEquals(Arrays.asList(longOne, shortOne, late), assignAll()
+                .getPlaced());
+    }
+
+    @Test
+    public void eachElementIsAllocatedWhereItEndsFirst() {
+        LimitingResourceQueueElement element = element(0, 16);
+        allocation(element, 0, 5);
+        AllocationSpec endsFirst = allocation(element, 1, 3);
+        allocation(element, 0, 4);
+
+        assignAll();
+        assertEquals(Arrays.asList(endsFirst), applied);
+    }
+
+    @Test
+    public void theElementsWithoutAllocationAreUnplaceable() {
+        LimitingResourceQueueElement placeable = element(0, 8);
+        LimitingResourceQueueElement unplaceable = element(1, 8);
+        allocation(placeable, 0, 1);
+
+        BatchAssignmentResult result = assignAll();
+        assertEquals(Arrays.asList(placeable), result.getPlaced());
+        assertEquals(Arrays.asList(unplaceable), result.getUnplaceable());
+        assertEquals(1, applied.size());
+    }
+
+    @Test
+    public void nothingIsPlacedIfNoElementHasAllocations() {
+        element(0, 8);
+        element(1, 8);
+
+        BatchAssignmentResult result = assignAll();
+        assertTrue(result.isEmpty());
+        assertEquals(2, result.getUnplaceable().size());
+        assertNull(result.getStart());
+        assertNull(result.getEnd());
+    }
+
+    @Test
+    public void theSummaryGoesFromTheFirstStartToTheLastEnd() {
+        LimitingResourceQueueElement first = element(0, 8);
+        LimitingResourceQueueElement second = element(1, 80);
+        LimitingResourceQueueElement alreadyAssigned = LimitingResourceQueueElement
+                .create();
+        allocation(first, 2, 3);
+        allocation(second, 1, 11);
+        moved.put(first, Arrays.asList(alreadyAssigned));
+
+        BatchAssignmentResult result = assignAll();
+        assertEquals(day(1), result.getStart());
+        assertEquals(day(11), result.getEnd());
+        assertEquals(new HashSet<LimitingResourceQueueElement>(Arrays.asList(
+                first, second, alreadyAssigned)), result.getModified());
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.web.montecarlo;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.planner.entities.Task;
+import org.libreplan.web.montecarlo.MonteCarloSimulation.Result;
+
+/**
+ * Tests for {@link MonteCarloSimulation}.
+ */
+public class MonteCarloSimulationTest {
+
+    private static final LocalDate START = new LocalDate(2013, 1, 7);
+
+    /**
+     * Enough iterations for several rounds, the last block being incomplete
+     */
+    private static final int ITERATIONS = MonteCarloSimulation.BLOCK_SIZE
+            * MonteCarloSimulation.BLOCKS_PER_ROUND * 3 + 100;
+
+    private static final long SEED = 42;
+
+    private List<MonteCarloTask> criticalPath;
+
+    private ExecutorService oneThread;
+
+    private ExecutorService fourThreads;
+
+    @Before
+    public void setUp() {
+        criticalPath = new ArrayList<MonteCarloTask>();
+        for (int workableDays : new int[] { 10, 4, 7, 20 }) {
+            criticalPath.add(taskWithWorkableDays(workableDays));
+        }
+        oneThread = Executors.newSingleThreadExecutor();
+        fourThreads = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void shutdownExecutors() {
+        oneThread.shutdownNow();
+        fourThreads.shutdownNow();
+    }
+
+    private static MonteCarloTask taskWithWorkableDays(int workableDays) {
+        Task task = createNiceMock(Task.class);
+        expect(task.getWorkableDays()).andReturn(workableDays).anyTimes();
+        expect(task.getStartAsLocalDate()).andReturn(START).anyTimes();
+        replay(task);
+        return MonteCarloTask.create(task);
+    }
+
+    private Result simulate(ExecutorService executor, long seed) {
+        return MonteCarloSimulation.create(criticalPath)
+                .stopOnConvergence(false).runningOn(executor)
+                .run(ITERATIONS, seed, null);
+    }
+
+    private static Map<LocalDate, Long> timesPerEndDate(Result result) {
+        Map<LocalDate, Long> times = new HashMap<LocalDate, Long>();
+        for (LocalDate each : result.getProbabilities().keySet()) {
+            times.put(each, result.getTimesFor(each));
+        }
+        return times;
+    }
+
+    @Test
+    public void allTheIterationsAreDone() {
+        Result result = simulate(fourThreads, SEED);
+        assertEquals(ITERATIONS, result.getIterations());
+        assertFalse(result.isCancelled());
+        long total = 0;
+        for (Long each : timesPerEndDate(result).values()) {
+            total += each;
+        }
+        assertEquals(ITERATIONS, total);
+    }
+
+    @Test
+    public void theSameSeedGivesTheSameResultInEachRun() {
+        assertEquals(timesPerEndDate(simulate(fourThreads, SEED)),
+                timesPerEndDate(simulate(fourThreads, SEED)));
+    }
+
+    @Test
+    public void theSameSeedGivesTheSameResultWithAnyNumberOfThreads() {
+        Result withOneThread = simulate(oneThread, SEED);
+        Result withFourThreads = simulate(fourThreads, SEED);
+        assertEquals(timesPerEndDate(withOneThread),
+                timesPerEndDate(withFourThreads));
+        assertEquals(withOneThread.getProbabilities(),
+                withFourThreads.getProbabilities());
+    }
+
+    @Test
+    public void theResultStopsEarlyTheSameWayWithAnyNumberOfThreads() {
+        Result withOneThread = MonteCarloSimulation.create(criticalPath)
+                .runningOn(oneThread).run(ITERATIONS * 10, SEED, null);
+        Result withFourThreads = MonteCarloSimulation.create(criticalPath)
+                .runningOn(fourThreads).run(ITERATIONS * 10, SEED, null);
+        assertEquals(withOneThread.getIterations(),
+                withFourThreads.getIterations());
+        assertEquals(timesPerEndDate(withOneThread),
+                timesPerEndDate(withFourThreads));
+    }
+
+    @Test
+    public void differentSeedsGiveDifferentResults() {
+        assertFalse(timesPerEndDate(simulate(fourThreads, SEED)).equals(
+                timesPerEndDate(simulate(fourThreads, SEED + 1))));
+    }
+
+}
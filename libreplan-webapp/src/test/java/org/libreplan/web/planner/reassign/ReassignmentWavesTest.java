@@ -0,0 +1,184 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.libreplan.web.planner.reassign;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.web.planner.reassign.ReassignmentWaves.IFootprint;
+
+/**
+ * Tests for {@link ReassignmentWaves}.
+ */
+public class ReassignmentWavesTest {
+
+    private Map<String, List<String>> successors;
+
+    private Map<String, List<String>> children;
+
+    private Map<String, List<Long>> resources;
+
+    private int successorsQueried;
+
+    private IFootprint<String> footprint = new IFootprint<String>() {
+
+        @Override
+        public Collection<? extends String> getSuccessors(String task) {
+            successorsQueried++;
+            return valuesOf(successors, task);
+        }
+
+        @Override
+        public boolean isChildOf(String container, String task) {
+            return valuesOf(children, container).contains(task);
+        }
+
+        @Override
+        public Collection<Long> getSuitableResources(String task) {
+            return valuesOf(resources, task);
+        }
+    };
+
+    private static <T> List<T> valuesOf(Map<String, List<T>> map, String key) {
+        List<T> result = map.get(key);
+        return result != null ? result : Collections.<T> emptyList();
+    }
+
+    @Before
+    public void clear() {
+        successors = new HashMap<String, List<String>>();
+        children = new HashMap<String, List<String>>();
+        resources = new HashMap<String, List<Long>>();
+        successorsQueried = 0;
+    }
+
+    private void dependency(String source, String destination) {
+        if (!successors.containsKey(source)) {
+            successors.put(source, new ArrayList<String>());
+        }
+        successors.get(source).add(destination);
+    }
+
+    private void container(String container, String... containerChildren) {
+        children.put(container, asList(containerChildren));
+        for (String each : containerChildren) {
+            dependency(each, container);
+            dependency(container, each);
+        }
+    }
+
+    private List<List<String>> partition(String... tasks) {
+        return ReassignmentWaves.partition(asList(tasks), footprint);
+    }
+
+    @Test
+    public void tasksWithoutCommonResourcesGoInTheSameWave() {
+        resources.put("a", asList(1L));
+        resources.put("b", asList(2L));
+        resources.put("c", asList(3L, 4L));
+        assertEquals(asList(asList("a", "b", "c")), partition("a", "b", "c"));
+    }
+
+    @Test
+    public void tasksSharingResourcesGoInDifferentWavesKeepingTheOrder() {
+        resources.put("a", asList(1L, 2L));
+        resources.put("b", asList(2L));
+        resources.put("c", asList(3L));
+        assertEquals(asList(asList("a", "c"), asList("b")),
+                partition("a", "b", "c"));
+    }
+
+    @Test
+    public void aTaskGoesAfterTheTasksItDependsOn() {
+        dependency("a", "x");
+        dependency("x", "b");
+        assertEquals(asList(asList("a"), asList("b")), partition("a", "b"));
+    }
+
+    @Test
+    public void theResourcesOfTheSuccessorsArePartOfTheFootprint() {
+        dependency("a", "x");
+        resources.put("x", asList(1L));
+        resources.put("b", asList(1L));
+        assertEquals(asList(asList("a"), asList("b")), partition("a", "b"));
+    }
+
+    @Test
+    public void siblingsGoInTheSameWaveIfTheirContainerHasNoSuccessors() {
+        container("container", "a", "b");
+        assertEquals(asList(asList("a", "b")), partition("a", "b"));
+    }
+
+    @Test
+    public void siblingsGoInDifferentWavesIfTheirContainerHasSuccessors() {
+        container("container", "a", "b");
+        dependency("container", "x");
+        assertEquals(asList(asList("a"), asList("b")), partition("a", "b"));
+    }
+
+    @Test
+    public void theChildrenOfAContainerMovedByADependencyArePartOfTheFootprint() {
+        container("container", "a", "b");
+        dependency("x", "container");
+        assertEquals(asList(asList("x"), asList("a")), partition("x", "a"));
+    }
+
+    @Test
+    public void tasksOverlappingOnlyThroughAnotherTaskGoInTheSameWave() {
+        resources.put("a", asList(1L));
+        resources.put("b", asList(2L));
+        resources.put("c", asList(1L, 2L));
+        resources.put("d", asList(3L));
+        resources.put("e", asList(1L));
+        assertEquals(asList(asList("a", "b", "d"), asList("c"), asList("e")),
+                partition("a", "b", "c", "d", "e"));
+    }
+
+    @Test
+    public void siblingsGoInDifferentWavesIfTheirContainerHasResources() {
+        container("container", "a", "b");
+        resources.put("container", asList(1L));
+        assertEquals(asList(asList("a"), asList("b")), partition("a", "b"));
+    }
+
+    @Test
+    public void theSuccessorsOfEachTaskAreQueriedOnce() {
+        List<String> chain = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            chain.add("t" + i);
+            if (i > 0) {
+                dependency("t" + (i - 1), "t" + i);
+            }
+        }
+        List<List<String>> waves = ReassignmentWaves.partition(chain,
+                footprint);
+        assertEquals(100, waves.size());
+        assertEquals(100, successorsQueried);
+    }
+
+}
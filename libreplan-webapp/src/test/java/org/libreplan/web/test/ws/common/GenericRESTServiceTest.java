@@ -0,0 +1,354 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.test.ws.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.common.IntegrationEntity;
+import org.libreplan.business.common.daos.IIntegrationEntityDAO;
+import org.libreplan.business.common.daos.IntegrationEntityDAO;
+import org.libreplan.business.common.exceptions.InstanceNotFoundException;
+import org.libreplan.business.common.exceptions.ValidationException;
+import org.libreplan.ws.common.api.InstanceConstraintViolationsDTO;
+import org.libreplan.ws.common.api.IntegrationEntityDTO;
+import org.libreplan.ws.common.impl.GenericRESTService;
+
+/**
+ * Tests for the bulk mode of {@link GenericRESTService}. The entities are kept
+ * in memory and each transaction works on its own copies of them, that are
+ * only stored if the transaction ends successfully.
+ */
+public class GenericRESTServiceTest {
+
+    private final Map<String, Integer> committed = new HashMap<String, Integer>();
+
+    private final Map<String, Long> committedIds = new HashMap<String, Long>();
+
+    private long lastId = 0;
+
+    /**
+     * The sum of the increments done to the values of the items, updated
+     * when saving them as the sum of charged efforts is for work reports
+     */
+    private int committedTotal = 0;
+
+    private int transactions = 0;
+
+    private Transaction current;
+
+    private class Transaction {
+
+        private final Map<String, Item> loaded = new HashMap<String, Item>();
+
+        private final List<Item> saved = new ArrayList<Item>();
+
+        private int total = 0;
+
+        private void commit() {
+            for (Item each : saved) {
+                String key = each.getCode().toLowerCase();
+                committed.put(key, each.value);
+                if (!committedIds.containsKey(key)) {
+                    committedIds.put(key, ++lastId);
+                }
+            }
+            committedTotal += total;
+            transactions++;
+        }
+
+    }
+
+    private class Item extends IntegrationEntity {
+
+        private int value;
+
+        private Item(String code, int value, Long id) {
+            setCode(code);
+            this.value = value;
+            setId(id);
+            setNewObject(id == null);
+        }
+
+        @Override
+        protected IIntegrationEntityDAO<? extends IntegrationEntity> getIntegrationEntityDAO() {
+            return itemDAO;
+        }
+
+    }
+
+    private class ItemDAO extends IntegrationEntityDAO<Item> {
+
+        @Override
+        public boolean existsByCodeAnotherTransaction(String code) {
+            return committed.containsKey(code.toLowerCase());
+        }
+
+        @Override
+        public Item findByCodeAnotherTransaction(String code)
+                throws InstanceNotFoundException {
+            String key = code.toLowerCase();
+            if (!committed.containsKey(key)) {
+                throw new InstanceNotFoundException(code, Item.class.getName());
+            }
+            return new Item(code, committed.get(key), committedIds.get(key));
+        }
+
+        @Override
+        public Item findByCode(String code) throws InstanceNotFoundException {
+            String key = code.toLowerCase();
+            Item result = current.loaded.get(key);
+            if (result == null) {
+                result = findByCodeAnotherTransaction(code);
+                current.loaded.put(key, result);
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Item> findByCodes(Collection<String> codes) {
+            Map<String, Item> result = new HashMap<String, Item>();
+            for (String each : codes) {
+                try {
+                    result.put(each.toLowerCase(), findByCode(each));
+                } catch (InstanceNotFoundException e) {
+                    // it's not found as for the real DAOs
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void saveWithoutValidating(Item entity) {
+            current.saved.add(entity);
+        }
+
+    }
+
+    private final ItemDAO itemDAO = new ItemDAO();
+
+    private static class ItemDTO extends IntegrationEntityDTO {
+
+        private final int value;
+
+        private ItemDTO(String code, int value) {
+            super(code);
+            this.value = value;
+        }
+
+        @Override
+        public String getEntityType() {
+            return "item";
+        }
+
+    }
+
+    private class ItemService extends GenericRESTService<Item, ItemDTO> {
+
+        private ItemService() {
+            transactionService = new IAdHocTransactionService() {
+
+                @Override
+                public <T> T runOnTransaction(IOnTransaction<T> onTransaction) {
+                    return runOnAnotherTransaction(onTransaction);
+                }
+
+                @Override
+                public <T> T runOnReadOnlyTransaction(
+                        IOnTransaction<T> onTransaction) {
+                    return runOnAnotherTransaction(onTransaction);
+                }
+
+                @Override
+                public <T> T runOnAnotherTransaction(
+                        IOnTransaction<T> onTransaction) {
+                    current = new Transaction();
+                    try {
+                        T result = onTransaction.execute();
+                        current.commit();
+                        return result;
+                    } finally {
+                        current = null;
+                    }
+                }
+
+                @Override
+                public <T> T runOnAnotherReadOnlyTransaction(
+                        IOnTransaction<T> onTransaction) {
+                    return runOnAnotherTransaction(onTransaction);
+                }
+            };
+        }
+
+        private List<InstanceConstraintViolationsDTO> saveAll(
+                List<ItemDTO> items) {
+            return save(items).instanceConstraintViolationsList;
+        }
+
+        private List<InstanceConstraintViolationsDTO> saveAllInBulk(
+                List<ItemDTO> items, int chunkSize) {
+            return saveInBulk(items.iterator(), chunkSize).instanceConstraintViolationsList;
+        }
+
+        @Override
+        protected Item toEntity(ItemDTO entityDTO) {
+            checkValue(entityDTO);
+            return new Item(entityDTO.code, entityDTO.value, null);
+        }
+
+        @Override
+        protected void updateEntity(Item entity, ItemDTO entityDTO) {
+            checkValue(entityDTO);
+            entity.value = entityDTO.value;
+        }
+
+        private void checkValue(ItemDTO entityDTO) {
+            if (entityDTO.value < 0) {
+                throw new ValidationException("negative value");
+            }
+        }
+
+        @Override
+        protected void beforeSaving(Item entity) {
+            int previous = 0;
+            try {
+                previous = itemDAO.findByCodeAnotherTransaction(
+                        entity.getCode()).value;
+            } catch (InstanceNotFoundException e) {
+                // it's a new item
+            }
+            current.total += entity.value - previous;
+        }
+
+        @Override
+        protected ItemDTO toDTO(Item entity) {
+            return new ItemDTO(entity.getCode(), entity.value);
+        }
+
+        @Override
+        protected IIntegrationEntityDAO<Item> getIntegrationEntityDAO() {
+            return itemDAO;
+        }
+
+    }
+
+    private static List<ItemDTO> items(Object... codesAndValues) {
+        List<ItemDTO> result = new ArrayList<ItemDTO>();
+        for (int i = 0; i < codesAndValues.length; i += 2) {
+            result.add(new ItemDTO((String) codesAndValues[i],
+                    (Integer) codesAndValues[i + 1]));
+        }
+        return result;
+    }
+
+    private void givenStored(String code, int value) {
+        new ItemService().saveAll(items(code, value));
+        transactions = 0;
+        committedTotal = 0;
+    }
+
+    private static List<String> ids(
+            List<InstanceConstraintViolationsDTO> violations) {
+        List<String> result = new ArrayList<String>();
+        for (InstanceConstraintViolationsDTO each : violations) {
+            result.add(each.numItem + " " + each.code + " "
+                    + each.entityType);
+        }
+        return result;
+    }
+
+    @Test
+    public void theItemsAreSavedInChunks() {
+        givenStored("b", 1);
+        List<InstanceConstraintViolationsDTO> violations = new ItemService()
+                .saveAllInBulk(
+                        items("a", 1, "b", 2, "c", 3, "d", 4, "e", 5), 2);
+
+        assertTrue(violations.isEmpty());
+        assertEquals(3, transactions);
+        assertEquals(5, committed.size());
+        assertEquals(2, (int) committed.get("b"));
+        assertEquals(14, committedTotal);
+    }
+
+    @Test
+    public void theFailingChunksReportTheSameViolationsThanSavingOneByOne() {
+        List<ItemDTO> items = items("a", 1, "b", 2, "c", -1, "d", 4, "e", 5,
+                "f", -1, "g", 7);
+
+        List<InstanceConstraintViolationsDTO> oneByOne = new ItemService()
+                .saveAll(items);
+        Map<String, Integer> savedOneByOne = new HashMap<String, Integer>(
+                committed);
+        int totalOneByOne = committedTotal;
+        committed.clear();
+        committedIds.clear();
+        committedTotal = 0;
+        List<InstanceConstraintViolationsDTO> inBulk = new ItemService()
+                .saveAllInBulk(items, 3);
+
+        assertEquals(Arrays.asList("3 c item", "6 f item"), ids(oneByOne));
+        assertEquals(ids(oneByOne), ids(inBulk));
+        assertEquals(savedOneByOne, committed);
+        assertEquals(totalOneByOne, committedTotal);
+    }
+
+    @Test
+    public void theRepeatedCodesAreSavedInDifferentTransactions() {
+        givenStored("a", 5);
+        List<InstanceConstraintViolationsDTO> violations = new ItemService()
+                .saveAllInBulk(items("a", 7, "b", 1, "A", 9), 10);
+
+        assertTrue(violations.isEmpty());
+        assertEquals(2, transactions);
+        assertEquals(9, (int) committed.get("a"));
+        assertEquals(5, committedTotal);
+    }
+
+    @Test
+    public void theRepeatedCodesAreNumberedAsSavingOneByOne() {
+        List<ItemDTO> items = items("a", 1, "a", -1, "b", 2, "a", 3);
+
+        List<InstanceConstraintViolationsDTO> oneByOne = new ItemService()
+                .saveAll(items);
+        int totalOneByOne = committedTotal;
+        committed.clear();
+        committedIds.clear();
+        committedTotal = 0;
+        List<InstanceConstraintViolationsDTO> inBulk = new ItemService()
+                .saveAllInBulk(items, 10);
+
+        assertEquals(Arrays.asList("2 a item"), ids(oneByOne));
+        assertEquals(ids(oneByOne), ids(inBulk));
+        assertEquals(3, (int) committed.get("a"));
+        assertEquals(totalOneByOne, committedTotal);
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.test.ws.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.common.daos.IScrollVisitor;
+import org.libreplan.ws.common.impl.DateConverter;
+import org.libreplan.ws.common.impl.NDJSONStreamingOutput;
+import org.libreplan.ws.dayassignments.api.DayAssignmentDTO;
+
+/**
+ * Tests for {@link NDJSONStreamingOutput}.
+ */
+public class NDJSONStreamingOutputTest {
+
+    private boolean readOnly = false;
+
+    private int visited = 0;
+
+    private final IAdHocTransactionService transactionService = new IAdHocTransactionService() {
+
+        @Override
+        public <T> T runOnTransaction(IOnTransaction<T> onTransaction) {
+            return onTransaction.execute();
+        }
+
+        @Override
+        public <T> T runOnReadOnlyTransaction(IOnTransaction<T> onTransaction) {
+            readOnly = true;
+            return onTransaction.execute();
+        }
+
+        @Override
+        public <T> T runOnAnotherTransaction(IOnTransaction<T> onTransaction) {
+            return onTransaction.execute();
+        }
+
+        @Override
+        public <T> T runOnAnotherReadOnlyTransaction(
+                IOnTransaction<T> onTransaction) {
+            readOnly = true;
+            return onTransaction.execute();
+        }
+    };
+
+    private NDJSONStreamingOutput<DayAssignmentDTO> outputOf(
+            final List<DayAssignmentDTO> dtos) {
+        return new NDJSONStreamingOutput<DayAssignmentDTO>(transactionService) {
+
+            @Override
+            protected void scroll(IScrollVisitor<DayAssignmentDTO> visitor) {
+                for (DayAssignmentDTO each : dtos) {
+                    visited++;
+                    visitor.visit(each);
+                }
+            }
+
+            @Override
+            protected Object toDTO(DayAssignmentDTO entity) {
+                return entity;
+            }
+        };
+    }
+
+    private static List<DayAssignmentDTO> dayAssignments(int count) {
+        List<DayAssignmentDTO> result = new ArrayList<DayAssignmentDTO>();
+        for (int i = 1; i <= count; i++) {
+            result.add(new DayAssignmentDTO((long) i, DateConverter
+                    .toXMLGregorianCalendar(new LocalDate(2013, 1, 1)
+                            .plusDays(i)), "resource-" + i, "order-element-"
+                    + i, "8:00", "specific"));
+        }
+        return result;
+    }
+
+    private static List<String> lines(ByteArrayOutputStream output)
+            throws Exception {
+        String written = output.toString("UTF-8");
+        assertTrue(written.isEmpty() || written.endsWith("\n"));
+        List<String> result = new ArrayList<String>();
+        for (String each : written.split("\n")) {
+            if (!each.isEmpty()) {
+                result.add(each);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void eachDTOIsWrittenInItsOwnLine() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        outputOf(dayAssignments(3)).write(output);
+
+        List<String> lines = lines(output);
+        assertEquals(3, lines.size());
+        ObjectMapper mapper = new ObjectMapper();
+        for (int i = 0; i < lines.size(); i++) {
+            JsonNode node = mapper.readTree(lines.get(i));
+            assertTrue(node.isObject());
+            assertEquals(i + 1, node.get("id").getLongValue());
+        }
+        assertTrue(readOnly);
+    }
+
+    @Test
+    public void theNamesOfThePropertiesAreTheJAXBOnes() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        outputOf(dayAssignments(1)).write(output);
+
+        JsonNode node = new ObjectMapper().readTree(lines(output).get(0));
+        assertEquals("order-element-1", node.get("work-order").getTextValue());
+        assertFalse(node.has("orderElement"));
+        assertEquals("resource-1", node.get("resource").getTextValue());
+        assertEquals("8:00", node.get("hours").getTextValue());
+        assertEquals("2013-01-02", node.get("day").getTextValue());
+    }
+
+    @Test
+    public void nothingIsWrittenIfThereAreNoEntities() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        outputOf(new ArrayList<DayAssignmentDTO>()).write(output);
+
+        assertEquals(0, output.size());
+    }
+
+    @Test
+    public void theErrorsWritingAreThrownAsTheyAre() {
+        final IOException error = new IOException("connection closed");
+        OutputStream failing = new OutputStream() {
+
+            @Override
+            public void write(int b) throws IOException {
+                throw error;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw error;
+            }
+        };
+        List<DayAssignmentDTO> dtos = dayAssignments(10000);
+
+        try {
+            outputOf(dtos).write(failing);
+            fail("the write must fail");
+        } catch (IOException e) {
+            assertSame(error, e);
+        }
+        // it failed while the entities were retrieved, not when flushing
+        assertTrue(visited < dtos.size());
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.test.ws.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBContext;
+
+import org.junit.Test;
+import org.libreplan.ws.common.impl.StreamedListDTOReader;
+import org.libreplan.ws.resources.api.MachineDTO;
+import org.libreplan.ws.resources.api.ResourceDTO;
+import org.libreplan.ws.resources.api.ResourceListDTO;
+import org.libreplan.ws.resources.api.WorkerDTO;
+
+/**
+ * Tests for {@link StreamedListDTOReader}.
+ */
+public class StreamedListDTOReaderTest {
+
+    private static InputStream marshal(ResourceListDTO list) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        JAXBContext.newInstance(ResourceListDTO.class).createMarshaller()
+                .marshal(list, output);
+        return new ByteArrayInputStream(output.toByteArray());
+    }
+
+    private static Map<String, Class<? extends ResourceDTO>> resourceElements() {
+        Map<String, Class<? extends ResourceDTO>> result = new HashMap<String, Class<? extends ResourceDTO>>();
+        result.put("worker", WorkerDTO.class);
+        result.put("machine", MachineDTO.class);
+        return result;
+    }
+
+    private static List<ResourceDTO> readAll(
+            StreamedListDTOReader<ResourceDTO> reader) {
+        List<ResourceDTO> result = new ArrayList<ResourceDTO>();
+        while (reader.hasNext()) {
+            result.add(reader.next());
+        }
+        return result;
+    }
+
+    @Test
+    public void anEmptyListHasNoElements() throws Exception {
+        StreamedListDTOReader<ResourceDTO> reader = StreamedListDTOReader
+                .read(marshal(new ResourceListDTO()), ResourceListDTO.class,
+                        resourceElements());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void theElementsAreReadInOrderWithTheirClasses() throws Exception {
+        ResourceListDTO list = new ResourceListDTO(Arrays.asList(
+                new WorkerDTO("worker-1", "first", "surname", "nif-1"),
+                new MachineDTO("machine-1", "name", "description"),
+                new WorkerDTO("worker-2", "second", "surname", "nif-2")));
+        List<ResourceDTO> read = readAll(StreamedListDTOReader.read(
+                marshal(list), ResourceListDTO.class, resourceElements()));
+
+        assertEquals(3, read.size());
+        assertTrue(read.get(0) instanceof WorkerDTO);
+        assertEquals("worker-1", read.get(0).code);
+        assertEquals("nif-1", ((WorkerDTO) read.get(0)).nif);
+        assertTrue(read.get(1) instanceof MachineDTO);
+        assertEquals("machine-1", read.get(1).code);
+        assertEquals("worker-2", read.get(2).code);
+    }
+
+    @Test
+    public void theElementsWithoutClassAreSkipped() throws Exception {
+        ResourceListDTO list = new ResourceListDTO(Arrays.asList(
+                new WorkerDTO("worker-1", "first", "surname", "nif-1"),
+                new MachineDTO("machine-1", "name", "description"),
+                new WorkerDTO("worker-2", "second", "surname", "nif-2")));
+        List<ResourceDTO> read = readAll(StreamedListDTOReader
+                .<ResourceDTO> read(marshal(list), ResourceListDTO.class,
+                        "worker", WorkerDTO.class));
+
+        assertEquals(2, read.size());
+        assertEquals("worker-1", read.get(0).code);
+        assertEquals("worker-2", read.get(1).code);
+    }
+
+    private static InputStream document(String xml) throws Exception {
+        return new ByteArrayInputStream(xml.getBytes("UTF-8"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void theDocumentsWithExternalEntitiesAreRejected() throws Exception {
+        readAll(StreamedListDTOReader.read(document("<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE resource-list ["
+                + "<!ENTITY secret SYSTEM \"file:///etc/passwd\">]>"
+                + "<resource-list><worker code=\"worker-1\">&secret;</worker>"
+                + "</resource-list>"), ResourceListDTO.class,
+                resourceElements()));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void theDocumentsWithADTDAreRejected() throws Exception {
+        readAll(StreamedListDTOReader.read(document("<?xml version=\"1.0\"?>"
+                + "<!DOCTYPE resource-list ["
+                + "<!ENTITY code \"worker-1\">]>"
+                + "<resource-list><worker code=\"&code;\"/></resource-list>"),
+                ResourceListDTO.class, resourceElements()));
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * This file is part of LibrePlan
+ *
+ * Copyright (C) 2013 Igalia, S.L.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.libreplan.web.test.ws.dayassignments;
+
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.same;
+import static org.easymock.classextension.EasyMock.createMock;
+import static org.easymock.classextension.EasyMock.createNiceMock;
+import static org.easymock.classextension.EasyMock.replay;
+import static org.easymock.classextension.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.easymock.IAnswer;
+import org.joda.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+import org.libreplan.business.common.IAdHocTransactionService;
+import org.libreplan.business.common.IOnTransaction;
+import org.libreplan.business.common.daos.IScrollVisitor;
+import org.libreplan.business.planner.daos.IDayAssignmentDAO;
+import org.libreplan.business.planner.entities.DayAssignment;
+import org.libreplan.business.planner.entities.GenericDayAssignment;
+import org.libreplan.business.planner.entities.SpecificDayAssignment;
+import org.libreplan.business.resources.entities.Worker;
+import org.libreplan.business.scenarios.IScenarioManager;
+import org.libreplan.business.scenarios.entities.Scenario;
+import org.libreplan.business.workingday.EffortDuration;
+import org.libreplan.ws.dayassignments.api.IDayAssignmentService;
+import org.libreplan.ws.dayassignments.impl.DayAssignmentServiceREST;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests for {@link IDayAssignmentService}.
+ */
+public class DayAssignmentServiceTest {
+
+    private DayAssignmentServiceREST dayAssignmentService;
+
+    private Scenario scenario;
+
+    private IDayAssignmentDAO dayAssignmentDAO;
+
+    @Before
+    public void setUp() {
+        dayAssignmentService = new DayAssignmentServiceREST();
+        scenario = createNiceMock(Scenario.class);
+        replay(scenario);
+        IScenarioManager scenarioManager = createNiceMock(IScenarioManager.class);
+        expect(scenarioManager.getCurrent()).andReturn(scenario).anyTimes();
+        replay(scenarioManager);
+        ReflectionTestUtils.setField(dayAssignmentService, "scenarioManager",
+                scenarioManager);
+        ReflectionTestUtils.setField(dayAssignmentService,
+                "transactionService", new IAdHocTransactionService() {
+
+                    @Override
+                    public <T> T runOnTransaction(
+                            IOnTransaction<T> onTransaction) {
+                        return onTransaction.execute();
+                    }
+
+                    @Override
+                    public <T> T runOnReadOnlyTransaction(
+                            IOnTransaction<T> onTransaction) {
+                        return onTransaction.execute();
+                    }
+
+                    @Override
+                    public <T> T runOnAnotherTransaction(
+                            IOnTransaction<T> onTransaction) {
+                        return onTransaction.execute();
+                    }
+
+                    @Override
+                    public <T> T runOnAnotherReadOnlyTransaction(
+                            IOnTransaction<T> onTransaction) {
+                        return onTransaction.execute();
+                    }
+                });
+        dayAssignmentDAO = createMock(IDayAssignmentDAO.class);
+        ReflectionTestUtils.setField(dayAssignmentService, "dayAssignmentDAO",
+                dayAssignmentDAO);
+    }
+
+    private void givenScrolled(LocalDate start, LocalDate end, Long afterId,
+            Integer limit, final DayAssignment... dayAssignments) {
+        dayAssignmentDAO.scrollOrderedById(same(scenario), eq(start), eq(end),
+                eq(afterId), eq(limit), isA(IScrollVisitor.class));
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public Object answer() {
+                IScrollVisitor<DayAssignment> visitor = (IScrollVisitor<DayAssignment>) getCurrentArguments()[5];
+                for (DayAssignment each : dayAssignments) {
+                    visitor.visit(each);
+                }
+                return null;
+            }
+        });
+        replay(dayAssignmentDAO);
+    }
+
+    private static Worker worker(String code) {
+        Worker result = Worker.create("first name", "surname", "nif");
+        result.setCode(code);
+        return result;
+    }
+
+    private static String write(Response response) throws Exception {
+        assertEquals(Status.OK.getStatusCode(), response.getStatus());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(output);
+        return output.toString("UTF-8");
+    }
+
+    @Test
+    public void theDayAssignmentsAreExportedOnePerLine() throws Exception {
+        LocalDate day = new LocalDate(2013, 1, 7);
+        givenScrolled(day, day.plusDays(1), 41L, 2, SpecificDayAssignment
+                .create(day, EffortDuration.hours(8), worker("worker-1")),
+                GenericDayAssignment.create(day.plusDays(1),
+                        EffortDuration.minutes(90), worker("worker-2")));
+
+        String written = write(dayAssignmentService.exportDayAssignments(
+                "2013-01-07", "2013-01-08", 41L, 2));
+
+        verify(dayAssignmentDAO);
+        List<String> lines = Arrays.asList(written.split("\n"));
+        assertEquals(2, lines.size());
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode first = mapper.readTree(lines.get(0));
+        assertEquals("2013-01-07", first.get("day").getTextValue());
+        assertEquals("worker-1", first.get("resource").getTextValue());
+        assertEquals("8", first.get("hours").getTextValue());
+        assertEquals("specific", first.get("type").getTextValue());
+        JsonNode second = mapper.readTree(lines.get(1));
+        assertEquals("worker-2", second.get("resource").getTextValue());
+        assertEquals("1:30", second.get("hours").getTextValue());
+        assertEquals("generic", second.get("type").getTextValue());
+    }
+
+    @Test
+    public void theFiltersAreOptional() throws Exception {
+        givenScrolled(null, null, null, null);
+
+        assertEquals("", write(dayAssignmentService.exportDayAssignments(
+                null, null, null, null)));
+        verify(dayAssignmentDAO);
+    }
+
+    @Test
+    public void aMalformedDateIsABadRequest() {
+        replay(dayAssignmentDAO);
+
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), dayAssignmentService
+                .exportDayAssignments("2013-13-01", null, null, null)
+                .getStatus());
+        assertEquals(Status.BAD_REQUEST.getStatusCode(), dayAssignmentService
+                .exportDayAssignments(null, "yesterday", null, null)
+                .getStatus());
+        verify(dayAssignmentDAO);
+    }
+
+}
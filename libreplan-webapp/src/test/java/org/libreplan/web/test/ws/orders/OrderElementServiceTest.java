@@ -35,8 +35,13 @@ import static org.libreplan.web.test.WebappGlobalNames.WEBAPP_SPRING_CONFIG_TEST
 import static org.libreplan.web.test.WebappGlobalNames.WEBAPP_SPRING_SECURITY_CONFIG_TEST_FILE;
 import static org.libreplan.web.test.ws.common.Util.mustEnd;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -47,7 +52,12 @@ import java.util.UUID;
 import javax.annotation.Resource;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
 
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.hibernate.SessionFactory;
 import org.joda.time.LocalDate;
 import org.junit.Before;
@@ -1889,6 +1899,131 @@ public class OrderElementServiceTest {
                 instanceConstraintViolationsList.size() == 1);
     }
 
+    private static InputStream asXML(OrderListDTO orderListDTO) {
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            JAXBContext.newInstance(OrderListDTO.class).createMarshaller()
+                    .marshal(orderListDTO, output);
+            return new ByteArrayInputStream(output.toByteArray());
+        } catch (JAXBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<Long> numItems(
+            List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList) {
+        List<Long> result = new ArrayList<Long>();
+        for (InstanceConstraintViolationsDTO each : instanceConstraintViolationsList) {
+            result.add(each.numItem);
+        }
+        return result;
+    }
+
+    private OrderDTO createOrderDTO() {
+        return createOrderDTO("order-code-" + UUID.randomUUID().toString());
+    }
+
+    @Test
+    public void validOrdersInBulk() {
+        OrderListDTO orderListDTO = createOrderListDTO(createOrderDTO(),
+                createOrderDTO(), createOrderDTO());
+
+        List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList = orderElementService
+                .addOrdersInBulk(asXML(orderListDTO), 2).instanceConstraintViolationsList;
+        assertThat(instanceConstraintViolationsList.size(), equalTo(0));
+
+        for (OrderDTO each : orderListDTO.orderDTOs) {
+            checkIfExistsByCodeInAnotherTransaction(each.code);
+        }
+    }
+
+    @Test
+    public void invalidOrdersInBulkReportTheSameItems() {
+        OrderDTO withoutName = createOrderDTO();
+        withoutName.name = null;
+        OrderListDTO orderListDTO = createOrderListDTO(createOrderDTO(),
+                withoutName, createOrderDTO());
+
+        List<InstanceConstraintViolationsDTO> oneByOne = orderElementService
+                .addOrders(orderListDTO).instanceConstraintViolationsList;
+        for (OrderDTO each : orderListDTO.orderDTOs) {
+            each.code = "order-code-" + UUID.randomUUID().toString();
+        }
+        List<InstanceConstraintViolationsDTO> inBulk = orderElementService
+                .addOrdersInBulk(asXML(orderListDTO), 2).instanceConstraintViolationsList;
+
+        assertThat(numItems(oneByOne), equalTo(Arrays.asList(2L)));
+        assertThat(numItems(inBulk), equalTo(numItems(oneByOne)));
+        assertThat(inBulk.get(0).code, equalTo(withoutName.code));
+        checkIfExistsByCodeInAnotherTransaction(orderListDTO.orderDTOs.get(0).code);
+        checkIfExistsByCodeInAnotherTransaction(orderListDTO.orderDTOs.get(2).code);
+    }
+
+    @Test
+    public void repeatedOrderInBulkIsUpdated() {
+        final OrderDTO orderDTO = createOrderDTO();
+        OrderDTO updated = createOrderDTO(orderDTO.code);
+
+        List<InstanceConstraintViolationsDTO> instanceConstraintViolationsList = orderElementService
+                .addOrdersInBulk(
+                        asXML(createOrderListDTO(orderDTO, updated)), 10).instanceConstraintViolationsList;
+        assertThat(instanceConstraintViolationsList.size(), equalTo(0));
+
+        String name = transactionService
+                .runOnAnotherTransaction(new IOnTransaction<String>() {
+                    @Override
+                    public String execute() {
+                        return orderElementDAO.findExistingEntityByCode(
+                                orderDTO.code).getName();
+                    }
+                });
+        assertThat(name, equalTo(updated.name));
+    }
+
+    private static List<String> exportedCodes(Response response,
+            String prefix) {
+        assertThat(response.getStatus(), equalTo(Status.OK.getStatusCode()));
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ((StreamingOutput) response.getEntity()).write(output);
+            List<String> result = new ArrayList<String>();
+            ObjectMapper mapper = new ObjectMapper();
+            for (String each : output.toString("UTF-8").split("\n")) {
+                if (each.isEmpty()) {
+                    continue;
+                }
+                JsonNode line = mapper.readTree(each);
+                assertTrue(line.has("init-date"));
+                String code = line.get("code").getTextValue();
+                if (code.startsWith(prefix)) {
+                    result.add(code);
+                }
+            }
+            return result;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void exportOrders() {
+        String prefix = "order-code-" + UUID.randomUUID().toString();
+        OrderListDTO orderListDTO = createOrderListDTO(createOrderDTO(prefix
+                + "-3"), createOrderDTO(prefix + "-1"),
+                createOrderDTO(prefix + "-2"));
+        assertThat(orderElementService.addOrders(orderListDTO).instanceConstraintViolationsList
+                .size(), equalTo(0));
+
+        assertThat(exportedCodes(orderElementService.exportOrders(null, null),
+                prefix), equalTo(Arrays.asList(prefix + "-1", prefix + "-2",
+                prefix + "-3")));
+        assertThat(exportedCodes(orderElementService.exportOrders(prefix
+                + "-1", null), prefix), equalTo(Arrays.asList(prefix + "-2",
+                prefix + "-3")));
+        assertThat(exportedCodes(orderElementService.exportOrders(prefix
+                + "-1", 1), prefix), equalTo(Arrays.asList(prefix + "-2")));
+    }
+
     private OrderDTO createOrderDTO(String code) {
         OrderDTO result = new OrderDTO();
         result.initDate = DateConverter.toXMLGregorianCalendar(new Date());
@@ -30,6 +30,10 @@ import static org.libreplan.web.WebappGlobalNames.WEBAPP_SPRING_SECURITY_CONFIG_
 import static org.libreplan.web.test.WebappGlobalNames.WEBAPP_SPRING_CONFIG_TEST_FILE;
 import static org.libreplan.web.test.WebappGlobalNames.WEBAPP_SPRING_SECURITY_CONFIG_TEST_FILE;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -42,8 +46,15 @@ import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Resource;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
 import javax.xml.datatype.XMLGregorianCalendar;
 
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.hibernate.SessionFactory;
 import org.joda.time.LocalDate;
 import org.joda.time.LocalTime;
@@ -62,6 +73,7 @@ import org.libreplan.business.labels.entities.Label;
 import org.libreplan.business.labels.entities.LabelType;
 import org.libreplan.business.orders.daos.IOrderElementDAO;
 import org.libreplan.business.orders.entities.OrderLine;
+import org.libreplan.business.orders.entities.SumChargedEffort;
 import org.libreplan.business.resources.daos.IWorkerDAO;
 import org.libreplan.business.resources.entities.Worker;
 import org.libreplan.business.workingday.EffortDuration;
@@ -734,4 +746,187 @@ public class WorkReportServiceTest {
                         .size(), equalTo(0));
 
     }
+
+    private static InputStream asXML(WorkReportListDTO workReportListDTO) {
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            JAXBContext.newInstance(WorkReportListDTO.class)
+                    .createMarshaller().marshal(workReportListDTO, output);
+            return new ByteArrayInputStream(output.toByteArray());
+        } catch (JAXBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private int countWorkReports() {
+        return transactionService
+                .runOnTransaction(new IOnTransaction<Integer>() {
+                    @Override
+                    public Integer execute() {
+                        return workReportDAO.getAll().size();
+                    }
+                });
+    }
+
+    private static List<Long> numItems(
+            InstanceConstraintViolationsListDTO instanceConstraintViolationsListDTO) {
+        List<Long> result = new ArrayList<Long>();
+        for (InstanceConstraintViolationsDTO each : instanceConstraintViolationsListDTO.instanceConstraintViolationsList) {
+            result.add(each.numItem);
+        }
+        return result;
+    }
+
+    @Test
+    public void importValidWorkReportsInBulk() {
+        int previous = countWorkReports();
+
+        WorkReportListDTO workReportListDTO = new WorkReportListDTO(Arrays
+                .asList(createWorkReportDTO(workReportTypeCode),
+                        createWorkReportDTO(workReportTypeCode),
+                        createWorkReportDTO(workReportTypeCode)));
+
+        InstanceConstraintViolationsListDTO instanceConstraintViolationsListDTO = workReportService
+                .addWorkReportsInBulk(asXML(workReportListDTO), 2);
+        assertThat(
+                instanceConstraintViolationsListDTO.instanceConstraintViolationsList
+                        .size(), equalTo(0));
+        assertThat(countWorkReports(), equalTo(previous + 3));
+    }
+
+    @Test
+    public void importInvalidWorkReportsInBulkReportsTheSameItems() {
+        int previous = countWorkReports();
+
+        InstanceConstraintViolationsListDTO oneByOne = workReportService
+                .addWorkReports(new WorkReportListDTO(Arrays.asList(
+                        createWorkReportDTO(workReportTypeCode),
+                        createWorkReportDTO(workReportTypeCode3),
+                        createWorkReportDTO(workReportTypeCode))));
+        InstanceConstraintViolationsListDTO inBulk = workReportService
+                .addWorkReportsInBulk(asXML(new WorkReportListDTO(Arrays
+                        .asList(createWorkReportDTO(workReportTypeCode),
+                                createWorkReportDTO(workReportTypeCode3),
+                                createWorkReportDTO(workReportTypeCode)))), 2);
+
+        assertThat(numItems(oneByOne), equalTo(Arrays.asList(2L)));
+        assertThat(numItems(inBulk), equalTo(numItems(oneByOne)));
+        assertThat(countWorkReports(), equalTo(previous + 4));
+    }
+
+    private EffortDuration getChargedEffort() {
+        return transactionService
+                .runOnTransaction(new IOnTransaction<EffortDuration>() {
+                    @Override
+                    public EffortDuration execute() {
+                        SumChargedEffort sumChargedEffort = orderElementDAO
+                                .findExistingEntityByCode(orderElementCode)
+                                .getSumChargedEffort();
+                        return sumChargedEffort == null ? EffortDuration
+                                .zero() : sumChargedEffort
+                                .getDirectChargedEffort();
+                    }
+                });
+    }
+
+    private WorkReportDTO withEffort(WorkReportDTO workReportDTO,
+            String numHours) {
+        WorkReportDTO result = new WorkReportDTO();
+        result.code = workReportDTO.code;
+        result.workReportType = workReportDTO.workReportType;
+        for (WorkReportLineDTO each : workReportDTO.workReportLines) {
+            WorkReportLineDTO line = createWorkReportLineDTO();
+            line.code = each.code;
+            line.date = each.date;
+            line.numHours = numHours;
+            result.workReportLines.add(line);
+        }
+        return result;
+    }
+
+    @Test
+    public void importRepeatedWorkReportInBulkChargesTheLastEffort() {
+        WorkReportDTO workReportDTO = withEffort(
+                createWorkReportDTO(workReportTypeCode), "5:00");
+        assertThat(
+                workReportService.addWorkReports(new WorkReportListDTO(Arrays
+                        .asList(workReportDTO))).instanceConstraintViolationsList
+                        .size(), equalTo(0));
+        EffortDuration previous = getChargedEffort();
+
+        InstanceConstraintViolationsListDTO instanceConstraintViolationsListDTO = workReportService
+                .addWorkReportsInBulk(asXML(new WorkReportListDTO(Arrays
+                        .asList(withEffort(workReportDTO, "7:00"),
+                                withEffort(workReportDTO, "9:00")))), 10);
+        assertThat(
+                instanceConstraintViolationsListDTO.instanceConstraintViolationsList
+                        .size(), equalTo(0));
+
+        assertThat(getChargedEffort(),
+                equalTo(previous.plus(EffortDuration.hours(4))));
+    }
+
+    private static List<String> exportedCodes(Response response,
+            String prefix) {
+        assertThat(response.getStatus(), equalTo(Status.OK.getStatusCode()));
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ((StreamingOutput) response.getEntity()).write(output);
+            List<String> result = new ArrayList<String>();
+            ObjectMapper mapper = new ObjectMapper();
+            for (String each : output.toString("UTF-8").split("\n")) {
+                if (each.isEmpty()) {
+                    continue;
+                }
+                JsonNode line = mapper.readTree(each);
+                assertTrue(line.has("work-order"));
+                String code = line.get("code").getTextValue();
+                if (code.startsWith(prefix)) {
+                    result.add(code);
+                }
+            }
+            return result;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void exportWorkReportLines() {
+        String prefix = "work-report-line-code-" + UUID.randomUUID();
+        WorkReportDTO workReportDTO = createWorkReportDTO(workReportTypeCode);
+        workReportDTO.workReportLines.clear();
+        for (int day : Arrays.asList(3, 1, 2)) {
+            WorkReportLineDTO line = createWorkReportLineDTO();
+            line.code = prefix + "-" + day;
+            line.date = DateConverter.toXMLGregorianCalendar(new LocalDate(
+                    2001, 1, day));
+            workReportDTO.workReportLines.add(line);
+        }
+        assertThat(
+                workReportService.addWorkReports(new WorkReportListDTO(Arrays
+                        .asList(workReportDTO))).instanceConstraintViolationsList
+                        .size(), equalTo(0));
+
+        assertThat(exportedCodes(workReportService.exportWorkReportLines(
+                null, null, null, null), prefix), equalTo(Arrays.asList(
+                prefix + "-1", prefix + "-2", prefix + "-3")));
+        assertThat(exportedCodes(workReportService.exportWorkReportLines(
+                null, null, prefix + "-1", 1), prefix),
+                equalTo(Arrays.asList(prefix + "-2")));
+        assertThat(exportedCodes(workReportService.exportWorkReportLines(
+                "2001-01-02", "2001-01-03", null, null), prefix),
+                equalTo(Arrays.asList(prefix + "-2", prefix + "-3")));
+    }
+
+    @Test
+    public void exportWorkReportLinesWithMalformedDate() {
+        assertThat(workReportService.exportWorkReportLines("2001-13-01",
+                null, null, null).getStatus(), equalTo(Status.BAD_REQUEST
+                .getStatusCode()));
+        assertThat(workReportService.exportWorkReportLines(null, "today",
+                null, null).getStatus(), equalTo(Status.BAD_REQUEST
+                .getStatusCode()));
+    }
+
 }